@@ -0,0 +1,67 @@
+package common;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Validates a price ladder, whose prices must all be in a band and increase,
+ * with a {@link Constraints} call per price and with {@link ArrayChecks}.
+ *
+ * @author rstoner
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ArrayChecksBenchmark {
+    @Param({ "10", "1000" })
+    int _levels;
+
+    private double[] _prices;
+    private double _low;
+    private double _high;
+
+    /***/
+    @Setup
+    public void setup() {
+        _prices = new double[_levels];
+        for (int i = 0; i < _levels; i++) {
+            _prices[i] = 100 + 0.25 * i;
+        }
+        _low = 99;
+        _high = 100 + 0.25 * _levels;
+    }
+
+    /***/
+    @Benchmark
+    public int scalar() {
+        for (int i = 0; i < _prices.length; i++) {
+            Constraints.between(_low, _high, _prices[i]);
+            if (i > 0) {
+                Constraints.gt(_prices[i - 1], _prices[i]);
+            }
+        }
+        return -1;
+    }
+
+    /***/
+    @Benchmark
+    public int bulk() {
+        int i = ArrayChecks.between(_low, _high, _prices, 0, _prices.length);
+        return i >= 0 ? i : ArrayChecks.increasing(_prices, 0,
+                _prices.length);
+    }
+}
@@ -0,0 +1,71 @@
+package common;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Rejects an order price outside its band by catching the exception of
+ * {@link Constraints}, by the status code of {@link Checks}, and with a
+ * {@link ConstraintResult} that throws a preallocated exception. Run with
+ * <code>-prof gc</code> to see the allocation per reject.
+ *
+ * @author rstoner
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConstraintsBenchmark {
+    private final ConstraintResult _result = new ConstraintResult();
+    private final ConstraintResult _stackless = new ConstraintResult(true);
+    private double _low = 99.5;
+    private double _high = 100.5;
+    private double _price = 101.25;
+
+    /***/
+    @Benchmark
+    public int exception() {
+        try {
+            Constraints.between(_low, _high, _price);
+            return Checks.OK;
+        } catch (ConstraintException e) {
+            return Checks.BETWEEN;
+        }
+    }
+
+    /***/
+    @Benchmark
+    public int status() {
+        return Checks.between(_low, _high, _price);
+    }
+
+    /***/
+    @Benchmark
+    public int result() {
+        _result.reset().between(_low, _high, _price);
+        return _result.status();
+    }
+
+    /***/
+    @Benchmark
+    public int stacklessException() {
+        try {
+            _stackless.reset().between(_low, _high, _price);
+            _stackless.throwIfFailed();
+            return Checks.OK;
+        } catch (ConstraintException e) {
+            return _stackless.status();
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package common.concurrent;
+
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Hands elements from producer threads to consumer threads through the
+ * {@link RingQueue}s and through the JDK's {@link ArrayBlockingQueue} and
+ * {@link ConcurrentLinkedQueue}, with one producer and one consumer, three
+ * producers and one consumer, and one producer and three consumers. The
+ * throughput of each side counts all calls, including offers to a full and
+ * polls of an empty queue. Run with <code>-prof gc</code> to see the
+ * allocation per element, and on at least as many cores as threads.
+ *
+ * @author rstoner
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueueBenchmark {
+    private static final int CAPACITY = 1024;
+    private static final Integer ELEMENT = 42;
+
+    /**
+     * Queue under test, adapted to a common interface.
+     */
+    abstract static class Handoff {
+        abstract boolean offer(Integer e);
+
+        abstract Integer poll();
+
+        static Handoff of(String impl, RingQueue<Integer> ring) {
+            switch (impl) {
+            case "ring":
+                return ring(ring);
+            case "abq":
+                return jdk(new ArrayBlockingQueue<Integer>(CAPACITY));
+            case "clq":
+                return jdk(new ConcurrentLinkedQueue<Integer>());
+            default:
+                throw new IllegalArgumentException(impl);
+            }
+        }
+
+        private static Handoff ring(final RingQueue<Integer> queue) {
+            return new Handoff() {
+                @Override
+                boolean offer(Integer e) {
+                    return queue.offer(e);
+                }
+
+                @Override
+                Integer poll() {
+                    return queue.poll();
+                }
+            };
+        }
+
+        private static Handoff jdk(final Queue<Integer> queue) {
+            return new Handoff() {
+                @Override
+                boolean offer(Integer e) {
+                    // Bound the unbounded queue like the others
+                    return queue.size() < CAPACITY && queue.offer(e);
+                }
+
+                @Override
+                Integer poll() {
+                    return queue.poll();
+                }
+            };
+        }
+    }
+
+    /***/
+    @State(Scope.Group)
+    public static class Spsc {
+        @Param({ "ring", "abq", "clq" })
+        String _impl;
+        Handoff _queue;
+
+        /***/
+        @Setup
+        public void setup() {
+            _queue = Handoff.of(_impl, new SpscQueue<Integer>(CAPACITY));
+        }
+    }
+
+    /***/
+    @State(Scope.Group)
+    public static class Mpsc {
+        @Param({ "ring", "abq", "clq" })
+        String _impl;
+        Handoff _queue;
+
+        /***/
+        @Setup
+        public void setup() {
+            _queue = Handoff.of(_impl, new MpscQueue<Integer>(CAPACITY));
+        }
+    }
+
+    /***/
+    @State(Scope.Group)
+    public static class Spmc {
+        @Param({ "ring", "abq", "clq" })
+        String _impl;
+        Handoff _queue;
+
+        /***/
+        @Setup
+        public void setup() {
+            _queue = Handoff.of(_impl, new SpmcQueue<Integer>(CAPACITY));
+        }
+    }
+
+    /***/
+    @Benchmark
+    @Group("spsc")
+    @GroupThreads(1)
+    public boolean spscOffer(Spsc state) {
+        return state._queue.offer(ELEMENT);
+    }
+
+    /***/
+    @Benchmark
+    @Group("spsc")
+    @GroupThreads(1)
+    public Integer spscPoll(Spsc state) {
+        return state._queue.poll();
+    }
+
+    /***/
+    @Benchmark
+    @Group("mpsc")
+    @GroupThreads(3)
+    public boolean mpscOffer(Mpsc state) {
+        return state._queue.offer(ELEMENT);
+    }
+
+    /***/
+    @Benchmark
+    @Group("mpsc")
+    @GroupThreads(1)
+    public Integer mpscPoll(Mpsc state) {
+        return state._queue.poll();
+    }
+
+    /***/
+    @Benchmark
+    @Group("spmc")
+    @GroupThreads(1)
+    public boolean spmcOffer(Spmc state) {
+        return state._queue.offer(ELEMENT);
+    }
+
+    /***/
+    @Benchmark
+    @Group("spmc")
+    @GroupThreads(3)
+    public Integer spmcPoll(Spmc state) {
+        return state._queue.poll();
+    }
+}
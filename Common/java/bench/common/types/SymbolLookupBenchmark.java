@@ -0,0 +1,104 @@
+package common.types;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Resolves the symbol of a market data message from its wire bytes, by
+ * decoding the name into a string and looking it up in a
+ * <code>HashMap&lt;String, Symbol&gt;</code>, and by looking the bytes up in a
+ * {@link SymbolTable}. Run with <code>-prof gc</code> to see the allocation
+ * per lookup.
+ *
+ * @author rstoner
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SymbolLookupBenchmark {
+    private static final Charset ASCII = Charset.forName("US-ASCII");
+    private static final int MESSAGES = 1024;
+
+    @Param({ "1000", "100000" })
+    int _symbols;
+
+    private final SymbolTable _table = new SymbolTable();
+    private final Map<String, Symbol> _map = new HashMap<>();
+    private byte[] _wire;
+    private ByteBuffer _directWire;
+    private int[] _offsets = new int[MESSAGES];
+    private int[] _lengths = new int[MESSAGES];
+    private int[] _hashes = new int[MESSAGES];
+    private int _next;
+
+    /***/
+    @Setup
+    public void setup() {
+        for (int i = 0; i < _symbols; i++) {
+            Symbol sym = _table.reserve("SYM" + i);
+            _map.put(sym.toString(), sym);
+        }
+        StringBuilder sb = new StringBuilder();
+        for (int m = 0; m < MESSAGES; m++) {
+            String name = "SYM" + (m * 7919 % _symbols);
+            _offsets[m] = sb.length();
+            _lengths[m] = name.length();
+            _hashes[m] = SymbolTable.hash(name);
+            sb.append(name);
+        }
+        _wire = sb.toString().getBytes(ASCII);
+        _directWire = ByteBuffer.allocateDirect(_wire.length);
+        _directWire.put(_wire);
+    }
+
+    private int next() {
+        _next = (_next + 1) & (MESSAGES - 1);
+        return _next;
+    }
+
+    /***/
+    @Benchmark
+    public Symbol decodeAndHashMap() {
+        int m = next();
+        return _map.get(new String(_wire, _offsets[m], _lengths[m], ASCII));
+    }
+
+    /***/
+    @Benchmark
+    public Symbol bytes() {
+        int m = next();
+        return _table.get(_wire, _offsets[m], _lengths[m]);
+    }
+
+    /***/
+    @Benchmark
+    public Symbol bytesWithHash() {
+        int m = next();
+        return _table.get(_wire, _offsets[m], _lengths[m], _hashes[m]);
+    }
+
+    /***/
+    @Benchmark
+    public int directBufferId() {
+        int m = next();
+        return _table.id(_directWire, _offsets[m], _lengths[m], _hashes[m]);
+    }
+}
@@ -0,0 +1,482 @@
+package common;
+
+import java.nio.Buffer;
+import java.nio.DoubleBuffer;
+import java.nio.LongBuffer;
+
+/**
+ * Checks of whole primitive arrays and buffers, such as the prices of a price
+ * ladder or the quantities of a basket, which return the index of the first
+ * value which fails, or -1 if all pass. A check of a single value passes
+ * exactly when the {@link Constraints} method of the same name returns, so
+ * that, as there, NaN passes every check but {@link #noNaN(double[], int,
+ * int)}.
+ * <p>
+ * Checks are plain counted loops over arrays, which the JIT unrolls and
+ * whose branches are well predicted while values pass, and stop at the first
+ * failure. Heap buffers are checked through their backing array.
+ * <p>
+ * Buffer checks cover the values from the position to the limit of the buffer,
+ * return absolute indices and don't change the position.
+ *
+ * @author rstoner
+ */
+public final class ArrayChecks {
+    private ArrayChecks() {
+    }
+
+    /**
+     * @param low Low limit (exclusive)
+     * @param high High limit (exclusive)
+     * @param vals Values to validate
+     * @param from First index to validate
+     * @param to Index after the last index to validate
+     * @return index of the first value not in the range, or -1
+     * @see Constraints#between(long, long, long)
+     */
+    public static int between(long low, long high, long[] vals, int from,
+            int to) {
+        for (int i = from; i < to; i++) {
+            if (low >= vals[i] || high <= vals[i]) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param vals Values to validate
+     * @param from First index to validate
+     * @param to Index after the last index to validate
+     * @return index of the first value not greater than 0, or -1
+     * @see Constraints#gt0(long)
+     */
+    public static int gt0(long[] vals, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (vals[i] <= 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param vals Values to validate
+     * @param from First index to validate
+     * @param to Index after the last index to validate
+     * @return index of the first value less than 0, or -1
+     * @see Constraints#gte0(long)
+     */
+    public static int gte0(long[] vals, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (vals[i] < 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param vals Values to validate
+     * @param from First index to validate
+     * @param to Index after the last index to validate
+     * @return index of the first value equal to 0, or -1
+     * @see Constraints#neq0(long)
+     */
+    public static int neq0(long[] vals, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (vals[i] == 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param vals Values to validate
+     * @param from First index to validate
+     * @param to Index after the last index to validate
+     * @return index of the first value not greater than the one before it, or
+     *         -1
+     */
+    public static int increasing(long[] vals, int from, int to) {
+        for (int i = from + 1; i < to; i++) {
+            if (vals[i] <= vals[i - 1]) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param vals Values to validate
+     * @param from First index to validate
+     * @param to Index after the last index to validate
+     * @return index of the first value not less than the one before it, or -1
+     */
+    public static int decreasing(long[] vals, int from, int to) {
+        for (int i = from + 1; i < to; i++) {
+            if (vals[i] >= vals[i - 1]) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param low Low limit (exclusive)
+     * @param high High limit (exclusive)
+     * @param vals Values to validate
+     * @param from First index to validate
+     * @param to Index after the last index to validate
+     * @return index of the first value not in the range, or -1
+     * @see Constraints#between(double, double, double)
+     */
+    public static int between(double low, double high, double[] vals,
+            int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (low >= vals[i] || high <= vals[i]) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param vals Values to validate
+     * @param from First index to validate
+     * @param to Index after the last index to validate
+     * @return index of the first value not greater than 0, or -1
+     * @see Constraints#gt0(double)
+     */
+    public static int gt0(double[] vals, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (vals[i] <= 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param vals Values to validate
+     * @param from First index to validate
+     * @param to Index after the last index to validate
+     * @return index of the first value less than 0, or -1
+     * @see Constraints#gte0(double)
+     */
+    public static int gte0(double[] vals, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (vals[i] < 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param vals Values to validate
+     * @param from First index to validate
+     * @param to Index after the last index to validate
+     * @return index of the first value equal to 0, or -1
+     * @see Constraints#neq0(double)
+     */
+    public static int neq0(double[] vals, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (vals[i] == 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param vals Values to validate
+     * @param from First index to validate
+     * @param to Index after the last index to validate
+     * @return index of the first NaN, or -1
+     */
+    public static int noNaN(double[] vals, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (Double.isNaN(vals[i])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param vals Values to validate
+     * @param from First index to validate
+     * @param to Index after the last index to validate
+     * @return index of the first value not greater than the one before it, or
+     *         -1
+     */
+    public static int increasing(double[] vals, int from, int to) {
+        for (int i = from + 1; i < to; i++) {
+            if (vals[i] <= vals[i - 1]) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param vals Values to validate
+     * @param from First index to validate
+     * @param to Index after the last index to validate
+     * @return index of the first value not less than the one before it, or -1
+     */
+    public static int decreasing(double[] vals, int from, int to) {
+        for (int i = from + 1; i < to; i++) {
+            if (vals[i] >= vals[i - 1]) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param low Low limit (exclusive)
+     * @param high High limit (exclusive)
+     * @param vals Values to validate
+     * @return absolute index of the first value not in the range, or -1
+     * @see Constraints#between(long, long, long)
+     */
+    public static int between(long low, long high, LongBuffer vals) {
+        if (vals.hasArray()) {
+            return offset(vals, between(low, high, vals.array(),
+                    start(vals), end(vals)));
+        }
+        for (int i = vals.position(); i < vals.limit(); i++) {
+            long v = vals.get(i);
+            if (low >= v || high <= v) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param vals Values to validate
+     * @return absolute index of the first value not greater than 0, or -1
+     * @see Constraints#gt0(long)
+     */
+    public static int gt0(LongBuffer vals) {
+        if (vals.hasArray()) {
+            return offset(vals, gt0(vals.array(), start(vals), end(vals)));
+        }
+        for (int i = vals.position(); i < vals.limit(); i++) {
+            if (vals.get(i) <= 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param vals Values to validate
+     * @return absolute index of the first value less than 0, or -1
+     * @see Constraints#gte0(long)
+     */
+    public static int gte0(LongBuffer vals) {
+        if (vals.hasArray()) {
+            return offset(vals, gte0(vals.array(), start(vals), end(vals)));
+        }
+        for (int i = vals.position(); i < vals.limit(); i++) {
+            if (vals.get(i) < 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param vals Values to validate
+     * @return absolute index of the first value equal to 0, or -1
+     * @see Constraints#neq0(long)
+     */
+    public static int neq0(LongBuffer vals) {
+        if (vals.hasArray()) {
+            return offset(vals, neq0(vals.array(), start(vals), end(vals)));
+        }
+        for (int i = vals.position(); i < vals.limit(); i++) {
+            if (vals.get(i) == 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param vals Values to validate
+     * @return absolute index of the first value not greater than the one
+     *         before it, or -1
+     */
+    public static int increasing(LongBuffer vals) {
+        if (vals.hasArray()) {
+            return offset(vals, increasing(vals.array(), start(vals),
+                    end(vals)));
+        }
+        for (int i = vals.position() + 1; i < vals.limit(); i++) {
+            if (vals.get(i) <= vals.get(i - 1)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param vals Values to validate
+     * @return absolute index of the first value not less than the one before
+     *         it, or -1
+     */
+    public static int decreasing(LongBuffer vals) {
+        if (vals.hasArray()) {
+            return offset(vals, decreasing(vals.array(), start(vals),
+                    end(vals)));
+        }
+        for (int i = vals.position() + 1; i < vals.limit(); i++) {
+            if (vals.get(i) >= vals.get(i - 1)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param low Low limit (exclusive)
+     * @param high High limit (exclusive)
+     * @param vals Values to validate
+     * @return absolute index of the first value not in the range, or -1
+     * @see Constraints#between(double, double, double)
+     */
+    public static int between(double low, double high, DoubleBuffer vals) {
+        if (vals.hasArray()) {
+            return offset(vals, between(low, high, vals.array(),
+                    start(vals), end(vals)));
+        }
+        for (int i = vals.position(); i < vals.limit(); i++) {
+            double v = vals.get(i);
+            if (low >= v || high <= v) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param vals Values to validate
+     * @return absolute index of the first value not greater than 0, or -1
+     * @see Constraints#gt0(double)
+     */
+    public static int gt0(DoubleBuffer vals) {
+        if (vals.hasArray()) {
+            return offset(vals, gt0(vals.array(), start(vals), end(vals)));
+        }
+        for (int i = vals.position(); i < vals.limit(); i++) {
+            if (vals.get(i) <= 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param vals Values to validate
+     * @return absolute index of the first value less than 0, or -1
+     * @see Constraints#gte0(double)
+     */
+    public static int gte0(DoubleBuffer vals) {
+        if (vals.hasArray()) {
+            return offset(vals, gte0(vals.array(), start(vals), end(vals)));
+        }
+        for (int i = vals.position(); i < vals.limit(); i++) {
+            if (vals.get(i) < 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param vals Values to validate
+     * @return absolute index of the first value equal to 0, or -1
+     * @see Constraints#neq0(double)
+     */
+    public static int neq0(DoubleBuffer vals) {
+        if (vals.hasArray()) {
+            return offset(vals, neq0(vals.array(), start(vals), end(vals)));
+        }
+        for (int i = vals.position(); i < vals.limit(); i++) {
+            if (vals.get(i) == 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param vals Values to validate
+     * @return absolute index of the first NaN, or -1
+     */
+    public static int noNaN(DoubleBuffer vals) {
+        if (vals.hasArray()) {
+            return offset(vals, noNaN(vals.array(), start(vals), end(vals)));
+        }
+        for (int i = vals.position(); i < vals.limit(); i++) {
+            if (Double.isNaN(vals.get(i))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param vals Values to validate
+     * @return absolute index of the first value not greater than the one
+     *         before it, or -1
+     */
+    public static int increasing(DoubleBuffer vals) {
+        if (vals.hasArray()) {
+            return offset(vals, increasing(vals.array(), start(vals),
+                    end(vals)));
+        }
+        for (int i = vals.position() + 1; i < vals.limit(); i++) {
+            if (vals.get(i) <= vals.get(i - 1)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param vals Values to validate
+     * @return absolute index of the first value not less than the one before
+     *         it, or -1
+     */
+    public static int decreasing(DoubleBuffer vals) {
+        if (vals.hasArray()) {
+            return offset(vals, decreasing(vals.array(), start(vals),
+                    end(vals)));
+        }
+        for (int i = vals.position() + 1; i < vals.limit(); i++) {
+            if (vals.get(i) >= vals.get(i - 1)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int start(Buffer vals) {
+        return vals.arrayOffset() + vals.position();
+    }
+
+    private static int end(Buffer vals) {
+        return vals.arrayOffset() + vals.limit();
+    }
+
+    private static int offset(Buffer vals, int index) {
+        return index < 0 ? index : index - vals.arrayOffset();
+    }
+}
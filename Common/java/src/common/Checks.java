@@ -0,0 +1,396 @@
+package common;
+
+/**
+ * Non-throwing counterparts of the numeric and boolean checks of
+ * {@link Constraints}, for hot paths where a failed check is an expected
+ * outcome, such as rejecting orders. Each check returns {@link #OK}, or the
+ * status code of the rule which failed, without allocating or formatting
+ * anything. A check returns {@link #OK} exactly when the {@link Constraints}
+ * method of the same name returns.
+ * <p>
+ * Narrower integral types widen to <code>long</code> and <code>float</code>
+ * widens to <code>double</code> without changing the result of a check. Use a
+ * {@link ConstraintResult} to also keep the failed value and limits, to build
+ * a message or an exception from later.
+ *
+ * @author rstoner
+ */
+public final class Checks {
+    /** All checks passed */
+    public static final int OK = 0;
+    /** Value must equal the expected value */
+    public static final int EQ = 1;
+    /** Value must not equal the expected value */
+    public static final int NEQ = 2;
+    /** Value must be greater than the expected value */
+    public static final int GT = 3;
+    /** Value must be greater than or equal to the expected value */
+    public static final int GTE = 4;
+    /** Value must be less than the expected value */
+    public static final int LT = 5;
+    /** Value must be less than or equal to the expected value */
+    public static final int LTE = 6;
+    /** Value must be in an exclusive range */
+    public static final int BETWEEN = 7;
+    /** Value must be in an inclusive range */
+    public static final int IN = 8;
+    /** Value must be true */
+    public static final int TRUE = 9;
+    /** Value must be false */
+    public static final int FALSE = 10;
+    /** Value must not be null */
+    public static final int NOT_NULL = 11;
+    /** Value must not be empty */
+    public static final int NOT_EMPTY = 12;
+
+    private static final String[] DESCRIPTIONS = {"ok", "must equal",
+        "must not equal", "must be greater than",
+        "must be greater than or equal to", "must be less than",
+        "must be less than or equal to", "must be in range",
+        "must be in range", "must be true", "must be false",
+        "must not be null", "must not be empty"};
+
+    private static final ConstraintException[] EXCEPTIONS =
+            new ConstraintException[DESCRIPTIONS.length];
+
+    static {
+        for (int i = 0; i < EXCEPTIONS.length; i++) {
+            EXCEPTIONS[i] = new ConstraintException("Value "
+                    + DESCRIPTIONS[i], false);
+        }
+    }
+
+    private Checks() {
+    }
+
+    /**
+     * @param status status code
+     * @return description of the rule, e.g. "must be greater than"
+     */
+    public static String describe(int status) {
+        return DESCRIPTIONS[status];
+    }
+
+    /**
+     * Preallocated exception without a stack trace, for callers which must
+     * throw but can't afford to build an exception per failure. The message
+     * only names the rule, e.g. "Value must be greater than".
+     *
+     * @param status status code other than {@link #OK}
+     * @return shared exception for <code>status</code>
+     */
+    public static ConstraintException exception(int status) {
+        return EXCEPTIONS[status];
+    }
+
+    /**
+     * @param val Value to validate
+     * @return {@link #OK}, or {@link #TRUE} if <code>val</code> is false
+     * @see Constraints#tru(boolean)
+     */
+    public static int tru(boolean val) {
+        return val ? OK : TRUE;
+    }
+
+    /**
+     * @param val Value to validate
+     * @return {@link #OK}, or {@link #FALSE} if <code>val</code> is true
+     * @see Constraints#fals(boolean)
+     */
+    public static int fals(boolean val) {
+        return val ? FALSE : OK;
+    }
+
+    /**
+     * @param val Value to validate
+     * @return {@link #OK}, or {@link #NOT_NULL} if <code>val</code> is null
+     * @see Constraints#notNull(Object)
+     */
+    public static int notNull(Object val) {
+        return val == null ? NOT_NULL : OK;
+    }
+
+    /**
+     * @param val Value to validate
+     * @return {@link #OK}, {@link #NOT_NULL} or {@link #NOT_EMPTY}
+     * @see Constraints#notEmpty(CharSequence)
+     */
+    public static int notEmpty(CharSequence val) {
+        if (val == null) {
+            return NOT_NULL;
+        }
+        return val.length() == 0 ? NOT_EMPTY : OK;
+    }
+
+    /**
+     * @param expect Expected value
+     * @param val Value to validate
+     * @return {@link #OK} or {@link #EQ}
+     * @see Constraints#eq(long, long)
+     */
+    public static int eq(long expect, long val) {
+        return expect == val ? OK : EQ;
+    }
+
+    /**
+     * @param val Value to validate
+     * @return {@link #OK} or {@link #EQ}
+     * @see Constraints#eq0(long)
+     */
+    public static int eq0(long val) {
+        return eq(0, val);
+    }
+
+    /**
+     * @param expect Expected value
+     * @param val Value to validate
+     * @return {@link #OK} or {@link #NEQ}
+     * @see Constraints#neq(long, long)
+     */
+    public static int neq(long expect, long val) {
+        return expect == val ? NEQ : OK;
+    }
+
+    /**
+     * @param val Value to validate
+     * @return {@link #OK} or {@link #NEQ}
+     * @see Constraints#neq0(long)
+     */
+    public static int neq0(long val) {
+        return neq(0, val);
+    }
+
+    /**
+     * @param expect Expected value
+     * @param val Value to validate
+     * @return {@link #OK} or {@link #LT}
+     * @see Constraints#lt(long, long)
+     */
+    public static int lt(long expect, long val) {
+        return expect <= val ? LT : OK;
+    }
+
+    /**
+     * @param val Value to validate
+     * @return {@link #OK} or {@link #LT}
+     * @see Constraints#lt0(long)
+     */
+    public static int lt0(long val) {
+        return lt(0, val);
+    }
+
+    /**
+     * @param expect Expected value
+     * @param val Value to validate
+     * @return {@link #OK} or {@link #LTE}
+     * @see Constraints#lte(long, long)
+     */
+    public static int lte(long expect, long val) {
+        return expect < val ? LTE : OK;
+    }
+
+    /**
+     * @param val Value to validate
+     * @return {@link #OK} or {@link #LTE}
+     * @see Constraints#lte0(long)
+     */
+    public static int lte0(long val) {
+        return lte(0, val);
+    }
+
+    /**
+     * @param expect Expected value
+     * @param val Value to validate
+     * @return {@link #OK} or {@link #GT}
+     * @see Constraints#gt(long, long)
+     */
+    public static int gt(long expect, long val) {
+        return expect >= val ? GT : OK;
+    }
+
+    /**
+     * @param val Value to validate
+     * @return {@link #OK} or {@link #GT}
+     * @see Constraints#gt0(long)
+     */
+    public static int gt0(long val) {
+        return gt(0, val);
+    }
+
+    /**
+     * @param expect Expected value
+     * @param val Value to validate
+     * @return {@link #OK} or {@link #GTE}
+     * @see Constraints#gte(long, long)
+     */
+    public static int gte(long expect, long val) {
+        return expect > val ? GTE : OK;
+    }
+
+    /**
+     * @param val Value to validate
+     * @return {@link #OK} or {@link #GTE}
+     * @see Constraints#gte0(long)
+     */
+    public static int gte0(long val) {
+        return gte(0, val);
+    }
+
+    /**
+     * @param low Low limit (exclusive)
+     * @param high High limit (exclusive)
+     * @param val Value to validate
+     * @return {@link #OK} or {@link #BETWEEN}
+     * @see Constraints#between(long, long, long)
+     */
+    public static int between(long low, long high, long val) {
+        return low >= val || high <= val ? BETWEEN : OK;
+    }
+
+    /**
+     * @param low Low limit (inclusive)
+     * @param high High limit (inclusive)
+     * @param val Value to validate
+     * @return {@link #OK} or {@link #IN}
+     * @see Constraints#in(long, long, long)
+     */
+    public static int in(long low, long high, long val) {
+        return low > val || high < val ? IN : OK;
+    }
+
+    /**
+     * @param expect Expected value
+     * @param val Value to validate
+     * @return {@link #OK} or {@link #EQ}
+     * @see Constraints#eq(double, double)
+     */
+    public static int eq(double expect, double val) {
+        return expect != val ? EQ : OK;
+    }
+
+    /**
+     * @param val Value to validate
+     * @return {@link #OK} or {@link #EQ}
+     * @see Constraints#eq0(double)
+     */
+    public static int eq0(double val) {
+        return eq(0, val);
+    }
+
+    /**
+     * @param expect Expected value
+     * @param val Value to validate
+     * @return {@link #OK} or {@link #NEQ}
+     * @see Constraints#neq(double, double)
+     */
+    public static int neq(double expect, double val) {
+        return expect == val ? NEQ : OK;
+    }
+
+    /**
+     * @param val Value to validate
+     * @return {@link #OK} or {@link #NEQ}
+     * @see Constraints#neq0(double)
+     */
+    public static int neq0(double val) {
+        return neq(0, val);
+    }
+
+    /**
+     * @param expect Expected value
+     * @param val Value to validate
+     * @return {@link #OK} or {@link #LT}
+     * @see Constraints#lt(double, double)
+     */
+    public static int lt(double expect, double val) {
+        return expect <= val ? LT : OK;
+    }
+
+    /**
+     * @param val Value to validate
+     * @return {@link #OK} or {@link #LT}
+     * @see Constraints#lt0(double)
+     */
+    public static int lt0(double val) {
+        return lt(0, val);
+    }
+
+    /**
+     * @param expect Expected value
+     * @param val Value to validate
+     * @return {@link #OK} or {@link #LTE}
+     * @see Constraints#lte(double, double)
+     */
+    public static int lte(double expect, double val) {
+        return expect < val ? LTE : OK;
+    }
+
+    /**
+     * @param val Value to validate
+     * @return {@link #OK} or {@link #LTE}
+     * @see Constraints#lte0(double)
+     */
+    public static int lte0(double val) {
+        return lte(0, val);
+    }
+
+    /**
+     * @param expect Expected value
+     * @param val Value to validate
+     * @return {@link #OK} or {@link #GT}
+     * @see Constraints#gt(double, double)
+     */
+    public static int gt(double expect, double val) {
+        return expect >= val ? GT : OK;
+    }
+
+    /**
+     * @param val Value to validate
+     * @return {@link #OK} or {@link #GT}
+     * @see Constraints#gt0(double)
+     */
+    public static int gt0(double val) {
+        return gt(0, val);
+    }
+
+    /**
+     * @param expect Expected value
+     * @param val Value to validate
+     * @return {@link #OK} or {@link #GTE}
+     * @see Constraints#gte(double, double)
+     */
+    public static int gte(double expect, double val) {
+        return expect > val ? GTE : OK;
+    }
+
+    /**
+     * @param val Value to validate
+     * @return {@link #OK} or {@link #GTE}
+     * @see Constraints#gte0(double)
+     */
+    public static int gte0(double val) {
+        return gte(0, val);
+    }
+
+    /**
+     * @param low Low limit (exclusive)
+     * @param high High limit (exclusive)
+     * @param val Value to validate
+     * @return {@link #OK} or {@link #BETWEEN}
+     * @see Constraints#between(double, double, double)
+     */
+    public static int between(double low, double high, double val) {
+        return low >= val || high <= val ? BETWEEN : OK;
+    }
+
+    /**
+     * @param low Low limit (inclusive)
+     * @param high High limit (inclusive)
+     * @param val Value to validate
+     * @return {@link #OK} or {@link #IN}
+     * @see Constraints#in(double, double, double)
+     */
+    public static int in(double low, double high, double val) {
+        return low > val || high < val ? IN : OK;
+    }
+}
@@ -32,4 +32,18 @@ public final class ConstraintException extends RuntimeException {
     public ConstraintException(String message) {
         super(message);
     }
+
+    /**
+     * Constructs a new runtime exception with the specified detail message,
+     * optionally without a stack trace. An exception without a stack trace is
+     * cheap to construct and can be preallocated and thrown repeatedly.
+     *
+     * @param message the detail message
+     * @param stackTrace <code>false</code> to neither fill in nor keep a stack
+     *            trace
+     * @see Checks#exception(int)
+     */
+    public ConstraintException(String message, boolean stackTrace) {
+        super(message, null, stackTrace, stackTrace);
+    }
 }
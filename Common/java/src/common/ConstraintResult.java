@@ -0,0 +1,406 @@
+package common;
+
+/**
+ * Reusable holder of the outcome of a series of {@link Checks}, for hot paths
+ * which reject often and want to report why without throwing. The first failed
+ * check is kept with its value and limits, and later checks are skipped until
+ * {@link #reset()}, so that checks can be chained:
+ *
+ * <pre>
+ * result.reset();
+ * if (!result.gt0(qty) || !result.between(low, high, price)) {
+ *     reject(order, result.status());
+ * }
+ * </pre>
+ *
+ * Nothing is allocated until {@link #message()} or {@link #throwIfFailed()} is
+ * called. A result created stackless throws the preallocated exceptions of
+ * {@link Checks#exception(int)}, whose message only names the rule, and keeps
+ * the details for whoever catches it. Not thread safe.
+ *
+ * @author rstoner
+ */
+public final class ConstraintResult {
+    private final boolean _stackless;
+    private int _status;
+    private boolean _floating;
+    private long _val;
+    private long _low;
+    private long _high;
+    private double _dval;
+    private double _dlow;
+    private double _dhigh;
+
+    /**
+     * Result which throws exceptions with a message and a stack trace.
+     */
+    public ConstraintResult() {
+        this(false);
+    }
+
+    /**
+     * @param stackless <code>true</code> for {@link #throwIfFailed()} to throw
+     *            preallocated exceptions without a stack trace
+     */
+    public ConstraintResult(boolean stackless) {
+        _stackless = stackless;
+    }
+
+    /**
+     * Forgets the last failure.
+     *
+     * @return this result
+     */
+    public ConstraintResult reset() {
+        _status = Checks.OK;
+        return this;
+    }
+
+    /**
+     * @return <code>true</code> if no check failed since the last reset
+     */
+    public boolean ok() {
+        return _status == Checks.OK;
+    }
+
+    /**
+     * @return status code of the failed check, {@link Checks#OK} if none did
+     */
+    public int status() {
+        return _status;
+    }
+
+    /**
+     * @return value which failed an integral check
+     */
+    public long value() {
+        return _val;
+    }
+
+    /**
+     * @return value which failed a floating point check
+     */
+    public double doubleValue() {
+        return _dval;
+    }
+
+    /**
+     * @return message in the format of the exceptions of {@link Constraints},
+     *         or <code>null</code> if no check failed
+     */
+    public String message() {
+        switch (_status) {
+        case Checks.OK:
+            return null;
+        case Checks.TRUE:
+        case Checks.FALSE:
+        case Checks.NOT_NULL:
+        case Checks.NOT_EMPTY:
+            return "Value " + Checks.describe(_status);
+        case Checks.BETWEEN:
+            return _floating ? _dval + " must be in range (" + _dlow + ", "
+                    + _dhigh + ")" : _val + " must be in range (" + _low
+                    + ", " + _high + ")";
+        case Checks.IN:
+            return _floating ? _dval + " must be in range [" + _dlow + ", "
+                    + _dhigh + "]" : _val + " must be in range [" + _low
+                    + ", " + _high + "]";
+        default:
+            return _floating ? _dval + " " + Checks.describe(_status) + " "
+                    + _dlow : _val + " " + Checks.describe(_status) + " "
+                    + _low;
+        }
+    }
+
+    /**
+     * @throws ConstraintException if a check failed since the last reset
+     */
+    public void throwIfFailed() {
+        if (_status != Checks.OK) {
+            throw _stackless ? Checks.exception(_status)
+                    : new ConstraintException(message());
+        }
+    }
+
+    private boolean fail(int status) {
+        _status = status;
+        return false;
+    }
+
+    private boolean record(int status, long val, long low, long high) {
+        if (status == Checks.OK) {
+            return true;
+        }
+        _floating = false;
+        _val = val;
+        _low = low;
+        _high = high;
+        return fail(status);
+    }
+
+    private boolean record(int status, double val, double low, double high) {
+        if (status == Checks.OK) {
+            return true;
+        }
+        _floating = true;
+        _dval = val;
+        _dlow = low;
+        _dhigh = high;
+        return fail(status);
+    }
+
+    /**
+     * @param val Value to validate
+     * @return <code>true</code> if this and all previous checks passed
+     * @see Checks#tru(boolean)
+     */
+    public boolean tru(boolean val) {
+        return ok() && (val || fail(Checks.TRUE));
+    }
+
+    /**
+     * @param val Value to validate
+     * @return <code>true</code> if this and all previous checks passed
+     * @see Checks#fals(boolean)
+     */
+    public boolean fals(boolean val) {
+        return ok() && (!val || fail(Checks.FALSE));
+    }
+
+    /**
+     * @param val Value to validate
+     * @return <code>true</code> if this and all previous checks passed
+     * @see Checks#notNull(Object)
+     */
+    public boolean notNull(Object val) {
+        return ok() && (val != null || fail(Checks.NOT_NULL));
+    }
+
+    /**
+     * @param val Value to validate
+     * @return <code>true</code> if this and all previous checks passed
+     * @see Checks#notEmpty(CharSequence)
+     */
+    public boolean notEmpty(CharSequence val) {
+        int status = Checks.notEmpty(val);
+        return ok() && (status == Checks.OK || fail(status));
+    }
+
+    /**
+     * @param expect Expected value
+     * @param val Value to validate
+     * @return <code>true</code> if this and all previous checks passed
+     * @see Checks#eq(long, long)
+     */
+    public boolean eq(long expect, long val) {
+        return ok() && record(Checks.eq(expect, val), val, expect, 0);
+    }
+
+    /**
+     * @param expect Expected value
+     * @param val Value to validate
+     * @return <code>true</code> if this and all previous checks passed
+     * @see Checks#neq(long, long)
+     */
+    public boolean neq(long expect, long val) {
+        return ok() && record(Checks.neq(expect, val), val, expect, 0);
+    }
+
+    /**
+     * @param val Value to validate
+     * @return <code>true</code> if this and all previous checks passed
+     * @see Checks#neq0(long)
+     */
+    public boolean neq0(long val) {
+        return neq(0, val);
+    }
+
+    /**
+     * @param expect Expected value
+     * @param val Value to validate
+     * @return <code>true</code> if this and all previous checks passed
+     * @see Checks#lt(long, long)
+     */
+    public boolean lt(long expect, long val) {
+        return ok() && record(Checks.lt(expect, val), val, expect, 0);
+    }
+
+    /**
+     * @param expect Expected value
+     * @param val Value to validate
+     * @return <code>true</code> if this and all previous checks passed
+     * @see Checks#lte(long, long)
+     */
+    public boolean lte(long expect, long val) {
+        return ok() && record(Checks.lte(expect, val), val, expect, 0);
+    }
+
+    /**
+     * @param expect Expected value
+     * @param val Value to validate
+     * @return <code>true</code> if this and all previous checks passed
+     * @see Checks#gt(long, long)
+     */
+    public boolean gt(long expect, long val) {
+        return ok() && record(Checks.gt(expect, val), val, expect, 0);
+    }
+
+    /**
+     * @param val Value to validate
+     * @return <code>true</code> if this and all previous checks passed
+     * @see Checks#gt0(long)
+     */
+    public boolean gt0(long val) {
+        return gt(0, val);
+    }
+
+    /**
+     * @param expect Expected value
+     * @param val Value to validate
+     * @return <code>true</code> if this and all previous checks passed
+     * @see Checks#gte(long, long)
+     */
+    public boolean gte(long expect, long val) {
+        return ok() && record(Checks.gte(expect, val), val, expect, 0);
+    }
+
+    /**
+     * @param val Value to validate
+     * @return <code>true</code> if this and all previous checks passed
+     * @see Checks#gte0(long)
+     */
+    public boolean gte0(long val) {
+        return gte(0, val);
+    }
+
+    /**
+     * @param low Low limit (exclusive)
+     * @param high High limit (exclusive)
+     * @param val Value to validate
+     * @return <code>true</code> if this and all previous checks passed
+     * @see Checks#between(long, long, long)
+     */
+    public boolean between(long low, long high, long val) {
+        return ok() && record(Checks.between(low, high, val), val, low, high);
+    }
+
+    /**
+     * @param low Low limit (inclusive)
+     * @param high High limit (inclusive)
+     * @param val Value to validate
+     * @return <code>true</code> if this and all previous checks passed
+     * @see Checks#in(long, long, long)
+     */
+    public boolean in(long low, long high, long val) {
+        return ok() && record(Checks.in(low, high, val), val, low, high);
+    }
+
+    /**
+     * @param expect Expected value
+     * @param val Value to validate
+     * @return <code>true</code> if this and all previous checks passed
+     * @see Checks#eq(double, double)
+     */
+    public boolean eq(double expect, double val) {
+        return ok() && record(Checks.eq(expect, val), val, expect, 0);
+    }
+
+    /**
+     * @param expect Expected value
+     * @param val Value to validate
+     * @return <code>true</code> if this and all previous checks passed
+     * @see Checks#neq(double, double)
+     */
+    public boolean neq(double expect, double val) {
+        return ok() && record(Checks.neq(expect, val), val, expect, 0);
+    }
+
+    /**
+     * @param val Value to validate
+     * @return <code>true</code> if this and all previous checks passed
+     * @see Checks#neq0(double)
+     */
+    public boolean neq0(double val) {
+        return neq(0d, val);
+    }
+
+    /**
+     * @param expect Expected value
+     * @param val Value to validate
+     * @return <code>true</code> if this and all previous checks passed
+     * @see Checks#lt(double, double)
+     */
+    public boolean lt(double expect, double val) {
+        return ok() && record(Checks.lt(expect, val), val, expect, 0);
+    }
+
+    /**
+     * @param expect Expected value
+     * @param val Value to validate
+     * @return <code>true</code> if this and all previous checks passed
+     * @see Checks#lte(double, double)
+     */
+    public boolean lte(double expect, double val) {
+        return ok() && record(Checks.lte(expect, val), val, expect, 0);
+    }
+
+    /**
+     * @param expect Expected value
+     * @param val Value to validate
+     * @return <code>true</code> if this and all previous checks passed
+     * @see Checks#gt(double, double)
+     */
+    public boolean gt(double expect, double val) {
+        return ok() && record(Checks.gt(expect, val), val, expect, 0);
+    }
+
+    /**
+     * @param val Value to validate
+     * @return <code>true</code> if this and all previous checks passed
+     * @see Checks#gt0(double)
+     */
+    public boolean gt0(double val) {
+        return gt(0d, val);
+    }
+
+    /**
+     * @param expect Expected value
+     * @param val Value to validate
+     * @return <code>true</code> if this and all previous checks passed
+     * @see Checks#gte(double, double)
+     */
+    public boolean gte(double expect, double val) {
+        return ok() && record(Checks.gte(expect, val), val, expect, 0);
+    }
+
+    /**
+     * @param val Value to validate
+     * @return <code>true</code> if this and all previous checks passed
+     * @see Checks#gte0(double)
+     */
+    public boolean gte0(double val) {
+        return gte(0d, val);
+    }
+
+    /**
+     * @param low Low limit (exclusive)
+     * @param high High limit (exclusive)
+     * @param val Value to validate
+     * @return <code>true</code> if this and all previous checks passed
+     * @see Checks#between(double, double, double)
+     */
+    public boolean between(double low, double high, double val) {
+        return ok() && record(Checks.between(low, high, val), val, low, high);
+    }
+
+    /**
+     * @param low Low limit (inclusive)
+     * @param high High limit (inclusive)
+     * @param val Value to validate
+     * @return <code>true</code> if this and all previous checks passed
+     * @see Checks#in(double, double, double)
+     */
+    public boolean in(double low, double high, double val) {
+        return ok() && record(Checks.in(low, high, val), val, low, high);
+    }
+}
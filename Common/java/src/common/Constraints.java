@@ -5,10 +5,10 @@ package common;
 
 import java.io.File;
 import java.net.InetAddress;
-import java.net.NetworkInterface;
-import java.net.SocketException;
 import java.util.Map;
 
+import common.net.LocalInterfaces;
+
 /**
  * A collection of methods useful for validating that arguments fulfill required
  * specifications.
@@ -236,7 +236,7 @@ public final class Constraints {
      * @throws ConstraintException if the constraint is not met
      */
     public static byte lt(int expect, byte val) {
-        if (expect > val) {
+        if (expect <= val) {
             throw new ConstraintException(String.format(
                     "%d must be less than %d", val, expect));
         }
@@ -289,7 +289,7 @@ public final class Constraints {
      * @throws ConstraintException if the constraint is not met
      */
     public static byte lte(int expect, byte val) {
-        if (expect > val) {
+        if (expect < val) {
             throw new ConstraintException(String.format(
                     "%d must be less than or equal to %d", val, expect));
         }
@@ -341,7 +341,7 @@ public final class Constraints {
      * @throws ConstraintException if the constraint is not met
      */
     public static byte gt(int expect, byte val) {
-        if (expect > val) {
+        if (expect >= val) {
             throw new ConstraintException(String.format(
                     "%d must be greater than %d", val, expect));
         }
@@ -615,7 +615,7 @@ public final class Constraints {
      * @throws ConstraintException if the constraint is not met
      */
     public static short lt(int expect, short val) {
-        if (expect > val) {
+        if (expect <= val) {
             throw new ConstraintException(String.format(
                     "%d must be less than %d", val, expect));
         }
@@ -668,7 +668,7 @@ public final class Constraints {
      * @throws ConstraintException if the constraint is not met
      */
     public static short lte(int expect, short val) {
-        if (expect > val) {
+        if (expect < val) {
             throw new ConstraintException(String.format(
                     "%d must be less than or equal to %d", val, expect));
         }
@@ -720,7 +720,7 @@ public final class Constraints {
      * @throws ConstraintException if the constraint is not met
      */
     public static short gt(int expect, short val) {
-        if (expect > val) {
+        if (expect >= val) {
             throw new ConstraintException(String.format(
                     "%d must be greater than %d", val, expect));
         }
@@ -892,7 +892,7 @@ public final class Constraints {
     public static char eq(int expect, char val) {
         if (expect != val) {
             throw new ConstraintException(String.format("%d must equal %d",
-                    val, expect));
+                    (int) val, expect));
         }
         return val;
     }
@@ -944,7 +944,7 @@ public final class Constraints {
     public static char neq(int expect, char val) {
         if (expect == val) {
             throw new ConstraintException(String.format("%d must not equal %d",
-                    val, expect));
+                    (int) val, expect));
         }
         return val;
     }
@@ -994,9 +994,9 @@ public final class Constraints {
      * @throws ConstraintException if the constraint is not met
      */
     public static char lt(int expect, char val) {
-        if (expect > val) {
+        if (expect <= val) {
             throw new ConstraintException(String.format(
-                    "%d must be less than %d", val, expect));
+                    "%d must be less than %d", (int) val, expect));
         }
         return val;
     }
@@ -1047,9 +1047,9 @@ public final class Constraints {
      * @throws ConstraintException if the constraint is not met
      */
     public static char lte(int expect, char val) {
-        if (expect > val) {
+        if (expect < val) {
             throw new ConstraintException(String.format(
-                    "%d must be less than or equal to %d", val, expect));
+                    "%d must be less than or equal to %d", (int) val, expect));
         }
         return val;
     }
@@ -1099,9 +1099,9 @@ public final class Constraints {
      * @throws ConstraintException if the constraint is not met
      */
     public static char gt(int expect, char val) {
-        if (expect > val) {
+        if (expect >= val) {
             throw new ConstraintException(String.format(
-                    "%d must be greater than %d", val, expect));
+                    "%d must be greater than %d", (int) val, expect));
         }
         return val;
     }
@@ -1154,7 +1154,8 @@ public final class Constraints {
     public static char gte(int expect, char val) {
         if (expect > val) {
             throw new ConstraintException(String.format(
-                    "%d must be greater than or equal to %d", val, expect));
+                    "%d must be greater than or equal to %d", (int) val,
+                    expect));
         }
         return val;
     }
@@ -1209,7 +1210,7 @@ public final class Constraints {
     public static char between(int low, int high, char val) {
         if (low >= val || high <= val) {
             throw new ConstraintException(String.format(
-                    "%d must be in range (%d, %d)", val, low, high));
+                    "%d must be in range (%d, %d)", (int) val, low, high));
         }
         return val;
     }
@@ -1241,7 +1242,7 @@ public final class Constraints {
     public static char in(int low, int high, char val) {
         if (low > val || high < val) {
             throw new ConstraintException(String.format(
-                    "%d must be in range [%d, %d]", val, low, high));
+                    "%d must be in range [%d, %d]", (int) val, low, high));
         }
         return val;
     }
@@ -1373,7 +1374,7 @@ public final class Constraints {
      * @throws ConstraintException if the constraint is not met
      */
     public static int lt(int expect, int val) {
-        if (expect > val) {
+        if (expect <= val) {
             throw new ConstraintException(String.format(
                     "%d must be less than %d", val, expect));
         }
@@ -1426,7 +1427,7 @@ public final class Constraints {
      * @throws ConstraintException if the constraint is not met
      */
     public static int lte(int expect, int val) {
-        if (expect > val) {
+        if (expect < val) {
             throw new ConstraintException(String.format(
                     "%d must be less than or equal to %d", val, expect));
         }
@@ -1478,7 +1479,7 @@ public final class Constraints {
      * @throws ConstraintException if the constraint is not met
      */
     public static int gt(int expect, int val) {
-        if (expect > val) {
+        if (expect >= val) {
             throw new ConstraintException(String.format(
                     "%d must be greater than %d", val, expect));
         }
@@ -1752,7 +1753,7 @@ public final class Constraints {
      * @throws ConstraintException if the constralong is not met
      */
     public static long lt(long expect, long val) {
-        if (expect > val) {
+        if (expect <= val) {
             throw new ConstraintException(String.format(
                     "%d must be less than %d", val, expect));
         }
@@ -1805,7 +1806,7 @@ public final class Constraints {
      * @throws ConstraintException if the constralong is not met
      */
     public static long lte(long expect, long val) {
-        if (expect > val) {
+        if (expect < val) {
             throw new ConstraintException(String.format(
                     "%d must be less than or equal to %d", val, expect));
         }
@@ -1857,7 +1858,7 @@ public final class Constraints {
      * @throws ConstraintException if the constralong is not met
      */
     public static long gt(long expect, long val) {
-        if (expect > val) {
+        if (expect >= val) {
             throw new ConstraintException(String.format(
                     "%d must be greater than %d", val, expect));
         }
@@ -2028,7 +2029,7 @@ public final class Constraints {
      */
     public static float eq(float expect, float val) {
         if (expect != val) {
-            throw new ConstraintException(String.format("%d must equal %d",
+            throw new ConstraintException(String.format("%s must equal %s",
                     val, expect));
         }
         return val;
@@ -2080,7 +2081,7 @@ public final class Constraints {
      */
     public static float neq(float expect, float val) {
         if (expect == val) {
-            throw new ConstraintException(String.format("%d must not equal %d",
+            throw new ConstraintException(String.format("%s must not equal %s",
                     val, expect));
         }
         return val;
@@ -2131,9 +2132,9 @@ public final class Constraints {
      * @throws ConstraintException if the constrafloat is not met
      */
     public static float lt(float expect, float val) {
-        if (expect > val) {
+        if (expect <= val) {
             throw new ConstraintException(String.format(
-                    "%d must be less than %d", val, expect));
+                    "%s must be less than %s", val, expect));
         }
         return val;
     }
@@ -2184,9 +2185,9 @@ public final class Constraints {
      * @throws ConstraintException if the constrafloat is not met
      */
     public static float lte(float expect, float val) {
-        if (expect > val) {
+        if (expect < val) {
             throw new ConstraintException(String.format(
-                    "%d must be less than or equal to %d", val, expect));
+                    "%s must be less than or equal to %s", val, expect));
         }
         return val;
     }
@@ -2236,9 +2237,9 @@ public final class Constraints {
      * @throws ConstraintException if the constrafloat is not met
      */
     public static float gt(float expect, float val) {
-        if (expect > val) {
+        if (expect >= val) {
             throw new ConstraintException(String.format(
-                    "%d must be greater than %d", val, expect));
+                    "%s must be greater than %s", val, expect));
         }
         return val;
     }
@@ -2291,7 +2292,7 @@ public final class Constraints {
     public static float gte(float expect, float val) {
         if (expect > val) {
             throw new ConstraintException(String.format(
-                    "%d must be greater than or equal to %d", val, expect));
+                    "%s must be greater than or equal to %s", val, expect));
         }
         return val;
     }
@@ -2346,7 +2347,7 @@ public final class Constraints {
     public static float between(float low, float high, float val) {
         if (low >= val || high <= val) {
             throw new ConstraintException(String.format(
-                    "%d must be in range (%d, %d)", val, low, high));
+                    "%s must be in range (%s, %s)", val, low, high));
         }
         return val;
     }
@@ -2378,7 +2379,7 @@ public final class Constraints {
     public static float in(float low, float high, float val) {
         if (low > val || high < val) {
             throw new ConstraintException(String.format(
-                    "%d must be in range [%d, %d]", val, low, high));
+                    "%s must be in range [%s, %s]", val, low, high));
         }
         return val;
     }
@@ -2407,7 +2408,7 @@ public final class Constraints {
      */
     public static double eq(double expect, double val) {
         if (expect != val) {
-            throw new ConstraintException(String.format("%d must equal %d",
+            throw new ConstraintException(String.format("%s must equal %s",
                     val, expect));
         }
         return val;
@@ -2459,7 +2460,7 @@ public final class Constraints {
      */
     public static double neq(double expect, double val) {
         if (expect == val) {
-            throw new ConstraintException(String.format("%d must not equal %d",
+            throw new ConstraintException(String.format("%s must not equal %s",
                     val, expect));
         }
         return val;
@@ -2510,9 +2511,9 @@ public final class Constraints {
      * @throws ConstraintException if the constradouble is not met
      */
     public static double lt(double expect, double val) {
-        if (expect > val) {
+        if (expect <= val) {
             throw new ConstraintException(String.format(
-                    "%d must be less than %d", val, expect));
+                    "%s must be less than %s", val, expect));
         }
         return val;
     }
@@ -2563,9 +2564,9 @@ public final class Constraints {
      * @throws ConstraintException if the constradouble is not met
      */
     public static double lte(double expect, double val) {
-        if (expect > val) {
+        if (expect < val) {
             throw new ConstraintException(String.format(
-                    "%d must be less than or equal to %d", val, expect));
+                    "%s must be less than or equal to %s", val, expect));
         }
         return val;
     }
@@ -2615,9 +2616,9 @@ public final class Constraints {
      * @throws ConstraintException if the constradouble is not met
      */
     public static double gt(double expect, double val) {
-        if (expect > val) {
+        if (expect >= val) {
             throw new ConstraintException(String.format(
-                    "%d must be greater than %d", val, expect));
+                    "%s must be greater than %s", val, expect));
         }
         return val;
     }
@@ -2670,7 +2671,7 @@ public final class Constraints {
     public static double gte(double expect, double val) {
         if (expect > val) {
             throw new ConstraintException(String.format(
-                    "%d must be greater than or equal to %d", val, expect));
+                    "%s must be greater than or equal to %s", val, expect));
         }
         return val;
     }
@@ -2725,7 +2726,7 @@ public final class Constraints {
     public static double between(double low, double high, double val) {
         if (low >= val || high <= val) {
             throw new ConstraintException(String.format(
-                    "%d must be in range (%d, %d)", val, low, high));
+                    "%s must be in range (%s, %s)", val, low, high));
         }
         return val;
     }
@@ -2757,7 +2758,7 @@ public final class Constraints {
     public static double in(double low, double high, double val) {
         if (low > val || high < val) {
             throw new ConstraintException(String.format(
-                    "%d must be in range [%d, %d]", val, low, high));
+                    "%s must be in range [%s, %s]", val, low, high));
         }
         return val;
     }
@@ -3101,7 +3102,8 @@ public final class Constraints {
 
     /**
      * Validate that <code>val</code> is not null, not the wildcard address, and
-     * matches a local interface.
+     * matches a local interface. Interfaces are looked up in the cache of
+     * {@link LocalInterfaces#get()}.
      *
      * @param val Value to validate
      * @return <code>val</code> if the constraint is met
@@ -3111,16 +3113,11 @@ public final class Constraints {
         notNull(val);
 
         if (val.isAnyLocalAddress()) {
-            throw new ConstraintException("%s must not be the wildcard address");
+            throw new ConstraintException(String.format(
+                    "%s must not be the wildcard address", val));
         }
 
-        NetworkInterface nic;
-        try {
-            nic = NetworkInterface.getByInetAddress(val);
-        } catch (SocketException e) {
-            throw new RuntimeException(e);
-        }
-        if (nic == null) {
+        if (!LocalInterfaces.get().isLocal(val)) {
             throw new ConstraintException(String.format(
                     "%s is not a local interface", val));
         }
@@ -3149,7 +3146,8 @@ public final class Constraints {
     public static <T extends InetAddress> T isMCast(T val) {
         notNull(val);
         if (!val.isMulticastAddress()) {
-            throw new ConstraintException("%s is not a multicast address");
+            throw new ConstraintException(String.format(
+                    "%s is not a multicast address", val));
         }
 
         return val;
@@ -0,0 +1,143 @@
+package common.concurrent;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.BitSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pins threads to CPUs on Linux, without native code: the thread finds its
+ * kernel thread id through <code>/proc/thread-self</code> and has
+ * <code>taskset</code> set its affinity. Pinning is a one off when a thread
+ * starts, so the cost of running a process doesn't matter.
+ * <p>
+ * CPUs isolated from the scheduler with the <code>isolcpus</code> kernel
+ * parameter are listed in <code>/sys/devices/system/cpu/isolated</code>, see
+ * {@link #isolatedCpus()}; they only run the threads pinned to them, which is
+ * what latency critical loops want.
+ *
+ * @author rstoner
+ */
+public final class CpuAffinity {
+    private static final Charset ASCII = Charset.forName("US-ASCII");
+    private static final Path THREAD_SELF = Paths.get("/proc/thread-self");
+    private static final Path ISOLATED = Paths
+            .get("/sys/devices/system/cpu/isolated");
+    private static final Path ONLINE = Paths
+            .get("/sys/devices/system/cpu/online");
+    private static final File DEV_NULL = new File("/dev/null");
+    private static final long TASKSET_TIMEOUT_SECONDS = 5;
+
+    private CpuAffinity() {
+    }
+
+    /**
+     * @return CPUs isolated with <code>isolcpus</code>, empty if there are
+     *         none or this isn't Linux
+     */
+    public static BitSet isolatedCpus() {
+        return readCpuList(ISOLATED);
+    }
+
+    /**
+     * @return CPUs which are online, empty if this isn't Linux
+     */
+    public static BitSet onlineCpus() {
+        return readCpuList(ONLINE);
+    }
+
+    private static BitSet readCpuList(Path path) {
+        try {
+            return parseCpuList(new String(Files.readAllBytes(path), ASCII));
+        } catch (IOException e) {
+            return new BitSet();
+        }
+    }
+
+    /**
+     * @param list CPU list in the kernel's format, e.g. <code>2-5,7</code>
+     * @return CPUs of the list
+     */
+    public static BitSet parseCpuList(String list) {
+        BitSet cpus = new BitSet();
+        for (String range : list.trim().split(",")) {
+            if (range.isEmpty()) {
+                continue;
+            }
+            int dash = range.indexOf('-');
+            if (dash < 0) {
+                cpus.set(Integer.parseInt(range));
+            } else {
+                cpus.set(Integer.parseInt(range.substring(0, dash)),
+                        Integer.parseInt(range.substring(dash + 1)) + 1);
+            }
+        }
+        return cpus;
+    }
+
+    /**
+     * @return kernel thread id of the current thread, or -1 if it can't be
+     *         found, e.g. on Linux before 3.17 or another operating system
+     */
+    public static int currentThreadId() {
+        try {
+            // e.g. "1234/task/1240"
+            Path link = Files.readSymbolicLink(THREAD_SELF);
+            return Integer.parseInt(link.getFileName().toString());
+        } catch (IOException | UnsupportedOperationException
+                | NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Pins the current thread to <code>cpu</code>.
+     *
+     * @param cpu CPU number
+     * @return <code>true</code> if the thread was pinned, <code>false</code>
+     *         if pinning isn't supported here or <code>taskset</code> failed
+     */
+    public static boolean pin(int cpu) {
+        int tid = currentThreadId();
+        if (tid < 0) {
+            return false;
+        }
+        try {
+            Process taskset = new ProcessBuilder("taskset", "-p", "-c",
+                    Integer.toString(cpu), Integer.toString(tid))
+                    .redirectErrorStream(true).redirectOutput(DEV_NULL)
+                    .start();
+            if (!waitFor(taskset)) {
+                taskset.destroy();
+                return false;
+            }
+            return taskset.exitValue() == 0;
+        } catch (IOException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static boolean waitFor(Process process)
+            throws InterruptedException {
+        long deadline = System.nanoTime()
+                + TimeUnit.SECONDS.toNanos(TASKSET_TIMEOUT_SECONDS);
+        while (true) {
+            try {
+                process.exitValue();
+                return true;
+            } catch (IllegalThreadStateException e) {
+                if (System.nanoTime() > deadline) {
+                    return false;
+                }
+                Thread.sleep(1);
+            }
+        }
+    }
+}
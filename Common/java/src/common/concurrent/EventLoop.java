@@ -0,0 +1,279 @@
+package common.concurrent;
+
+import static common.Constraints.notNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Single thread which runs tasks and pollers in a loop, so that components
+ * confined to one thread share it instead of each writing its own loop.
+ * {@link SameThread}s bound to the loop expect its thread, so their checks
+ * hold for everything the loop runs.
+ * <p>
+ * Tasks can be submitted from any thread with {@link #execute(Runnable)},
+ * through an {@link MpscQueue}. Pollers are called on every pass and report
+ * how much work they did; after a pass without work the loop either spins
+ * again at once ({@link #BUSY}), or backs off by spinning, then yielding,
+ * then parking for up to the maximum park time, and is woken up by submitted
+ * tasks.
+ * <p>
+ * The thread can be pinned to a CPU, preferably one isolated with
+ * <code>isolcpus</code>, see {@link CpuAffinity}. Pinning is best effort;
+ * {@link #pinned()} tells whether it worked.
+ *
+ * @author rstoner
+ */
+public final class EventLoop {
+    /** Never back off, for loops on a CPU of their own */
+    public static final long BUSY = -1;
+
+    private static final int SPINS = 100;
+    private static final int YIELDS = 10;
+    private static final int TASK_BATCH = 64;
+
+    /**
+     * Source of work polled on every pass of the loop, e.g. a socket or a
+     * queue.
+     */
+    public interface Poller {
+        /**
+         * @return amount of work done, 0 if there was none
+         */
+        int poll();
+    }
+
+    private final String _name;
+    private final int _cpu;
+    private final long _maxParkNanos;
+    private final MpscQueue<Runnable> _tasks;
+    private final List<SameThread> _bound = new ArrayList<>();
+    private final RingQueue.Consumer<Runnable> _runner =
+            new RingQueue.Consumer<Runnable>() {
+                @Override
+                public void accept(Runnable task) {
+                    task.run();
+                }
+            };
+    private Poller[] _pollers = new Poller[0];
+    private volatile Thread _thread;
+    private volatile boolean _running;
+    private volatile boolean _parked;
+    private volatile boolean _pinned;
+
+    /**
+     * Loop which backs off when idle, on any CPU.
+     *
+     * @param name thread name
+     */
+    public EventLoop(String name) {
+        this(name, -1, TimeUnit.MILLISECONDS.toNanos(1), 1024);
+    }
+
+    /**
+     * @param name thread name
+     * @param cpu CPU to pin the thread to, or -1 to not pin it
+     * @param maxParkNanos longest park when idle, or {@link #BUSY}
+     * @param taskCapacity capacity of the queue of submitted tasks
+     */
+    public EventLoop(String name, int cpu, long maxParkNanos,
+            int taskCapacity) {
+        _name = notNull(name);
+        _cpu = cpu;
+        _maxParkNanos = maxParkNanos;
+        _tasks = new MpscQueue<>(taskCapacity);
+    }
+
+    /**
+     * Makes <code>sameThread</code> expect the thread of this loop, now if it
+     * has started, or else when it starts.
+     *
+     * @param sameThread thread checker of a component run by this loop
+     * @throws IllegalStateException if <code>sameThread</code> already
+     *             expects another thread
+     */
+    public synchronized void bind(SameThread sameThread) {
+        notNull(sameThread);
+        Thread expected = sameThread.expected();
+        if (expected != null && expected != _thread) {
+            throw new IllegalStateException("Expected thread already set to "
+                    + expected);
+        }
+        if (_thread != null) {
+            if (expected == null) {
+                sameThread.expected(_thread);
+            }
+        } else {
+            _bound.add(sameThread);
+        }
+    }
+
+    /**
+     * Adds a poller. Pollers can be added before the loop starts, or by tasks
+     * running in the loop.
+     *
+     * @param poller poller to call on every pass
+     */
+    public synchronized void add(Poller poller) {
+        notNull(poller);
+        if (_thread != null && !inLoop()) {
+            throw new IllegalStateException(
+                    "Pollers must be added in the loop once it started");
+        }
+        Poller[] pollers = new Poller[_pollers.length + 1];
+        System.arraycopy(_pollers, 0, pollers, 0, _pollers.length);
+        pollers[_pollers.length] = poller;
+        _pollers = pollers;
+    }
+
+    /**
+     * Submits a task to run in the loop, from any thread.
+     *
+     * @param task task
+     * @return <code>false</code> if the task queue is full
+     */
+    public boolean execute(Runnable task) {
+        if (!_tasks.offer(task)) {
+            return false;
+        }
+        if (_parked) {
+            LockSupport.unpark(_thread);
+        }
+        return true;
+    }
+
+    /**
+     * Starts the thread of the loop.
+     *
+     * @throws IllegalStateException if a bound {@link SameThread} was claimed
+     *             by another thread since it was bound. It is dropped, and
+     *             if this was found before binding any, none are bound and
+     *             the loop can be started again. If it was claimed while the
+     *             others were being bound, those stay bound and the loop is
+     *             started before this is thrown, as they already expect its
+     *             thread.
+     */
+    public synchronized void start() {
+        if (_thread != null) {
+            throw new IllegalStateException(_name + " already started");
+        }
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                loop();
+            }
+        }, _name);
+        // Check all before binding any, as bindings can't be undone
+        for (int i = 0; i < _bound.size(); i++) {
+            Thread expected = _bound.get(i).expected();
+            if (expected != null) {
+                _bound.remove(i);
+                throw new IllegalStateException(
+                        "Expected thread already set to " + expected);
+            }
+        }
+        IllegalStateException claimed = null;
+        for (SameThread sameThread : _bound) {
+            try {
+                sameThread.expected(thread);
+            } catch (IllegalStateException e) {
+                // Claimed by a check() since the pass above
+                if (claimed == null) {
+                    claimed = e;
+                } else {
+                    claimed.addSuppressed(e);
+                }
+            }
+        }
+        _bound.clear();
+        _running = true;
+        _thread = thread;
+        thread.start();
+        if (claimed != null) {
+            throw claimed;
+        }
+    }
+
+    /**
+     * Stops the loop after its current pass, and waits for its thread to end.
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void stop() throws InterruptedException {
+        Thread thread;
+        synchronized (this) {
+            thread = _thread;
+        }
+        _running = false;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            if (thread != Thread.currentThread()) {
+                thread.join();
+            }
+        }
+    }
+
+    /**
+     * @return <code>true</code> if called from the thread of this loop
+     */
+    public boolean inLoop() {
+        return Thread.currentThread() == _thread;
+    }
+
+    /**
+     * @return <code>true</code> if the thread was pinned to its CPU
+     */
+    public boolean pinned() {
+        return _pinned;
+    }
+
+    private void loop() {
+        if (_cpu >= 0) {
+            _pinned = CpuAffinity.pin(_cpu);
+        }
+        int idle = 0;
+        while (_running) {
+            int work = runPass();
+            if (work > 0 || _maxParkNanos == BUSY) {
+                idle = 0;
+            } else {
+                backOff(idle++);
+            }
+        }
+    }
+
+    private int runPass() {
+        int work = 0;
+        try {
+            work += _tasks.drain(_runner, TASK_BATCH);
+            Poller[] pollers = _pollers;
+            for (int i = 0; i < pollers.length; i++) {
+                work += pollers[i].poll();
+            }
+        } catch (RuntimeException e) {
+            Thread t = Thread.currentThread();
+            t.getUncaughtExceptionHandler().uncaughtException(t, e);
+            work++;
+        }
+        return work;
+    }
+
+    private void backOff(int idle) {
+        if (idle < SPINS) {
+            return;
+        } else if (idle < SPINS + YIELDS) {
+            Thread.yield();
+        } else {
+            _parked = true;
+            // A task submitted before the flag was seen is found here
+            if (_tasks.isEmpty()) {
+                long nanos = Math.min(_maxParkNanos,
+                        1000L << Math.min(idle - SPINS - YIELDS, 20));
+                LockSupport.parkNanos(this, nanos);
+            }
+            _parked = false;
+        }
+    }
+}
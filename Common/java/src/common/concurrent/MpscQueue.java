@@ -0,0 +1,110 @@
+package common.concurrent;
+
+import static common.Constraints.notNull;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * {@link RingQueue} for any number of producer threads and a single consumer
+ * thread. Producers claim sequences by compare and swap of the tail, then
+ * publish each slot on its own with an ordered store of the element, so the
+ * consumer takes elements up to the first slot which is claimed but not yet
+ * filled. {@link #poll()} returns <code>null</code> while the next slot is
+ * being filled, even though the queue isn't empty, rather than wait for a
+ * producer which may have been descheduled.
+ * <p>
+ * Slots are published by {@link #set(long, Object)}, so {@link #publish(long)}
+ * does nothing.
+ *
+ * @author rstoner
+ * @param <E> element type
+ */
+public final class MpscQueue<E> extends RingQueue<E> {
+    /** Producers' last seen head, on the tail's cache line */
+    private static final int HEAD_CACHE = TAIL + 1;
+
+    private final AtomicReferenceArray<E> _buffer;
+
+    /**
+     * @param capacity minimum capacity, rounded up to a power of two
+     */
+    public MpscQueue(int capacity) {
+        super(capacity);
+        _buffer = new AtomicReferenceArray<>(_capacity);
+    }
+
+    @Override
+    public boolean offer(E e) {
+        notNull(e);
+        long tail = claim(1);
+        if (tail < 0) {
+            return false;
+        }
+        _buffer.lazySet((int) tail & _mask, e);
+        return true;
+    }
+
+    @Override
+    public long claim(int n) {
+        if (n > _capacity) {
+            return -1;
+        }
+        while (true) {
+            long tail = _indices.get(TAIL);
+            if (tail + n - _indices.get(HEAD_CACHE) > _capacity) {
+                long head = _indices.get(HEAD);
+                _indices.lazySet(HEAD_CACHE, head);
+                if (tail + n - head > _capacity) {
+                    return -1;
+                }
+            }
+            if (_indices.compareAndSet(TAIL, tail, tail + n)) {
+                return tail;
+            }
+        }
+    }
+
+    @Override
+    public void set(long seq, E e) {
+        notNull(e);
+        _buffer.lazySet((int) seq & _mask, e);
+    }
+
+    @Override
+    public void publish(long end) {
+        // Every set() published its slot
+    }
+
+    @Override
+    public E poll() {
+        long head = _indices.get(HEAD);
+        int i = (int) head & _mask;
+        E e = _buffer.get(i);
+        if (e != null) {
+            _buffer.lazySet(i, null);
+            _indices.lazySet(HEAD, head + 1);
+        }
+        return e;
+    }
+
+    @Override
+    public int drain(Consumer<? super E> consumer, int limit) {
+        long head = _indices.get(HEAD);
+        int taken = 0;
+        try {
+            while (taken < limit) {
+                int i = (int) (head + taken) & _mask;
+                E e = _buffer.get(i);
+                if (e == null) {
+                    break;
+                }
+                _buffer.lazySet(i, null);
+                taken++;
+                consumer.accept(e);
+            }
+        } finally {
+            _indices.lazySet(HEAD, head + taken);
+        }
+        return taken;
+    }
+}
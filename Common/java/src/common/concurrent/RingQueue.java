@@ -0,0 +1,139 @@
+package common.concurrent;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded queue on a preallocated ring of slots, for handing objects from
+ * thread to thread without locks and without allocating. The capacity is
+ * rounded up to a power of two, so that a sequence maps to its slot with a
+ * mask. Sequences only grow, and the head (next sequence to take) and the tail
+ * (next sequence to fill) are kept on cache lines of their own, so producers
+ * and consumers don't invalidate each other's lines more than they must.
+ * <p>
+ * Elements can be handed over one at a time with {@link #offer(Object)} and
+ * {@link #poll()}, taken in batches with {@link #drain(Consumer, int)}, which
+ * publishes the consumed slots once per batch, and put in batches with
+ * {@link #claim(int)}, {@link #set(long, Object)} and {@link #publish(long)}:
+ *
+ * <pre>
+ * long seq = queue.claim(n);
+ * if (seq &gt;= 0) {
+ *     for (int i = 0; i &lt; n; i++) {
+ *         queue.set(seq + i, events[i]);
+ *     }
+ *     queue.publish(seq + n);
+ * }
+ * </pre>
+ *
+ * Null elements are not allowed. Each implementation is only safe for the
+ * number of producer and consumer threads it is named for.
+ *
+ * @author rstoner
+ * @param <E> element type
+ */
+public abstract class RingQueue<E> {
+    /** Head and tail are 128 bytes apart, past adjacent line prefetching */
+    static final int HEAD = 16;
+    static final int TAIL = 32;
+    private static final int INDICES = 48;
+
+    final int _capacity;
+    final int _mask;
+    final AtomicLongArray _indices = new AtomicLongArray(INDICES);
+    /**
+     * Caches of the indices of the other side, read and written without
+     * ordering by one thread: the producer's last seen head at
+     * {@link #HEAD}, and the consumer's last seen tail at {@link #TAIL}
+     */
+    final long[] _cache = new long[INDICES];
+
+    /**
+     * Receives the elements of {@link RingQueue#drain(Consumer, int)}.
+     *
+     * @param <E> element type
+     */
+    public interface Consumer<E> {
+        /**
+         * @param element element taken from the queue
+         */
+        void accept(E element);
+    }
+
+    RingQueue(int capacity) {
+        if (capacity <= 0 || capacity > 1 << 30) {
+            throw new IllegalArgumentException(
+                    "Capacity must be in range [1, 2^30]: " + capacity);
+        }
+        _capacity = Integer.bitCount(capacity) == 1 ? capacity : Integer
+                .highestOneBit(capacity) << 1;
+        _mask = _capacity - 1;
+    }
+
+    /**
+     * @param e element
+     * @return <code>false</code> if the queue is full
+     */
+    public abstract boolean offer(E e);
+
+    /**
+     * @return next element, or <code>null</code> if there is none
+     */
+    public abstract E poll();
+
+    /**
+     * Takes up to <code>limit</code> elements, in order.
+     *
+     * @param consumer consumer of the elements
+     * @param limit maximum number of elements to take
+     * @return number of elements taken
+     */
+    public abstract int drain(Consumer<? super E> consumer, int limit);
+
+    /**
+     * Claims <code>n</code> consecutive slots to fill with
+     * {@link #set(long, Object)}, which consumers don't see before they are
+     * published with {@link #publish(long)}.
+     *
+     * @param n number of slots, at most the capacity
+     * @return sequence of the first slot, or -1 if there isn't room for
+     *         <code>n</code> elements
+     */
+    public abstract long claim(int n);
+
+    /**
+     * @param seq claimed sequence
+     * @param e element
+     */
+    public abstract void set(long seq, E e);
+
+    /**
+     * Makes the claimed slots before <code>end</code> visible to consumers.
+     *
+     * @param end sequence after the last slot to publish
+     */
+    public abstract void publish(long end);
+
+    /**
+     * @return number of slots
+     */
+    public final int capacity() {
+        return _capacity;
+    }
+
+    /**
+     * @return number of elements, which may have changed by the time it is
+     *         returned
+     */
+    public final int size() {
+        long head = _indices.get(HEAD);
+        long tail = _indices.get(TAIL);
+        return (int) Math.max(0, Math.min(_capacity, tail - head));
+    }
+
+    /**
+     * @return <code>true</code> if there are no elements
+     */
+    public final boolean isEmpty() {
+        return size() == 0;
+    }
+}
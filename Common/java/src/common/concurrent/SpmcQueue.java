@@ -0,0 +1,92 @@
+package common.concurrent;
+
+import static common.Constraints.notNull;
+
+/**
+ * {@link RingQueue} for a single producer thread and any number of consumer
+ * threads. Consumers take elements by compare and swap of the head, after
+ * reading the element: the producer only refills a slot once the head has
+ * moved past it, which makes the swap of a consumer that read a stale slot
+ * fail.
+ * <p>
+ * Consumers can't clear the slots they took, so the queue keeps references to
+ * up to capacity taken elements until the producer overwrites them, which
+ * suits preallocated, reused elements.
+ *
+ * @author rstoner
+ * @param <E> element type
+ */
+public final class SpmcQueue<E> extends RingQueue<E> {
+    private final Object[] _buffer;
+
+    /**
+     * @param capacity minimum capacity, rounded up to a power of two
+     */
+    public SpmcQueue(int capacity) {
+        super(capacity);
+        _buffer = new Object[_capacity];
+    }
+
+    @Override
+    public boolean offer(E e) {
+        notNull(e);
+        long tail = _indices.get(TAIL);
+        if (!hasRoom(tail, 1)) {
+            return false;
+        }
+        _buffer[(int) tail & _mask] = e;
+        _indices.lazySet(TAIL, tail + 1);
+        return true;
+    }
+
+    private boolean hasRoom(long tail, int n) {
+        if (tail + n - _cache[HEAD] > _capacity) {
+            _cache[HEAD] = _indices.get(HEAD);
+            return tail + n - _cache[HEAD] <= _capacity;
+        }
+        return true;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E poll() {
+        while (true) {
+            long head = _indices.get(HEAD);
+            if (head >= _indices.get(TAIL)) {
+                return null;
+            }
+            E e = (E) _buffer[(int) head & _mask];
+            if (_indices.compareAndSet(HEAD, head, head + 1)) {
+                return e;
+            }
+        }
+    }
+
+    @Override
+    public int drain(Consumer<? super E> consumer, int limit) {
+        int taken = 0;
+        E e;
+        while (taken < limit && (e = poll()) != null) {
+            taken++;
+            consumer.accept(e);
+        }
+        return taken;
+    }
+
+    @Override
+    public long claim(int n) {
+        long tail = _indices.get(TAIL);
+        return n <= _capacity && hasRoom(tail, n) ? tail : -1;
+    }
+
+    @Override
+    public void set(long seq, E e) {
+        notNull(e);
+        _buffer[(int) seq & _mask] = e;
+    }
+
+    @Override
+    public void publish(long end) {
+        _indices.lazySet(TAIL, end);
+    }
+}
@@ -0,0 +1,103 @@
+package common.concurrent;
+
+import static common.Constraints.notNull;
+
+/**
+ * {@link RingQueue} for a single producer thread and a single consumer
+ * thread. Each side only writes its own index, with an ordered store, and
+ * reads the other side's index only when its cached copy says the queue is
+ * full or empty.
+ *
+ * @author rstoner
+ * @param <E> element type
+ */
+public final class SpscQueue<E> extends RingQueue<E> {
+    private final Object[] _buffer;
+
+    /**
+     * @param capacity minimum capacity, rounded up to a power of two
+     */
+    public SpscQueue(int capacity) {
+        super(capacity);
+        _buffer = new Object[_capacity];
+    }
+
+    @Override
+    public boolean offer(E e) {
+        notNull(e);
+        long tail = _indices.get(TAIL);
+        if (!hasRoom(tail, 1)) {
+            return false;
+        }
+        _buffer[(int) tail & _mask] = e;
+        _indices.lazySet(TAIL, tail + 1);
+        return true;
+    }
+
+    private boolean hasRoom(long tail, int n) {
+        if (tail + n - _cache[HEAD] > _capacity) {
+            _cache[HEAD] = _indices.get(HEAD);
+            return tail + n - _cache[HEAD] <= _capacity;
+        }
+        return true;
+    }
+
+    private long available(long head) {
+        if (head >= _cache[TAIL]) {
+            _cache[TAIL] = _indices.get(TAIL);
+        }
+        return _cache[TAIL] - head;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E poll() {
+        long head = _indices.get(HEAD);
+        if (available(head) == 0) {
+            return null;
+        }
+        int i = (int) head & _mask;
+        E e = (E) _buffer[i];
+        _buffer[i] = null;
+        _indices.lazySet(HEAD, head + 1);
+        return e;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public int drain(Consumer<? super E> consumer, int limit) {
+        long head = _indices.get(HEAD);
+        _cache[TAIL] = _indices.get(TAIL);
+        int n = (int) Math.min(_cache[TAIL] - head, limit);
+        int taken = 0;
+        try {
+            while (taken < n) {
+                int i = (int) (head + taken) & _mask;
+                E e = (E) _buffer[i];
+                _buffer[i] = null;
+                taken++;
+                consumer.accept(e);
+            }
+        } finally {
+            _indices.lazySet(HEAD, head + taken);
+        }
+        return taken;
+    }
+
+    @Override
+    public long claim(int n) {
+        long tail = _indices.get(TAIL);
+        return n <= _capacity && hasRoom(tail, n) ? tail : -1;
+    }
+
+    @Override
+    public void set(long seq, E e) {
+        notNull(e);
+        _buffer[(int) seq & _mask] = e;
+    }
+
+    @Override
+    public void publish(long end) {
+        _indices.lazySet(TAIL, end);
+    }
+}
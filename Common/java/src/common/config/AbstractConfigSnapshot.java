@@ -0,0 +1,396 @@
+package common.config;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import common.types.ConcurrentSymbolMap;
+import common.types.Symbol;
+
+/**
+ * A base class for {@link ConfigSnapshot} implementations. All the lookup
+ * methods of the {@link ConfigSnapshot} interface are funneled into
+ * {@link #value(String)}, which subclasses must implement. A lookup for
+ * <code>name</code> with qualifiers <code>q0..qn</code> first tries the key
+ * <code>q0.q1...qn.name</code> and then falls back to less qualified keys by
+ * dropping qualifiers from the end, until only <code>name</code> is left.
+ * <p>
+ * Lookups with a single enum qualifier are served from an {@link EnumTable}
+ * built on first use, so repeated lookups don't build or hash key strings.
+ * Lookups with a single {@link Symbol} qualifier are likewise served from a
+ * table indexed by symbol id, filled in as symbols are looked up.
+ * <p>
+ * Lookups can be recorded by a {@link ConfigAccessTracer}, see
+ * {@link #trace(ConfigAccessTracer)}.
+ *
+ * @author bgonzalez
+ */
+public abstract class AbstractConfigSnapshot implements ConfigSnapshot {
+    private final ConcurrentMap<Class<?>, ConcurrentMap<String,
+            EnumTable<?, ?>>> _enumTables = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, ConcurrentSymbolMap<SymbolValue>>
+            _symbolValues = new ConcurrentHashMap<>();
+    private volatile ConfigAccessTracer _tracer;
+    private volatile ConfigKeyIndex _index;
+
+    /**
+     * @param key fully qualified key
+     * @return value stored under <code>key</code>, or <code>null</code> if
+     *         there is no such key
+     */
+    protected abstract Object value(String key);
+
+    /**
+     * @param name key name
+     * @param qualifiers additional qualifiers for the key
+     * @return key value
+     */
+    @SuppressWarnings("unchecked")
+    protected <T> T get(String name, String... qualifiers) {
+        T val = (T) resolve(name, qualifiers);
+        if (val == null) {
+            throw new RuntimeException("Configuration key not found: "
+                    + key(name, qualifiers, qualifiers.length));
+        }
+        return val;
+    }
+
+    private Object resolve(String name, String[] qualifiers) {
+        ConfigAccessTracer tracer = _tracer;
+        long start = tracer == null ? 0 : System.nanoTime();
+        for (int i = qualifiers.length; i >= 0; i--) {
+            String k = key(name, qualifiers, i);
+            Object val = value(k);
+            if (val != null) {
+                if (tracer != null) {
+                    tracer.record(name, k, qualifiers.length - i,
+                            System.nanoTime() - start);
+                }
+                return val;
+            }
+        }
+        if (tracer != null) {
+            tracer.record(name, null, qualifiers.length + 1,
+                    System.nanoTime() - start);
+        }
+        return null;
+    }
+
+    /**
+     * Record all following lookups in <code>tracer</code>. Lookups with an
+     * enum or symbol qualifier bypass their tables while tracing, so that
+     * every lookup is recorded.
+     *
+     * @param tracer tracer, or <code>null</code> to stop tracing
+     */
+    public void trace(ConfigAccessTracer tracer) {
+        _tracer = tracer;
+    }
+
+    /**
+     * @param name key name
+     * @param qualifiers additional qualifiers (toString() will be called to
+     *            look them up)
+     * @return key value
+     */
+    @Override
+    public <T> T get(String name, Object... qualifiers) {
+        if (qualifiers.length == 1 && _tracer == null) {
+            T val = null;
+            if (qualifiers[0] instanceof Enum) {
+                val = enumGet(name, (Enum<?>) qualifiers[0]);
+            } else if (qualifiers[0] instanceof Symbol) {
+                val = symbolGet(name, (Symbol) qualifiers[0]);
+            }
+            if (val != null) {
+                return val;
+            }
+        }
+
+        String[] strQualifiers = new String[qualifiers.length];
+        for (int i = 0; i < qualifiers.length; i++) {
+            strQualifiers[i] = qualifiers[i].toString();
+        }
+        return get(name, strQualifiers);
+    }
+
+    @Override
+    public <E extends Enum<E>, T> EnumTable<E, T> table(String name,
+            Class<E> qualifierType, Object... qualifiers) {
+        E[] constants = qualifierType.getEnumConstants();
+        String[] tokens = new String[qualifiers.length + 1];
+        for (int i = 0; i < qualifiers.length; i++) {
+            tokens[i] = qualifiers[i].toString();
+        }
+
+        Object[] values = new Object[constants.length];
+        for (E e : constants) {
+            tokens[qualifiers.length] = e.toString();
+            values[e.ordinal()] = resolve(name, tokens);
+        }
+        return new EnumTable<>(qualifierType, key("", tokens,
+                qualifiers.length), name, values);
+    }
+
+    @Override
+    public ConfigKeyIndex index() {
+        ConfigKeyIndex index = _index;
+        if (index == null) {
+            // Racing threads build equal indexes, so either one can win
+            index = new ConfigKeyIndex(indexKeys());
+            _index = index;
+        }
+        return index;
+    }
+
+    /**
+     * Snapshots which know the holder structure of their keys override this
+     * to return only the canonical path of each key, i.e. its qualifiers in
+     * the order of the holders they were defined in, so that the children of
+     * an index node don't mix qualifiers with key names.
+     *
+     * @return keys indexed by {@link #index()}, all keys by default
+     */
+    protected Collection<String> indexKeys() {
+        return keys();
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private <T> T enumGet(String name, Enum<?> qualifier) {
+        if (qualifier.getClass() != qualifier.getDeclaringClass()) {
+            // Constants with their own body may change their toString() and
+            // can't be cached
+            return null;
+        }
+
+        Class type = qualifier.getDeclaringClass();
+        ConcurrentMap<String, EnumTable<?, ?>> tables = _enumTables.get(type);
+        if (tables == null) {
+            tables = new ConcurrentHashMap<>();
+            ConcurrentMap<String, EnumTable<?, ?>> existing = _enumTables
+                    .putIfAbsent(type, tables);
+            if (existing != null) {
+                tables = existing;
+            }
+        }
+        EnumTable table = tables.get(name);
+        if (table == null) {
+            table = table(name, type);
+            EnumTable existing = tables.putIfAbsent(name, table);
+            if (existing != null) {
+                table = existing;
+            }
+        }
+        if (!table.contains(qualifier)) {
+            return null;
+        }
+        return (T) table.get(qualifier);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T symbolGet(String name, Symbol qualifier) {
+        ConcurrentSymbolMap<SymbolValue> values = _symbolValues.get(name);
+        if (values == null) {
+            values = new ConcurrentSymbolMap<>();
+            ConcurrentSymbolMap<SymbolValue> existing = _symbolValues
+                    .putIfAbsent(name, values);
+            if (existing != null) {
+                values = existing;
+            }
+        }
+        SymbolValue value = values.get(qualifier);
+        // Ids are only unique within a table, so a value cached for a symbol
+        // of another table (or of a table forgotten by Symbol.clearSlots())
+        // is looked up again
+        if (value == null || value._symbol != qualifier) {
+            Object val = resolve(name, new String[] { qualifier.toString() });
+            if (val == null) {
+                return null;
+            }
+            value = new SymbolValue(qualifier, val);
+            synchronized (values) {
+                values.put(qualifier, value);
+            }
+        }
+        return (T) value._value;
+    }
+
+    /**
+     * @param name key name
+     * @param tokens qualifiers
+     * @param lastTokenIdx number of qualifiers to include in the key
+     * @return fully qualified key
+     */
+    protected static String key(String name, String[] tokens,
+            int lastTokenIdx) {
+        assert lastTokenIdx <= tokens.length;
+        if (lastTokenIdx == 0) {
+            return name;
+        }
+        StringBuilder key = new StringBuilder();
+        for (int i = 0; i < lastTokenIdx; i++) {
+            key.append(tokens[i]).append('.');
+        }
+        return key.append(name).toString();
+    }
+
+    @Override
+    public int i(String name, Object... qualifiers) {
+        return ((Number) get(name, qualifiers)).intValue();
+    }
+
+    @Override
+    public long l(String name, Object... qualifiers) {
+        return ((Number) get(name, qualifiers)).longValue();
+    }
+
+    @Override
+    public double d(String name, Object... qualifiers) {
+        return ((Number) get(name, qualifiers)).doubleValue();
+    }
+
+    @Override
+    public float f(String name, Object... qualifiers) {
+        return ((Number) get(name, qualifiers)).floatValue();
+    }
+
+    @Override
+    public short s(String name, Object qualifiers) {
+        return ((Number) get(name, qualifiers)).shortValue();
+    }
+
+    @Override
+    public boolean bool(String name, Object... qualifiers) {
+        return (boolean) get(name, qualifiers);
+    }
+
+    @Override
+    public String string(String name, Object... qualifiers) {
+        return (String) get(name, qualifiers);
+    }
+
+    @Override
+    public char c(String name, Object qualifiers) {
+        return (char) ((Number) get(name, qualifiers)).byteValue();
+    }
+
+    @Override
+    public byte b(String name, Object qualifiers) {
+        return ((Number) get(name, qualifiers)).byteValue();
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public <T> List<T> list(String name, Object... qualifiers) {
+        return (List<T>) get(name, qualifiers);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public <K, V> Map<K, V> map(String name, Object... qualifiers) {
+        return (Map<K, V>) get(name, qualifiers);
+    }
+
+    @Override
+    public int[] iArr(String name, Object... qualifiers) {
+        List<Number> list = get(name, qualifiers);
+        int[] array = new int[list.size()];
+        for (int i = 0; i < list.size(); i++) {
+            array[i] = list.get(i).intValue();
+        }
+        return array;
+    }
+
+    @Override
+    public double[] dArr(String name, Object... qualifiers) {
+        List<Number> list = get(name, qualifiers);
+        double[] array = new double[list.size()];
+        for (int i = 0; i < list.size(); i++) {
+            array[i] = list.get(i).doubleValue();
+        }
+        return array;
+    }
+
+    @Override
+    public float[] fArr(String name, Object... qualifiers) {
+        List<Number> list = get(name, qualifiers);
+        float[] array = new float[list.size()];
+        for (int i = 0; i < list.size(); i++) {
+            array[i] = list.get(i).floatValue();
+        }
+        return array;
+    }
+
+    @Override
+    public long[] lArr(String name, Object... qualifiers) {
+        List<Number> list = get(name, qualifiers);
+        long[] array = new long[list.size()];
+        for (int i = 0; i < list.size(); i++) {
+            array[i] = list.get(i).longValue();
+        }
+        return array;
+    }
+
+    @Override
+    public short[] sArr(String name, Object... qualifiers) {
+        List<Number> list = get(name, qualifiers);
+        short[] array = new short[list.size()];
+        for (int i = 0; i < list.size(); i++) {
+            array[i] = list.get(i).shortValue();
+        }
+        return array;
+    }
+
+    @Override
+    public byte[] bArr(String name, Object... qualifiers) {
+        List<Number> list = get(name, qualifiers);
+        byte[] array = new byte[list.size()];
+        for (int i = 0; i < list.size(); i++) {
+            array[i] = list.get(i).byteValue();
+        }
+        return array;
+    }
+
+    @Override
+    public char[] cArr(String name, Object... qualifiers) {
+        List<Number> list = get(name, qualifiers);
+        char[] array = new char[list.size()];
+        for (int i = 0; i < list.size(); i++) {
+            array[i] = (char) list.get(i).byteValue();
+        }
+        return array;
+    }
+
+    @Override
+    public boolean[] boolArr(String name, Object... qualifiers) {
+        List<Boolean> list = get(name, qualifiers);
+        boolean[] array = new boolean[list.size()];
+        for (int i = 0; i < list.size(); i++) {
+            array[i] = list.get(i);
+        }
+        return array;
+    }
+
+    @Override
+    public String[] stringArr(String name, Object... qualifiers) {
+        List<String> list = get(name, qualifiers);
+        return list.toArray(new String[0]);
+    }
+
+    @Override
+    public ColumnTable columns(String name, Object... qualifiers) {
+        return (ColumnTable) get(name, qualifiers);
+    }
+
+    private static final class SymbolValue {
+        final Symbol _symbol;
+        final Object _value;
+
+        SymbolValue(Symbol symbol, Object value) {
+            _symbol = symbol;
+            _value = value;
+        }
+    }
+}
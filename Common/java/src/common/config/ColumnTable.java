@@ -0,0 +1,231 @@
+package common.config;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Table of primitive columns, memory mapped from a file written by
+ * {@link ColumnTableWriter}. Configuration values such as per-symbol tick
+ * sizes are referenced from the python configuration with
+ * <code>table('file')</code> and looked up with
+ * {@link ConfigSnapshot#columns(String, Object...)}. Reads go straight to the
+ * mapped pages, so a table costs no heap beyond its column descriptions, and
+ * every process mapping the same file shares its pages.
+ * <p>
+ * File format, all numbers little endian:
+ *
+ * <pre>
+ * header:  magic (int), version (int), row count (int), column count (int)
+ * columns: column count * (type (byte), name length (int), UTF-8 name)
+ * data:    every column as row count values, starting 8 byte aligned
+ * </pre>
+ *
+ * @author bgonzalez
+ */
+public final class ColumnTable {
+    static final int MAGIC = 0x43425754; // "CBWT"
+    static final int VERSION = 1;
+    static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /** Column of ints. */
+    public static final byte INT = 1;
+    /** Column of longs. */
+    public static final byte LONG = 2;
+    /** Column of doubles. */
+    public static final byte DOUBLE = 3;
+
+    private final File _file;
+    private final ByteBuffer _buffer;
+    private final int _rows;
+    private final String[] _names;
+    private final byte[] _types;
+    private final int[] _offsets;
+
+    /**
+     * @param file file the table was read from
+     * @param buffer buffer holding the table
+     */
+    public ColumnTable(File file, ByteBuffer buffer) {
+        _file = file;
+        _buffer = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        if (_buffer.remaining() < 16 || _buffer.getInt(0) != MAGIC) {
+            throw new RuntimeException("Not a column table: " + file);
+        }
+        if (_buffer.getInt(4) != VERSION) {
+            throw new RuntimeException("Unsupported column table version: "
+                    + _buffer.getInt(4));
+        }
+        _rows = _buffer.getInt(8);
+        int columns = _buffer.getInt(12);
+        _names = new String[columns];
+        _types = new byte[columns];
+        _offsets = new int[columns];
+
+        int pos = 16;
+        for (int i = 0; i < columns; i++) {
+            _types[i] = _buffer.get(pos);
+            byte[] name = new byte[_buffer.getInt(pos + 1)];
+            for (int j = 0; j < name.length; j++) {
+                name[j] = _buffer.get(pos + 5 + j);
+            }
+            _names[i] = new String(name, UTF8);
+            pos += 5 + name.length;
+        }
+        for (int i = 0; i < columns; i++) {
+            pos = align(pos);
+            _offsets[i] = pos;
+            pos += _rows * width(_types[i]);
+        }
+        if (pos > _buffer.limit()) {
+            throw new RuntimeException("Truncated column table: " + file);
+        }
+    }
+
+    /**
+     * Memory maps <code>file</code> read only.
+     *
+     * @param file column table file
+     * @return column table
+     * @throws IOException if the file cannot be mapped
+     */
+    public static ColumnTable map(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(),
+                StandardOpenOption.READ)) {
+            return new ColumnTable(file, channel.map(MapMode.READ_ONLY, 0,
+                    channel.size()));
+        }
+    }
+
+    static int align(int pos) {
+        return (pos + 7) & ~7;
+    }
+
+    static int width(byte type) {
+        switch (type) {
+        case INT:
+            return 4;
+        case LONG:
+        case DOUBLE:
+            return 8;
+        default:
+            throw new RuntimeException("Unknown column type " + type);
+        }
+    }
+
+    /**
+     * @return file the table was read from
+     */
+    public File file() {
+        return _file;
+    }
+
+    /**
+     * @return number of rows
+     */
+    public int rows() {
+        return _rows;
+    }
+
+    /**
+     * @return number of columns
+     */
+    public int columnCount() {
+        return _names.length;
+    }
+
+    /**
+     * @param column column index
+     * @return column name
+     */
+    public String name(int column) {
+        return _names[column];
+    }
+
+    /**
+     * @param column column index
+     * @return column type, one of {@link #INT}, {@link #LONG} and
+     *         {@link #DOUBLE}
+     */
+    public byte type(int column) {
+        return _types[column];
+    }
+
+    /**
+     * @param name column name
+     * @return column index
+     */
+    public int column(String name) {
+        for (int i = 0; i < _names.length; i++) {
+            if (_names[i].equals(name)) {
+                return i;
+            }
+        }
+        throw new RuntimeException("Column not found: " + name + " in "
+                + _file);
+    }
+
+    /**
+     * @param column index of an int column
+     * @param row row
+     * @return value
+     */
+    public int getInt(int column, int row) {
+        return _buffer.getInt(offset(column, INT, row));
+    }
+
+    /**
+     * @param column index of a long column
+     * @param row row
+     * @return value
+     */
+    public long getLong(int column, int row) {
+        return _buffer.getLong(offset(column, LONG, row));
+    }
+
+    /**
+     * @param column index of a double column
+     * @param row row
+     * @return value
+     */
+    public double getDouble(int column, int row) {
+        return _buffer.getDouble(offset(column, DOUBLE, row));
+    }
+
+    private int offset(int column, byte type, int row) {
+        if (_types[column] != type) {
+            throw new RuntimeException("Column " + _names[column]
+                    + " is not of type " + type);
+        }
+        if (row < 0 || row >= _rows) {
+            throw new IndexOutOfBoundsException(row + " must be in range [0, "
+                    + _rows + ")");
+        }
+        return _offsets[column] + row * width(type);
+    }
+
+    /**
+     * Tables are equal if they were read from the same file.
+     */
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof ColumnTable
+                && ((ColumnTable) o)._file.getAbsoluteFile().equals(
+                        _file.getAbsoluteFile());
+    }
+
+    @Override
+    public int hashCode() {
+        return _file.getAbsoluteFile().hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "ColumnTable(" + _file + ", " + _rows + " rows)";
+    }
+}
@@ -0,0 +1,199 @@
+package common.config;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes files read by {@link ColumnTable}.
+ *
+ * @author bgonzalez
+ */
+public final class ColumnTableWriter {
+    private final List<String> _names = new ArrayList<>();
+    private final List<Object> _columns = new ArrayList<>();
+    private int _rows = -1;
+
+    /**
+     * @param name column name
+     * @param values column values
+     * @return this writer
+     */
+    public ColumnTableWriter intColumn(String name, int[] values) {
+        return add(name, values, values.length);
+    }
+
+    /**
+     * @param name column name
+     * @param values column values
+     * @return this writer
+     */
+    public ColumnTableWriter longColumn(String name, long[] values) {
+        return add(name, values, values.length);
+    }
+
+    /**
+     * @param name column name
+     * @param values column values
+     * @return this writer
+     */
+    public ColumnTableWriter doubleColumn(String name, double[] values) {
+        return add(name, values, values.length);
+    }
+
+    private ColumnTableWriter add(String name, Object values, int rows) {
+        if (_rows >= 0 && rows != _rows) {
+            throw new RuntimeException("Column " + name + " has " + rows
+                    + " rows, expected " + _rows);
+        }
+        _rows = rows;
+        _names.add(name);
+        _columns.add(values);
+        return this;
+    }
+
+    /**
+     * Reads a CSV file whose header names every column as
+     * <code>name:type</code>, where type is <code>int</code>,
+     * <code>long</code> or <code>double</code>. Columns without a type are
+     * doubles.
+     *
+     * @param csv CSV file
+     * @return writer holding the columns of <code>csv</code>
+     * @throws IOException if the file cannot be read
+     */
+    public static ColumnTableWriter fromCsv(File csv) throws IOException {
+        List<String[]> rows = new ArrayList<>();
+        String[] header;
+        try (BufferedReader rdr = new BufferedReader(new InputStreamReader(
+                new FileInputStream(csv), ColumnTable.UTF8))) {
+            String line = rdr.readLine();
+            if (line == null) {
+                throw new RuntimeException("Empty CSV file: " + csv);
+            }
+            header = line.split(",");
+            while ((line = rdr.readLine()) != null) {
+                if (!line.trim().isEmpty()) {
+                    String[] row = line.split(",");
+                    if (row.length != header.length) {
+                        throw new RuntimeException("Expected " + header.length
+                                + " values in line " + (rows.size() + 2)
+                                + " of " + csv);
+                    }
+                    rows.add(row);
+                }
+            }
+        }
+
+        ColumnTableWriter writer = new ColumnTableWriter();
+        for (int c = 0; c < header.length; c++) {
+            String[] nameType = header[c].trim().split(":");
+            String name = nameType[0];
+            String type = nameType.length > 1 ? nameType[1] : "double";
+            if ("int".equals(type)) {
+                int[] values = new int[rows.size()];
+                for (int r = 0; r < values.length; r++) {
+                    values[r] = Integer.parseInt(rows.get(r)[c].trim());
+                }
+                writer.intColumn(name, values);
+            } else if ("long".equals(type)) {
+                long[] values = new long[rows.size()];
+                for (int r = 0; r < values.length; r++) {
+                    values[r] = Long.parseLong(rows.get(r)[c].trim());
+                }
+                writer.longColumn(name, values);
+            } else if ("double".equals(type)) {
+                double[] values = new double[rows.size()];
+                for (int r = 0; r < values.length; r++) {
+                    values[r] = Double.parseDouble(rows.get(r)[c].trim());
+                }
+                writer.doubleColumn(name, values);
+            } else {
+                throw new RuntimeException("Unknown column type " + type
+                        + " in " + csv);
+            }
+        }
+        return writer;
+    }
+
+    /**
+     * Writes the table to <code>file</code>. The content is first written to
+     * a temporary file which is then renamed, so readers never map a
+     * partially written table.
+     *
+     * @param file destination file
+     * @throws IOException if the file cannot be written
+     */
+    public void write(File file) throws IOException {
+        ByteBuffer buffer = toBuffer();
+        File folder = file.getAbsoluteFile().getParentFile();
+        File tmp = File.createTempFile(file.getName(), ".tmp", folder);
+        try {
+            try (FileChannel channel = new FileOutputStream(tmp)
+                    .getChannel()) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+            if (!tmp.renameTo(file)) {
+                throw new IOException("Cannot rename " + tmp + " to " + file);
+            }
+        } finally {
+            tmp.delete();
+        }
+    }
+
+    private ByteBuffer toBuffer() {
+        int rows = Math.max(_rows, 0);
+        byte[][] names = new byte[_names.size()][];
+        byte[] types = new byte[_names.size()];
+        int size = 16;
+        for (int i = 0; i < names.length; i++) {
+            names[i] = _names.get(i).getBytes(ColumnTable.UTF8);
+            Object column = _columns.get(i);
+            types[i] = column instanceof int[] ? ColumnTable.INT
+                    : column instanceof long[] ? ColumnTable.LONG
+                            : ColumnTable.DOUBLE;
+            size += 5 + names[i].length;
+        }
+        for (int i = 0; i < names.length; i++) {
+            size = ColumnTable.align(size) + rows
+                    * ColumnTable.width(types[i]);
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(size).order(
+                ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(ColumnTable.MAGIC).putInt(ColumnTable.VERSION)
+                .putInt(rows).putInt(names.length);
+        for (int i = 0; i < names.length; i++) {
+            buffer.put(types[i]).putInt(names[i].length).put(names[i]);
+        }
+        for (int i = 0; i < names.length; i++) {
+            buffer.position(ColumnTable.align(buffer.position()));
+            Object column = _columns.get(i);
+            if (column instanceof int[]) {
+                for (int v : (int[]) column) {
+                    buffer.putInt(v);
+                }
+            } else if (column instanceof long[]) {
+                for (long v : (long[]) column) {
+                    buffer.putLong(v);
+                }
+            } else {
+                for (double v : (double[]) column) {
+                    buffer.putDouble(v);
+                }
+            }
+        }
+        buffer.position(0);
+        return buffer;
+    }
+}
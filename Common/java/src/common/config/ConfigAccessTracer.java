@@ -0,0 +1,254 @@
+package common.config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Records configuration lookups made through an
+ * {@link AbstractConfigSnapshot} (see
+ * {@link AbstractConfigSnapshot#trace(ConfigAccessTracer)}). For every key
+ * name it counts lookups, how many qualifiers had to be dropped before a key
+ * was found, the threads that looked it up and the total time spent. It also
+ * remembers which fully qualified keys were read, so that keys which are never
+ * read can be reported.
+ * <p>
+ * One tracer may be shared by several snapshots, e.g. across reloads.
+ *
+ * @author bgonzalez
+ */
+public final class ConfigAccessTracer {
+    /** Fallback depths at or above this are counted together. */
+    public static final int MAX_DEPTH = 8;
+
+    private final ConcurrentMap<String, NameStats> _names =
+            new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, AtomicLong> _keys =
+            new ConcurrentHashMap<>();
+
+    /**
+     * @param name key name which was looked up
+     * @param key fully qualified key which was found, or <code>null</code> if
+     *            the lookup failed
+     * @param depth number of qualifiers dropped before <code>key</code> was
+     *            found
+     * @param nanos time spent in the lookup
+     */
+    void record(String name, String key, int depth, long nanos) {
+        NameStats stats = _names.get(name);
+        if (stats == null) {
+            stats = new NameStats(name);
+            NameStats existing = _names.putIfAbsent(name, stats);
+            if (existing != null) {
+                stats = existing;
+            }
+        }
+        stats.record(key != null, depth, nanos);
+
+        if (key != null) {
+            AtomicLong reads = _keys.get(key);
+            if (reads == null) {
+                reads = new AtomicLong();
+                AtomicLong existing = _keys.putIfAbsent(key, reads);
+                if (existing != null) {
+                    reads = existing;
+                }
+            }
+            reads.incrementAndGet();
+        }
+    }
+
+    /**
+     * @return statistics for every key name looked up so far, most frequently
+     *         looked up first
+     */
+    public List<NameStats> hotNames() {
+        List<NameStats> stats = new ArrayList<>(_names.values());
+        Collections.sort(stats, new Comparator<NameStats>() {
+            @Override
+            public int compare(NameStats a, NameStats b) {
+                return Long.compare(b.lookups(), a.lookups());
+            }
+        });
+        return stats;
+    }
+
+    /**
+     * @param key fully qualified key
+     * @return number of lookups which resolved to <code>key</code>
+     */
+    public long reads(String key) {
+        AtomicLong reads = _keys.get(key);
+        return reads == null ? 0 : reads.get();
+    }
+
+    /**
+     * Find keys that were never read. Keys which are permutations of the same
+     * qualifiers (see {@link ConfigSnapshot}) are considered one key, which is
+     * read if any of its permutations is read.
+     *
+     * @param keys all fully qualified keys, see {@link ConfigSnapshot#keys()}
+     * @return one representative of every key that was never read, sorted
+     */
+    public List<String> unread(Collection<String> keys) {
+        Set<String> read = new HashSet<>();
+        for (String key : _keys.keySet()) {
+            read.add(canonical(key));
+        }
+
+        Map<String, String> unread = new HashMap<>();
+        for (String key : keys) {
+            String canonical = canonical(key);
+            if (!read.contains(canonical)) {
+                String existing = unread.get(canonical);
+                if (existing == null || key.compareTo(existing) < 0) {
+                    unread.put(canonical, key);
+                }
+            }
+        }
+        List<String> result = new ArrayList<>(unread.values());
+        Collections.sort(result);
+        return result;
+    }
+
+    private static String canonical(String key) {
+        String[] tokens = key.split("\\.");
+        Arrays.sort(tokens);
+        StringBuilder sb = new StringBuilder();
+        for (String t : tokens) {
+            sb.append(t).append('.');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @param snapshot snapshot whose keys are checked for reads
+     * @param hotCount maximum number of hot key names to list
+     * @return human readable report of the most frequently looked up key names
+     *         and the keys that were never read
+     */
+    public String report(ConfigSnapshot snapshot, int hotCount) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Hot configuration keys:\n");
+        List<NameStats> hot = hotNames();
+        hot = hot.subList(0, Math.min(hotCount, hot.size()));
+        for (NameStats stats : hot) {
+            sb.append("  ").append(stats).append('\n');
+        }
+
+        List<String> unread = unread(snapshot.keys());
+        sb.append("Never read configuration keys (").append(unread.size())
+                .append("):\n");
+        for (String key : unread) {
+            sb.append("  ").append(key).append('\n');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Discard everything recorded so far.
+     */
+    public void clear() {
+        _names.clear();
+        _keys.clear();
+    }
+
+    /**
+     * Lookup statistics for one key name.
+     */
+    public static final class NameStats {
+        private final String _name;
+        private final AtomicLong _lookups = new AtomicLong();
+        private final AtomicLong _misses = new AtomicLong();
+        private final AtomicLong _nanos = new AtomicLong();
+        private final AtomicLongArray _depths = new AtomicLongArray(
+                MAX_DEPTH + 1);
+        private final Set<String> _threads = Collections
+                .newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+        NameStats(String name) {
+            _name = name;
+        }
+
+        void record(boolean found, int depth, long nanos) {
+            _lookups.incrementAndGet();
+            _nanos.addAndGet(nanos);
+            if (found) {
+                _depths.incrementAndGet(Math.min(depth, MAX_DEPTH));
+            } else {
+                _misses.incrementAndGet();
+            }
+            _threads.add(Thread.currentThread().getName());
+        }
+
+        /**
+         * @return key name
+         */
+        public String name() {
+            return _name;
+        }
+
+        /**
+         * @return number of lookups, including failed ones
+         */
+        public long lookups() {
+            return _lookups.get();
+        }
+
+        /**
+         * @return number of lookups which didn't find any key
+         */
+        public long misses() {
+            return _misses.get();
+        }
+
+        /**
+         * @return total time spent in lookups, in nanoseconds
+         */
+        public long nanos() {
+            return _nanos.get();
+        }
+
+        /**
+         * @param depth number of qualifiers dropped, where
+         *            {@link ConfigAccessTracer#MAX_DEPTH} counts all deeper
+         *            fallbacks too
+         * @return number of successful lookups that fell back
+         *         <code>depth</code> qualifiers
+         */
+        public long fallbacks(int depth) {
+            return _depths.get(depth);
+        }
+
+        /**
+         * @return names of the threads which looked up this key name
+         */
+        public Set<String> threads() {
+            return Collections.unmodifiableSet(_threads);
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(_name).append(": lookups=").append(lookups())
+                    .append(" misses=").append(misses()).append(" nanos=")
+                    .append(nanos()).append(" fallbacks=[");
+            for (int i = 0; i < _depths.length(); i++) {
+                sb.append(i == 0 ? "" : ",").append(_depths.get(i));
+            }
+            sb.append("] threads=").append(_threads);
+            return sb.toString();
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package common.config;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Trie of the fully qualified keys of a snapshot, split at '.'. It is built
+ * once per snapshot (see {@link ConfigSnapshot#index()}) and lets callers
+ * enumerate what is configured below a qualifier path, e.g. every instrument
+ * below a holder, instead of probing for keys.
+ * <p>
+ * Children are sorted by token, and are iterated by index, so walking the
+ * trie doesn't allocate:
+ *
+ * <pre>
+ * Node instruments = snapshot.index().node(&quot;Instruments&quot;);
+ * for (int i = 0; i &lt; instruments.childCount(); i++) {
+ *     Node child = instruments.child(i);
+ *     ...
+ * }
+ * </pre>
+ *
+ * Children whose tokens fall in a range are found by binary search, e.g. the
+ * instruments from "ES" up to, but excluding, "NQ":
+ *
+ * <pre>
+ * int end = instruments.lowerBound(&quot;NQ&quot;);
+ * for (int i = instruments.lowerBound(&quot;ES&quot;); i &lt; end; i++) {
+ *     Node child = instruments.child(i);
+ *     ...
+ * }
+ * </pre>
+ * <p>
+ * Every permutation of a key's qualifiers is a key too (see
+ * {@link ConfigSnapshot}). Snapshots which know the holders their keys were
+ * defined in index only the unpermuted key, so that the children of a holder
+ * are what was defined in it. Other snapshots index every permutation, and
+ * the children of a node include key names as well as qualifiers.
+ *
+ * @author bgonzalez
+ */
+public final class ConfigKeyIndex {
+    private static final Node[] NO_CHILDREN = new Node[0];
+
+    private final Node _root;
+
+    /**
+     * @param keys fully qualified keys
+     */
+    public ConfigKeyIndex(Collection<String> keys) {
+        Builder root = new Builder();
+        for (String key : keys) {
+            Builder b = root;
+            int start = 0;
+            while (start <= key.length()) {
+                int end = key.indexOf('.', start);
+                if (end < 0) {
+                    end = key.length();
+                }
+                b = b.child(key.substring(start, end));
+                start = end + 1;
+            }
+            b._key = key;
+        }
+        _root = root.build(null);
+    }
+
+    /**
+     * @return node of the empty path, whose children are the first tokens of
+     *         all keys
+     */
+    public Node root() {
+        return _root;
+    }
+
+    /**
+     * @param path qualifier path
+     * @return node for <code>path</code>, or <code>null</code> if no key
+     *         starts with <code>path</code>
+     */
+    public Node node(String... path) {
+        Node n = _root;
+        for (int i = 0; i < path.length && n != null; i++) {
+            n = n.child(path[i]);
+        }
+        return n;
+    }
+
+    /**
+     * @param path qualifier path
+     * @return number of keys that are <code>path</code> or start with it
+     */
+    public int count(String... path) {
+        Node n = node(path);
+        return n == null ? 0 : n.keyCount();
+    }
+
+    /**
+     * One token of a qualifier path.
+     */
+    public static final class Node {
+        private final String _token;
+        private final String _key;
+        private final Node[] _children;
+        // Keys below the children before each index, and after the last one
+        private final int[] _keysBefore;
+        private final int _keyCount;
+
+        Node(String token, String key, Node[] children) {
+            _token = token;
+            _key = key;
+            _children = children;
+            _keysBefore = new int[children.length + 1];
+            for (int i = 0; i < children.length; i++) {
+                _keysBefore[i + 1] = _keysBefore[i] + children[i]._keyCount;
+            }
+            _keyCount = (key == null ? 0 : 1) + _keysBefore[children.length];
+        }
+
+        /**
+         * @return last token of the path, <code>null</code> for the root
+         */
+        public String token() {
+            return _token;
+        }
+
+        /**
+         * @return fully qualified key if the path is a key, otherwise
+         *         <code>null</code>
+         */
+        public String key() {
+            return _key;
+        }
+
+        /**
+         * @return <code>true</code> if the path is a key
+         */
+        public boolean isKey() {
+            return _key != null;
+        }
+
+        /**
+         * @return number of keys that are this path or start with it
+         */
+        public int keyCount() {
+            return _keyCount;
+        }
+
+        /**
+         * @return number of distinct tokens following this path
+         */
+        public int childCount() {
+            return _children.length;
+        }
+
+        /**
+         * @param idx index, children are sorted by token
+         * @return child at <code>idx</code>
+         */
+        public Node child(int idx) {
+            return _children[idx];
+        }
+
+        /**
+         * @param token next token
+         * @return child for <code>token</code>, or <code>null</code> if there
+         *         is none
+         */
+        public Node child(String token) {
+            int idx = lowerBound(token);
+            return idx < _children.length
+                    && _children[idx]._token.equals(token) ? _children[idx]
+                    : null;
+        }
+
+        /**
+         * The children with tokens in <code>[from, to)</code> are those from
+         * <code>lowerBound(from)</code> up to, but excluding,
+         * <code>lowerBound(to)</code>.
+         *
+         * @param token token
+         * @return index of the first child whose token is not less than
+         *         <code>token</code>, or {@link #childCount()} if there is
+         *         none
+         */
+        public int lowerBound(String token) {
+            int low = 0;
+            int high = _children.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (_children[mid]._token.compareTo(token) < 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        /**
+         * @param from first token (inclusive)
+         * @param to last token (exclusive)
+         * @return number of keys below the children with tokens in
+         *         <code>[from, to)</code>
+         */
+        public int keyCount(String from, String to) {
+            int low = lowerBound(from);
+            int high = lowerBound(to);
+            return high <= low ? 0 : _keysBefore[high] - _keysBefore[low];
+        }
+
+        @Override
+        public String toString() {
+            return _token + "(" + _keyCount + ")";
+        }
+    }
+
+    private static final class Builder {
+        private final Map<String, Builder> _children = new TreeMap<>();
+        private String _key;
+
+        Builder child(String token) {
+            Builder b = _children.get(token);
+            if (b == null) {
+                b = new Builder();
+                _children.put(token, b);
+            }
+            return b;
+        }
+
+        Node build(String token) {
+            if (_children.isEmpty()) {
+                return new Node(token, _key, NO_CHILDREN);
+            }
+            Node[] children = new Node[_children.size()];
+            int i = 0;
+            for (Map.Entry<String, Builder> entry : _children.entrySet()) {
+                children[i++] = entry.getValue().build(entry.getKey());
+            }
+            return new Node(token, _key, children);
+        }
+    }
+}
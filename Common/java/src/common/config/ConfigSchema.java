@@ -0,0 +1,317 @@
+package common.config;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import common.ConstraintException;
+import common.Constraints;
+
+/**
+ * Constraints on configuration values, checked once when a snapshot is built
+ * instead of every time a component reads a value. Rules bind the predicates
+ * of {@link Constraints} to keys:
+ *
+ * <pre>
+ * ConfigSchema schema = new ConfigSchema()
+ *         .require(&quot;maxQty&quot;, ConfigSchema.between(0, 100000),
+ *                 &quot;Orders&quot;)
+ *         .each(&quot;tickSize&quot;, ConfigSchema.gt0())
+ *         .each(&quot;venue&quot;, ConfigSchema.notEmpty());
+ * </pre>
+ *
+ * A loader given a schema rejects a reload whose snapshot violates it, so an
+ * invalid configuration is never published, and components can read values
+ * without checking them again.
+ *
+ * @author bgonzalez
+ */
+public final class ConfigSchema {
+    private final List<Rule> _rules = new ArrayList<>();
+
+    /**
+     * Check of a single configuration value.
+     */
+    public interface Check {
+        /**
+         * @param value configuration value, <code>null</code> for None
+         * @throws ConstraintException if <code>value</code> is invalid
+         */
+        void check(Object value);
+    }
+
+    /**
+     * Requires the key looked up with <code>name</code> and
+     * <code>qualifiers</code>, including fallbacks to less qualified keys, to
+     * exist and pass <code>check</code>.
+     *
+     * @param name key name
+     * @param check check of the value
+     * @param qualifiers qualifiers of the lookup
+     * @return this schema
+     */
+    public ConfigSchema require(String name, Check check,
+            Object... qualifiers) {
+        _rules.add(new Rule(name, qualifiers, check, false));
+        return this;
+    }
+
+    /**
+     * Checks every key named <code>name</code>, whatever its qualifiers.
+     *
+     * @param name key name
+     * @param check check of the values
+     * @return this schema
+     */
+    public ConfigSchema each(String name, Check check) {
+        _rules.add(new Rule(name, null, check, true));
+        return this;
+    }
+
+    /**
+     * @param snapshot snapshot to validate
+     * @throws ConstraintException listing all violations, if there are any
+     */
+    public void validate(ConfigSnapshot snapshot) {
+        List<String> violations = violations(snapshot);
+        if (!violations.isEmpty()) {
+            StringBuilder sb = new StringBuilder("Invalid configuration: ");
+            for (int i = 0; i < violations.size(); i++) {
+                sb.append(i == 0 ? "" : "; ").append(violations.get(i));
+            }
+            throw new ConstraintException(sb.toString());
+        }
+    }
+
+    /**
+     * @param snapshot snapshot to validate
+     * @return a message for every violation
+     */
+    public List<String> violations(ConfigSnapshot snapshot) {
+        List<String> violations = new ArrayList<>();
+        for (Rule rule : _rules) {
+            if (rule._each) {
+                String suffix = "." + rule._name;
+                for (String key : snapshot.keys()) {
+                    if (key.equals(rule._name) || key.endsWith(suffix)) {
+                        rule.check(key, lookup(snapshot, key), violations);
+                    }
+                }
+            } else {
+                String key = AbstractConfigSnapshot.key(rule._name,
+                        rule._qualifiers, rule._qualifiers.length);
+                Object v;
+                try {
+                    v = snapshot.get(rule._name, (Object[]) rule._qualifiers);
+                } catch (RuntimeException e) {
+                    violations.add(key + ": missing");
+                    continue;
+                }
+                rule.check(key, v, violations);
+            }
+        }
+        return Collections.unmodifiableList(violations);
+    }
+
+    private static Object lookup(ConfigSnapshot snapshot, String key) {
+        try {
+            return snapshot.get(key);
+        } catch (RuntimeException e) {
+            // None
+            return null;
+        }
+    }
+
+    /**
+     * @param checks checks
+     * @return check that passes if all <code>checks</code> pass
+     */
+    public static Check all(final Check... checks) {
+        return new Check() {
+            @Override
+            public void check(Object value) {
+                for (Check c : checks) {
+                    c.check(value);
+                }
+            }
+        };
+    }
+
+    /**
+     * @return check that numbers are greater than 0
+     * @see Constraints#gt0(long)
+     */
+    public static Check gt0() {
+        return new Check() {
+            @Override
+            public void check(Object value) {
+                Number n = number(value);
+                if (isIntegral(n)) {
+                    Constraints.gt0(n.longValue());
+                } else {
+                    Constraints.gt0(n.doubleValue());
+                }
+            }
+        };
+    }
+
+    /**
+     * @return check that numbers are greater than or equal to 0
+     * @see Constraints#gte0(long)
+     */
+    public static Check gte0() {
+        return new Check() {
+            @Override
+            public void check(Object value) {
+                Number n = number(value);
+                if (isIntegral(n)) {
+                    Constraints.gte0(n.longValue());
+                } else {
+                    Constraints.gte0(n.doubleValue());
+                }
+            }
+        };
+    }
+
+    /**
+     * @param expect exclusive lower limit
+     * @return check that numbers are greater than <code>expect</code>
+     * @see Constraints#gt(double, double)
+     */
+    public static Check gt(final double expect) {
+        return new Check() {
+            @Override
+            public void check(Object value) {
+                Constraints.gt(expect, number(value).doubleValue());
+            }
+        };
+    }
+
+    /**
+     * @param expect exclusive upper limit
+     * @return check that numbers are less than <code>expect</code>
+     * @see Constraints#lt(double, double)
+     */
+    public static Check lt(final double expect) {
+        return new Check() {
+            @Override
+            public void check(Object value) {
+                Constraints.lt(expect, number(value).doubleValue());
+            }
+        };
+    }
+
+    /**
+     * @param low low limit (exclusive)
+     * @param high high limit (exclusive)
+     * @return check that integral numbers are in the range (low, high)
+     * @see Constraints#between(long, long, long)
+     */
+    public static Check between(final long low, final long high) {
+        return new Check() {
+            @Override
+            public void check(Object value) {
+                Number n = number(value);
+                if (!isIntegral(n)) {
+                    throw new ConstraintException(n + " must be integral");
+                }
+                Constraints.between(low, high, n.longValue());
+            }
+        };
+    }
+
+    /**
+     * @param low low limit (exclusive)
+     * @param high high limit (exclusive)
+     * @return check that numbers are in the range (low, high)
+     * @see Constraints#between(double, double, double)
+     */
+    public static Check between(final double low, final double high) {
+        return new Check() {
+            @Override
+            public void check(Object value) {
+                Constraints.between(low, high, number(value).doubleValue());
+            }
+        };
+    }
+
+    /**
+     * @param low low limit (inclusive)
+     * @param high high limit (inclusive)
+     * @return check that numbers are in the range [low, high]
+     * @see Constraints#in(double, double, double)
+     */
+    public static Check in(final double low, final double high) {
+        return new Check() {
+            @Override
+            public void check(Object value) {
+                Constraints.in(low, high, number(value).doubleValue());
+            }
+        };
+    }
+
+    /**
+     * @return check that strings, lists and dicts are not empty
+     * @see Constraints#notEmpty(CharSequence)
+     */
+    public static Check notEmpty() {
+        return new Check() {
+            @Override
+            public void check(Object value) {
+                if (value instanceof CharSequence) {
+                    Constraints.notEmpty((CharSequence) value);
+                } else if (value instanceof Iterable) {
+                    Constraints.notEmpty((Iterable<?>) value);
+                } else if (value instanceof Map) {
+                    Constraints.notEmpty((Map<?, ?>) value);
+                } else {
+                    Constraints.notNull(value);
+                    throw new ConstraintException(value
+                            + " must be a string, list or dict");
+                }
+            }
+        };
+    }
+
+    private static Number number(Object value) {
+        if (!(value instanceof Number)) {
+            throw new ConstraintException(value + " must be a number");
+        }
+        return (Number) value;
+    }
+
+    private static boolean isIntegral(Number n) {
+        return n instanceof Integer || n instanceof Long || n instanceof Short
+                || n instanceof Byte;
+    }
+
+    private static final class Rule {
+        private final String _name;
+        private final String[] _qualifiers;
+        private final Check _check;
+        private final boolean _each;
+
+        Rule(String name, Object[] qualifiers, Check check, boolean each) {
+            _name = name;
+            _check = check;
+            _each = each;
+            if (qualifiers == null) {
+                _qualifiers = null;
+            } else {
+                _qualifiers = new String[qualifiers.length];
+                for (int i = 0; i < qualifiers.length; i++) {
+                    _qualifiers[i] = qualifiers[i].toString();
+                }
+            }
+        }
+
+        void check(String key, Object v, List<String> violations) {
+            try {
+                _check.check(v);
+            } catch (ConstraintException e) {
+                violations.add(key + ": " + e.getMessage());
+            }
+        }
+    }
+}
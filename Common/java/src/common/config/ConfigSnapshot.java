@@ -2,6 +2,7 @@ package common.config;
 
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Configuration snapshot
@@ -177,4 +178,37 @@ public interface ConfigSnapshot {
      */
     public String[] stringArr(String name, Object... qualifiers);
 
+    /**
+     * @param name key name
+     * @param qualifiers additional qualifiers (toString() will be called to
+     *            look them up)
+     * @return key value as a memory mapped table of primitive columns
+     */
+    public ColumnTable columns(String name, Object... qualifiers);
+
+    /**
+     * Resolve <code>name</code> for every constant of
+     * <code>qualifierType</code>, as if calling
+     * <code>get(name, qualifiers..., constant)</code> for each of them.
+     * 
+     * @param name key name
+     * @param qualifierType enum whose constants qualify the key last
+     * @param qualifiers additional qualifiers preceding the enum qualifier
+     *            (toString() will be called to look them up)
+     * @return table of the values indexed by ordinal
+     */
+    public <E extends Enum<E>, T> EnumTable<E, T> table(String name,
+            Class<E> qualifierType, Object... qualifiers);
+
+    /**
+     * @return all fully qualified keys
+     */
+    public Set<String> keys();
+
+    /**
+     * @return index of the fully qualified keys, built on first use. Where
+     *         the snapshot knows the holders keys were defined in, only
+     *         unpermuted keys are indexed.
+     */
+    public ConfigKeyIndex index();
 }
@@ -0,0 +1,106 @@
+package common.config;
+
+import java.util.Arrays;
+
+/**
+ * Values of one configuration key for every constant of an enum qualifier,
+ * indexed by ordinal. A table is resolved once from a {@link ConfigSnapshot}
+ * (see {@link ConfigSnapshot#table(String, Class, Object...)}), after which a
+ * lookup is a single array access with no string building or hashing.
+ * <p>
+ * Like the snapshot it was built from, a table never changes. Qualifiers are
+ * resolved with their <code>toString()</code> at build time.
+ *
+ * @author bgonzalez
+ * @param <E> qualifier type
+ * @param <T> value type
+ */
+public final class EnumTable<E extends Enum<E>, T> {
+    private final Class<E> _type;
+    private final String _prefix;
+    private final String _name;
+    private final Object[] _values;
+
+    EnumTable(Class<E> type, String prefix, String name, Object[] values) {
+        _type = type;
+        _prefix = prefix;
+        _name = name;
+        _values = values;
+    }
+
+    /**
+     * @return qualifier type
+     */
+    public Class<E> type() {
+        return _type;
+    }
+
+    /**
+     * @param qualifier qualifier
+     * @return <code>true</code> if a value is configured for
+     *         <code>qualifier</code>
+     */
+    public boolean contains(E qualifier) {
+        return _values[qualifier.ordinal()] != null;
+    }
+
+    /**
+     * @param qualifier qualifier
+     * @return value configured for <code>qualifier</code>
+     */
+    @SuppressWarnings("unchecked")
+    public T get(E qualifier) {
+        Object v = _values[qualifier.ordinal()];
+        if (v == null) {
+            throw new RuntimeException("Configuration key not found: "
+                    + _prefix + qualifier + "." + _name);
+        }
+        return (T) v;
+    }
+
+    /**
+     * @param qualifier qualifier
+     * @return value configured for <code>qualifier</code> as an int
+     */
+    public int i(E qualifier) {
+        return ((Number) get(qualifier)).intValue();
+    }
+
+    /**
+     * @param qualifier qualifier
+     * @return value configured for <code>qualifier</code> as a long
+     */
+    public long l(E qualifier) {
+        return ((Number) get(qualifier)).longValue();
+    }
+
+    /**
+     * @param qualifier qualifier
+     * @return value configured for <code>qualifier</code> as a double
+     */
+    public double d(E qualifier) {
+        return ((Number) get(qualifier)).doubleValue();
+    }
+
+    /**
+     * @param qualifier qualifier
+     * @return value configured for <code>qualifier</code> as a boolean
+     */
+    public boolean bool(E qualifier) {
+        return (boolean) get(qualifier);
+    }
+
+    /**
+     * @param qualifier qualifier
+     * @return value configured for <code>qualifier</code> as a string
+     */
+    public String string(E qualifier) {
+        return (String) get(qualifier);
+    }
+
+    @Override
+    public String toString() {
+        return _prefix + _type.getSimpleName() + "." + _name
+                + Arrays.toString(_values);
+    }
+}
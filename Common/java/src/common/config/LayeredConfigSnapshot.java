@@ -0,0 +1,155 @@
+package common.config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Snapshot made of layers, e.g. a base configuration, a per-host overlay and
+ * a per-strategy overlay. A key defined in several layers takes its value from
+ * the topmost of them. Fallback to less qualified keys happens after the layers
+ * are combined, so a fully qualified key in the base layer wins over a less
+ * qualified key in an overlay. A key set to <code>None</code> in an overlay
+ * hides the key in the layers below it.
+ * <p>
+ * The layers are flattened into one map when the snapshot is created, so a
+ * lookup costs the same as in a single layer snapshot. Replacing one layer
+ * (see {@link #replace(int, AbstractConfigSnapshot)}) only resolves the keys of
+ * the old and the new version of that layer again.
+ *
+ * @author bgonzalez
+ */
+public final class LayeredConfigSnapshot extends AbstractConfigSnapshot {
+    private static final Object NULL_VALUE = new Object();
+
+    private final List<AbstractConfigSnapshot> _layers;
+    private final List<Set<String>> _layerKeys;
+    private final Map<String, Object> _values;
+
+    private LayeredConfigSnapshot(List<AbstractConfigSnapshot> layers,
+            List<Set<String>> layerKeys, Map<String, Object> values) {
+        _layers = layers;
+        _layerKeys = layerKeys;
+        _values = values;
+    }
+
+    /**
+     * @param layers layers, starting with the base layer, each overriding the
+     *            ones before it
+     * @return flattened snapshot
+     */
+    public static LayeredConfigSnapshot of(AbstractConfigSnapshot... layers) {
+        return of(Arrays.asList(layers));
+    }
+
+    /**
+     * @param layers layers, starting with the base layer, each overriding the
+     *            ones before it
+     * @return flattened snapshot
+     */
+    public static LayeredConfigSnapshot of(
+            List<? extends AbstractConfigSnapshot> layers) {
+        if (layers.isEmpty()) {
+            throw new RuntimeException("At least one layer is required");
+        }
+        List<AbstractConfigSnapshot> copy = new ArrayList<>(layers);
+        List<Set<String>> layerKeys = new ArrayList<>(copy.size());
+        Map<String, Object> values = new HashMap<>();
+        for (AbstractConfigSnapshot layer : copy) {
+            Set<String> keys = new HashSet<>(layer.keys());
+            layerKeys.add(keys);
+            for (String key : keys) {
+                values.put(key, nullSafe(layer.value(key)));
+            }
+        }
+        return new LayeredConfigSnapshot(copy, layerKeys, values);
+    }
+
+    /**
+     * @param index index of the layer to replace, where 0 is the base layer
+     * @param layer new version of the layer
+     * @return flattened snapshot with <code>layer</code> in place of the
+     *         layer at <code>index</code>. This snapshot is not modified.
+     */
+    public LayeredConfigSnapshot replace(int index,
+            AbstractConfigSnapshot layer) {
+        List<AbstractConfigSnapshot> layers = new ArrayList<>(_layers);
+        List<Set<String>> layerKeys = new ArrayList<>(_layerKeys);
+        Set<String> keys = new HashSet<>(layer.keys());
+        Set<String> dirty = new HashSet<>(_layerKeys.get(index));
+        dirty.addAll(keys);
+        layers.set(index, layer);
+        layerKeys.set(index, keys);
+
+        Map<String, Object> values = new HashMap<>(_values);
+        for (String key : dirty) {
+            values.remove(key);
+            for (int i = layers.size() - 1; i >= 0; i--) {
+                if (layerKeys.get(i).contains(key)) {
+                    values.put(key, nullSafe(layers.get(i).value(key)));
+                    break;
+                }
+            }
+        }
+        return new LayeredConfigSnapshot(layers, layerKeys, values);
+    }
+
+    private static Object nullSafe(Object v) {
+        return v == null ? NULL_VALUE : v;
+    }
+
+    /**
+     * @return number of layers
+     */
+    public int layerCount() {
+        return _layers.size();
+    }
+
+    /**
+     * @param index index of the layer, where 0 is the base layer
+     * @return layer at <code>index</code>
+     */
+    public AbstractConfigSnapshot layer(int index) {
+        return _layers.get(index);
+    }
+
+    /**
+     * @return all fully qualified keys and their flattened values, e.g. to
+     *         publish the combined configuration
+     */
+    public Map<String, Object> asMap() {
+        Map<String, Object> map = new HashMap<>();
+        for (Map.Entry<String, Object> entry : _values.entrySet()) {
+            Object v = entry.getValue();
+            map.put(entry.getKey(), v == NULL_VALUE ? null : v);
+        }
+        return Collections.unmodifiableMap(map);
+    }
+
+    @Override
+    public Set<String> keys() {
+        return Collections.unmodifiableSet(_values.keySet());
+    }
+
+    @Override
+    protected Collection<String> indexKeys() {
+        Set<String> keys = new HashSet<>();
+        for (AbstractConfigSnapshot layer : _layers) {
+            keys.addAll(layer.indexKeys());
+        }
+        keys.retainAll(_values.keySet());
+        return keys;
+    }
+
+    @Override
+    protected Object value(String key) {
+        Object v = _values.get(key);
+        return v == NULL_VALUE ? null : v;
+    }
+}
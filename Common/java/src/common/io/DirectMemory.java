@@ -0,0 +1,158 @@
+package common.io;
+
+import java.lang.reflect.Field;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+
+import sun.misc.Unsafe;
+
+/**
+ * Ordered and atomic access to direct (typically memory mapped) byte buffers.
+ * {@link ByteBuffer} gives no memory ordering guarantees, which are needed
+ * when a buffer is shared between threads or processes. Indexes are absolute
+ * byte offsets into the buffer and must be naturally aligned for the type
+ * being accessed.
+ * <p>
+ * Java 7 has no public API for these accesses (VarHandles only arrived in
+ * Java 9), so they go through <code>sun.misc.Unsafe</code>. This class is the
+ * only user of Unsafe in the tree and should stay so: code needing ordered or
+ * atomic access to shared memory goes through the methods here. The
+ * proprietary API warnings javac reports for this class are expected.
+ *
+ * @author rstoner
+ */
+public final class DirectMemory {
+    private static final Unsafe UNSAFE;
+    private static final long ADDRESS_OFFSET;
+
+    private static volatile long _fence;
+
+    static {
+        try {
+            Field f = Unsafe.class.getDeclaredField("theUnsafe");
+            f.setAccessible(true);
+            UNSAFE = (Unsafe) f.get(null);
+            ADDRESS_OFFSET = UNSAFE.objectFieldOffset(Buffer.class
+                    .getDeclaredField("address"));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private DirectMemory() {
+    }
+
+    /**
+     * @param buffer Direct buffer
+     * @return Address of the first byte of <code>buffer</code>
+     */
+    public static long address(ByteBuffer buffer) {
+        if (!buffer.isDirect()) {
+            throw new IllegalArgumentException("Buffer must be direct");
+        }
+        return UNSAFE.getLong(buffer, ADDRESS_OFFSET);
+    }
+
+    /**
+     * Prevent loads and stores on either side of this call from being
+     * reordered across it. On HotSpot a volatile store is compiled to a full
+     * fence.
+     */
+    public static void fullFence() {
+        _fence = 0;
+    }
+
+    /**
+     * @param buffer Direct buffer
+     * @param index Byte offset, 4 byte aligned
+     * @return Value read with volatile semantics
+     */
+    public static int getIntVolatile(ByteBuffer buffer, int index) {
+        return UNSAFE.getIntVolatile(null, address(buffer, index, 4));
+    }
+
+    /**
+     * @param buffer Direct buffer
+     * @param index Byte offset, 4 byte aligned
+     * @param value Value written with volatile semantics
+     */
+    public static void putIntVolatile(ByteBuffer buffer, int index, int value) {
+        UNSAFE.putIntVolatile(null, address(buffer, index, 4), value);
+    }
+
+    /**
+     * Store <code>value</code> without a trailing fence. Prior stores are
+     * visible before this one, but later loads may be reordered before it.
+     *
+     * @param buffer Direct buffer
+     * @param index Byte offset, 4 byte aligned
+     * @param value Value to write
+     */
+    public static void putIntOrdered(ByteBuffer buffer, int index, int value) {
+        UNSAFE.putOrderedInt(null, address(buffer, index, 4), value);
+    }
+
+    /**
+     * @param buffer Direct buffer
+     * @param index Byte offset, 4 byte aligned
+     * @param expect Expected current value
+     * @param update New value
+     * @return <code>true</code> if the value was <code>expect</code> and has
+     *         been set to <code>update</code>
+     */
+    public static boolean compareAndSwapInt(ByteBuffer buffer, int index,
+            int expect, int update) {
+        return UNSAFE.compareAndSwapInt(null, address(buffer, index, 4),
+                expect, update);
+    }
+
+    /**
+     * @param buffer Direct buffer
+     * @param index Byte offset, 8 byte aligned
+     * @return Value read with volatile semantics
+     */
+    public static long getLongVolatile(ByteBuffer buffer, int index) {
+        return UNSAFE.getLongVolatile(null, address(buffer, index, 8));
+    }
+
+    /**
+     * @param buffer Direct buffer
+     * @param index Byte offset, 8 byte aligned
+     * @param value Value written with volatile semantics
+     */
+    public static void putLongVolatile(ByteBuffer buffer, int index, long value) {
+        UNSAFE.putLongVolatile(null, address(buffer, index, 8), value);
+    }
+
+    /**
+     * Store <code>value</code> without a trailing fence. Prior stores are
+     * visible before this one, but later loads may be reordered before it.
+     *
+     * @param buffer Direct buffer
+     * @param index Byte offset, 8 byte aligned
+     * @param value Value to write
+     */
+    public static void putLongOrdered(ByteBuffer buffer, int index, long value) {
+        UNSAFE.putOrderedLong(null, address(buffer, index, 8), value);
+    }
+
+    /**
+     * @param buffer Direct buffer
+     * @param index Byte offset, 8 byte aligned
+     * @param expect Expected current value
+     * @param update New value
+     * @return <code>true</code> if the value was <code>expect</code> and has
+     *         been set to <code>update</code>
+     */
+    public static boolean compareAndSwapLong(ByteBuffer buffer, int index,
+            long expect, long update) {
+        return UNSAFE.compareAndSwapLong(null, address(buffer, index, 8),
+                expect, update);
+    }
+
+    private static long address(ByteBuffer buffer, int index, int size) {
+        assert index >= 0 && index + size <= buffer.capacity() : index;
+        assert index % size == 0 : index;
+        return address(buffer) + index;
+    }
+}
@@ -0,0 +1,213 @@
+package common.net;
+
+import java.net.InetAddress;
+import java.net.NetworkInterface;
+import java.net.SocketException;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cached registry of the addresses of the local network interfaces. Asking
+ * the operating system whether an address is local enumerates every interface
+ * with several system calls; the registry does that once per refresh, and
+ * answers from an immutable hash map which is swapped in as a whole.
+ * <p>
+ * The registry is refreshed on demand with {@link #refresh()}, periodically
+ * once {@link #startRefreshing(long, TimeUnit)} has been called, and when an
+ * address isn't found and the last refresh is older than the minimum refresh
+ * interval, so an interface brought up since is found without refreshing on
+ * every miss.
+ *
+ * @author rstoner
+ */
+public final class LocalInterfaces {
+    private static final long DEFAULT_MIN_REFRESH_NANOS = TimeUnit.SECONDS
+            .toNanos(1);
+    private static volatile LocalInterfaces _instance;
+
+    private final long _minRefreshNanos;
+    private volatile Map<InetAddress, Nic> _addresses;
+    private volatile long _refreshed;
+    private volatile int _refreshes;
+    private ScheduledExecutorService _timer;
+    private ScheduledFuture<?> _refreshing;
+
+    /**
+     * @param minRefreshNanos minimum time between refreshes caused by
+     *            addresses which aren't found
+     */
+    public LocalInterfaces(long minRefreshNanos) {
+        _minRefreshNanos = minRefreshNanos;
+        refresh();
+    }
+
+    /**
+     * @return registry shared by the process, e.g. by
+     *         {@link common.Constraints#isLocal(InetAddress)}, created on
+     *         first use
+     * @throws RuntimeException if the interfaces can't be enumerated, in
+     *             which case the next call tries again
+     */
+    public static LocalInterfaces get() {
+        LocalInterfaces instance = _instance;
+        if (instance == null) {
+            synchronized (LocalInterfaces.class) {
+                instance = _instance;
+                if (instance == null) {
+                    instance = new LocalInterfaces(DEFAULT_MIN_REFRESH_NANOS);
+                    _instance = instance;
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Enumerates the local interfaces again.
+     */
+    public synchronized void refresh() {
+        Map<InetAddress, Nic> addresses = new HashMap<>();
+        try {
+            Enumeration<NetworkInterface> nics = NetworkInterface
+                    .getNetworkInterfaces();
+            while (nics != null && nics.hasMoreElements()) {
+                NetworkInterface nic = nics.nextElement();
+                Nic info = new Nic(nic.getName(), nic.isUp(),
+                        nic.supportsMulticast());
+                for (InetAddress addr : Collections.list(nic
+                        .getInetAddresses())) {
+                    addresses.put(addr, info);
+                }
+            }
+        } catch (SocketException e) {
+            throw new RuntimeException(e);
+        }
+        _addresses = Collections.unmodifiableMap(addresses);
+        _refreshed = System.nanoTime();
+        _refreshes++;
+    }
+
+    /**
+     * @return number of times the interfaces were enumerated, including by
+     *         the constructor
+     */
+    public int refreshCount() {
+        return _refreshes;
+    }
+
+    /**
+     * Refreshes the registry every <code>period</code>, from a daemon thread,
+     * until {@link #stopRefreshing()}.
+     *
+     * @param period time between refreshes
+     * @param unit unit of <code>period</code>
+     */
+    public synchronized void startRefreshing(long period, TimeUnit unit) {
+        stopRefreshing();
+        if (_timer == null) {
+            _timer = Executors.newSingleThreadScheduledExecutor(
+                    new ThreadFactory() {
+                        @Override
+                        public Thread newThread(Runnable r) {
+                            Thread t = new Thread(r, "LocalInterfaces");
+                            t.setDaemon(true);
+                            return t;
+                        }
+                    });
+        }
+        _refreshing = _timer.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    refresh();
+                } catch (RuntimeException e) {
+                    // Keep the last addresses until the next refresh
+                }
+            }
+        }, period, period, unit);
+    }
+
+    /**
+     * Stops periodic refreshes.
+     */
+    public synchronized void stopRefreshing() {
+        if (_refreshing != null) {
+            _refreshing.cancel(false);
+            _refreshing = null;
+        }
+    }
+
+    /**
+     * @param addr address
+     * @return <code>true</code> if <code>addr</code> is an address of a local
+     *         interface
+     */
+    public boolean isLocal(InetAddress addr) {
+        return nic(addr) != null;
+    }
+
+    /**
+     * @param addr local address
+     * @return <code>true</code> if <code>addr</code> is an address of a local
+     *         interface which is up and supports multicast, so that multicast
+     *         groups can be joined through it
+     */
+    public boolean isMCastCapable(InetAddress addr) {
+        Nic nic = nic(addr);
+        return nic != null && nic._up && nic._multicast;
+    }
+
+    /**
+     * @param addr address
+     * @return name of the local interface with address <code>addr</code>, or
+     *         <code>null</code> if it isn't local
+     */
+    public String interfaceName(InetAddress addr) {
+        Nic nic = nic(addr);
+        return nic == null ? null : nic._name;
+    }
+
+    /**
+     * @return number of local addresses
+     */
+    public int size() {
+        return _addresses.size();
+    }
+
+    private Nic nic(InetAddress addr) {
+        Nic nic = _addresses.get(addr);
+        if (nic == null && isStale()) {
+            synchronized (this) {
+                // Threads which missed together refresh once
+                if (isStale()) {
+                    refresh();
+                }
+            }
+            nic = _addresses.get(addr);
+        }
+        return nic;
+    }
+
+    private boolean isStale() {
+        return System.nanoTime() - _refreshed > _minRefreshNanos;
+    }
+
+    private static final class Nic {
+        private final String _name;
+        private final boolean _up;
+        private final boolean _multicast;
+
+        Nic(String name, boolean up, boolean multicast) {
+            _name = name;
+            _up = up;
+            _multicast = multicast;
+        }
+    }
+}
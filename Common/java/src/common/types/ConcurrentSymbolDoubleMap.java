@@ -0,0 +1,152 @@
+package common.types;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * {@link SymbolDoubleMap} with one writer thread and any number of reader
+ * threads. Readers never lock: a lookup is a volatile load of the array, one
+ * bounds check and one volatile array load. The writer publishes values with
+ * ordered stores, which are cheaper than volatile stores and still never let
+ * a reader see a torn value.
+ * <p>
+ * When the writer grows the array, it copies the values and then publishes
+ * the copy. A reader still holding the previous array misses values written
+ * since, as if it had read a little earlier. A {@link #clear()} is not atomic
+ * either: readers may see some values already cleared and others not yet.
+ * <p>
+ * Values are stored as their raw bits, and compared to the missing value by
+ * their bits.
+ *
+ * @author rstoner
+ */
+public final class ConcurrentSymbolDoubleMap {
+    private final double _missing;
+    private final long _missingBits;
+    private volatile AtomicLongArray _values;
+    private int _highWater;
+
+    /**
+     * @param missing value of symbols which have no value
+     */
+    public ConcurrentSymbolDoubleMap(double missing) {
+        this(missing, SymbolMaps.CHUNK_SIZE);
+    }
+
+    /**
+     * @param missing value of symbols which have no value
+     * @param capacity number of ids to allocate up front
+     */
+    public ConcurrentSymbolDoubleMap(double missing, int capacity) {
+        _missing = missing;
+        _missingBits = Double.doubleToRawLongBits(missing);
+        _values = allocate(null, SymbolMaps.roundUp(capacity));
+    }
+
+    private AtomicLongArray allocate(AtomicLongArray previous, int length) {
+        AtomicLongArray values = new AtomicLongArray(length);
+        int copied = previous == null ? 0 : previous.length();
+        for (int i = 0; i < copied; i++) {
+            values.lazySet(i, previous.get(i));
+        }
+        for (int i = copied; i < length; i++) {
+            values.lazySet(i, _missingBits);
+        }
+        return values;
+    }
+
+    /**
+     * @param sym symbol
+     * @return value of <code>sym</code>, or the missing value
+     */
+    public double get(Symbol sym) {
+        return get(sym.id());
+    }
+
+    /**
+     * @param id symbol id, or -1 for a name which isn't in the table, as
+     *            returned by {@link SymbolTable#id(byte[], int, int, int)}
+     * @return value of the symbol with id <code>id</code>, or the missing
+     *         value
+     */
+    public double get(int id) {
+        AtomicLongArray values = _values;
+        return Double.longBitsToDouble(id >= 0 && id < values.length()
+                ? values.get(id) : _missingBits);
+    }
+
+    /**
+     * @param sym symbol
+     * @return <code>true</code> if <code>sym</code> has a value other than
+     *         the missing value
+     */
+    public boolean contains(Symbol sym) {
+        AtomicLongArray values = _values;
+        int id = sym.id();
+        return id < values.length() && values.get(id) != _missingBits;
+    }
+
+    /**
+     * Must only be called by the writer thread.
+     *
+     * @param sym symbol
+     * @param value value, the missing value to remove <code>sym</code>
+     * @return previous value of <code>sym</code>
+     */
+    public double put(Symbol sym, double value) {
+        int id = sym.id();
+        AtomicLongArray values = _values;
+        if (id >= values.length()) {
+            values = allocate(values, SymbolMaps.grow(values.length(), id));
+            _values = values;
+        }
+        long previous = values.get(id);
+        values.lazySet(id, Double.doubleToRawLongBits(value));
+        _highWater = Math.max(_highWater, id + 1);
+        return Double.longBitsToDouble(previous);
+    }
+
+    /**
+     * Must only be called by the writer thread.
+     *
+     * @param sym symbol
+     * @param delta value to add, the missing value counting as 0
+     * @return new value of <code>sym</code>
+     */
+    public double add(Symbol sym, double delta) {
+        double v = get(sym);
+        v = (Double.doubleToRawLongBits(v) == _missingBits ? 0 : v) + delta;
+        put(sym, v);
+        return v;
+    }
+
+    /**
+     * Must only be called by the writer thread.
+     *
+     * @param sym symbol
+     * @return previous value of <code>sym</code>
+     */
+    public double remove(Symbol sym) {
+        if (sym.id() >= _values.length()) {
+            return _missing;
+        }
+        return put(sym, _missing);
+    }
+
+    /**
+     * Removes all values. Must only be called by the writer thread.
+     */
+    public void clear() {
+        AtomicLongArray values = _values;
+        for (int i = 0; i < _highWater; i++) {
+            values.lazySet(i, _missingBits);
+        }
+        _highWater = 0;
+    }
+
+    /**
+     * @return value of symbols which have no value
+     */
+    public double missing() {
+        return _missing;
+    }
+}
@@ -0,0 +1,145 @@
+package common.types;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * {@link SymbolIntMap} with one writer thread and any number of reader
+ * threads. Readers never lock: a lookup is a volatile load of the array, one
+ * bounds check and one volatile array load. The writer publishes values with
+ * ordered stores, which are cheaper than volatile stores and still never let
+ * a reader see a torn value.
+ * <p>
+ * When the writer grows the array, it copies the values and then publishes
+ * the copy. A reader still holding the previous array misses values written
+ * since, as if it had read a little earlier. A {@link #clear()} is not atomic
+ * either: readers may see some values already cleared and others not yet.
+ *
+ * @author rstoner
+ */
+public final class ConcurrentSymbolIntMap {
+    private final int _missing;
+    private volatile AtomicIntegerArray _values;
+    private int _highWater;
+
+    /**
+     * @param missing value of symbols which have no value
+     */
+    public ConcurrentSymbolIntMap(int missing) {
+        this(missing, SymbolMaps.CHUNK_SIZE);
+    }
+
+    /**
+     * @param missing value of symbols which have no value
+     * @param capacity number of ids to allocate up front
+     */
+    public ConcurrentSymbolIntMap(int missing, int capacity) {
+        _missing = missing;
+        _values = allocate(null, SymbolMaps.roundUp(capacity));
+    }
+
+    private AtomicIntegerArray allocate(AtomicIntegerArray previous,
+            int length) {
+        AtomicIntegerArray values = new AtomicIntegerArray(length);
+        int copied = previous == null ? 0 : previous.length();
+        for (int i = 0; i < copied; i++) {
+            values.lazySet(i, previous.get(i));
+        }
+        for (int i = copied; i < length; i++) {
+            values.lazySet(i, _missing);
+        }
+        return values;
+    }
+
+    /**
+     * @param sym symbol
+     * @return value of <code>sym</code>, or the missing value
+     */
+    public int get(Symbol sym) {
+        return get(sym.id());
+    }
+
+    /**
+     * @param id symbol id, or -1 for a name which isn't in the table, as
+     *            returned by {@link SymbolTable#id(byte[], int, int, int)}
+     * @return value of the symbol with id <code>id</code>, or the missing
+     *         value
+     */
+    public int get(int id) {
+        AtomicIntegerArray values = _values;
+        return id >= 0 && id < values.length() ? values.get(id) : _missing;
+    }
+
+    /**
+     * @param sym symbol
+     * @return <code>true</code> if <code>sym</code> has a value other than
+     *         the missing value
+     */
+    public boolean contains(Symbol sym) {
+        return get(sym.id()) != _missing;
+    }
+
+    /**
+     * Must only be called by the writer thread.
+     *
+     * @param sym symbol
+     * @param value value, the missing value to remove <code>sym</code>
+     * @return previous value of <code>sym</code>
+     */
+    public int put(Symbol sym, int value) {
+        int id = sym.id();
+        AtomicIntegerArray values = _values;
+        if (id >= values.length()) {
+            values = allocate(values, SymbolMaps.grow(values.length(), id));
+            _values = values;
+        }
+        int previous = values.get(id);
+        values.lazySet(id, value);
+        _highWater = Math.max(_highWater, id + 1);
+        return previous;
+    }
+
+    /**
+     * Must only be called by the writer thread.
+     *
+     * @param sym symbol
+     * @param delta value to add, the missing value counting as 0
+     * @return new value of <code>sym</code>
+     */
+    public int add(Symbol sym, int delta) {
+        int v = get(sym);
+        v = (v == _missing ? 0 : v) + delta;
+        put(sym, v);
+        return v;
+    }
+
+    /**
+     * Must only be called by the writer thread.
+     *
+     * @param sym symbol
+     * @return previous value of <code>sym</code>
+     */
+    public int remove(Symbol sym) {
+        if (sym.id() >= _values.length()) {
+            return _missing;
+        }
+        return put(sym, _missing);
+    }
+
+    /**
+     * Removes all values. Must only be called by the writer thread.
+     */
+    public void clear() {
+        AtomicIntegerArray values = _values;
+        for (int i = 0; i < _highWater; i++) {
+            values.lazySet(i, _missing);
+        }
+        _highWater = 0;
+    }
+
+    /**
+     * @return value of symbols which have no value
+     */
+    public int missing() {
+        return _missing;
+    }
+}
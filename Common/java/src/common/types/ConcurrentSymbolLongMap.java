@@ -0,0 +1,144 @@
+package common.types;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * {@link SymbolLongMap} with one writer thread and any number of reader
+ * threads. Readers never lock: a lookup is a volatile load of the array, one
+ * bounds check and one volatile array load. The writer publishes values with
+ * ordered stores, which are cheaper than volatile stores and still never let
+ * a reader see a torn value.
+ * <p>
+ * When the writer grows the array, it copies the values and then publishes
+ * the copy. A reader still holding the previous array misses values written
+ * since, as if it had read a little earlier. A {@link #clear()} is not atomic
+ * either: readers may see some values already cleared and others not yet.
+ *
+ * @author rstoner
+ */
+public final class ConcurrentSymbolLongMap {
+    private final long _missing;
+    private volatile AtomicLongArray _values;
+    private int _highWater;
+
+    /**
+     * @param missing value of symbols which have no value
+     */
+    public ConcurrentSymbolLongMap(long missing) {
+        this(missing, SymbolMaps.CHUNK_SIZE);
+    }
+
+    /**
+     * @param missing value of symbols which have no value
+     * @param capacity number of ids to allocate up front
+     */
+    public ConcurrentSymbolLongMap(long missing, int capacity) {
+        _missing = missing;
+        _values = allocate(null, SymbolMaps.roundUp(capacity));
+    }
+
+    private AtomicLongArray allocate(AtomicLongArray previous, int length) {
+        AtomicLongArray values = new AtomicLongArray(length);
+        int copied = previous == null ? 0 : previous.length();
+        for (int i = 0; i < copied; i++) {
+            values.lazySet(i, previous.get(i));
+        }
+        for (int i = copied; i < length; i++) {
+            values.lazySet(i, _missing);
+        }
+        return values;
+    }
+
+    /**
+     * @param sym symbol
+     * @return value of <code>sym</code>, or the missing value
+     */
+    public long get(Symbol sym) {
+        return get(sym.id());
+    }
+
+    /**
+     * @param id symbol id, or -1 for a name which isn't in the table, as
+     *            returned by {@link SymbolTable#id(byte[], int, int, int)}
+     * @return value of the symbol with id <code>id</code>, or the missing
+     *         value
+     */
+    public long get(int id) {
+        AtomicLongArray values = _values;
+        return id >= 0 && id < values.length() ? values.get(id) : _missing;
+    }
+
+    /**
+     * @param sym symbol
+     * @return <code>true</code> if <code>sym</code> has a value other than
+     *         the missing value
+     */
+    public boolean contains(Symbol sym) {
+        return get(sym.id()) != _missing;
+    }
+
+    /**
+     * Must only be called by the writer thread.
+     *
+     * @param sym symbol
+     * @param value value, the missing value to remove <code>sym</code>
+     * @return previous value of <code>sym</code>
+     */
+    public long put(Symbol sym, long value) {
+        int id = sym.id();
+        AtomicLongArray values = _values;
+        if (id >= values.length()) {
+            values = allocate(values, SymbolMaps.grow(values.length(), id));
+            _values = values;
+        }
+        long previous = values.get(id);
+        values.lazySet(id, value);
+        _highWater = Math.max(_highWater, id + 1);
+        return previous;
+    }
+
+    /**
+     * Must only be called by the writer thread.
+     *
+     * @param sym symbol
+     * @param delta value to add, the missing value counting as 0
+     * @return new value of <code>sym</code>
+     */
+    public long add(Symbol sym, long delta) {
+        long v = get(sym);
+        v = (v == _missing ? 0 : v) + delta;
+        put(sym, v);
+        return v;
+    }
+
+    /**
+     * Must only be called by the writer thread.
+     *
+     * @param sym symbol
+     * @return previous value of <code>sym</code>
+     */
+    public long remove(Symbol sym) {
+        if (sym.id() >= _values.length()) {
+            return _missing;
+        }
+        return put(sym, _missing);
+    }
+
+    /**
+     * Removes all values. Must only be called by the writer thread.
+     */
+    public void clear() {
+        AtomicLongArray values = _values;
+        for (int i = 0; i < _highWater; i++) {
+            values.lazySet(i, _missing);
+        }
+        _highWater = 0;
+    }
+
+    /**
+     * @return value of symbols which have no value
+     */
+    public long missing() {
+        return _missing;
+    }
+}
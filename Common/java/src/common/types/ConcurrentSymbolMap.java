@@ -0,0 +1,113 @@
+package common.types;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * {@link SymbolMap} with one writer thread and any number of reader threads.
+ * Readers never lock: a lookup is a volatile load of the array, one bounds
+ * check and one volatile array load. The writer publishes values with ordered
+ * stores, so a reader that sees a value also sees everything the writer did
+ * before putting it.
+ * <p>
+ * When the writer grows the array, it copies the values and then publishes
+ * the copy. A reader still holding the previous array misses values written
+ * since, as if it had read a little earlier. A {@link #clear()} is not atomic
+ * either: readers may see some values already cleared and others not yet.
+ *
+ * @author rstoner
+ * @param <V> value type
+ */
+public final class ConcurrentSymbolMap<V> {
+    private volatile AtomicReferenceArray<V> _values;
+    private int _highWater;
+
+    /**
+     * Map with room for one chunk of ids.
+     */
+    public ConcurrentSymbolMap() {
+        this(SymbolMaps.CHUNK_SIZE);
+    }
+
+    /**
+     * @param capacity number of ids to allocate up front
+     */
+    public ConcurrentSymbolMap(int capacity) {
+        _values = new AtomicReferenceArray<>(SymbolMaps.roundUp(capacity));
+    }
+
+    /**
+     * @param sym symbol
+     * @return value of <code>sym</code>, or <code>null</code>
+     */
+    public V get(Symbol sym) {
+        return get(sym.id());
+    }
+
+    /**
+     * @param id symbol id, or -1 for a name which isn't in the table, as
+     *            returned by {@link SymbolTable#id(byte[], int, int, int)}
+     * @return value of the symbol with id <code>id</code>, or
+     *         <code>null</code>
+     */
+    public V get(int id) {
+        AtomicReferenceArray<V> values = _values;
+        return id >= 0 && id < values.length() ? values.get(id) : null;
+    }
+
+    /**
+     * @param sym symbol
+     * @return <code>true</code> if <code>sym</code> has a value
+     */
+    public boolean contains(Symbol sym) {
+        return get(sym.id()) != null;
+    }
+
+    /**
+     * Must only be called by the writer thread.
+     *
+     * @param sym symbol
+     * @param value value, <code>null</code> to remove <code>sym</code>
+     * @return previous value of <code>sym</code>
+     */
+    public V put(Symbol sym, V value) {
+        int id = sym.id();
+        AtomicReferenceArray<V> values = _values;
+        if (id >= values.length()) {
+            AtomicReferenceArray<V> grown = new AtomicReferenceArray<>(
+                    SymbolMaps.grow(values.length(), id));
+            for (int i = 0; i < values.length(); i++) {
+                grown.lazySet(i, values.get(i));
+            }
+            values = grown;
+            _values = values;
+        }
+        V previous = values.get(id);
+        values.lazySet(id, value);
+        _highWater = Math.max(_highWater, id + 1);
+        return previous;
+    }
+
+    /**
+     * Must only be called by the writer thread.
+     *
+     * @param sym symbol
+     * @return previous value of <code>sym</code>
+     */
+    public V remove(Symbol sym) {
+        if (sym.id() >= _values.length()) {
+            return null;
+        }
+        return put(sym, null);
+    }
+
+    /**
+     * Removes all values. Must only be called by the writer thread.
+     */
+    public void clear() {
+        AtomicReferenceArray<V> values = _values;
+        for (int i = 0; i < _highWater; i++) {
+            values.lazySet(i, null);
+        }
+        _highWater = 0;
+    }
+}
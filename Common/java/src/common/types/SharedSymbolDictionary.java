@@ -0,0 +1,483 @@
+package common.types;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.channels.FileLock;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import common.io.DirectMemory;
+
+/**
+ * Append only dictionary of symbol names and ids, memory mapped from a file
+ * shared by every process on a host. Ids are assigned densely from 0 in the
+ * order names are first reserved by any process, and are kept in the file, so
+ * they are the same in every process and across restarts, and can be used in
+ * shared memory, binary logs and files.
+ * <p>
+ * Lookups of ids by name and of names by id never lock. Reserving a new name
+ * locks the file, so that processes append one at a time. A reserve writes
+ * the entry, then its id, then the count, and only then makes the name
+ * findable, so readers never see a partial entry, and a reserve interrupted by
+ * a crash is completed by the next one.
+ * <p>
+ * File format, all numbers in native byte order:
+ *
+ * <pre>
+ * header:  magic (int), version (int), capacity (int), index slots (int),
+ *          data capacity (int), count (int), data end (int), unused (int)
+ * ids:     capacity * data offset of the entry + 1 (int)
+ * index:   index slots * id + 1, or 0 for an empty slot (int)
+ * data:    entries of hash (int), name length (int), ASCII name, each
+ *          padded to 4 bytes
+ * </pre>
+ *
+ * Use {@link #syncTo(SymbolTable)} to give a process's {@link Symbol}s the ids
+ * of the dictionary.
+ *
+ * @author rstoner
+ */
+public final class SharedSymbolDictionary implements Closeable {
+    static final int MAGIC = 0x43425759; // "CBWY"
+    static final int VERSION = 1;
+    private static final Charset ASCII = Charset.forName("US-ASCII");
+    private static final int CAPACITY_OFFSET = 8;
+    private static final int SLOTS_OFFSET = 12;
+    private static final int DATA_CAPACITY_OFFSET = 16;
+    private static final int COUNT_OFFSET = 20;
+    private static final int DATA_END_OFFSET = 24;
+    private static final int HEADER_SIZE = 32;
+    private static final int DEFAULT_BYTES_PER_NAME = 32;
+
+    /** FileLocks are held by the JVM, so threads must take turns as well */
+    private static final ConcurrentMap<String, Object> JVM_LOCKS =
+            new ConcurrentHashMap<>();
+
+    private final FileChannel _channel;
+    private final MappedByteBuffer _region;
+    private final Object _jvmLock;
+    private final int _capacity;
+    private final int _slotMask;
+    private final int _idsOffset;
+    private final int _indexOffset;
+    private final int _dataOffset;
+    private final int _dataCapacity;
+
+    /**
+     * Opens the dictionary in <code>file</code>, creating it if it doesn't
+     * exist, with room for names of 24 characters on average.
+     *
+     * @param file dictionary file
+     * @param capacity maximum number of names, ignored if the file exists
+     * @throws IOException if the file cannot be mapped
+     */
+    public SharedSymbolDictionary(File file, int capacity) throws IOException {
+        this(file, capacity, capacity * DEFAULT_BYTES_PER_NAME);
+    }
+
+    /**
+     * Opens the dictionary in <code>file</code>, creating it if it doesn't
+     * exist.
+     *
+     * @param file dictionary file
+     * @param capacity maximum number of names, ignored if the file exists
+     * @param dataCapacity bytes for all entries, 8 + the name length rounded
+     *            up to 4 per entry, ignored if the file exists
+     * @throws IOException if the file cannot be mapped
+     */
+    public SharedSymbolDictionary(File file, int capacity, int dataCapacity)
+            throws IOException {
+        _jvmLock = jvmLock(file);
+        _channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            synchronized (_jvmLock) {
+                FileLock lock = _channel.lock();
+                try {
+                    if (_channel.size() == 0) {
+                        initialize(capacity, dataCapacity);
+                    }
+                    ByteBuffer header = _channel.map(MapMode.READ_ONLY, 0,
+                            HEADER_SIZE).order(ByteOrder.nativeOrder());
+                    if (header.getInt(0) != MAGIC) {
+                        throw new IOException("Not a symbol dictionary: "
+                                + file);
+                    }
+                    if (header.getInt(4) != VERSION) {
+                        throw new IOException(
+                                "Unsupported symbol dictionary version: "
+                                        + header.getInt(4));
+                    }
+                    _capacity = header.getInt(CAPACITY_OFFSET);
+                    int slots = header.getInt(SLOTS_OFFSET);
+                    _slotMask = slots - 1;
+                    _dataCapacity = header.getInt(DATA_CAPACITY_OFFSET);
+                    _idsOffset = HEADER_SIZE;
+                    _indexOffset = _idsOffset + 4 * _capacity;
+                    _dataOffset = _indexOffset + 4 * slots;
+                    _region = _channel.map(MapMode.READ_WRITE, 0,
+                            _dataOffset + _dataCapacity);
+                    _region.order(ByteOrder.nativeOrder());
+                } finally {
+                    lock.release();
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            _channel.close();
+            throw e;
+        }
+    }
+
+    private static Object jvmLock(File file) throws IOException {
+        String path = file.getCanonicalPath();
+        Object lock = JVM_LOCKS.get(path);
+        if (lock == null) {
+            lock = new Object();
+            Object existing = JVM_LOCKS.putIfAbsent(path, lock);
+            if (existing != null) {
+                lock = existing;
+            }
+        }
+        return lock;
+    }
+
+    private void initialize(int capacity, int dataCapacity)
+            throws IOException {
+        if (capacity <= 0 || dataCapacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        int slots = Integer.highestOneBit(capacity) * 4;
+        long size = HEADER_SIZE + 4L * capacity + 4L * slots + dataCapacity;
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Symbol dictionary too large: "
+                    + size);
+        }
+        MappedByteBuffer region = _channel.map(MapMode.READ_WRITE, 0, size);
+        region.order(ByteOrder.nativeOrder());
+        region.putInt(4, VERSION);
+        region.putInt(CAPACITY_OFFSET, capacity);
+        region.putInt(SLOTS_OFFSET, slots);
+        region.putInt(DATA_CAPACITY_OFFSET, dataCapacity);
+        region.putInt(COUNT_OFFSET, 0);
+        region.putInt(DATA_END_OFFSET, 0);
+        DirectMemory.putIntVolatile(region, 0, MAGIC);
+        region.force();
+    }
+
+    /**
+     * @param name ASCII symbol name
+     * @return id of <code>name</code>, reserved with the next id if it isn't
+     *         in the dictionary yet
+     * @throws IOException if the file cannot be locked
+     */
+    public int reserve(String name) throws IOException {
+        int hash = SymbolTable.hash(name);
+        int id = id(name, hash);
+        if (id >= 0) {
+            return id;
+        }
+        for (int i = 0; i < name.length(); i++) {
+            if (name.charAt(i) > 127) {
+                throw new IllegalArgumentException("Not an ASCII name: "
+                        + name);
+            }
+        }
+
+        synchronized (_jvmLock) {
+            FileLock lock = _channel.lock();
+            try {
+                complete();
+                id = id(name, hash);
+                if (id < 0) {
+                    id = append(name, hash);
+                }
+                return id;
+            } finally {
+                lock.release();
+            }
+        }
+    }
+
+    /**
+     * Makes the last entry findable by name, in case the process that
+     * appended it died before it could.
+     */
+    private void complete() {
+        int count = count();
+        if (count > 0 && slot(count - 1) < 0) {
+            insert(count - 1, entryHash(count - 1));
+        }
+    }
+
+    private int append(String name, int hash) {
+        int id = count();
+        int end = DirectMemory.getIntVolatile(_region, DATA_END_OFFSET);
+        int size = 8 + ((name.length() + 3) & ~3);
+        if (id == _capacity || end + size > _dataCapacity) {
+            throw new RuntimeException("Symbol dictionary is full: " + id
+                    + " names, " + end + " bytes");
+        }
+
+        int pos = _dataOffset + end;
+        _region.putInt(pos, hash);
+        _region.putInt(pos + 4, name.length());
+        for (int i = 0; i < name.length(); i++) {
+            _region.put(pos + 8 + i, (byte) name.charAt(i));
+        }
+        DirectMemory.putIntVolatile(_region, DATA_END_OFFSET, end + size);
+        DirectMemory.putIntOrdered(_region, _idsOffset + 4 * id, end + 1);
+        DirectMemory.putIntVolatile(_region, COUNT_OFFSET, id + 1);
+        insert(id, hash);
+        return id;
+    }
+
+    private void insert(int id, int hash) {
+        int i = hash & _slotMask;
+        while (_region.getInt(_indexOffset + 4 * i) != 0) {
+            i = (i + 1) & _slotMask;
+        }
+        DirectMemory.putIntOrdered(_region, _indexOffset + 4 * i, id + 1);
+    }
+
+    /**
+     * @return index slot of <code>id</code>, or -1 if it isn't findable
+     */
+    private int slot(int id) {
+        int i = entryHash(id) & _slotMask;
+        int v;
+        while ((v = DirectMemory.getIntVolatile(_region, _indexOffset + 4 * i))
+                != 0) {
+            if (v == id + 1) {
+                return i;
+            }
+            i = (i + 1) & _slotMask;
+        }
+        return -1;
+    }
+
+    private int entry(int id) {
+        return _dataOffset
+                + DirectMemory.getIntVolatile(_region, _idsOffset + 4 * id)
+                - 1;
+    }
+
+    private int entryHash(int id) {
+        return _region.getInt(entry(id));
+    }
+
+    /**
+     * @param name symbol name
+     * @return id of <code>name</code>, or -1 if it hasn't been reserved
+     */
+    public int id(String name) {
+        return id(name, SymbolTable.hash(name));
+    }
+
+    /**
+     * @param name symbol name
+     * @param hash {@link SymbolTable#hash(CharSequence)} of the name
+     * @return id of <code>name</code>, or -1 if it hasn't been reserved
+     */
+    public int id(CharSequence name, int hash) {
+        int i = hash & _slotMask;
+        int v;
+        while ((v = DirectMemory.getIntVolatile(_region, _indexOffset + 4 * i))
+                != 0) {
+            int entry = entry(v - 1);
+            if (_region.getInt(entry) == hash
+                    && _region.getInt(entry + 4) == name.length()
+                    && equals(entry + 8, name)) {
+                return v - 1;
+            }
+            i = (i + 1) & _slotMask;
+        }
+        return -1;
+    }
+
+    /**
+     * Looks up the id of an ASCII encoded name, without decoding it.
+     *
+     * @param bytes buffer holding the name
+     * @param offset offset of the name
+     * @param length length of the name
+     * @param hash {@link SymbolTable#hash(byte[], int, int)} of the name
+     * @return id of the name, or -1 if it hasn't been reserved
+     */
+    public int id(byte[] bytes, int offset, int length, int hash) {
+        int i = hash & _slotMask;
+        int v;
+        while ((v = DirectMemory.getIntVolatile(_region, _indexOffset + 4 * i))
+                != 0) {
+            int entry = entry(v - 1);
+            if (_region.getInt(entry) == hash
+                    && _region.getInt(entry + 4) == length
+                    && equals(entry + 8, bytes, offset, length)) {
+                return v - 1;
+            }
+            i = (i + 1) & _slotMask;
+        }
+        return -1;
+    }
+
+    /**
+     * Looks up the id of an ASCII encoded name, without decoding it. The
+     * position and limit of <code>buffer</code> are not used or changed.
+     *
+     * @param buffer buffer holding the name
+     * @param offset absolute offset of the name
+     * @param length length of the name
+     * @param hash {@link SymbolTable#hash(ByteBuffer, int, int)} of the name
+     * @return id of the name, or -1 if it hasn't been reserved
+     */
+    public int id(ByteBuffer buffer, int offset, int length, int hash) {
+        int i = hash & _slotMask;
+        int v;
+        while ((v = DirectMemory.getIntVolatile(_region, _indexOffset + 4 * i))
+                != 0) {
+            int entry = entry(v - 1);
+            if (_region.getInt(entry) == hash
+                    && _region.getInt(entry + 4) == length
+                    && equals(entry + 8, buffer, offset, length)) {
+                return v - 1;
+            }
+            i = (i + 1) & _slotMask;
+        }
+        return -1;
+    }
+
+    private boolean equals(int pos, CharSequence name) {
+        for (int i = 0; i < name.length(); i++) {
+            if ((_region.get(pos + i) & 0xff) != name.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean equals(int pos, byte[] bytes, int offset, int length) {
+        for (int i = 0; i < length; i++) {
+            if (_region.get(pos + i) != bytes[offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean equals(int pos, ByteBuffer buffer, int offset,
+            int length) {
+        for (int i = 0; i < length; i++) {
+            if (_region.get(pos + i) != buffer.get(offset + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param id symbol id
+     * @return name of the symbol with id <code>id</code>
+     * @throws IndexOutOfBoundsException if no symbol has that id
+     */
+    public String name(int id) {
+        byte[] bytes = new byte[nameLength(id)];
+        copyName(id, bytes, 0);
+        return new String(bytes, ASCII);
+    }
+
+    /**
+     * @param id symbol id
+     * @return length of the name of the symbol with id <code>id</code>
+     * @throws IndexOutOfBoundsException if no symbol has that id
+     */
+    public int nameLength(int id) {
+        checkId(id);
+        return _region.getInt(entry(id) + 4);
+    }
+
+    /**
+     * Copies the ASCII name of a symbol, without allocating.
+     *
+     * @param id symbol id
+     * @param dst destination
+     * @param offset offset in <code>dst</code>
+     * @return length of the name
+     * @throws IndexOutOfBoundsException if no symbol has that id
+     */
+    public int copyName(int id, byte[] dst, int offset) {
+        checkId(id);
+        int entry = entry(id);
+        int length = _region.getInt(entry + 4);
+        for (int i = 0; i < length; i++) {
+            dst[offset + i] = _region.get(entry + 8 + i);
+        }
+        return length;
+    }
+
+    private void checkId(int id) {
+        int count = count();
+        if (id < 0 || id >= count) {
+            throw new IndexOutOfBoundsException(id + " must be in range [0, "
+                    + count + ")");
+        }
+    }
+
+    /**
+     * @return number of names, which is also the next id
+     */
+    public int count() {
+        return DirectMemory.getIntVolatile(_region, COUNT_OFFSET);
+    }
+
+    /**
+     * @return maximum number of names
+     */
+    public int capacity() {
+        return _capacity;
+    }
+
+    /**
+     * Reserves every name of the dictionary not yet in <code>table</code> in
+     * <code>table</code>, in id order, so that symbols have the ids of the
+     * dictionary. Names must only be reserved through the dictionary, and
+     * synced, for the ids to stay the same. The symbols already in
+     * <code>table</code> are compared with the dictionary first, so a sync
+     * costs a comparison per symbol of the table.
+     *
+     * @param table symbol table, e.g. {@link Symbol#table()}
+     * @throws RuntimeException if <code>table</code> has symbols which are
+     *             not in the dictionary with the same id
+     */
+    public void syncTo(SymbolTable table) {
+        int count = count();
+        int size = table.size();
+        for (int id = 0; id < Math.min(size, count); id++) {
+            Symbol sym = table.symbol(id);
+            String name = name(id);
+            if (!name.equals(sym.toString())) {
+                throw new RuntimeException("Symbol " + id + " is " + sym
+                        + " in the table and " + name + " in the dictionary");
+            }
+        }
+        for (int id = size; id < count; id++) {
+            Symbol sym = table.reserve(name(id));
+            if (sym.id() != id) {
+                throw new RuntimeException("Symbol " + sym + " has id "
+                        + sym.id() + " in the table and " + id
+                        + " in the dictionary");
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        _channel.close();
+    }
+}
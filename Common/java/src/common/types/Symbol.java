@@ -1,114 +1,96 @@
 package common.types;
 
-import java.util.EnumMap;
-import java.util.HashMap;
-import java.util.Map;
-
 /**
+ * Interned symbol name. A {@link SymbolTable} holds only one symbol per name,
+ * so symbols compare by identity like enum constants, and {@link #toString()}
+ * returns the name. Every symbol has a dense id, assigned in the order
+ * symbols are reserved, which can index arrays of per symbol state.
+ * <p>
+ * Symbols are kept in a global {@link SymbolTable}, which can hold millions
+ * of them. Resolving a symbol never locks.
+ * 
  * @author benjamin
  */
-public enum Symbol {
+public final class Symbol implements Comparable<Symbol> {
+    private static volatile SymbolTable _table = new SymbolTable();
+
+    private final String _name;
+    private final int _id;
+    private final int _hash;
+
+    Symbol(String name, int id, int hash) {
+        _name = name;
+        _id = id;
+        _hash = hash;
+    }
+
     /**
-     * Reserved slot
+     * @return dense id of this symbol in its table
      */
-    _SLOT0 {
-        @Override
-        public String toString() {
-            String str = _sym2Name.get(this);
-            if (str == null) {
-                str = super.toString();
-            }
-            return str;
-        }
-    },
+    public int id() {
+        return _id;
+    }
+
+    int hash() {
+        return _hash;
+    }
+
     /**
-     * Reserved slot
+     * @return symbol name
      */
-    _SLOT1 {
-        @Override
-        public String toString() {
-            String str = _sym2Name.get(this);
-            if (str == null) {
-                str = super.toString();
-            }
-            return str;
-        }
-    },
+    @Override
+    public String toString() {
+        return _name;
+    }
 
     /**
-     * Reserved slot
+     * Symbols are ordered by id, i.e. in the order they were reserved.
      */
-    _SLOT2 {
-        @Override
-        public String toString() {
-            String str = _sym2Name.get(this);
-            if (str == null) {
-                str = super.toString();
-            }
-            return str;
-        }
-    };
-
-    private static int _slotIdx = 0;
-    private static Map<String, Symbol> _name2Sym = new HashMap<>();
-    private static EnumMap<Symbol, String> _sym2Name = new EnumMap<>(
-            Symbol.class);
+    @Override
+    public int compareTo(Symbol o) {
+        return Integer.compare(_id, o._id);
+    }
 
-    private static Symbol createSlot(String symName) {
-        Symbol slot = null;
-        try {
-            String slotName = "_SLOT" + _slotIdx;
-            slot = Symbol.valueOf(slotName);
-            _slotIdx++;
-            _name2Sym.put(symName, slot);
-            _sym2Name.put(slot, symName);
-        } catch (IllegalArgumentException e1) {
-            throw new RuntimeException("Maximum number of slots reached: "
-                    + _slotIdx);
-        }
-        return slot;
+    /**
+     * @return table of all symbols
+     */
+    public static SymbolTable table() {
+        return _table;
     }
 
     /**
-     * Will return a symbol enum that matches this name. If none is found, it
-     * will use one of the reserved slots and map it to this name.
+     * Will return the symbol with this name, reserving it if it doesn't exist
+     * yet.
      * 
      * @param symName symbol name
-     * @return enum corresponding to <code>symName</code>
+     * @return symbol corresponding to <code>symName</code>
      */
-    public synchronized static Symbol reserve(String symName) {
-        try {
-            return Symbol.valueOf(symName);
-        } catch (IllegalArgumentException e) {
-            Symbol sym = _name2Sym.get(symName);
-            if (sym == null) {
-                sym = createSlot(symName);
-            }
-            return sym;
-        }
+    public static Symbol reserve(String symName) {
+        return _table.reserve(symName);
     }
 
     /**
-     * Returns the corresponding symbol enum for <code>symName</code>. Use this
-     * instead of valueOf() if you want to take advantage of reserved slots.
+     * Returns the symbol for <code>symName</code>.
      * 
      * @param symName symbol name
-     * @return symbol enum corresponding to <code>symName</code>
+     * @return symbol corresponding to <code>symName</code>
+     * @throws IllegalArgumentException if <code>symName</code> hasn't been
+     *             reserved
      */
-    public synchronized static Symbol resolve(String symName) {
-        Symbol sym = _name2Sym.get(symName);
+    public static Symbol resolve(String symName) {
+        Symbol sym = _table.get(symName);
         if (sym == null) {
-            sym = Symbol.valueOf(symName);
+            throw new IllegalArgumentException("No symbol " + symName);
         }
         return sym;
     }
 
     /**
-     * Clears all the used slots and makes them available
+     * Forgets all symbols, so ids are assigned from 0 again. Symbols reserved
+     * before remain valid objects, but are no longer resolved, and per symbol
+     * state indexed by their ids must be discarded as well.
      */
-    public synchronized static void clearSlots() {
-        _name2Sym.clear();
-        _sym2Name.clear();
-        _slotIdx = 0;
+    public static void clearSlots() {
+        _table = new SymbolTable();
     }
 }
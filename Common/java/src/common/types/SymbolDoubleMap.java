@@ -0,0 +1,130 @@
+package common.types;
+
+import java.util.Arrays;
+
+/**
+ * Map from {@link Symbol} to <code>double</code>, held in an array indexed by
+ * {@link Symbol#id()}, e.g. for last prices per instrument. A lookup is one
+ * bounds check and one array load. Symbols without a value map to the
+ * <code>missing</code> value given at construction, which may be
+ * {@link Double#NaN}: values are compared to it by their bits.
+ * <p>
+ * The array grows by whole chunks to cover the highest id put. Clearing only
+ * touches the ids up to the highest id put since the last clear. Not thread
+ * safe, see {@link ConcurrentSymbolDoubleMap} for a map with a single writer
+ * and many readers.
+ *
+ * @author rstoner
+ */
+public final class SymbolDoubleMap {
+    private final double _missing;
+    private final long _missingBits;
+    private double[] _values;
+    private int _highWater;
+
+    /**
+     * @param missing value of symbols which have no value
+     */
+    public SymbolDoubleMap(double missing) {
+        this(missing, SymbolMaps.CHUNK_SIZE);
+    }
+
+    /**
+     * @param missing value of symbols which have no value
+     * @param capacity number of ids to allocate up front
+     */
+    public SymbolDoubleMap(double missing, int capacity) {
+        _missing = missing;
+        _missingBits = Double.doubleToRawLongBits(missing);
+        _values = new double[SymbolMaps.roundUp(capacity)];
+        Arrays.fill(_values, missing);
+    }
+
+    /**
+     * @param sym symbol
+     * @return value of <code>sym</code>, or the missing value
+     */
+    public double get(Symbol sym) {
+        return get(sym.id());
+    }
+
+    /**
+     * @param id symbol id, or -1 for a name which isn't in the table, as
+     *            returned by {@link SymbolTable#id(byte[], int, int, int)}
+     * @return value of the symbol with id <code>id</code>, or the missing
+     *         value
+     */
+    public double get(int id) {
+        double[] values = _values;
+        return id >= 0 && id < values.length ? values[id] : _missing;
+    }
+
+    /**
+     * @param sym symbol
+     * @return <code>true</code> if <code>sym</code> has a value other than
+     *         the missing value
+     */
+    public boolean contains(Symbol sym) {
+        return !isMissing(get(sym.id()));
+    }
+
+    /**
+     * @param sym symbol
+     * @param value value, the missing value to remove <code>sym</code>
+     * @return previous value of <code>sym</code>
+     */
+    public double put(Symbol sym, double value) {
+        int id = sym.id();
+        if (id >= _values.length) {
+            int length = _values.length;
+            _values = Arrays.copyOf(_values, SymbolMaps.grow(length, id));
+            Arrays.fill(_values, length, _values.length, _missing);
+        }
+        double previous = _values[id];
+        _values[id] = value;
+        _highWater = Math.max(_highWater, id + 1);
+        return previous;
+    }
+
+    /**
+     * @param sym symbol
+     * @param delta value to add, the missing value counting as 0
+     * @return new value of <code>sym</code>
+     */
+    public double add(Symbol sym, double delta) {
+        double v = get(sym);
+        v = (isMissing(v) ? 0 : v) + delta;
+        put(sym, v);
+        return v;
+    }
+
+    /**
+     * @param sym symbol
+     * @return previous value of <code>sym</code>
+     */
+    public double remove(Symbol sym) {
+        if (sym.id() >= _values.length) {
+            return _missing;
+        }
+        return put(sym, _missing);
+    }
+
+    /**
+     * Removes all values.
+     */
+    public void clear() {
+        Arrays.fill(_values, 0, _highWater, _missing);
+        _highWater = 0;
+    }
+
+    private boolean isMissing(double v) {
+        return Double.doubleToRawLongBits(v) == _missingBits;
+    }
+
+    /**
+     * @return value of symbols which have no value
+     */
+    public double missing() {
+        return _missing;
+    }
+}
@@ -0,0 +1,100 @@
+package common.types;
+
+import java.util.Arrays;
+
+/**
+ * Map from {@link Symbol} to objects, held in an array indexed by
+ * {@link Symbol#id()}, e.g. for limits per instrument. A lookup is one bounds
+ * check and one array load. Symbols without a value map to <code>null</code>.
+ * <p>
+ * The array grows by whole chunks to cover the highest id put. Clearing only
+ * touches the ids up to the highest id put since the last clear. Not thread
+ * safe, see {@link ConcurrentSymbolMap} for a map with a single writer and
+ * many readers.
+ *
+ * @author rstoner
+ * @param <V> value type
+ */
+public final class SymbolMap<V> {
+    private Object[] _values;
+    private int _highWater;
+
+    /**
+     * Map with room for one chunk of ids.
+     */
+    public SymbolMap() {
+        this(SymbolMaps.CHUNK_SIZE);
+    }
+
+    /**
+     * @param capacity number of ids to allocate up front
+     */
+    public SymbolMap(int capacity) {
+        _values = new Object[SymbolMaps.roundUp(capacity)];
+    }
+
+    /**
+     * @param sym symbol
+     * @return value of <code>sym</code>, or <code>null</code>
+     */
+    public V get(Symbol sym) {
+        return get(sym.id());
+    }
+
+    /**
+     * @param id symbol id, or -1 for a name which isn't in the table, as
+     *            returned by {@link SymbolTable#id(byte[], int, int, int)}
+     * @return value of the symbol with id <code>id</code>, or
+     *         <code>null</code>
+     */
+    @SuppressWarnings("unchecked")
+    public V get(int id) {
+        Object[] values = _values;
+        return id >= 0 && id < values.length ? (V) values[id] : null;
+    }
+
+    /**
+     * @param sym symbol
+     * @return <code>true</code> if <code>sym</code> has a value
+     */
+    public boolean contains(Symbol sym) {
+        return get(sym.id()) != null;
+    }
+
+    /**
+     * @param sym symbol
+     * @param value value, <code>null</code> to remove <code>sym</code>
+     * @return previous value of <code>sym</code>
+     */
+    public V put(Symbol sym, V value) {
+        int id = sym.id();
+        if (id >= _values.length) {
+            _values = Arrays.copyOf(_values, SymbolMaps.grow(_values.length,
+                    id));
+        }
+        @SuppressWarnings("unchecked")
+        V previous = (V) _values[id];
+        _values[id] = value;
+        _highWater = Math.max(_highWater, id + 1);
+        return previous;
+    }
+
+    /**
+     * @param sym symbol
+     * @return previous value of <code>sym</code>
+     */
+    public V remove(Symbol sym) {
+        if (sym.id() >= _values.length) {
+            return null;
+        }
+        return put(sym, null);
+    }
+
+    /**
+     * Removes all values.
+     */
+    public void clear() {
+        Arrays.fill(_values, 0, _highWater, null);
+        _highWater = 0;
+    }
+}
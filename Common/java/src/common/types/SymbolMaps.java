@@ -0,0 +1,37 @@
+package common.types;
+
+/**
+ * Sizing shared by the symbol indexed maps.
+ *
+ * @author rstoner
+ */
+final class SymbolMaps {
+    /** Arrays grow by multiples of this many ids */
+    static final int CHUNK_SIZE = 1024;
+
+    private SymbolMaps() {
+    }
+
+    /**
+     * @param capacity number of ids
+     * @return <code>capacity</code> rounded up to whole chunks
+     */
+    static int roundUp(int capacity) {
+        int chunks = (Math.max(capacity, 1) + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        return chunks * CHUNK_SIZE;
+    }
+
+    /**
+     * @param length current length
+     * @param id id which must fit
+     * @return new length, at least twice the current one so that adding
+     *         symbols one by one copies each value a bounded number of times
+     */
+    static int grow(int length, int id) {
+        if (id == Integer.MAX_VALUE) {
+            throw new IndexOutOfBoundsException("Symbol id too large: " + id);
+        }
+        return roundUp(Math.max(id + 1, (int) Math.min(Integer.MAX_VALUE
+                - CHUNK_SIZE, 2L * length)));
+    }
+}
@@ -0,0 +1,371 @@
+package common.types;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Interns symbol names into {@link Symbol}s with dense ids, starting at 0.
+ * <p>
+ * Lookups by name and by id never lock and finish in a bounded number of
+ * steps. Reserving a new symbol takes a lock shared only with other reserves:
+ * a new symbol is fully written before it is published, so readers never
+ * wait and never see a partially added symbol.
+ * <p>
+ * Symbols by id are kept in fixed size chunks, so growing the table never
+ * copies symbols. Symbols by name are kept in an open addressing hash table
+ * which is at most half full, and which is replaced by a copy twice its size
+ * when it fills up. A reader still probing the old copy simply doesn't see
+ * symbols reserved while it was reading.
+ * <p>
+ * Symbols can also be looked up straight from ASCII wire bytes, or from a
+ * reused {@link CharSequence}, without allocating. The hash passed to those
+ * lookups equals the hash of the name as a string, so it can be computed
+ * once while a message is parsed.
+ *
+ * @author rstoner
+ */
+public final class SymbolTable {
+    private static final int CHUNK_BITS = 12;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final int INITIAL_INDEX_SIZE = 64;
+
+    private final Object _reserveLock = new Object();
+    private volatile Symbol[][] _chunks = new Symbol[16][];
+    private volatile int _size;
+    private volatile AtomicReferenceArray<Symbol> _index =
+            new AtomicReferenceArray<>(INITIAL_INDEX_SIZE);
+
+    /**
+     * @param name symbol name
+     * @return symbol named <code>name</code>, reserved with the next id if
+     *         it wasn't in the table yet
+     */
+    public Symbol reserve(String name) {
+        Symbol sym = get(name);
+        if (sym != null) {
+            return sym;
+        }
+        synchronized (_reserveLock) {
+            sym = get(name);
+            if (sym == null) {
+                sym = add(name);
+            }
+            return sym;
+        }
+    }
+
+    private Symbol add(String name) {
+        int id = _size;
+        if (id == Integer.MAX_VALUE) {
+            throw new RuntimeException("Symbol table is full");
+        }
+        Symbol sym = new Symbol(name, id, hash(name));
+
+        Symbol[][] chunks = _chunks;
+        int chunk = id >>> CHUNK_BITS;
+        if (chunk == chunks.length) {
+            chunks = Arrays.copyOf(chunks, chunks.length * 2);
+        }
+        if (chunks[chunk] == null) {
+            chunks[chunk] = new Symbol[CHUNK_SIZE];
+        }
+        chunks[chunk][id & CHUNK_MASK] = sym;
+        _chunks = chunks;
+
+        AtomicReferenceArray<Symbol> index = _index;
+        if ((id + 1) * 2 > index.length()) {
+            index = grow(index);
+            insert(index, sym);
+            _index = index;
+        } else {
+            insert(index, sym);
+        }
+        _size = id + 1;
+        return sym;
+    }
+
+    private static AtomicReferenceArray<Symbol> grow(
+            AtomicReferenceArray<Symbol> index) {
+        AtomicReferenceArray<Symbol> grown = new AtomicReferenceArray<>(
+                index.length() * 2);
+        for (int i = 0; i < index.length(); i++) {
+            Symbol sym = index.get(i);
+            if (sym != null) {
+                insert(grown, sym);
+            }
+        }
+        return grown;
+    }
+
+    private static void insert(AtomicReferenceArray<Symbol> index,
+            Symbol sym) {
+        int mask = index.length() - 1;
+        int i = sym.hash() & mask;
+        while (index.get(i) != null) {
+            i = (i + 1) & mask;
+        }
+        index.lazySet(i, sym);
+    }
+
+    /**
+     * @param name symbol name
+     * @return symbol named <code>name</code>, or <code>null</code> if it
+     *         hasn't been reserved
+     */
+    public Symbol get(String name) {
+        AtomicReferenceArray<Symbol> index = _index;
+        int mask = index.length() - 1;
+        int i = hash(name) & mask;
+        Symbol sym;
+        while ((sym = index.get(i)) != null) {
+            if (sym.toString().equals(name)) {
+                return sym;
+            }
+            i = (i + 1) & mask;
+        }
+        return null;
+    }
+
+    /**
+     * Looks up a symbol by its ASCII encoded name, without decoding it.
+     *
+     * @param bytes buffer holding the name
+     * @param offset offset of the name
+     * @param length length of the name
+     * @param hash {@link #hash(byte[], int, int)} of the name
+     * @return symbol, or <code>null</code> if it hasn't been reserved
+     */
+    public Symbol get(byte[] bytes, int offset, int length, int hash) {
+        AtomicReferenceArray<Symbol> index = _index;
+        int mask = index.length() - 1;
+        int i = hash & mask;
+        Symbol sym;
+        while ((sym = index.get(i)) != null) {
+            if (sym.hash() == hash && equals(sym.toString(), bytes, offset,
+                    length)) {
+                return sym;
+            }
+            i = (i + 1) & mask;
+        }
+        return null;
+    }
+
+    /**
+     * @param bytes buffer holding the name
+     * @param offset offset of the name
+     * @param length length of the name
+     * @return symbol, or <code>null</code> if it hasn't been reserved
+     * @see #get(byte[], int, int, int)
+     */
+    public Symbol get(byte[] bytes, int offset, int length) {
+        return get(bytes, offset, length, hash(bytes, offset, length));
+    }
+
+    /**
+     * Looks up a symbol by its ASCII encoded name, without decoding it. The
+     * position and limit of <code>buffer</code> are not used or changed.
+     *
+     * @param buffer buffer holding the name
+     * @param offset absolute offset of the name
+     * @param length length of the name
+     * @param hash {@link #hash(ByteBuffer, int, int)} of the name
+     * @return symbol, or <code>null</code> if it hasn't been reserved
+     */
+    public Symbol get(ByteBuffer buffer, int offset, int length, int hash) {
+        AtomicReferenceArray<Symbol> index = _index;
+        int mask = index.length() - 1;
+        int i = hash & mask;
+        Symbol sym;
+        while ((sym = index.get(i)) != null) {
+            if (sym.hash() == hash && equals(sym.toString(), buffer, offset,
+                    length)) {
+                return sym;
+            }
+            i = (i + 1) & mask;
+        }
+        return null;
+    }
+
+    /**
+     * Looks up a symbol by a name held in a mutable sequence, such as a
+     * reused {@link StringBuilder}, without creating a string.
+     *
+     * @param name symbol name
+     * @param hash {@link #hash(CharSequence)} of the name
+     * @return symbol, or <code>null</code> if it hasn't been reserved
+     */
+    public Symbol get(CharSequence name, int hash) {
+        AtomicReferenceArray<Symbol> index = _index;
+        int mask = index.length() - 1;
+        int i = hash & mask;
+        Symbol sym;
+        while ((sym = index.get(i)) != null) {
+            if (sym.hash() == hash && equals(sym.toString(), name)) {
+                return sym;
+            }
+            i = (i + 1) & mask;
+        }
+        return null;
+    }
+
+    /**
+     * @param bytes buffer holding the name
+     * @param offset offset of the name
+     * @param length length of the name
+     * @param hash {@link #hash(byte[], int, int)} of the name
+     * @return id of the symbol, or -1 if it hasn't been reserved
+     */
+    public int id(byte[] bytes, int offset, int length, int hash) {
+        Symbol sym = get(bytes, offset, length, hash);
+        return sym == null ? -1 : sym.id();
+    }
+
+    /**
+     * @param buffer buffer holding the name
+     * @param offset absolute offset of the name
+     * @param length length of the name
+     * @param hash {@link #hash(ByteBuffer, int, int)} of the name
+     * @return id of the symbol, or -1 if it hasn't been reserved
+     */
+    public int id(ByteBuffer buffer, int offset, int length, int hash) {
+        Symbol sym = get(buffer, offset, length, hash);
+        return sym == null ? -1 : sym.id();
+    }
+
+    private static boolean equals(String name, byte[] bytes, int offset,
+            int length) {
+        if (name.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (name.charAt(i) != (bytes[offset + i] & 0xff)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean equals(String name, ByteBuffer buffer, int offset,
+            int length) {
+        if (name.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (name.charAt(i) != (buffer.get(offset + i) & 0xff)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean equals(String name, CharSequence seq) {
+        if (name.length() != seq.length()) {
+            return false;
+        }
+        for (int i = 0; i < name.length(); i++) {
+            if (name.charAt(i) != seq.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param id symbol id
+     * @return symbol with id <code>id</code>
+     * @throws IndexOutOfBoundsException if no symbol has that id
+     */
+    public Symbol symbol(int id) {
+        // Whoever learned the id, from size() or from a symbol found by name,
+        // read a volatile written after the symbol was added to its chunk
+        Symbol[][] chunks = _chunks;
+        if (id >= 0 && (id >>> CHUNK_BITS) < chunks.length) {
+            Symbol[] chunk = chunks[id >>> CHUNK_BITS];
+            if (chunk != null && chunk[id & CHUNK_MASK] != null) {
+                return chunk[id & CHUNK_MASK];
+            }
+        }
+        throw new IndexOutOfBoundsException(id + " must be in range [0, "
+                + _size + ")");
+    }
+
+    /**
+     * @return number of symbols, which is also the next id
+     */
+    public int size() {
+        return _size;
+    }
+
+    /**
+     * @param name symbol name
+     * @return hash of a symbol name, which spreads
+     *         {@link String#hashCode()} over the low bits
+     */
+    static int hash(String name) {
+        return spread(name.hashCode());
+    }
+
+    /**
+     * Hash of a name held in a mutable sequence, equal to the hash of the
+     * same name as a string. Callers that see the same name repeatedly
+     * can compute it once.
+     *
+     * @param name symbol name
+     * @return hash to look <code>name</code> up with
+     */
+    public static int hash(CharSequence name) {
+        int h = 0;
+        for (int i = 0; i < name.length(); i++) {
+            h = 31 * h + name.charAt(i);
+        }
+        return spread(h);
+    }
+
+    /**
+     * Hash of an ASCII encoded name, equal to the hash of the decoded name.
+     * It can be computed while the name is parsed, e.g. from a market data
+     * message.
+     *
+     * @param bytes buffer holding the name
+     * @param offset offset of the name
+     * @param length length of the name
+     * @return hash to look the name up with
+     */
+    public static int hash(byte[] bytes, int offset, int length) {
+        int h = 0;
+        for (int i = offset; i < offset + length; i++) {
+            h = 31 * h + (bytes[i] & 0xff);
+        }
+        return spread(h);
+    }
+
+    /**
+     * @param buffer buffer holding the name
+     * @param offset absolute offset of the name
+     * @param length length of the name
+     * @return hash to look the name up with
+     * @see #hash(byte[], int, int)
+     */
+    public static int hash(ByteBuffer buffer, int offset, int length) {
+        int h = 0;
+        for (int i = offset; i < offset + length; i++) {
+            h = 31 * h + (buffer.get(i) & 0xff);
+        }
+        return spread(h);
+    }
+
+    /**
+     * Folds the high bits of a string hash into the low bits used to index
+     * the hash table.
+     *
+     * @param h string hash
+     * @return spread hash
+     */
+    public static int spread(int h) {
+        h ^= (h >>> 16);
+        h *= 0x85ebca6b;
+        return h ^ (h >>> 13);
+    }
+}
@@ -0,0 +1,14 @@
+package common.validation;
+
+/**
+ * Check of a <code>double</code> value, without boxing.
+ *
+ * @author rstoner
+ */
+public interface DoubleCheck {
+    /**
+     * @param val value to validate
+     * @return <code>true</code> if <code>val</code> passes
+     */
+    boolean test(double val);
+}
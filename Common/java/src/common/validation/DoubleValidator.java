@@ -0,0 +1,261 @@
+package common.validation;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import common.Checks;
+import common.ConstraintException;
+import common.Constraints;
+
+/**
+ * {@link Validator} of <code>double</code> values, such as order prices:
+ *
+ * <pre>
+ * DoubleValidator price = DoubleValidator.builder()
+ *         .rule(&quot;number&quot;, DoubleValidator.notNaN())
+ *         .rule(&quot;positive&quot;, DoubleValidator.gt0())
+ *         .rule(&quot;band&quot;, DoubleValidator.between(low, high))
+ *         .rule(&quot;tick&quot;, DoubleValidator.tickAligned(tickSize))
+ *         .build();
+ * </pre>
+ *
+ * NaN passes the comparisons, as in {@link Constraints}, so chains
+ * which must reject it start with {@link #notNaN()}.
+ *
+ * @author rstoner
+ */
+public final class DoubleValidator extends Validator {
+    private static final double TICK_TOLERANCE = 1e-7;
+
+    private final DoubleCheck[] _checks;
+
+    private DoubleValidator(List<String> names, List<DoubleCheck> checks) {
+        super(names);
+        _checks = checks.toArray(new DoubleCheck[checks.size()]);
+    }
+
+    /**
+     * @return builder of a validator
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @param val value to validate
+     * @return index of the first rule which rejected <code>val</code>, or
+     *         {@link #VALID}
+     */
+    public int validate(double val) {
+        DoubleCheck[] checks = _checks;
+        for (int i = 0; i < checks.length; i++) {
+            if (!checks[i].test(val)) {
+                return reject(i);
+            }
+        }
+        return VALID;
+    }
+
+    /**
+     * @param val value to validate
+     * @return <code>val</code> if it passes every rule
+     * @throws ConstraintException naming the rule which rejected
+     *             <code>val</code>
+     */
+    public double check(double val) {
+        int stage = validate(val);
+        if (stage != VALID) {
+            throw new ConstraintException(val + " rejected by " + name(stage));
+        }
+        return val;
+    }
+
+    /**
+     * @param next validator to run after this one
+     * @return new validator with the rules of this and then <code>next</code>,
+     *         and its own counters
+     */
+    public DoubleValidator and(DoubleValidator next) {
+        Builder builder = new Builder();
+        for (int i = 0; i < stages(); i++) {
+            builder.rule(name(i), _checks[i]);
+        }
+        for (int i = 0; i < next.stages(); i++) {
+            builder.rule(next.name(i), next._checks[i]);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Builder of a {@link DoubleValidator}.
+     */
+    public static final class Builder {
+        private final List<String> _names = new ArrayList<>();
+        private final List<DoubleCheck> _checks = new ArrayList<>();
+
+        private Builder() {
+        }
+
+        /**
+         * @param name name of the rule, used in counters and messages
+         * @param check check of the rule
+         * @return this builder
+         */
+        public Builder rule(String name, DoubleCheck check) {
+            _names.add(name);
+            _checks.add(check);
+            return this;
+        }
+
+        /**
+         * @return validator running the rules in the order they were added
+         */
+        public DoubleValidator build() {
+            return new DoubleValidator(_names, _checks);
+        }
+    }
+
+    /**
+     * @return check that values are greater than 0
+     * @see Checks#gt0(double)
+     */
+    public static DoubleCheck gt0() {
+        return gt(0);
+    }
+
+    /**
+     * @return check that values are greater than or equal to 0
+     * @see Checks#gte0(double)
+     */
+    public static DoubleCheck gte0() {
+        return gte(0);
+    }
+
+    /**
+     * @return check that values are not 0
+     * @see Checks#neq0(double)
+     */
+    public static DoubleCheck neq0() {
+        return new DoubleCheck() {
+            @Override
+            public boolean test(double val) {
+                return Checks.neq0(val) == Checks.OK;
+            }
+        };
+    }
+
+    /**
+     * @param expect exclusive lower limit
+     * @return check that values are greater than <code>expect</code>
+     * @see Checks#gt(double, double)
+     */
+    public static DoubleCheck gt(final double expect) {
+        return new DoubleCheck() {
+            @Override
+            public boolean test(double val) {
+                return Checks.gt(expect, val) == Checks.OK;
+            }
+        };
+    }
+
+    /**
+     * @param expect inclusive lower limit
+     * @return check that values are greater than or equal to
+     *         <code>expect</code>
+     * @see Checks#gte(double, double)
+     */
+    public static DoubleCheck gte(final double expect) {
+        return new DoubleCheck() {
+            @Override
+            public boolean test(double val) {
+                return Checks.gte(expect, val) == Checks.OK;
+            }
+        };
+    }
+
+    /**
+     * @param expect exclusive upper limit
+     * @return check that values are less than <code>expect</code>
+     * @see Checks#lt(double, double)
+     */
+    public static DoubleCheck lt(final double expect) {
+        return new DoubleCheck() {
+            @Override
+            public boolean test(double val) {
+                return Checks.lt(expect, val) == Checks.OK;
+            }
+        };
+    }
+
+    /**
+     * @param expect inclusive upper limit
+     * @return check that values are less than or equal to <code>expect</code>
+     * @see Checks#lte(double, double)
+     */
+    public static DoubleCheck lte(final double expect) {
+        return new DoubleCheck() {
+            @Override
+            public boolean test(double val) {
+                return Checks.lte(expect, val) == Checks.OK;
+            }
+        };
+    }
+
+    /**
+     * @param low Low limit (exclusive)
+     * @param high High limit (exclusive)
+     * @return check that values are in the range (low, high)
+     * @see Checks#between(double, double, double)
+     */
+    public static DoubleCheck between(final double low, final double high) {
+        return new DoubleCheck() {
+            @Override
+            public boolean test(double val) {
+                return Checks.between(low, high, val) == Checks.OK;
+            }
+        };
+    }
+
+    /**
+     * @param low Low limit (inclusive)
+     * @param high High limit (inclusive)
+     * @return check that values are in the range [low, high]
+     * @see Checks#in(double, double, double)
+     */
+    public static DoubleCheck in(final double low, final double high) {
+        return new DoubleCheck() {
+            @Override
+            public boolean test(double val) {
+                return Checks.in(low, high, val) == Checks.OK;
+            }
+        };
+    }
+
+    /**
+     * @return check that values are not NaN
+     */
+    public static DoubleCheck notNaN() {
+        return new DoubleCheck() {
+            @Override
+            public boolean test(double val) {
+                return !Double.isNaN(val);
+            }
+        };
+    }
+
+    /**
+     * @param tick tick size, greater than 0
+     * @return check that values are whole multiples of <code>tick</code>, up
+     *         to rounding errors of the decimal prices
+     */
+    public static DoubleCheck tickAligned(final double tick) {
+        Constraints.gt0(tick);
+        return new DoubleCheck() {
+            @Override
+            public boolean test(double val) {
+                double ticks = val / tick;
+                return Math.abs(ticks - Math.rint(ticks)) <= TICK_TOLERANCE;
+            }
+        };
+    }
+}
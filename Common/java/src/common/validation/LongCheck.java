@@ -0,0 +1,14 @@
+package common.validation;
+
+/**
+ * Check of a <code>long</code> value, without boxing.
+ *
+ * @author rstoner
+ */
+public interface LongCheck {
+    /**
+     * @param val value to validate
+     * @return <code>true</code> if <code>val</code> passes
+     */
+    boolean test(long val);
+}
@@ -0,0 +1,257 @@
+package common.validation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import common.Checks;
+import common.ConstraintException;
+import common.Constraints;
+
+/**
+ * {@link Validator} of <code>long</code> values, such as order quantities:
+ *
+ * <pre>
+ * LongValidator qty = LongValidator.builder()
+ *         .rule(&quot;positive&quot;, LongValidator.gt0())
+ *         .rule(&quot;maxQty&quot;, LongValidator.lte(maxQty))
+ *         .rule(&quot;lotSize&quot;, LongValidator.multipleOf(lotSize))
+ *         .build();
+ * </pre>
+ *
+ * @author rstoner
+ */
+public final class LongValidator extends Validator {
+    private final LongCheck[] _checks;
+
+    private LongValidator(List<String> names, List<LongCheck> checks) {
+        super(names);
+        _checks = checks.toArray(new LongCheck[checks.size()]);
+    }
+
+    /**
+     * @return builder of a validator
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @param val value to validate
+     * @return index of the first rule which rejected <code>val</code>, or
+     *         {@link #VALID}
+     */
+    public int validate(long val) {
+        LongCheck[] checks = _checks;
+        for (int i = 0; i < checks.length; i++) {
+            if (!checks[i].test(val)) {
+                return reject(i);
+            }
+        }
+        return VALID;
+    }
+
+    /**
+     * @param val value to validate
+     * @return <code>val</code> if it passes every rule
+     * @throws ConstraintException naming the rule which rejected
+     *             <code>val</code>
+     */
+    public long check(long val) {
+        int stage = validate(val);
+        if (stage != VALID) {
+            throw new ConstraintException(val + " rejected by " + name(stage));
+        }
+        return val;
+    }
+
+    /**
+     * @param next validator to run after this one
+     * @return new validator with the rules of this and then <code>next</code>,
+     *         and its own counters
+     */
+    public LongValidator and(LongValidator next) {
+        Builder builder = new Builder();
+        for (int i = 0; i < stages(); i++) {
+            builder.rule(name(i), _checks[i]);
+        }
+        for (int i = 0; i < next.stages(); i++) {
+            builder.rule(next.name(i), next._checks[i]);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Builder of a {@link LongValidator}.
+     */
+    public static final class Builder {
+        private final List<String> _names = new ArrayList<>();
+        private final List<LongCheck> _checks = new ArrayList<>();
+
+        private Builder() {
+        }
+
+        /**
+         * @param name name of the rule, used in counters and messages
+         * @param check check of the rule
+         * @return this builder
+         */
+        public Builder rule(String name, LongCheck check) {
+            _names.add(name);
+            _checks.add(check);
+            return this;
+        }
+
+        /**
+         * @return validator running the rules in the order they were added
+         */
+        public LongValidator build() {
+            return new LongValidator(_names, _checks);
+        }
+    }
+
+    /**
+     * @return check that values are greater than 0
+     * @see Checks#gt0(long)
+     */
+    public static LongCheck gt0() {
+        return gt(0);
+    }
+
+    /**
+     * @return check that values are greater than or equal to 0
+     * @see Checks#gte0(long)
+     */
+    public static LongCheck gte0() {
+        return gte(0);
+    }
+
+    /**
+     * @return check that values are not 0
+     * @see Checks#neq0(long)
+     */
+    public static LongCheck neq0() {
+        return new LongCheck() {
+            @Override
+            public boolean test(long val) {
+                return Checks.neq0(val) == Checks.OK;
+            }
+        };
+    }
+
+    /**
+     * @param expect exclusive lower limit
+     * @return check that values are greater than <code>expect</code>
+     * @see Checks#gt(long, long)
+     */
+    public static LongCheck gt(final long expect) {
+        return new LongCheck() {
+            @Override
+            public boolean test(long val) {
+                return Checks.gt(expect, val) == Checks.OK;
+            }
+        };
+    }
+
+    /**
+     * @param expect inclusive lower limit
+     * @return check that values are greater than or equal to
+     *         <code>expect</code>
+     * @see Checks#gte(long, long)
+     */
+    public static LongCheck gte(final long expect) {
+        return new LongCheck() {
+            @Override
+            public boolean test(long val) {
+                return Checks.gte(expect, val) == Checks.OK;
+            }
+        };
+    }
+
+    /**
+     * @param expect exclusive upper limit
+     * @return check that values are less than <code>expect</code>
+     * @see Checks#lt(long, long)
+     */
+    public static LongCheck lt(final long expect) {
+        return new LongCheck() {
+            @Override
+            public boolean test(long val) {
+                return Checks.lt(expect, val) == Checks.OK;
+            }
+        };
+    }
+
+    /**
+     * @param expect inclusive upper limit
+     * @return check that values are less than or equal to <code>expect</code>
+     * @see Checks#lte(long, long)
+     */
+    public static LongCheck lte(final long expect) {
+        return new LongCheck() {
+            @Override
+            public boolean test(long val) {
+                return Checks.lte(expect, val) == Checks.OK;
+            }
+        };
+    }
+
+    /**
+     * @param low Low limit (exclusive)
+     * @param high High limit (exclusive)
+     * @return check that values are in the range (low, high)
+     * @see Checks#between(long, long, long)
+     */
+    public static LongCheck between(final long low, final long high) {
+        return new LongCheck() {
+            @Override
+            public boolean test(long val) {
+                return Checks.between(low, high, val) == Checks.OK;
+            }
+        };
+    }
+
+    /**
+     * @param low Low limit (inclusive)
+     * @param high High limit (inclusive)
+     * @return check that values are in the range [low, high]
+     * @see Checks#in(long, long, long)
+     */
+    public static LongCheck in(final long low, final long high) {
+        return new LongCheck() {
+            @Override
+            public boolean test(long val) {
+                return Checks.in(low, high, val) == Checks.OK;
+            }
+        };
+    }
+
+    /**
+     * @param unit lot size, greater than 0
+     * @return check that values are whole multiples of <code>unit</code>
+     */
+    public static LongCheck multipleOf(final long unit) {
+        Constraints.gt0(unit);
+        return new LongCheck() {
+            @Override
+            public boolean test(long val) {
+                return val % unit == 0;
+            }
+        };
+    }
+
+    /**
+     * @param values allowed values
+     * @return check that values are one of <code>values</code>
+     */
+    public static LongCheck oneOf(long... values) {
+        final long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return new LongCheck() {
+            @Override
+            public boolean test(long val) {
+                return Arrays.binarySearch(sorted, val) >= 0;
+            }
+        };
+    }
+}
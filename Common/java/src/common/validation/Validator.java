@@ -0,0 +1,88 @@
+package common.validation;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Immutable chain of named rules, built once, e.g. from configuration, and
+ * run on every value without allocating. Validating returns the index of the
+ * first rule which rejected the value, or {@link #VALID}, and counts
+ * rejections per rule, so that it's visible which rule rejects how often.
+ * Validators may be shared by threads.
+ *
+ * @author rstoner
+ */
+public abstract class Validator {
+    /** Returned by validations which pass every rule */
+    public static final int VALID = -1;
+
+    private final String[] _names;
+    private final AtomicLongArray _rejections;
+
+    Validator(List<String> names) {
+        _names = names.toArray(new String[names.size()]);
+        _rejections = new AtomicLongArray(_names.length);
+    }
+
+    final int reject(int stage) {
+        _rejections.incrementAndGet(stage);
+        return stage;
+    }
+
+    /**
+     * @return number of rules
+     */
+    public final int stages() {
+        return _names.length;
+    }
+
+    /**
+     * @param stage index of a rule
+     * @return name of the rule
+     */
+    public final String name(int stage) {
+        return _names[stage];
+    }
+
+    /**
+     * @param stage index of a rule
+     * @return number of values the rule rejected
+     */
+    public final long rejections(int stage) {
+        return _rejections.get(stage);
+    }
+
+    /**
+     * @return number of values rejected by any rule
+     */
+    public final long rejections() {
+        long total = 0;
+        for (int i = 0; i < _names.length; i++) {
+            total += _rejections.get(i);
+        }
+        return total;
+    }
+
+    /**
+     * Sets the rejection counters back to 0.
+     */
+    public final void resetCounters() {
+        for (int i = 0; i < _names.length; i++) {
+            _rejections.set(i, 0);
+        }
+    }
+
+    /**
+     * @return rules with their rejection counts, e.g.
+     *         <code>[positive=0, band=12]</code>
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < _names.length; i++) {
+            sb.append(i == 0 ? "" : ", ").append(_names[i]).append('=')
+                    .append(_rejections.get(i));
+        }
+        return sb.append(']').toString();
+    }
+}
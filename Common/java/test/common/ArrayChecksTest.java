@@ -0,0 +1,122 @@
+package common;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.LongBuffer;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link ArrayChecks}.
+ *
+ * @author rstoner
+ */
+public class ArrayChecksTest {
+    /***/
+    @Test
+    public void firstFailure() {
+        long[] qtys = {1, 2, 3, 4, 5, 6, 7, 8, 9};
+        assertEquals(-1, ArrayChecks.gt0(qtys, 0, qtys.length));
+        assertEquals(-1, ArrayChecks.increasing(qtys, 0, qtys.length));
+        assertEquals(1, ArrayChecks.decreasing(qtys, 0, qtys.length));
+        assertEquals(-1, ArrayChecks.between(0, 10, qtys, 0, qtys.length));
+        assertEquals(8, ArrayChecks.between(0, 9, qtys, 0, qtys.length));
+        // Every position, in and after the unrolled blocks
+        for (int bad = 0; bad < qtys.length; bad++) {
+            long[] vals = qtys.clone();
+            vals[bad] = 0;
+            assertEquals(bad, ArrayChecks.gt0(vals, 0, vals.length));
+            assertEquals(bad, ArrayChecks.neq0(vals, 0, vals.length));
+            assertEquals(-1, ArrayChecks.gte0(vals, 0, vals.length));
+            vals[bad] = -1;
+            assertEquals(bad, ArrayChecks.gte0(vals, 0, vals.length));
+            vals[bad] = 5;
+            assertEquals(bad < 4 ? bad + 1 : bad == 4 ? -1 : bad,
+                    ArrayChecks.increasing(vals, 0, vals.length));
+        }
+        assertEquals(-1, ArrayChecks.gt0(new long[] {0, 1, 0}, 1, 2));
+    }
+
+    /***/
+    @Test
+    public void doubles() {
+        double[] asks = {100.25, 100.5, 100.75, 101.0, 101.25, 101.5};
+        assertEquals(-1, ArrayChecks.increasing(asks, 0, asks.length));
+        assertEquals(-1, ArrayChecks.between(100.0, 102.0, asks, 0,
+                asks.length));
+        assertEquals(4, ArrayChecks.between(100.0, 101.25, asks, 0,
+                asks.length));
+        assertEquals(-1, ArrayChecks.noNaN(asks, 0, asks.length));
+        asks[5] = Double.NaN;
+        assertEquals(5, ArrayChecks.noNaN(asks, 0, asks.length));
+        // As in Constraints, NaN passes the other checks
+        assertEquals(-1, ArrayChecks.gt0(asks, 0, asks.length));
+        asks[2] = 100.5;
+        assertEquals(2, ArrayChecks.increasing(asks, 0, asks.length));
+        assertEquals(1, ArrayChecks.decreasing(asks, 0, asks.length));
+    }
+
+    /***/
+    @Test
+    public void buffers() {
+        double[] bids = {0, 99.75, 99.5, 99.25, 99.0, 98.75, 98.5};
+        DoubleBuffer heap = DoubleBuffer.wrap(bids);
+        heap.position(1);
+        DoubleBuffer slice = heap.slice();
+        assertEquals(-1, ArrayChecks.decreasing(slice));
+        assertEquals(-1, ArrayChecks.gt0(slice));
+        assertEquals(0, ArrayChecks.gt0(DoubleBuffer.wrap(bids)));
+        assertEquals(3, ArrayChecks.between(99.0, 100.0, slice));
+
+        DoubleBuffer direct = ByteBuffer.allocateDirect(8 * bids.length)
+                .asDoubleBuffer();
+        direct.put(bids).flip();
+        direct.position(1);
+        assertEquals(-1, ArrayChecks.decreasing(direct));
+        assertEquals(4, ArrayChecks.between(99.0, 100.0, direct));
+        assertEquals(1, direct.position());
+
+        LongBuffer qtys = ByteBuffer.allocateDirect(8 * 6).asLongBuffer();
+        qtys.put(new long[] {5, 4, 3, 2, 1, 0}).flip();
+        assertEquals(5, ArrayChecks.gt0(qtys));
+        assertEquals(-1, ArrayChecks.decreasing(qtys));
+        assertEquals(1, ArrayChecks.increasing(qtys));
+        assertEquals(0, ArrayChecks.between(0, 5, qtys));
+        assertEquals(5, ArrayChecks.neq0(qtys));
+        assertEquals(-1, ArrayChecks.gte0(qtys));
+        qtys.put(2, -3);
+        assertEquals(2, ArrayChecks.gte0(qtys));
+        qtys.position(3);
+        assertEquals(-1, ArrayChecks.gte0(qtys));
+        assertEquals(5, ArrayChecks.neq0(LongBuffer.wrap(new long[] {0, 5, 4,
+            3, 2, 1, 0}, 1, 6).slice()));
+    }
+
+    /***/
+    @Test
+    public void signBuffers() {
+        double[] deltas = {-1.0, 0.5, 0.0, 1.5, -0.0, 2.0};
+        DoubleBuffer heap = DoubleBuffer.wrap(deltas);
+        assertEquals(0, ArrayChecks.gte0(heap));
+        assertEquals(2, ArrayChecks.neq0(heap));
+        heap.position(1);
+        assertEquals(-1, ArrayChecks.gte0(heap));
+
+        DoubleBuffer direct = ByteBuffer.allocateDirect(8 * deltas.length)
+                .asDoubleBuffer();
+        direct.put(deltas).flip();
+        assertEquals(0, ArrayChecks.gte0(direct));
+        assertEquals(2, ArrayChecks.neq0(direct));
+        direct.position(3);
+        // -0.0 equals 0, as in Constraints
+        assertEquals(-1, ArrayChecks.gte0(direct));
+        assertEquals(4, ArrayChecks.neq0(direct));
+        assertEquals(3, direct.position());
+
+        DoubleBuffer slice = heap.slice();
+        slice.put(1, -0.5);
+        assertEquals(1, ArrayChecks.gte0(slice));
+    }
+}
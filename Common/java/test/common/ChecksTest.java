@@ -0,0 +1,96 @@
+package common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link Checks} and {@link ConstraintResult}.
+ *
+ * @author rstoner
+ */
+public class ChecksTest {
+    /***/
+    @Test
+    public void statusCodes() {
+        assertEquals(Checks.OK, Checks.gt0(1));
+        assertEquals(Checks.GT, Checks.gt0(0));
+        assertEquals(Checks.OK, Checks.gte0(0L));
+        assertEquals(Checks.LT, Checks.lt(5, 5));
+        assertEquals(Checks.OK, Checks.lte(5, 5));
+        assertEquals(Checks.NEQ, Checks.neq0(0.0));
+        assertEquals(Checks.EQ, Checks.eq(1.5, 1.25));
+        assertEquals(Checks.BETWEEN, Checks.between(1, 3, 3));
+        assertEquals(Checks.OK, Checks.in(1, 3, 3));
+        assertEquals(Checks.IN, Checks.in(1.0, 3.0, 3.5));
+        assertEquals(Checks.TRUE, Checks.tru(false));
+        assertEquals(Checks.NOT_EMPTY, Checks.notEmpty(""));
+        assertEquals(Checks.NOT_NULL, Checks.notEmpty(null));
+    }
+
+    /***/
+    @Test
+    public void sameAsConstraints() {
+        long[] values = {Long.MIN_VALUE, -2, -1, 0, 1, 2, Long.MAX_VALUE};
+        for (long expect : values) {
+            for (long val : values) {
+                assertEquals(passes(expect, val), Checks.gt(expect, val)
+                        == Checks.OK);
+            }
+        }
+    }
+
+    private static boolean passes(long expect, long val) {
+        try {
+            Constraints.gt(expect, val);
+            return true;
+        } catch (ConstraintException e) {
+            return false;
+        }
+    }
+
+    /***/
+    @Test
+    public void resultKeepsFirstFailure() {
+        ConstraintResult result = new ConstraintResult();
+        assertTrue(result.gt0(10) && result.between(99.5, 100.5, 100.0));
+        assertNull(result.message());
+        result.throwIfFailed();
+
+        assertFalse(result.between(99.5, 100.5, 101.0));
+        assertFalse(result.gt0(10));
+        assertEquals(Checks.BETWEEN, result.status());
+        assertEquals(101.0, result.doubleValue(), 0.0);
+        assertEquals("101.0 must be in range (99.5, 100.5)", result.message());
+
+        assertFalse(result.reset().gte(5, 4));
+        assertEquals("4 must be greater than or equal to 5", result.message());
+        try {
+            result.throwIfFailed();
+            fail();
+        } catch (ConstraintException e) {
+            assertEquals(result.message(), e.getMessage());
+            assertTrue(e.getStackTrace().length > 0);
+        }
+    }
+
+    /***/
+    @Test
+    public void stackless() {
+        ConstraintResult result = new ConstraintResult(true);
+        result.notEmpty("");
+        try {
+            result.throwIfFailed();
+            fail();
+        } catch (ConstraintException e) {
+            assertSame(Checks.exception(Checks.NOT_EMPTY), e);
+            assertEquals("Value must not be empty", e.getMessage());
+            assertEquals(0, e.getStackTrace().length);
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+import org.junit.Test;
+
+/**
+ * Tests for the comparisons of {@link Constraints}, called reflectively so
+ * that every primitive overload is covered by the same cases.
+ *
+ * @author rstoner
+ */
+public class ConstraintsTest {
+    private static final Class<?>[] TYPES = {byte.class, short.class,
+        char.class, int.class, long.class, float.class, double.class};
+
+    /***/
+    @Test
+    public void charMessages() {
+        assertEquals("97 must equal 98", failure(char.class, "eq", 98, 'a'));
+        assertEquals("97 must not equal 97", failure(char.class, "neq", 97,
+                'a'));
+        assertEquals("97 must be less than 97", failure(char.class, "lt", 97,
+                'a'));
+        assertEquals("98 must be less than or equal to 97", failure(
+                char.class, "lte", 97, 'b'));
+        assertEquals("97 must be greater than 97", failure(char.class, "gt",
+                97, 'a'));
+        assertEquals("97 must be greater than or equal to 98", failure(
+                char.class, "gte", 98, 'a'));
+        assertEquals("97 must be in range (97, 99)", failure(char.class,
+                "between", 97, 99, 'a'));
+        assertEquals("100 must be in range [97, 99]", failure(char.class,
+                "in", 97, 99, 'd'));
+    }
+
+    /***/
+    @Test
+    public void floatingPointMessages() {
+        assertEquals("1.5 must equal 2.0", failure(double.class, "eq", 2.0,
+                1.5));
+        assertEquals("1.5 must be less than 1.5", failure(double.class, "lt",
+                1.5, 1.5));
+        assertEquals("2.5 must be in range [1.0, 2.0]", failure(double.class,
+                "in", 1.0, 2.0, 2.5));
+        assertEquals("1.5 must not equal 1.5", failure(float.class, "neq",
+                1.5f, 1.5f));
+        assertEquals("1.5 must be greater than or equal to 2.0", failure(
+                float.class, "gte", 2f, 1.5f));
+        assertEquals("2.0 must be in range (1.0, 2.0)", failure(float.class,
+                "between", 1f, 2f, 2f));
+    }
+
+    /**
+     * <code>lt</code>, <code>lte</code> and <code>gt</code> used to only throw
+     * when the value was below the expected value, so that <code>lt</code>
+     * and <code>lte</code> rejected exactly the values they should accept.
+     */
+    @Test
+    public void comparisons() {
+        for (Class<?> type : TYPES) {
+            // Rejected before, accepted now
+            assertNull(failure(type, "lt", 5, 3));
+            assertNull(failure(type, "lte", 5, 3));
+            // Accepted before, rejected now
+            assertEquals(7, failed(type, "lt", 5, 7));
+            assertEquals(5, failed(type, "lt", 5, 5));
+            assertEquals(7, failed(type, "lte", 5, 7));
+            assertEquals(5, failed(type, "gt", 5, 5));
+            // Unchanged
+            assertNull(failure(type, "lte", 5, 5));
+            assertNull(failure(type, "gt", 5, 7));
+            assertEquals(3, failed(type, "gt", 5, 3));
+            assertNull(failure(type, "gte", 5, 5));
+            assertEquals(3, failed(type, "gte", 5, 3));
+        }
+    }
+
+    /**
+     * @return value in the message of the exception thrown by the
+     *         <code>type</code> overload of <code>method</code>
+     */
+    private static int failed(Class<?> type, String method, int expect,
+            int val) {
+        String message = failure(type, method, expect, val);
+        assertNotNull(type + " " + method + "(" + expect + ", " + val + ")",
+                message);
+        return (int) Double.parseDouble(message.substring(0, message
+                .indexOf(' ')));
+    }
+
+    private static String failure(Class<?> type, String method, int expect,
+            int val) {
+        return failure(type, method, convert(type, expect), convert(type,
+                val));
+    }
+
+    private static Object convert(Class<?> type, int v) {
+        if (type == byte.class) {
+            return (byte) v;
+        } else if (type == short.class) {
+            return (short) v;
+        } else if (type == char.class) {
+            return (char) v;
+        } else if (type == long.class) {
+            return (long) v;
+        } else if (type == float.class) {
+            return (float) v;
+        } else if (type == double.class) {
+            return (double) v;
+        }
+        return v;
+    }
+
+    /**
+     * Calls the overload of <code>method</code> whose value parameter is of
+     * <code>type</code>. Limits are passed as <code>int</code> to the
+     * overloads of narrower integral types, like the overloads declare them.
+     *
+     * @return message of the {@link ConstraintException} thrown, or
+     *         <code>null</code> if the value passed
+     */
+    private static String failure(Class<?> type, String method,
+            Object... args) {
+        Class<?> limit = type == byte.class || type == short.class
+                || type == char.class ? int.class : type;
+        Class<?>[] params = new Class<?>[args.length];
+        for (int i = 0; i < params.length; i++) {
+            params[i] = i < params.length - 1 ? limit : type;
+        }
+        try {
+            Method m = Constraints.class.getMethod(method, params);
+            m.invoke(null, args);
+            return null;
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof ConstraintException) {
+                return e.getCause().getMessage();
+            }
+            throw new RuntimeException(e.getCause());
+        } catch (ReflectiveOperationException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
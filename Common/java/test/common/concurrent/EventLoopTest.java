@@ -0,0 +1,217 @@
+package common.concurrent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.BitSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+/**
+ * Tests for {@link EventLoop} and {@link CpuAffinity}.
+ *
+ * @author rstoner
+ */
+public class EventLoopTest {
+    /***/
+    @Test
+    public void confinement() throws Exception {
+        EventLoop loop = new EventLoop("test-loop");
+        final SameThread before = new SameThread();
+        loop.bind(before);
+        loop.start();
+        final SameThread after = new SameThread();
+        loop.bind(after);
+        assertFalse(before.check());
+
+        final AtomicBoolean confined = new AtomicBoolean();
+        final CountDownLatch ran = new CountDownLatch(1);
+        assertTrue(loop.execute(new Runnable() {
+            @Override
+            public void run() {
+                confined.set(before.check() && after.check());
+                ran.countDown();
+            }
+        }));
+        assertTrue(ran.await(5, TimeUnit.SECONDS));
+        assertTrue(confined.get());
+        loop.stop();
+    }
+
+    /***/
+    @Test
+    public void pollers() throws Exception {
+        final EventLoop loop = new EventLoop("test-loop");
+        final AtomicInteger polls = new AtomicInteger();
+        final CountDownLatch polled = new CountDownLatch(10);
+        loop.add(new EventLoop.Poller() {
+            @Override
+            public int poll() {
+                polls.incrementAndGet();
+                polled.countDown();
+                return 0;
+            }
+        });
+        loop.start();
+        // Idle, so the loop parks between polls, and keeps polling
+        assertTrue(polled.await(5, TimeUnit.SECONDS));
+
+        final CountDownLatch added = new CountDownLatch(1);
+        loop.execute(new Runnable() {
+            @Override
+            public void run() {
+                loop.add(new EventLoop.Poller() {
+                    @Override
+                    public int poll() {
+                        added.countDown();
+                        return 0;
+                    }
+                });
+            }
+        });
+        assertTrue(added.await(5, TimeUnit.SECONDS));
+        loop.stop();
+        int stopped = polls.get();
+        Thread.sleep(20);
+        assertEquals(stopped, polls.get());
+    }
+
+    /***/
+    @Test(expected = IllegalStateException.class)
+    public void addFromOtherThread() {
+        EventLoop loop = new EventLoop("test-loop");
+        loop.start();
+        try {
+            loop.add(new EventLoop.Poller() {
+                @Override
+                public int poll() {
+                    return 0;
+                }
+            });
+        } finally {
+            try {
+                loop.stop();
+            } catch (InterruptedException e) {
+                throw new AssertionError(e);
+            }
+        }
+    }
+
+    /***/
+    @Test
+    public void bindClaimedBeforeStart() throws Exception {
+        EventLoop loop = new EventLoop("test-loop");
+        SameThread claimed = new SameThread();
+        assertTrue(claimed.check());
+        try {
+            loop.bind(claimed);
+            fail();
+        } catch (IllegalStateException e) {
+            // Expected
+        }
+
+        // Claimed between bind() and start(): nothing is bound and the
+        // loop can still start
+        SameThread free = new SameThread();
+        SameThread late = new SameThread();
+        loop.bind(free);
+        loop.bind(late);
+        assertTrue(late.check());
+        try {
+            loop.start();
+            fail();
+        } catch (IllegalStateException e) {
+            // Expected
+        }
+        assertNull(free.expected());
+        loop.start();
+        assertNotNull(free.expected());
+        assertFalse(free.check());
+        loop.stop();
+    }
+
+    /**
+     * A {@link SameThread} claimed while the others are bound must not leave
+     * them expecting a thread which never starts.
+     */
+    @Test
+    public void bindClaimedDuringStart() throws Exception {
+        for (int i = 0; i < 200; i++) {
+            EventLoop loop = new EventLoop("test-loop");
+            final SameThread free = new SameThread();
+            final SameThread contested = new SameThread();
+            loop.bind(free);
+            loop.bind(contested);
+            final CountDownLatch ready = new CountDownLatch(1);
+            Thread claimer = new Thread() {
+                @Override
+                public void run() {
+                    ready.countDown();
+                    contested.check();
+                }
+            };
+            claimer.start();
+            ready.await();
+            try {
+                loop.start();
+            } catch (IllegalStateException e) {
+                if (free.expected() == null) {
+                    // Claimed before binding any
+                    loop.start();
+                }
+            }
+            claimer.join();
+
+            final AtomicBoolean confined = new AtomicBoolean();
+            final CountDownLatch ran = new CountDownLatch(1);
+            assertTrue(loop.execute(new Runnable() {
+                @Override
+                public void run() {
+                    confined.set(free.check());
+                    ran.countDown();
+                }
+            }));
+            assertTrue(ran.await(5, TimeUnit.SECONDS));
+            assertTrue(confined.get());
+            loop.stop();
+        }
+    }
+
+    /***/
+    @Test
+    public void cpuList() {
+        BitSet cpus = CpuAffinity.parseCpuList("0,2-4,7\n");
+        assertEquals("{0, 2, 3, 4, 7}", cpus.toString());
+        assertTrue(CpuAffinity.parseCpuList("").isEmpty());
+    }
+
+    /***/
+    @Test
+    public void pin() throws Exception {
+        BitSet online = CpuAffinity.onlineCpus();
+        Assume.assumeTrue(!online.isEmpty()
+                && CpuAffinity.currentThreadId() > 0);
+        EventLoop loop = new EventLoop("pinned-loop", online.nextSetBit(0),
+                EventLoop.BUSY, 16);
+        loop.start();
+        final CountDownLatch ran = new CountDownLatch(1);
+        loop.execute(new Runnable() {
+            @Override
+            public void run() {
+                ran.countDown();
+            }
+        });
+        assertTrue(ran.await(5, TimeUnit.SECONDS));
+        loop.stop();
+        assertTrue(loop.pinned());
+    }
+}
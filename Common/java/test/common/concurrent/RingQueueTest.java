@@ -0,0 +1,178 @@
+package common.concurrent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+/**
+ * Tests for the {@link RingQueue}s.
+ *
+ * @author rstoner
+ */
+public class RingQueueTest {
+    private static final int COUNT = 100000;
+
+    /***/
+    @Test
+    public void singleThreaded() {
+        List<RingQueue<Integer>> queues = new ArrayList<>();
+        queues.add(new SpscQueue<Integer>(3));
+        queues.add(new MpscQueue<Integer>(3));
+        queues.add(new SpmcQueue<Integer>(3));
+        for (RingQueue<Integer> queue : queues) {
+            assertEquals(4, queue.capacity());
+            assertTrue(queue.isEmpty());
+            assertNull(queue.poll());
+            for (int i = 0; i < 4; i++) {
+                assertTrue(queue.offer(i));
+            }
+            assertFalse(queue.offer(4));
+            assertEquals(-1, queue.claim(1));
+            assertEquals(4, queue.size());
+            assertEquals(0, (int) queue.poll());
+
+            final List<Integer> drained = new ArrayList<>();
+            RingQueue.Consumer<Integer> consumer =
+                    new RingQueue.Consumer<Integer>() {
+                        @Override
+                        public void accept(Integer element) {
+                            drained.add(element);
+                        }
+                    };
+            assertEquals(2, queue.drain(consumer, 2));
+            assertEquals(1, queue.size());
+
+            long seq = queue.claim(3);
+            assertEquals(4, seq);
+            for (int i = 0; i < 3; i++) {
+                queue.set(seq + i, 4 + i);
+            }
+            queue.publish(seq + 3);
+            assertEquals(4, queue.drain(consumer, 10));
+            assertEquals("[1, 2, 3, 4, 5, 6]", drained.toString());
+            assertTrue(queue.isEmpty());
+        }
+    }
+
+    /***/
+    @Test
+    public void spsc() throws Exception {
+        final SpscQueue<Integer> queue = new SpscQueue<>(64);
+        Thread producer = start(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < COUNT; i++) {
+                    while (!queue.offer(i)) {
+                        Thread.yield();
+                    }
+                }
+            }
+        });
+        int next = 0;
+        while (next < COUNT) {
+            Integer e = queue.poll();
+            if (e != null) {
+                assertEquals(next++, (int) e);
+            } else {
+                Thread.yield();
+            }
+        }
+        producer.join();
+    }
+
+    /***/
+    @Test
+    public void mpsc() throws Exception {
+        final MpscQueue<long[]> queue = new MpscQueue<>(64);
+        int producers = 3;
+        for (int p = 0; p < producers; p++) {
+            final int id = p;
+            start(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < COUNT; i++) {
+                        while (!queue.offer(new long[] {id, i})) {
+                            Thread.yield();
+                        }
+                    }
+                }
+            });
+        }
+        final long[] next = new long[producers];
+        RingQueue.Consumer<long[]> consumer = new RingQueue.Consumer<long[]>() {
+            @Override
+            public void accept(long[] e) {
+                // In order per producer
+                assertEquals(next[(int) e[0]]++, e[1]);
+            }
+        };
+        int taken = 0;
+        while (taken < producers * COUNT) {
+            int n = queue.drain(consumer, 16);
+            if (n == 0) {
+                Thread.yield();
+            }
+            taken += n;
+        }
+        assertNull(queue.poll());
+    }
+
+    /***/
+    @Test
+    public void spmc() throws Exception {
+        final SpmcQueue<Integer> queue = new SpmcQueue<>(64);
+        final AtomicIntegerArray seen = new AtomicIntegerArray(COUNT);
+        final AtomicInteger taken = new AtomicInteger();
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread[] consumers = new Thread[3];
+        for (int c = 0; c < consumers.length; c++) {
+            consumers[c] = start(new Runnable() {
+                @Override
+                public void run() {
+                    int last = -1;
+                    while (taken.get() < COUNT) {
+                        Integer e = queue.poll();
+                        if (e == null) {
+                            Thread.yield();
+                            continue;
+                        }
+                        // Each element once, in order per consumer
+                        if (seen.getAndIncrement(e) != 0 || e <= last) {
+                            failure.compareAndSet(null, new AssertionError(e));
+                        }
+                        last = e;
+                        taken.incrementAndGet();
+                    }
+                }
+            });
+        }
+        for (int i = 0; i < COUNT; i++) {
+            while (!queue.offer(i)) {
+                Thread.yield();
+            }
+        }
+        for (Thread consumer : consumers) {
+            consumer.join();
+        }
+        if (failure.get() != null) {
+            throw new AssertionError(failure.get());
+        }
+        assertEquals(COUNT, taken.get());
+    }
+
+    private static Thread start(Runnable r) {
+        Thread t = new Thread(r);
+        t.setDaemon(true);
+        t.start();
+        return t;
+    }
+}
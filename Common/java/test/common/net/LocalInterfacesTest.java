@@ -0,0 +1,88 @@
+package common.net;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.net.InetAddress;
+import java.net.NetworkInterface;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import common.ConstraintException;
+import common.Constraints;
+
+/**
+ * Tests for {@link LocalInterfaces}.
+ *
+ * @author rstoner
+ */
+public class LocalInterfacesTest {
+    /***/
+    @Test
+    public void loopback() throws Exception {
+        InetAddress loopback = InetAddress.getByName("127.0.0.1");
+        LocalInterfaces nics = new LocalInterfaces(Long.MAX_VALUE);
+        assertTrue(nics.isLocal(loopback));
+        assertEquals(NetworkInterface.getByInetAddress(loopback).getName(),
+                nics.interfaceName(loopback));
+        assertTrue(nics.size() > 0);
+
+        InetAddress remote = InetAddress.getByName("192.0.2.1");
+        assertFalse(nics.isLocal(remote));
+        assertNull(nics.interfaceName(remote));
+        assertFalse(nics.isMCastCapable(remote));
+    }
+
+    /***/
+    @Test
+    public void refreshing() throws Exception {
+        LocalInterfaces nics = new LocalInterfaces(Long.MAX_VALUE);
+        assertEquals(1, nics.refreshCount());
+        // Misses don't refresh within the minimum interval
+        assertFalse(nics.isLocal(InetAddress.getByName("192.0.2.1")));
+        assertEquals(1, nics.refreshCount());
+
+        nics.startRefreshing(10, TimeUnit.MILLISECONDS);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (nics.refreshCount() < 4 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        nics.stopRefreshing();
+        assertTrue(nics.refreshCount() >= 4);
+        assertTrue(nics.isLocal(InetAddress.getByName("127.0.0.1")));
+
+        // At most a refresh already running when stopped finishes
+        Thread.sleep(50);
+        int stopped = nics.refreshCount();
+        Thread.sleep(50);
+        assertEquals(stopped, nics.refreshCount());
+    }
+
+    /***/
+    @Test
+    public void refreshOnMiss() throws Exception {
+        LocalInterfaces nics = new LocalInterfaces(0);
+        int before = nics.refreshCount();
+        assertFalse(nics.isLocal(InetAddress.getByName("192.0.2.1")));
+        assertTrue(nics.refreshCount() > before);
+        assertSame(LocalInterfaces.get(), LocalInterfaces.get());
+    }
+
+    /***/
+    @Test
+    public void constraints() throws Exception {
+        assertNotNull(Constraints.isLocal(InetAddress.getByName("127.0.0.1")));
+        try {
+            Constraints.isLocal(InetAddress.getByName("192.0.2.1"));
+            throw new AssertionError();
+        } catch (ConstraintException e) {
+            assertEquals("/192.0.2.1 is not a local interface",
+                    e.getMessage());
+        }
+    }
+}
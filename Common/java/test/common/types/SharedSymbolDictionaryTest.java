@@ -0,0 +1,176 @@
+package common.types;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for {@link SharedSymbolDictionary}.
+ *
+ * @author rstoner
+ */
+public class SharedSymbolDictionaryTest {
+    private static final Charset ASCII = Charset.forName("US-ASCII");
+    private File _file;
+
+    /***/
+    @Before
+    public void setUp() throws IOException {
+        _file = File.createTempFile("symbols", ".dict");
+        _file.delete();
+    }
+
+    /***/
+    @After
+    public void tearDown() {
+        _file.delete();
+    }
+
+    /***/
+    @Test
+    public void stableIds() throws IOException {
+        try (SharedSymbolDictionary dict = new SharedSymbolDictionary(_file,
+                16)) {
+            assertEquals(0, dict.reserve("ESZ6"));
+            assertEquals(1, dict.reserve("NQZ6"));
+            assertEquals(0, dict.reserve("ESZ6"));
+            assertEquals(-1, dict.id("CLZ6"));
+        }
+        try (SharedSymbolDictionary dict = new SharedSymbolDictionary(_file,
+                1)) {
+            assertEquals(16, dict.capacity());
+            assertEquals(2, dict.count());
+            assertEquals(1, dict.id("NQZ6"));
+            assertEquals("ESZ6", dict.name(0));
+            assertEquals(2, dict.reserve("CLZ6"));
+
+            byte[] wire = "xxNQZ6".getBytes(ASCII);
+            int hash = SymbolTable.hash(wire, 2, 4);
+            assertEquals(1, dict.id(wire, 2, 4, hash));
+            assertEquals(-1, dict.id(wire, 1, 4, SymbolTable.hash(wire, 1,
+                    4)));
+            assertEquals(1, dict.id(ByteBuffer.wrap(wire), 2, 4, hash));
+
+            byte[] name = new byte[8];
+            assertEquals(4, dict.copyName(2, name, 1));
+            assertEquals("CLZ6", new String(name, 1, 4, ASCII));
+        }
+    }
+
+    /***/
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void unknownId() throws IOException {
+        try (SharedSymbolDictionary dict = new SharedSymbolDictionary(_file,
+                16)) {
+            dict.reserve("ESZ6");
+            dict.name(1);
+        }
+    }
+
+    /***/
+    @Test(expected = RuntimeException.class)
+    public void full() throws IOException {
+        try (SharedSymbolDictionary dict = new SharedSymbolDictionary(_file,
+                2)) {
+            dict.reserve("ESZ6");
+            dict.reserve("NQZ6");
+            dict.reserve("CLZ6");
+        }
+    }
+
+    /***/
+    @Test
+    public void sharedMappings() throws Exception {
+        final int names = 2000;
+        try (final SharedSymbolDictionary a = new SharedSymbolDictionary(
+                _file, names);
+                final SharedSymbolDictionary b = new SharedSymbolDictionary(
+                        _file, names)) {
+            final AtomicReference<Throwable> failure = new AtomicReference<>();
+            Thread[] threads = new Thread[4];
+            for (int t = 0; t < threads.length; t++) {
+                final SharedSymbolDictionary dict = t % 2 == 0 ? a : b;
+                threads[t] = new Thread() {
+                    @Override
+                    public void run() {
+                        try {
+                            for (int i = 0; i < names; i++) {
+                                int id = dict.reserve("S" + i);
+                                assertEquals("S" + i, dict.name(id));
+                            }
+                        } catch (Throwable e) {
+                            failure.compareAndSet(null, e);
+                        }
+                    }
+                };
+                threads[t].start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            if (failure.get() != null) {
+                throw new AssertionError(failure.get());
+            }
+
+            assertEquals(names, a.count());
+            assertEquals(names, b.count());
+            for (int i = 0; i < names; i++) {
+                assertEquals(a.id("S" + i), b.id("S" + i));
+            }
+
+            SymbolTable table = new SymbolTable();
+            b.syncTo(table);
+            assertEquals(names, table.size());
+            for (int id = 0; id < names; id++) {
+                assertSame(table.symbol(id), table.get(a.name(id)));
+            }
+        }
+    }
+
+    /***/
+    @Test(expected = RuntimeException.class)
+    public void divergedTable() throws IOException {
+        try (SharedSymbolDictionary dict = new SharedSymbolDictionary(_file,
+                16)) {
+            dict.reserve("ESZ6");
+            SymbolTable table = new SymbolTable();
+            table.reserve("NQZ6");
+            dict.reserve("NQZ6");
+            dict.syncTo(table);
+        }
+    }
+
+    /**
+     * A table which reserved other names first has all the ids of the
+     * dictionary, but for other names.
+     */
+    @Test
+    public void mismatchedTable() throws IOException {
+        try (SharedSymbolDictionary dict = new SharedSymbolDictionary(_file,
+                16)) {
+            dict.reserve("ESZ6");
+            dict.reserve("NQZ6");
+            SymbolTable table = new SymbolTable();
+            table.reserve("ESZ6");
+            table.reserve("YMZ6");
+            table.reserve("RTYZ6");
+            try {
+                dict.syncTo(table);
+                fail();
+            } catch (RuntimeException e) {
+                assertEquals("Symbol 1 is YMZ6 in the table and NQZ6 in the"
+                        + " dictionary", e.getMessage());
+            }
+        }
+    }
+}
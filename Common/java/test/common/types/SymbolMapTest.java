@@ -0,0 +1,186 @@
+package common.types;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+/**
+ * Tests for the symbol indexed maps.
+ *
+ * @author rstoner
+ */
+public class SymbolMapTest {
+    private final SymbolTable _table = new SymbolTable();
+
+    /***/
+    @Test
+    public void longMap() {
+        SymbolLongMap positions = new SymbolLongMap(Long.MIN_VALUE, 1);
+        Symbol es = _table.reserve("ESZ6");
+        assertEquals(Long.MIN_VALUE, positions.get(es));
+        assertFalse(positions.contains(es));
+        positions.add(es, 5);
+        assertEquals(3, positions.add(es, -2));
+        assertTrue(positions.contains(es));
+
+        Symbol far = symbol(5000);
+        assertEquals(Long.MIN_VALUE, positions.put(far, 7));
+        assertEquals(7, positions.get(far));
+        assertEquals(3, positions.get(es));
+        assertEquals(7, positions.remove(far));
+        assertFalse(positions.contains(far));
+
+        positions.put(far, 1);
+        positions.clear();
+        assertFalse(positions.contains(es));
+        assertFalse(positions.contains(far));
+    }
+
+    /***/
+    @Test
+    public void doubleMap() {
+        SymbolDoubleMap prices = new SymbolDoubleMap(Double.NaN);
+        Symbol es = _table.reserve("ESZ6");
+        assertFalse(prices.contains(es));
+        prices.put(es, 4000.25);
+        assertTrue(prices.contains(es));
+        assertEquals(4000.5, prices.add(es, 0.25), 0.0);
+        assertEquals(4000.5, prices.remove(es), 0.0);
+        assertFalse(prices.contains(es));
+        assertTrue(Double.isNaN(prices.get(symbol(100000))));
+
+        ConcurrentSymbolDoubleMap shared = new ConcurrentSymbolDoubleMap(
+                Double.NaN);
+        assertFalse(shared.contains(es));
+        shared.put(es, 1.5);
+        assertEquals(2.0, shared.add(es, 0.5), 0.0);
+        assertTrue(Double.isNaN(shared.put(symbol(3000), 1.0)));
+        assertEquals(2.0, shared.get(es), 0.0);
+        shared.clear();
+        assertFalse(shared.contains(es));
+    }
+
+    /***/
+    @Test
+    public void objectMap() {
+        SymbolMap<String> limits = new SymbolMap<>();
+        Symbol es = _table.reserve("ESZ6");
+        assertNull(limits.put(es, "a"));
+        assertEquals("a", limits.put(es, "b"));
+        assertEquals("b", limits.get(es.id()));
+        Symbol far = symbol(2000);
+        limits.put(far, "c");
+        assertEquals("c", limits.get(far));
+        limits.clear();
+        assertNull(limits.get(es));
+        assertNull(limits.get(far));
+    }
+
+    /***/
+    @Test
+    public void intMap() {
+        SymbolIntMap counts = new SymbolIntMap(-1);
+        ConcurrentSymbolIntMap shared = new ConcurrentSymbolIntMap(-1);
+        Symbol far = symbol(4096);
+        assertEquals(-1, counts.get(far));
+        assertEquals(2, counts.add(far, 2));
+        assertEquals(2, shared.add(far, 2));
+        assertEquals(-1, shared.get(_table.reserve("other")));
+    }
+
+    /**
+     * Ids looked up for names which aren't in the table are -1.
+     */
+    @Test
+    public void missingIds() {
+        Symbol es = _table.reserve("ESZ6");
+        byte[] name = "NQZ6".getBytes(StandardCharsets.US_ASCII);
+        int id = _table.id(name, 0, name.length, SymbolTable.hash(name, 0,
+                name.length));
+        assertEquals(-1, id);
+
+        SymbolMap<String> objects = new SymbolMap<>();
+        ConcurrentSymbolMap<String> sharedObjects =
+                new ConcurrentSymbolMap<>();
+        SymbolLongMap longs = new SymbolLongMap(Long.MIN_VALUE);
+        ConcurrentSymbolLongMap sharedLongs = new ConcurrentSymbolLongMap(
+                Long.MIN_VALUE);
+        SymbolIntMap ints = new SymbolIntMap(Integer.MIN_VALUE);
+        ConcurrentSymbolIntMap sharedInts = new ConcurrentSymbolIntMap(
+                Integer.MIN_VALUE);
+        SymbolDoubleMap doubles = new SymbolDoubleMap(Double.NaN);
+        ConcurrentSymbolDoubleMap sharedDoubles =
+                new ConcurrentSymbolDoubleMap(Double.NaN);
+        objects.put(es, "a");
+        sharedObjects.put(es, "a");
+        longs.put(es, 1);
+        sharedLongs.put(es, 1);
+        ints.put(es, 1);
+        sharedInts.put(es, 1);
+        doubles.put(es, 1);
+        sharedDoubles.put(es, 1);
+
+        assertNull(objects.get(id));
+        assertNull(sharedObjects.get(id));
+        assertEquals(Long.MIN_VALUE, longs.get(id));
+        assertEquals(Long.MIN_VALUE, sharedLongs.get(id));
+        assertEquals(Integer.MIN_VALUE, ints.get(id));
+        assertEquals(Integer.MIN_VALUE, sharedInts.get(id));
+        assertTrue(Double.isNaN(doubles.get(id)));
+        assertTrue(Double.isNaN(sharedDoubles.get(id)));
+    }
+
+    /***/
+    @Test
+    public void concurrentReaders() throws InterruptedException {
+        final int count = 100000;
+        for (int i = 0; i < count; i++) {
+            _table.reserve("S" + i);
+        }
+        final ConcurrentSymbolLongMap map = new ConcurrentSymbolLongMap(-1);
+        final ConcurrentSymbolMap<Symbol> symbols =
+                new ConcurrentSymbolMap<>();
+        final AtomicReference<String> error = new AtomicReference<>();
+        Thread reader = new Thread() {
+            @Override
+            public void run() {
+                int seen = 0;
+                while (seen < count) {
+                    Symbol sym = _table.symbol(seen);
+                    Symbol value = symbols.get(sym);
+                    if (value == null) {
+                        continue;
+                    }
+                    long v = map.get(sym);
+                    if (value != sym || v != seen) {
+                        error.set("Bad value for " + sym + ": " + v);
+                        return;
+                    }
+                    seen++;
+                }
+            }
+        };
+        reader.start();
+        for (int i = 0; i < count; i++) {
+            Symbol sym = _table.symbol(i);
+            map.put(sym, i);
+            symbols.put(sym, sym);
+        }
+        reader.join();
+        assertNull(error.get());
+        assertEquals(count - 1, map.get(_table.symbol(count - 1)));
+    }
+
+    private Symbol symbol(int id) {
+        while (_table.size() <= id) {
+            _table.reserve("S" + _table.size());
+        }
+        return _table.symbol(id);
+    }
+}
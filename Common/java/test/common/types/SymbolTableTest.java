@@ -0,0 +1,131 @@
+package common.types;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link SymbolTable} and {@link Symbol}.
+ *
+ * @author rstoner
+ */
+public class SymbolTableTest {
+
+    /***/
+    @Test
+    public void reserve() {
+        SymbolTable table = new SymbolTable();
+        Symbol es = table.reserve("ESZ6");
+        Symbol nq = table.reserve("NQZ6");
+        assertSame(es, table.reserve("ESZ6"));
+        assertSame(es, table.get("ESZ6"));
+        assertSame(nq, table.symbol(1));
+        assertEquals(0, es.id());
+        assertEquals("NQZ6", nq.toString());
+        assertEquals(2, table.size());
+        assertNull(table.get("CLZ6"));
+        try {
+            table.symbol(2);
+            fail();
+        } catch (IndexOutOfBoundsException e) {
+            // Expected
+        }
+    }
+
+    /***/
+    @Test
+    public void grow() {
+        SymbolTable table = new SymbolTable();
+        int count = 100000;
+        for (int i = 0; i < count; i++) {
+            assertEquals(i, table.reserve("S" + i).id());
+        }
+        for (int i = 0; i < count; i++) {
+            Symbol sym = table.get("S" + i);
+            assertEquals(i, sym.id());
+            assertSame(sym, table.symbol(i));
+        }
+    }
+
+    /***/
+    @Test
+    public void readWhileReserving() throws InterruptedException {
+        final SymbolTable table = new SymbolTable();
+        final int count = 200000;
+        final AtomicReference<String> error = new AtomicReference<>();
+        Thread reader = new Thread() {
+            @Override
+            public void run() {
+                int seen = 0;
+                while (seen < count) {
+                    int size = table.size();
+                    for (int i = seen; i < size; i++) {
+                        Symbol sym = table.symbol(i);
+                        if (sym.id() != i || !sym.toString().equals("S" + i)
+                                || table.get("S" + i) != sym) {
+                            error.set("Bad symbol " + i + ": " + sym);
+                            return;
+                        }
+                    }
+                    seen = size;
+                }
+            }
+        };
+        reader.start();
+        for (int i = 0; i < count; i++) {
+            table.reserve("S" + i);
+        }
+        reader.join();
+        assertNull(error.get());
+    }
+
+    /***/
+    @Test
+    public void lookupBytes() {
+        SymbolTable table = new SymbolTable();
+        for (int i = 0; i < 1000; i++) {
+            table.reserve("S" + i);
+        }
+        Symbol sym = table.reserve("ESZ6");
+        byte[] msg = "35=X|55=ESZ6|270=4000.25".getBytes(
+                StandardCharsets.US_ASCII);
+        int hash = SymbolTable.hash(msg, 8, 4);
+        assertEquals(SymbolTable.hash("ESZ6"), hash);
+        assertSame(sym, table.get(msg, 8, 4, hash));
+        assertSame(sym, table.get(msg, 8, 4));
+        assertEquals(sym.id(), table.id(msg, 8, 4, hash));
+        assertEquals(-1, table.id(msg, 8, 3, SymbolTable.hash(msg, 8, 3)));
+
+        ByteBuffer direct = ByteBuffer.allocateDirect(msg.length);
+        direct.put(msg);
+        assertEquals(hash, SymbolTable.hash(direct, 8, 4));
+        assertSame(sym, table.get(direct, 8, 4, hash));
+        assertEquals(sym.id(), table.id(direct, 8, 4, hash));
+
+        StringBuilder sb = new StringBuilder("ESZ6");
+        assertSame(sym, table.get(sb, SymbolTable.hash(sb)));
+        sb.setCharAt(3, '7');
+        assertNull(table.get(sb, SymbolTable.hash(sb)));
+    }
+
+    /***/
+    @Test
+    public void globalTable() {
+        Symbol sym = Symbol.reserve("SymbolTableTest");
+        assertSame(sym, Symbol.resolve("SymbolTableTest"));
+        assertSame(sym, Symbol.table().symbol(sym.id()));
+        try {
+            Symbol.resolve("SymbolTableTest.missing");
+            fail();
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+    }
+}
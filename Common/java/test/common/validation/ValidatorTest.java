@@ -0,0 +1,67 @@
+package common.validation;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import common.ConstraintException;
+
+/**
+ * Tests for {@link LongValidator} and {@link DoubleValidator}.
+ *
+ * @author rstoner
+ */
+public class ValidatorTest {
+    /***/
+    @Test
+    public void quantities() {
+        LongValidator qty = LongValidator.builder()
+                .rule("positive", LongValidator.gt0())
+                .rule("maxQty", LongValidator.lte(1000))
+                .rule("lotSize", LongValidator.multipleOf(10)).build();
+        assertEquals(3, qty.stages());
+        assertEquals(Validator.VALID, qty.validate(500));
+        assertEquals(0, qty.validate(0));
+        assertEquals(0, qty.validate(-10));
+        assertEquals(1, qty.validate(1010));
+        assertEquals(2, qty.validate(15));
+        assertEquals(2, qty.rejections(0));
+        assertEquals(1, qty.rejections(1));
+        assertEquals(4, qty.rejections());
+        assertEquals("[positive=2, maxQty=1, lotSize=1]", qty.toString());
+        qty.resetCounters();
+        assertEquals(0, qty.rejections());
+
+        LongValidator side = LongValidator.builder()
+                .rule("side", LongValidator.oneOf(1, -1)).build();
+        LongValidator both = qty.and(side);
+        assertEquals(4, both.stages());
+        assertEquals("side", both.name(3));
+        assertEquals(3, both.validate(100));
+        assertEquals(0, side.rejections());
+    }
+
+    /***/
+    @Test
+    public void prices() {
+        DoubleValidator price = DoubleValidator.builder()
+                .rule("number", DoubleValidator.notNaN())
+                .rule("positive", DoubleValidator.gt0())
+                .rule("band", DoubleValidator.between(99.0, 101.0))
+                .rule("tick", DoubleValidator.tickAligned(0.05)).build();
+        assertEquals(Validator.VALID, price.validate(100.15));
+        assertEquals(Validator.VALID, price.validate(99.95));
+        assertEquals(0, price.validate(Double.NaN));
+        assertEquals(1, price.validate(-1));
+        assertEquals(2, price.validate(101.0));
+        assertEquals(3, price.validate(100.12));
+        assertEquals(100.2, price.check(100.2), 0.0);
+    }
+
+    /***/
+    @Test(expected = ConstraintException.class)
+    public void check() {
+        LongValidator.builder().rule("positive", LongValidator.gt0()).build()
+                .check(0);
+    }
+}
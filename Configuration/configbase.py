@@ -17,6 +17,11 @@ class Holder:
         else:
             self.__dict__[k] = v
 
+class Table:
+    def __init__(self, path, referrer=None):
+        self.path = path
+        self.referrer = referrer
+
 root = Holder()
 
 def h(name):
@@ -28,3 +33,7 @@ def h(name):
         root.nodes[name] = node
     return root.nodes[name]
 
+def table(path):
+    if type(path) != str:
+        raise Exception('Can only use strings to reference tables: %s' % path)
+    return Table(path, globals().get('__file__'))
@@ -0,0 +1,35 @@
+package config.python;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the configuration benchmarks with the GC profiler, which adds the
+ * allocation rate and bytes allocated per operation to the results. Run from
+ * the Configuration folder, which holds <code>configbase.py</code>.
+ *
+ * @author bgonzalez
+ */
+public final class ConfigBenchmarks {
+    private ConfigBenchmarks() {
+    }
+
+    /**
+     * @param args regular expressions of the benchmarks to run, all
+     *            configuration benchmarks if empty
+     */
+    public static void main(String[] args) throws RunnerException {
+        OptionsBuilder options = new OptionsBuilder();
+        if (args.length == 0) {
+            options.include(ConfigLookupBenchmark.class.getSimpleName());
+            options.include(ConfigReloadBenchmark.class.getSimpleName());
+        }
+        for (String arg : args) {
+            options.include(arg);
+        }
+        options.addProfiler(GCProfiler.class);
+        new Runner(options.build()).run();
+    }
+}
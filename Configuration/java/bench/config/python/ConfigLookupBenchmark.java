@@ -0,0 +1,106 @@
+package config.python;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Lookups on a {@link JythonConfigSnapshot} with 0 to 5 qualifiers. A hit
+ * finds the fully qualified key, a fallback drops every qualifier before it
+ * finds the unqualified key, and a miss tries every key and throws.
+ *
+ * @author bgonzalez
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConfigLookupBenchmark {
+    private static final int MAX_QUALIFIERS = 5;
+
+    @Param({ "0", "1", "3", "5" })
+    int _qualifierCount;
+
+    @Param({ "hit", "fallback", "miss" })
+    String _lookup;
+
+    private SyntheticConfig _config;
+    private JythonConfigSnapshot _snapshot;
+    private Object[] _qualifiers;
+    private String _name;
+
+    /***/
+    @Setup
+    public void setup() throws IOException {
+        StringBuilder sb = new StringBuilder("fallback = 1\nhit = 1\n");
+        sb.append("dbl = 1.5\narr = [1, 2, 3, 4, 5, 6, 7, 8]\n");
+        for (int n = 1; n <= MAX_QUALIFIERS; n++) {
+            sb.append("h('Q0')");
+            for (int q = 1; q < n; q++) {
+                sb.append(".Q").append(q);
+            }
+            sb.append(".hit = 1\n");
+        }
+        _config = new SyntheticConfig(new File("configbase.py"),
+                sb.toString());
+        JythonConfigLoader loader = new JythonConfigLoader(_config.files());
+        loader.reload();
+        _snapshot = loader.createConfigSnapshot();
+        loader.shutdown();
+
+        _qualifiers = new Object[_qualifierCount];
+        for (int q = 0; q < _qualifierCount; q++) {
+            _qualifiers[q] = "Q" + q;
+        }
+        _name = "miss".equals(_lookup) ? "missing" : _lookup;
+    }
+
+    /***/
+    @TearDown
+    public void tearDown() {
+        _config.delete();
+    }
+
+    /***/
+    @Benchmark
+    public Object get() {
+        try {
+            return _snapshot.get(_name, _qualifiers);
+        } catch (RuntimeException e) {
+            return e;
+        }
+    }
+
+    /***/
+    @Benchmark
+    public int i() {
+        return _snapshot.i("fallback", _qualifiers);
+    }
+
+    /***/
+    @Benchmark
+    public double d() {
+        return _snapshot.d("dbl", _qualifiers);
+    }
+
+    /***/
+    @Benchmark
+    public int[] iArr() {
+        return _snapshot.iArr("arr", _qualifiers);
+    }
+}
@@ -0,0 +1,87 @@
+package config.python;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Reloads and snapshot creation on synthetic trees, scaled by the number of
+ * values and the depth of the holders they live in. Every value has
+ * (depth + 1)! keys, so the cost of a snapshot grows with the factorial of
+ * the depth.
+ *
+ * @author bgonzalez
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConfigReloadBenchmark {
+    @Param({ "100", "1000" })
+    int _keys;
+
+    @Param({ "1", "3", "5" })
+    int _depth;
+
+    private SyntheticConfig _config;
+    private JythonConfigLoader _loader;
+    private DslConfigLoader _dslLoader;
+
+    /***/
+    @Setup
+    public void setup() throws IOException {
+        _config = new SyntheticConfig(new File("configbase.py"),
+                SyntheticConfig.tree(_keys, _depth));
+        _loader = new JythonConfigLoader(_config.files());
+        _loader.reload();
+        _dslLoader = new DslConfigLoader(_config.files());
+    }
+
+    /***/
+    @TearDown
+    public void tearDown() {
+        _loader.shutdown();
+        _dslLoader.shutdown();
+        _config.delete();
+    }
+
+    /***/
+    @Benchmark
+    public JythonConfigSnapshot createConfigSnapshot() {
+        return _loader.createConfigSnapshot();
+    }
+
+    /***/
+    @Benchmark
+    public JythonConfigSnapshot createLazyConfigSnapshot() {
+        return _loader.createConfigSnapshot(true);
+    }
+
+    /***/
+    @Benchmark
+    public JythonConfigLoader reload() {
+        _loader.reload();
+        return _loader;
+    }
+
+    /***/
+    @Benchmark
+    public JythonConfigSnapshot dslLoad() {
+        return _dslLoader.load();
+    }
+}
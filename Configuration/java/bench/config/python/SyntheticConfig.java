@@ -0,0 +1,76 @@
+package config.python;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Configuration files generated for benchmarks, written to a temporary
+ * folder next to a copy of <code>configbase.py</code>.
+ *
+ * @author bgonzalez
+ */
+final class SyntheticConfig {
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private final File _folder;
+    private final List<File> _files = new ArrayList<>();
+
+    /**
+     * @param configbase <code>configbase.py</code> to copy
+     * @param sources content of the generated files
+     */
+    SyntheticConfig(File configbase, String... sources) throws IOException {
+        _folder = Files.createTempDirectory("pyconfig").toFile();
+        _files.add(Files.copy(configbase.toPath(),
+                new File(_folder, "configbase.py").toPath()).toFile());
+        for (int i = 0; i < sources.length; i++) {
+            File f = new File(_folder, "c" + i + ".py");
+            Files.write(f.toPath(), sources[i].getBytes(UTF8));
+            _files.add(f);
+        }
+    }
+
+    /**
+     * Holders nested <code>depth</code> levels deep, with <code>keys</code>
+     * values spread over them. Every value is reachable by (depth + 1)!
+     * permutations of its path, which is what makes deep trees expensive.
+     *
+     * @param keys number of values
+     * @param depth number of holders on the path to every value
+     * @return python source
+     */
+    static String tree(int keys, int depth) {
+        StringBuilder sb = new StringBuilder();
+        int holders = Math.max(1, keys / 10);
+        for (int k = 0; k < keys; k++) {
+            int holder = k % holders;
+            sb.append("h('R").append(holder).append("')");
+            for (int d = 1; d < depth; d++) {
+                sb.append(".L").append(d).append('_').append(holder);
+            }
+            sb.append(".v").append(k).append(" = ").append(k).append('\n');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @return generated files, after <code>configbase.py</code>
+     */
+    List<File> files() {
+        return _files;
+    }
+
+    /**
+     * Deletes the generated files.
+     */
+    void delete() {
+        for (File f : _folder.listFiles()) {
+            f.delete();
+        }
+        _folder.delete();
+    }
+}
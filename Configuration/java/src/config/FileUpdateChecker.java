@@ -2,6 +2,7 @@ package config;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -21,6 +22,28 @@ public class FileUpdateChecker {
         }
     }
 
+    /**
+     * Starts watching more files. Files already watched are ignored.
+     * 
+     * @param files files to check from now on
+     */
+    public void add(Collection<File> files) {
+        for (File f : files) {
+            if (!watches(f)) {
+                _files.add(new FileStatus(f));
+            }
+        }
+    }
+
+    private boolean watches(File file) {
+        for (FileStatus f : _files) {
+            if (f._file.equals(file)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Goes through the list of files and returns true if any of them have been
      * updated. If any file has been updated, the recorded modification time
@@ -29,9 +52,22 @@ public class FileUpdateChecker {
      * @return true if any of the files have been updated
      */
     public boolean checkForUpdates() {
-        boolean updated = false;
+        return !updatedFiles().isEmpty();
+    }
+
+    /**
+     * Goes through the list of files and returns the ones that have been
+     * updated. The recorded modification time of those files will be updated
+     * as well.
+     * 
+     * @return files that have been updated, in the order they were given
+     */
+    public List<File> updatedFiles() {
+        List<File> updated = new ArrayList<>();
         for (FileStatus f : _files) {
-            updated |= f.updated();
+            if (f.updated()) {
+                updated.add(f._file);
+            }
         }
         return updated;
     }
@@ -0,0 +1,56 @@
+package config.binary;
+
+import java.nio.charset.Charset;
+
+/**
+ * Constants describing the binary configuration snapshot format. All numbers
+ * are big endian.
+ *
+ * <pre>
+ * header: magic (int), version (int), entry count (int)
+ * index:  entry count * (key position (int), value position (int)), sorted by
+ *         the unsigned UTF-8 bytes of the key
+ * data:   keys as length (int) + UTF-8 bytes, values as tag (byte) + payload
+ * </pre>
+ *
+ * @author bgonzalez
+ */
+final class BinaryConfigFormat {
+    static final int MAGIC = 0x43425743; // "CBWC"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 12;
+    static final int INDEX_ENTRY_SIZE = 8;
+
+    static final Charset UTF8 = Charset.forName("UTF-8");
+
+    static final byte NULL = 0;
+    static final byte FALSE = 1;
+    static final byte TRUE = 2;
+    static final byte INT = 3;
+    static final byte LONG = 4;
+    static final byte DOUBLE = 5;
+    static final byte FLOAT = 6;
+    static final byte STRING = 7;
+    static final byte BIG_INTEGER = 8;
+    static final byte LIST = 9;
+    static final byte MAP = 10;
+    /** Column table, stored as the path of the file it is mapped from */
+    static final byte TABLE = 11;
+
+    private BinaryConfigFormat() {
+    }
+
+    /**
+     * Compare two UTF-8 byte sequences as unsigned bytes.
+     */
+    static int compare(byte[] a, byte[] b) {
+        int len = Math.min(a.length, b.length);
+        for (int i = 0; i < len; i++) {
+            int cmp = (a[i] & 0xff) - (b[i] & 0xff);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return a.length - b.length;
+    }
+}
@@ -0,0 +1,319 @@
+package config.binary;
+
+import static config.binary.BinaryConfigFormat.BIG_INTEGER;
+import static config.binary.BinaryConfigFormat.DOUBLE;
+import static config.binary.BinaryConfigFormat.FALSE;
+import static config.binary.BinaryConfigFormat.FLOAT;
+import static config.binary.BinaryConfigFormat.HEADER_SIZE;
+import static config.binary.BinaryConfigFormat.INDEX_ENTRY_SIZE;
+import static config.binary.BinaryConfigFormat.INT;
+import static config.binary.BinaryConfigFormat.LIST;
+import static config.binary.BinaryConfigFormat.LONG;
+import static config.binary.BinaryConfigFormat.MAGIC;
+import static config.binary.BinaryConfigFormat.MAP;
+import static config.binary.BinaryConfigFormat.NULL;
+import static config.binary.BinaryConfigFormat.STRING;
+import static config.binary.BinaryConfigFormat.TABLE;
+import static config.binary.BinaryConfigFormat.TRUE;
+import static config.binary.BinaryConfigFormat.UTF8;
+import static config.binary.BinaryConfigFormat.VERSION;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import common.config.AbstractConfigSnapshot;
+import common.config.ColumnTable;
+
+/**
+ * Configuration snapshot served from the binary format written by
+ * {@link BinaryConfigWriter}. The file is memory mapped, so the pages are
+ * shared by every process reading the same snapshot, and no python
+ * interpreter is needed. Values are decoded on first access and then reused.
+ *
+ * @author bgonzalez
+ */
+public final class BinaryConfigSnapshot extends AbstractConfigSnapshot {
+    private static final Object NULL_VALUE = new Object();
+    private static final Guard NO_GUARD = new Guard() {
+        @Override
+        public void validate() {
+        }
+    };
+
+    private final ByteBuffer _buffer;
+    private final Guard _guard;
+    private final int _size;
+    private final AtomicReferenceArray<Object> _values;
+
+    /**
+     * @param buffer buffer holding a binary snapshot
+     */
+    public BinaryConfigSnapshot(ByteBuffer buffer) {
+        this(buffer, NO_GUARD);
+    }
+
+    /**
+     * @param buffer buffer holding a binary snapshot
+     * @param guard called after reading from <code>buffer</code> and before
+     *            the result is used
+     */
+    BinaryConfigSnapshot(ByteBuffer buffer, Guard guard) {
+        _buffer = buffer.duplicate().order(ByteOrder.BIG_ENDIAN);
+        _guard = guard;
+        if (_buffer.remaining() < HEADER_SIZE
+                || _buffer.getInt(0) != MAGIC) {
+            throw new RuntimeException("Not a binary configuration snapshot");
+        }
+        if (_buffer.getInt(4) != VERSION) {
+            throw new RuntimeException(
+                    "Unsupported binary configuration snapshot version: "
+                            + _buffer.getInt(4));
+        }
+        _size = _buffer.getInt(8);
+        _values = new AtomicReferenceArray<>(_size);
+    }
+
+    /**
+     * Memory maps <code>file</code> read only.
+     *
+     * @param file binary snapshot file
+     * @return configuration snapshot
+     * @throws IOException if the file cannot be mapped
+     */
+    public static BinaryConfigSnapshot map(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(),
+                StandardOpenOption.READ)) {
+            return new BinaryConfigSnapshot(channel.map(MapMode.READ_ONLY, 0,
+                    channel.size()));
+        }
+    }
+
+    /**
+     * @return number of fully qualified keys in the snapshot
+     */
+    public int size() {
+        return _size;
+    }
+
+    /**
+     * @return all fully qualified keys and their values
+     */
+    public Map<String, Object> asMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        try {
+            for (int i = 0; i < _size; i++) {
+                map.put(keyAt(i), valueAt(i));
+            }
+        } catch (RuntimeException e) {
+            _guard.validate();
+            throw e;
+        }
+        _guard.validate();
+        return map;
+    }
+
+    @Override
+    public Set<String> keys() {
+        Set<String> keys = new LinkedHashSet<>();
+        try {
+            for (int i = 0; i < _size; i++) {
+                keys.add(keyAt(i));
+            }
+        } catch (RuntimeException e) {
+            _guard.validate();
+            throw e;
+        }
+        _guard.validate();
+        return Collections.unmodifiableSet(keys);
+    }
+
+    @Override
+    protected Object value(String key) {
+        int idx;
+        try {
+            idx = indexOf(key.getBytes(UTF8));
+        } catch (RuntimeException e) {
+            _guard.validate();
+            throw e;
+        }
+        if (idx < 0) {
+            // A miss makes the caller fall back to another key, so it has to
+            // be as trustworthy as a hit
+            _guard.validate();
+            return null;
+        }
+        return valueAt(idx);
+    }
+
+    private int indexOf(byte[] key) {
+        int low = 0;
+        int high = _size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = compareKey(mid, key);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    private int compareKey(int idx, byte[] key) {
+        int pos = _buffer.getInt(HEADER_SIZE + idx * INDEX_ENTRY_SIZE);
+        int len = _buffer.getInt(pos);
+        pos += 4;
+        int n = Math.min(len, key.length);
+        for (int i = 0; i < n; i++) {
+            int cmp = (_buffer.get(pos + i) & 0xff) - (key[i] & 0xff);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return len - key.length;
+    }
+
+    private String keyAt(int idx) {
+        int pos = _buffer.getInt(HEADER_SIZE + idx * INDEX_ENTRY_SIZE);
+        return string(pos);
+    }
+
+    private Object valueAt(int idx) {
+        Object v = _values.get(idx);
+        if (v == null) {
+            int pos = _buffer.getInt(HEADER_SIZE + idx * INDEX_ENTRY_SIZE + 4);
+            try {
+                v = decode(new int[] { pos });
+            } catch (RuntimeException e) {
+                _guard.validate();
+                throw e;
+            }
+            _guard.validate();
+            if (v == null) {
+                v = NULL_VALUE;
+            }
+            // Racing threads decode equal values, so either one can win
+            if (!_values.compareAndSet(idx, null, v)) {
+                v = _values.get(idx);
+            }
+        }
+        return v == NULL_VALUE ? null : v;
+    }
+
+    private String string(int pos) {
+        byte[] b = new byte[_buffer.getInt(pos)];
+        for (int i = 0; i < b.length; i++) {
+            b[i] = _buffer.get(pos + 4 + i);
+        }
+        return new String(b, UTF8);
+    }
+
+    private Object decode(int[] cursor) {
+        int pos = cursor[0];
+        byte tag = _buffer.get(pos++);
+        Object v;
+        switch (tag) {
+        case NULL:
+            v = null;
+            break;
+        case FALSE:
+            v = Boolean.FALSE;
+            break;
+        case TRUE:
+            v = Boolean.TRUE;
+            break;
+        case INT:
+            v = _buffer.getInt(pos);
+            pos += 4;
+            break;
+        case LONG:
+            v = _buffer.getLong(pos);
+            pos += 8;
+            break;
+        case DOUBLE:
+            v = _buffer.getDouble(pos);
+            pos += 8;
+            break;
+        case FLOAT:
+            v = _buffer.getFloat(pos);
+            pos += 4;
+            break;
+        case STRING:
+            v = string(pos);
+            pos += 4 + _buffer.getInt(pos);
+            break;
+        case TABLE: {
+            File file = new File(string(pos));
+            try {
+                v = ColumnTable.map(file);
+            } catch (IOException e) {
+                throw new RuntimeException("Cannot map table " + file, e);
+            }
+            pos += 4 + _buffer.getInt(pos);
+            break;
+        }
+        case BIG_INTEGER: {
+            byte[] b = new byte[_buffer.getInt(pos)];
+            for (int i = 0; i < b.length; i++) {
+                b[i] = _buffer.get(pos + 4 + i);
+            }
+            v = new BigInteger(b);
+            pos += 4 + b.length;
+            break;
+        }
+        case LIST: {
+            int n = _buffer.getInt(pos);
+            cursor[0] = pos + 4;
+            List<Object> list = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                list.add(decode(cursor));
+            }
+            return Collections.unmodifiableList(list);
+        }
+        case MAP: {
+            int n = _buffer.getInt(pos);
+            cursor[0] = pos + 4;
+            Map<Object, Object> map = new HashMap<>();
+            for (int i = 0; i < n; i++) {
+                Object k = decode(cursor);
+                map.put(k, decode(cursor));
+            }
+            return Collections.unmodifiableMap(map);
+        }
+        default:
+            throw new RuntimeException("Corrupt binary configuration snapshot,"
+                    + " unknown tag " + tag + " at " + (pos - 1));
+        }
+        cursor[0] = pos;
+        return v;
+    }
+
+    /**
+     * Checks that the underlying buffer hasn't changed while it was read.
+     */
+    interface Guard {
+        /**
+         * @throws RuntimeException if data read since the snapshot was
+         *             created may be inconsistent
+         */
+        void validate();
+    }
+}
@@ -0,0 +1,177 @@
+package config.binary;
+
+import static config.binary.BinaryConfigFormat.BIG_INTEGER;
+import static config.binary.BinaryConfigFormat.DOUBLE;
+import static config.binary.BinaryConfigFormat.FALSE;
+import static config.binary.BinaryConfigFormat.FLOAT;
+import static config.binary.BinaryConfigFormat.HEADER_SIZE;
+import static config.binary.BinaryConfigFormat.INDEX_ENTRY_SIZE;
+import static config.binary.BinaryConfigFormat.INT;
+import static config.binary.BinaryConfigFormat.LIST;
+import static config.binary.BinaryConfigFormat.LONG;
+import static config.binary.BinaryConfigFormat.MAGIC;
+import static config.binary.BinaryConfigFormat.MAP;
+import static config.binary.BinaryConfigFormat.NULL;
+import static config.binary.BinaryConfigFormat.STRING;
+import static config.binary.BinaryConfigFormat.TABLE;
+import static config.binary.BinaryConfigFormat.TRUE;
+import static config.binary.BinaryConfigFormat.UTF8;
+import static config.binary.BinaryConfigFormat.VERSION;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import common.config.ColumnTable;
+
+/**
+ * Serializes configuration entries into the binary format read by
+ * {@link BinaryConfigSnapshot}.
+ *
+ * @author bgonzalez
+ */
+public final class BinaryConfigWriter {
+    private BinaryConfigWriter() {
+    }
+
+    /**
+     * @param entries fully qualified keys and their values
+     * @return binary representation of <code>entries</code>
+     */
+    public static byte[] toBytes(Map<String, ?> entries) {
+        byte[][] keys = new byte[entries.size()][];
+        int n = 0;
+        for (String key : entries.keySet()) {
+            keys[n++] = key.getBytes(UTF8);
+        }
+        Arrays.sort(keys, new Comparator<byte[]>() {
+            @Override
+            public int compare(byte[] a, byte[] b) {
+                return BinaryConfigFormat.compare(a, b);
+            }
+        });
+
+        try {
+            ByteArrayOutputStream data = new ByteArrayOutputStream();
+            DataOutputStream dataOut = new DataOutputStream(data);
+            int dataStart = HEADER_SIZE + keys.length * INDEX_ENTRY_SIZE;
+            int[] index = new int[keys.length * 2];
+            for (int i = 0; i < keys.length; i++) {
+                index[2 * i] = dataStart + dataOut.size();
+                dataOut.writeInt(keys[i].length);
+                dataOut.write(keys[i]);
+
+                index[2 * i + 1] = dataStart + dataOut.size();
+                writeValue(dataOut, entries.get(new String(keys[i], UTF8)));
+            }
+            dataOut.flush();
+
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(dataStart
+                    + data.size());
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(keys.length);
+            for (int pos : index) {
+                out.writeInt(pos);
+            }
+            data.writeTo(out);
+            out.flush();
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            // Only in-memory streams are involved
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Writes <code>entries</code> to <code>file</code>. The content is first
+     * written to a temporary file which is then renamed, so readers never see
+     * a partially written snapshot.
+     *
+     * @param entries fully qualified keys and their values
+     * @param file destination file
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(Map<String, ?> entries, File file)
+            throws IOException {
+        byte[] bytes = toBytes(entries);
+        File folder = file.getAbsoluteFile().getParentFile();
+        File tmp = File.createTempFile(file.getName(), ".tmp", folder);
+        try {
+            try (OutputStream out = new FileOutputStream(tmp)) {
+                out.write(bytes);
+            }
+            if (!tmp.renameTo(file)) {
+                throw new IOException("Cannot rename " + tmp + " to " + file);
+            }
+        } finally {
+            tmp.delete();
+        }
+    }
+
+    private static void writeValue(DataOutputStream out, Object v)
+            throws IOException {
+        if (v == null) {
+            out.writeByte(NULL);
+        } else if (v instanceof Boolean) {
+            out.writeByte((Boolean) v ? TRUE : FALSE);
+        } else if (v instanceof Integer || v instanceof Short
+                || v instanceof Byte) {
+            out.writeByte(INT);
+            out.writeInt(((Number) v).intValue());
+        } else if (v instanceof Long) {
+            out.writeByte(LONG);
+            out.writeLong((Long) v);
+        } else if (v instanceof Double) {
+            out.writeByte(DOUBLE);
+            out.writeDouble((Double) v);
+        } else if (v instanceof Float) {
+            out.writeByte(FLOAT);
+            out.writeFloat((Float) v);
+        } else if (v instanceof BigInteger) {
+            byte[] b = ((BigInteger) v).toByteArray();
+            out.writeByte(BIG_INTEGER);
+            out.writeInt(b.length);
+            out.write(b);
+        } else if (v instanceof String) {
+            byte[] b = ((String) v).getBytes(UTF8);
+            out.writeByte(STRING);
+            out.writeInt(b.length);
+            out.write(b);
+        } else if (v instanceof List) {
+            List<?> list = (List<?>) v;
+            out.writeByte(LIST);
+            out.writeInt(list.size());
+            for (Object o : list) {
+                writeValue(out, o);
+            }
+        } else if (v instanceof Map) {
+            Map<?, ?> map = (Map<?, ?>) v;
+            out.writeByte(MAP);
+            out.writeInt(map.size());
+            for (Entry<?, ?> e : map.entrySet()) {
+                writeValue(out, e.getKey());
+                writeValue(out, e.getValue());
+            }
+        } else if (v instanceof ColumnTable) {
+            byte[] b = ((ColumnTable) v).file().getAbsolutePath().getBytes(
+                    UTF8);
+            out.writeByte(TABLE);
+            out.writeInt(b.length);
+            out.write(b);
+        } else {
+            throw new RuntimeException("Cannot serialize configuration value "
+                    + v + " of " + v.getClass());
+        }
+    }
+}
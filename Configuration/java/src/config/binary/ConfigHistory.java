@@ -0,0 +1,256 @@
+package config.binary;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import common.config.AbstractConfigSnapshot;
+
+/**
+ * Every configuration that was live over time, e.g. to replay a backtest with
+ * the configuration of the day. Versions are kept in a
+ * {@link PersistentConfigMap}, so a version costs memory only for the keys
+ * that changed since the previous one.
+ * <p>
+ * The history is written to disk as the changes of every version, each in the
+ * format of {@link BinaryConfigWriter}:
+ *
+ * <pre>
+ * header:  magic (int), version (int), version count (int)
+ * version: time (long), changed entries length (int) + entries,
+ *          removed keys length (int) + keys with null values
+ * </pre>
+ *
+ * @author bgonzalez
+ */
+public final class ConfigHistory {
+    private static final int MAGIC = 0x43425748; // "CBWH"
+    private static final int FORMAT_VERSION = 1;
+
+    private long[] _times = new long[16];
+    private Version[] _versions = new Version[16];
+    private int _count;
+
+    /**
+     * Records the configuration that is live from <code>nanoTime</code> on.
+     *
+     * @param nanoTime time the configuration became live, after the time of
+     *            all versions recorded so far
+     * @param entries fully qualified keys and their values
+     */
+    public synchronized void record(long nanoTime, Map<String, ?> entries) {
+        PersistentConfigMap map = PersistentConfigMap.EMPTY;
+        if (_count > 0) {
+            if (nanoTime <= _times[_count - 1]) {
+                throw new RuntimeException("Version time " + nanoTime
+                        + " must be after " + _times[_count - 1]);
+            }
+            map = _versions[_count - 1]._map;
+            List<String> keys = new ArrayList<>(map.size());
+            map.keys(keys);
+            for (String key : keys) {
+                if (!entries.containsKey(key)) {
+                    map = map.remove(key);
+                }
+            }
+        }
+        for (Entry<String, ?> entry : entries.entrySet()) {
+            map = map.put(entry.getKey(), entry.getValue());
+        }
+        add(nanoTime, map);
+    }
+
+    private void add(long nanoTime, PersistentConfigMap map) {
+        if (_count == _times.length) {
+            _times = Arrays.copyOf(_times, _count * 2);
+            _versions = Arrays.copyOf(_versions, _count * 2);
+        }
+        _times[_count] = nanoTime;
+        _versions[_count] = new Version(nanoTime, map);
+        _count++;
+    }
+
+    /**
+     * @return number of versions
+     */
+    public synchronized int size() {
+        return _count;
+    }
+
+    /**
+     * @param nanoTime time
+     * @return configuration live at <code>nanoTime</code>, i.e. the latest
+     *         version recorded at or before it
+     */
+    public synchronized Version snapshotAt(long nanoTime) {
+        int idx = Arrays.binarySearch(_times, 0, _count, nanoTime);
+        if (idx < 0) {
+            idx = -idx - 2;
+        }
+        if (idx < 0) {
+            throw new RuntimeException("No configuration recorded at or before "
+                    + nanoTime);
+        }
+        return _versions[idx];
+    }
+
+    /**
+     * Writes the history to <code>file</code>.
+     *
+     * @param file destination file
+     * @throws IOException if the file cannot be written
+     */
+    public synchronized void write(File file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(_count);
+            PersistentConfigMap previous = PersistentConfigMap.EMPTY;
+            for (int i = 0; i < _count; i++) {
+                PersistentConfigMap map = _versions[i]._map;
+                Map<String, Object> changed = new HashMap<>();
+                List<String> keys = new ArrayList<>(map.size());
+                map.keys(keys);
+                for (String key : keys) {
+                    Object v = map.get(key);
+                    if (!previous.containsKey(key)
+                            || !same(v, previous.get(key))) {
+                        changed.put(key, v);
+                    }
+                }
+                Map<String, Object> removed = new HashMap<>();
+                keys.clear();
+                previous.keys(keys);
+                for (String key : keys) {
+                    if (!map.containsKey(key)) {
+                        removed.put(key, null);
+                    }
+                }
+
+                out.writeLong(_times[i]);
+                writeBlock(out, BinaryConfigWriter.toBytes(changed));
+                writeBlock(out, BinaryConfigWriter.toBytes(removed));
+                previous = map;
+            }
+        }
+    }
+
+    /**
+     * @param file file written by {@link #write(File)}
+     * @return history read from <code>file</code>
+     * @throws IOException if the file cannot be read
+     */
+    public static ConfigHistory read(File file) throws IOException {
+        ConfigHistory history = new ConfigHistory();
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                throw new RuntimeException("Not a configuration history: "
+                        + file);
+            }
+            int formatVersion = in.readInt();
+            if (formatVersion != FORMAT_VERSION) {
+                throw new RuntimeException(
+                        "Unsupported configuration history version: "
+                                + formatVersion);
+            }
+            int count = in.readInt();
+            PersistentConfigMap map = PersistentConfigMap.EMPTY;
+            for (int i = 0; i < count; i++) {
+                long nanoTime = in.readLong();
+                BinaryConfigSnapshot changed = readBlock(in);
+                BinaryConfigSnapshot removed = readBlock(in);
+                for (String key : removed.keys()) {
+                    map = map.remove(key);
+                }
+                for (Entry<String, Object> entry : changed.asMap().entrySet()) {
+                    map = map.put(entry.getKey(), entry.getValue());
+                }
+                history.add(nanoTime, map);
+            }
+        } catch (EOFException e) {
+            throw new RuntimeException("Truncated configuration history: "
+                    + file, e);
+        }
+        return history;
+    }
+
+    private static void writeBlock(DataOutputStream out, byte[] block)
+            throws IOException {
+        out.writeInt(block.length);
+        out.write(block);
+    }
+
+    private static BinaryConfigSnapshot readBlock(DataInputStream in)
+            throws IOException {
+        byte[] block = new byte[in.readInt()];
+        in.readFully(block);
+        return new BinaryConfigSnapshot(ByteBuffer.wrap(block));
+    }
+
+    private static boolean same(Object a, Object b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    /**
+     * One recorded version of the configuration.
+     */
+    public static final class Version extends AbstractConfigSnapshot {
+        private final long _time;
+        private final PersistentConfigMap _map;
+
+        Version(long time, PersistentConfigMap map) {
+            _time = time;
+            _map = map;
+        }
+
+        /**
+         * @return time from which this version was live
+         */
+        public long time() {
+            return _time;
+        }
+
+        /**
+         * @return all fully qualified keys and their values
+         */
+        public Map<String, Object> asMap() {
+            List<String> keys = new ArrayList<>(_map.size());
+            _map.keys(keys);
+            Map<String, Object> map = new HashMap<>();
+            for (String key : keys) {
+                map.put(key, _map.get(key));
+            }
+            return Collections.unmodifiableMap(map);
+        }
+
+        @Override
+        public Set<String> keys() {
+            Set<String> keys = new LinkedHashSet<>();
+            _map.keys(keys);
+            return Collections.unmodifiableSet(keys);
+        }
+
+        @Override
+        protected Object value(String key) {
+            return _map.get(key);
+        }
+    }
+}
@@ -0,0 +1,317 @@
+package config.binary;
+
+import java.util.Collection;
+
+/**
+ * Immutable hash array mapped trie from fully qualified keys to values.
+ * Updates return a new map which shares every node not on the path to the
+ * updated key with the old map, so successive versions of a configuration
+ * cost memory only for what changed between them.
+ * <p>
+ * <code>null</code> values are allowed and are distinct from missing keys.
+ *
+ * @author bgonzalez
+ */
+final class PersistentConfigMap {
+    static final PersistentConfigMap EMPTY = new PersistentConfigMap(
+            new BitmapNode(0, new Object[0]), 0);
+
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+
+    private final Node _root;
+    private final int _size;
+
+    private PersistentConfigMap(Node root, int size) {
+        _root = root;
+        _size = size;
+    }
+
+    /**
+     * @return number of keys
+     */
+    int size() {
+        return _size;
+    }
+
+    /**
+     * @param key fully qualified key
+     * @return <code>true</code> if <code>key</code> is in the map
+     */
+    boolean containsKey(String key) {
+        return _root.find(0, key.hashCode(), key) != null;
+    }
+
+    /**
+     * @param key fully qualified key
+     * @return value of <code>key</code>, or <code>null</code> if it is
+     *         missing
+     */
+    Object get(String key) {
+        Entry e = _root.find(0, key.hashCode(), key);
+        return e == null ? null : e._value;
+    }
+
+    /**
+     * @param key fully qualified key
+     * @param value value
+     * @return map with <code>key</code> mapped to <code>value</code>
+     */
+    PersistentConfigMap put(String key, Object value) {
+        boolean[] added = new boolean[1];
+        Node root = _root.put(0, new Entry(key, value), added);
+        if (root == _root) {
+            return this;
+        }
+        return new PersistentConfigMap(root, added[0] ? _size + 1 : _size);
+    }
+
+    /**
+     * @param key fully qualified key
+     * @return map without <code>key</code>
+     */
+    PersistentConfigMap remove(String key) {
+        Node root = _root.remove(0, key.hashCode(), key);
+        if (root == _root) {
+            return this;
+        }
+        return new PersistentConfigMap(root == null ? EMPTY._root : root,
+                _size - 1);
+    }
+
+    /**
+     * @param keys collection all keys are added to
+     */
+    void keys(Collection<String> keys) {
+        _root.keys(keys);
+    }
+
+    private static boolean same(Object a, Object b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    private static final class Entry {
+        private final String _key;
+        private final int _hash;
+        private final Object _value;
+
+        Entry(String key, Object value) {
+            _key = key;
+            _hash = key.hashCode();
+            _value = value;
+        }
+    }
+
+    private interface Node {
+        Entry find(int shift, int hash, String key);
+
+        Node put(int shift, Entry entry, boolean[] added);
+
+        /**
+         * @return node without <code>key</code>, or <code>null</code> if the
+         *         node would be empty
+         */
+        Node remove(int shift, int hash, String key);
+
+        void keys(Collection<String> keys);
+    }
+
+    /**
+     * Node with up to 32 slots, each holding an {@link Entry} or a child
+     * {@link Node}. Only occupied slots are stored.
+     */
+    private static final class BitmapNode implements Node {
+        private final int _bitmap;
+        private final Object[] _slots;
+
+        BitmapNode(int bitmap, Object[] slots) {
+            _bitmap = bitmap;
+            _slots = slots;
+        }
+
+        @Override
+        public Entry find(int shift, int hash, String key) {
+            int bit = 1 << ((hash >>> shift) & MASK);
+            if ((_bitmap & bit) == 0) {
+                return null;
+            }
+            Object slot = _slots[Integer.bitCount(_bitmap & (bit - 1))];
+            if (slot instanceof Entry) {
+                Entry e = (Entry) slot;
+                return e._key.equals(key) ? e : null;
+            }
+            return ((Node) slot).find(shift + BITS, hash, key);
+        }
+
+        @Override
+        public Node put(int shift, Entry entry, boolean[] added) {
+            int bit = 1 << ((entry._hash >>> shift) & MASK);
+            int idx = Integer.bitCount(_bitmap & (bit - 1));
+            if ((_bitmap & bit) == 0) {
+                Object[] slots = new Object[_slots.length + 1];
+                System.arraycopy(_slots, 0, slots, 0, idx);
+                slots[idx] = entry;
+                System.arraycopy(_slots, idx, slots, idx + 1, _slots.length
+                        - idx);
+                added[0] = true;
+                return new BitmapNode(_bitmap | bit, slots);
+            }
+
+            Object slot = _slots[idx];
+            Object replacement;
+            if (slot instanceof Entry) {
+                Entry e = (Entry) slot;
+                if (e._key.equals(entry._key)) {
+                    if (same(e._value, entry._value)) {
+                        return this;
+                    }
+                    replacement = entry;
+                } else {
+                    added[0] = true;
+                    replacement = merge(shift + BITS, e, entry);
+                }
+            } else {
+                replacement = ((Node) slot).put(shift + BITS, entry, added);
+                if (replacement == slot) {
+                    return this;
+                }
+            }
+            Object[] slots = _slots.clone();
+            slots[idx] = replacement;
+            return new BitmapNode(_bitmap, slots);
+        }
+
+        @Override
+        public Node remove(int shift, int hash, String key) {
+            int bit = 1 << ((hash >>> shift) & MASK);
+            if ((_bitmap & bit) == 0) {
+                return this;
+            }
+            int idx = Integer.bitCount(_bitmap & (bit - 1));
+            Object slot = _slots[idx];
+            Object replacement;
+            if (slot instanceof Entry) {
+                if (!((Entry) slot)._key.equals(key)) {
+                    return this;
+                }
+                replacement = null;
+            } else {
+                replacement = ((Node) slot).remove(shift + BITS, hash, key);
+                if (replacement == slot) {
+                    return this;
+                }
+            }
+
+            if (replacement != null) {
+                Object[] slots = _slots.clone();
+                slots[idx] = replacement;
+                return new BitmapNode(_bitmap, slots);
+            }
+            if (_slots.length == 1) {
+                return null;
+            }
+            Object[] slots = new Object[_slots.length - 1];
+            System.arraycopy(_slots, 0, slots, 0, idx);
+            System.arraycopy(_slots, idx + 1, slots, idx, slots.length - idx);
+            return new BitmapNode(_bitmap & ~bit, slots);
+        }
+
+        @Override
+        public void keys(Collection<String> keys) {
+            for (Object slot : _slots) {
+                if (slot instanceof Entry) {
+                    keys.add(((Entry) slot)._key);
+                } else {
+                    ((Node) slot).keys(keys);
+                }
+            }
+        }
+
+        private static Node merge(int shift, Entry a, Entry b) {
+            if (a._hash == b._hash) {
+                return new CollisionNode(a._hash, new Entry[] { a, b });
+            }
+            int posA = (a._hash >>> shift) & MASK;
+            int posB = (b._hash >>> shift) & MASK;
+            if (posA == posB) {
+                return new BitmapNode(1 << posA, new Object[] { merge(shift
+                        + BITS, a, b) });
+            }
+            // Slots are ordered by bit position
+            Object[] slots = posA < posB ? new Object[] { a, b }
+                    : new Object[] { b, a };
+            return new BitmapNode((1 << posA) | (1 << posB), slots);
+        }
+    }
+
+    /**
+     * Entries whose keys have the same hash code.
+     */
+    private static final class CollisionNode implements Node {
+        private final int _hash;
+        private final Entry[] _entries;
+
+        CollisionNode(int hash, Entry[] entries) {
+            _hash = hash;
+            _entries = entries;
+        }
+
+        @Override
+        public Entry find(int shift, int hash, String key) {
+            for (Entry e : _entries) {
+                if (e._key.equals(key)) {
+                    return e;
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public Node put(int shift, Entry entry, boolean[] added) {
+            if (entry._hash != _hash) {
+                int bit = 1 << ((_hash >>> shift) & MASK);
+                return new BitmapNode(bit, new Object[] { this }).put(shift,
+                        entry, added);
+            }
+            for (int i = 0; i < _entries.length; i++) {
+                if (_entries[i]._key.equals(entry._key)) {
+                    if (same(_entries[i]._value, entry._value)) {
+                        return this;
+                    }
+                    Entry[] entries = _entries.clone();
+                    entries[i] = entry;
+                    return new CollisionNode(_hash, entries);
+                }
+            }
+            Entry[] entries = new Entry[_entries.length + 1];
+            System.arraycopy(_entries, 0, entries, 0, _entries.length);
+            entries[_entries.length] = entry;
+            added[0] = true;
+            return new CollisionNode(_hash, entries);
+        }
+
+        @Override
+        public Node remove(int shift, int hash, String key) {
+            for (int i = 0; i < _entries.length; i++) {
+                if (_entries[i]._key.equals(key)) {
+                    if (_entries.length == 1) {
+                        return null;
+                    }
+                    Entry[] entries = new Entry[_entries.length - 1];
+                    System.arraycopy(_entries, 0, entries, 0, i);
+                    System.arraycopy(_entries, i + 1, entries, i,
+                            entries.length - i);
+                    return new CollisionNode(_hash, entries);
+                }
+            }
+            return this;
+        }
+
+        @Override
+        public void keys(Collection<String> keys) {
+            for (Entry e : _entries) {
+                keys.add(e._key);
+            }
+        }
+    }
+}
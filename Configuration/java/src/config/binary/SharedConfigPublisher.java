@@ -0,0 +1,170 @@
+package config.binary;
+
+import static common.Constraints.gt0;
+import static common.Constraints.gte;
+import static config.binary.SharedConfigRegion.LENGTH_OFFSET;
+import static config.binary.SharedConfigRegion.MAGIC;
+import static config.binary.SharedConfigRegion.PUBLISHED_OFFSET;
+import static config.binary.SharedConfigRegion.SEQUENCE_OFFSET;
+import static config.binary.SharedConfigRegion.SLOT_CAPACITY_OFFSET;
+import static config.binary.SharedConfigRegion.SLOT_COUNT;
+import static config.binary.SharedConfigRegion.SLOT_COUNT_OFFSET;
+import static config.binary.SharedConfigRegion.SLOT_HEADER_SIZE;
+import static config.binary.SharedConfigRegion.VERSION_OFFSET;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.channels.FileLock;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+
+import common.io.DirectMemory;
+
+/**
+ * Publishes configuration snapshots into a memory mapped region shared by all
+ * processes on a host, which read them with {@link SharedConfigReader}. Only
+ * one publisher may have a region open at a time. Use a file on a memory
+ * backed file system (e.g. <code>/dev/shm</code>) to avoid disk writes.
+ *
+ * @author bgonzalez
+ */
+public final class SharedConfigPublisher implements Closeable {
+    private final FileChannel _channel;
+    private final FileLock _lock;
+    private final MappedByteBuffer _region;
+    private final int _slotCount;
+    private final int _slotCapacity;
+
+    /**
+     * @param file region file
+     * @param slotCapacity maximum size in bytes of a binary snapshot
+     * @throws IOException if the region cannot be mapped or is already used by
+     *             another publisher
+     */
+    public SharedConfigPublisher(File file, int slotCapacity)
+            throws IOException {
+        this(file, SLOT_COUNT, slotCapacity);
+    }
+
+    /**
+     * @param file region file
+     * @param slotCount number of versions kept in the region, at least 2 so
+     *            that the latest version is never overwritten by the next
+     *            one. A reader's snapshot remains usable until
+     *            <code>slotCount - 1</code> newer versions have been
+     *            published.
+     * @param slotCapacity maximum size in bytes of a binary snapshot
+     * @throws IOException if the region cannot be mapped or is already used by
+     *             another publisher
+     */
+    public SharedConfigPublisher(File file, int slotCount, int slotCapacity)
+            throws IOException {
+        gte(2, slotCount);
+        gt0(slotCapacity);
+        _slotCount = slotCount;
+        // Keep slot headers 8 byte aligned
+        _slotCapacity = (slotCapacity + 7) & ~7;
+
+        _channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        _lock = _channel.tryLock();
+        if (_lock == null) {
+            _channel.close();
+            throw new IOException("Shared config region is already in use: "
+                    + file.getAbsolutePath());
+        }
+
+        // Map through the locked channel, closing another channel on the
+        // same file can release the lock
+        long size = SharedConfigRegion.regionSize(_slotCount, _slotCapacity);
+        if (size > Integer.MAX_VALUE) {
+            close();
+            throw new IllegalArgumentException("Shared region too large: "
+                    + size);
+        }
+        boolean compatible = _channel.size() == size;
+        _region = _channel.map(MapMode.READ_WRITE, 0, size);
+        _region.order(ByteOrder.nativeOrder());
+        if (!compatible || _region.getInt(0) != MAGIC
+                || _region.getInt(SLOT_COUNT_OFFSET) != _slotCount
+                || _region.getInt(SLOT_CAPACITY_OFFSET) != _slotCapacity) {
+            initialize();
+        }
+    }
+
+    private void initialize() {
+        DirectMemory.putIntVolatile(_region, 0, 0);
+        _region.putInt(SLOT_COUNT_OFFSET, _slotCount);
+        _region.putInt(SLOT_CAPACITY_OFFSET, _slotCapacity);
+        _region.putLong(PUBLISHED_OFFSET, 0);
+        for (int slot = 0; slot < _slotCount; slot++) {
+            int offset = SharedConfigRegion.slotOffset(slot, _slotCapacity);
+            _region.putLong(offset + SEQUENCE_OFFSET, 0);
+            _region.putLong(offset + VERSION_OFFSET, 0);
+            _region.putInt(offset + LENGTH_OFFSET, 0);
+        }
+        DirectMemory.putIntVolatile(_region, 0, MAGIC);
+    }
+
+    /**
+     * @return latest published version, or 0 if nothing has been published
+     */
+    public long version() {
+        return DirectMemory.getLongVolatile(_region, PUBLISHED_OFFSET);
+    }
+
+    /**
+     * @param entries fully qualified keys and their values
+     * @return published version
+     */
+    public long publish(Map<String, ?> entries) {
+        return publish(BinaryConfigWriter.toBytes(entries));
+    }
+
+    /**
+     * @param snapshot binary snapshot as written by {@link BinaryConfigWriter}
+     * @return published version
+     */
+    public long publish(byte[] snapshot) {
+        if (snapshot.length > _slotCapacity) {
+            throw new IllegalArgumentException("Snapshot of "
+                    + snapshot.length + " bytes exceeds slot capacity of "
+                    + _slotCapacity);
+        }
+
+        long version = version() + 1;
+        int offset = SharedConfigRegion.slotOffset(
+                (int) (version % _slotCount), _slotCapacity);
+        int seqOffset = offset + SEQUENCE_OFFSET;
+        // A publisher which died while writing leaves the sequence odd, round
+        // it up so that it's odd exactly while this publisher writes
+        long seq = (DirectMemory.getLongVolatile(_region, seqOffset) + 1)
+                & ~1L;
+
+        // Odd sequence tells readers the slot is being written. The fence
+        // keeps the stores of the slot below from moving above it.
+        DirectMemory.putLongVolatile(_region, seqOffset, seq + 1);
+        DirectMemory.fullFence();
+        ByteBuffer data = _region.duplicate();
+        data.position(offset + SLOT_HEADER_SIZE);
+        data.put(snapshot);
+        _region.putLong(offset + VERSION_OFFSET, version);
+        _region.putInt(offset + LENGTH_OFFSET, snapshot.length);
+        DirectMemory.putLongOrdered(_region, seqOffset, seq + 2);
+
+        DirectMemory.putLongVolatile(_region, PUBLISHED_OFFSET, version);
+        return version;
+    }
+
+    @Override
+    public void close() throws IOException {
+        _lock.release();
+        _channel.close();
+    }
+}
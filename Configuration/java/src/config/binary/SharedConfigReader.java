@@ -0,0 +1,141 @@
+package config.binary;
+
+import static config.binary.SharedConfigRegion.LENGTH_OFFSET;
+import static config.binary.SharedConfigRegion.MAGIC;
+import static config.binary.SharedConfigRegion.PUBLISHED_OFFSET;
+import static config.binary.SharedConfigRegion.SEQUENCE_OFFSET;
+import static config.binary.SharedConfigRegion.SLOT_CAPACITY_OFFSET;
+import static config.binary.SharedConfigRegion.SLOT_COUNT_OFFSET;
+import static config.binary.SharedConfigRegion.SLOT_HEADER_SIZE;
+import static config.binary.SharedConfigRegion.VERSION_OFFSET;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+
+import common.io.DirectMemory;
+
+/**
+ * Reads configuration snapshots published by a {@link SharedConfigPublisher}
+ * in another process. The region is mapped read only and snapshots are served
+ * directly from it without copying.
+ * <p>
+ * A snapshot is a view on one slot of the region. Once the publisher has
+ * cycled through all slots and starts overwriting that slot, lookups of values
+ * the snapshot hasn't already decoded fail, so callers should take a new
+ * snapshot whenever {@link #version()} changes.
+ *
+ * @author bgonzalez
+ */
+public final class SharedConfigReader {
+    private final MappedByteBuffer _region;
+    private final int _slotCount;
+    private final int _slotCapacity;
+
+    /**
+     * @param file region file written by a {@link SharedConfigPublisher}
+     * @throws IOException if the region cannot be mapped
+     */
+    public SharedConfigReader(File file) throws IOException {
+        _region = SharedConfigRegion.map(file);
+        if (_region.capacity() < SharedConfigRegion.HEADER_SIZE
+                || DirectMemory.getIntVolatile(_region, 0) != MAGIC) {
+            throw new IOException("Not an initialized shared config region: "
+                    + file.getAbsolutePath());
+        }
+        _slotCount = _region.getInt(SLOT_COUNT_OFFSET);
+        _slotCapacity = _region.getInt(SLOT_CAPACITY_OFFSET);
+        if (_slotCount < 2 || _region.capacity() != SharedConfigRegion
+                .regionSize(_slotCount, _slotCapacity)) {
+            throw new IOException("Corrupt shared config region: "
+                    + file.getAbsolutePath());
+        }
+    }
+
+    /**
+     * @return latest published version, or 0 if nothing has been published
+     */
+    public long version() {
+        return DirectMemory.getLongVolatile(_region, PUBLISHED_OFFSET);
+    }
+
+    /**
+     * Retries while the publisher overwrites the slot being read. A publisher
+     * only writes the slot after the one of the latest published version, and
+     * rounds an odd sequence left by a publisher which died while writing up
+     * to an even one, so the slot of the latest published version has an even
+     * sequence unless a live publisher has cycled through all slots since.
+     * 
+     * @return snapshot of the latest published version
+     */
+    public BinaryConfigSnapshot createConfigSnapshot() {
+        for (;;) {
+            long version = version();
+            if (version == 0) {
+                throw new RuntimeException(
+                        "No configuration has been published yet");
+            }
+
+            int offset = SharedConfigRegion.slotOffset(
+                    (int) (version % _slotCount), _slotCapacity);
+            SlotGuard guard = new SlotGuard(offset + SEQUENCE_OFFSET);
+            if ((guard._seq & 1) != 0) {
+                // Publisher is already overwriting this version
+                continue;
+            }
+
+            long slotVersion = _region.getLong(offset + VERSION_OFFSET);
+            int length = _region.getInt(offset + LENGTH_OFFSET);
+            if (!guard.valid() || slotVersion != version) {
+                continue;
+            }
+
+            ByteBuffer data = _region.duplicate();
+            data.position(offset + SLOT_HEADER_SIZE);
+            data.limit(offset + SLOT_HEADER_SIZE + length);
+            try {
+                BinaryConfigSnapshot snapshot = new BinaryConfigSnapshot(
+                        data.slice(), guard);
+                if (guard.valid()) {
+                    return snapshot;
+                }
+            } catch (RuntimeException e) {
+                if (guard.valid()) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * Seqlock check for one slot. Anything read from the slot is only valid if
+     * its sequence is unchanged afterwards.
+     */
+    private final class SlotGuard implements BinaryConfigSnapshot.Guard {
+        private final int _seqOffset;
+        private final long _seq;
+
+        SlotGuard(int seqOffset) {
+            _seqOffset = seqOffset;
+            // Acquire, pairs with the publisher's fence after the odd store:
+            // reads of the slot can't move above this read
+            _seq = DirectMemory.getLongVolatile(_region, seqOffset);
+        }
+
+        boolean valid() {
+            // Keep the preceding reads of the slot before the sequence check
+            DirectMemory.fullFence();
+            return DirectMemory.getLongVolatile(_region, _seqOffset) == _seq;
+        }
+
+        @Override
+        public void validate() {
+            if (!valid()) {
+                throw new RuntimeException(
+                        "Configuration snapshot has been overwritten by a newer"
+                                + " version, create a new snapshot");
+            }
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package config.binary;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Layout of the memory mapped region shared by a
+ * {@link SharedConfigPublisher} and its {@link SharedConfigReader}s. The
+ * region holds a ring of slots, each large enough for one binary snapshot.
+ * Version <code>v</code> is written to slot <code>v % slot count</code>, and
+ * every slot is guarded by its own sequence number, which is odd while the
+ * publisher is writing the slot.
+ *
+ * <pre>
+ * header (64 bytes): magic (int), slot count (int), slot capacity (int),
+ *                    pad (int), latest published version (long)
+ * slot:              sequence (long), version (long), length (int),
+ *                    pad to 64 bytes, snapshot bytes (slot capacity)
+ * </pre>
+ *
+ * Header fields are in native byte order, since they are accessed through
+ * {@link common.io.DirectMemory}.
+ *
+ * @author bgonzalez
+ */
+final class SharedConfigRegion {
+    static final int MAGIC = 0x43425753; // "CBWS"
+    static final int SLOT_COUNT = 4;
+    static final int SLOT_COUNT_OFFSET = 4;
+    static final int SLOT_CAPACITY_OFFSET = 8;
+    static final int PUBLISHED_OFFSET = 16;
+    static final int HEADER_SIZE = 64;
+
+    static final int SEQUENCE_OFFSET = 0;
+    static final int VERSION_OFFSET = 8;
+    static final int LENGTH_OFFSET = 16;
+    static final int SLOT_HEADER_SIZE = 64;
+
+    private SharedConfigRegion() {
+    }
+
+    /**
+     * @return byte offset of slot <code>slot</code>
+     */
+    static int slotOffset(int slot, int slotCapacity) {
+        return HEADER_SIZE + slot * (SLOT_HEADER_SIZE + slotCapacity);
+    }
+
+    /**
+     * @return size of a region with the given layout
+     */
+    static long regionSize(int slotCount, int slotCapacity) {
+        return HEADER_SIZE + (long) slotCount
+                * (SLOT_HEADER_SIZE + slotCapacity);
+    }
+
+    /**
+     * @param file region file
+     * @return whole file mapped read only
+     */
+    static MappedByteBuffer map(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(),
+                StandardOpenOption.READ)) {
+            MappedByteBuffer region = channel.map(MapMode.READ_ONLY, 0,
+                    channel.size());
+            region.order(ByteOrder.nativeOrder());
+            return region;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package config.python;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import config.binary.BinaryConfigSnapshot;
+import config.binary.BinaryConfigWriter;
+
+/**
+ * Evaluates an imports list once and writes the resulting configuration
+ * snapshot to a binary file, which can then be loaded with
+ * {@link BinaryConfigSnapshot#map(File)} without starting a python
+ * interpreter. The written file is read back and checked against the live
+ * snapshot.
+ *
+ * <pre>
+ * usage: ConfigSnapshotCompiler &lt;imports file&gt; &lt;output file&gt;
+ * </pre>
+ *
+ * @author bgonzalez
+ */
+public final class ConfigSnapshotCompiler {
+    private ConfigSnapshotCompiler() {
+    }
+
+    /**
+     * @param importsFilename imports file
+     * @param output binary snapshot file to write
+     * @return live snapshot which was written
+     * @throws IOException if the output cannot be written
+     */
+    public static JythonConfigSnapshot compile(String importsFilename,
+            File output) throws IOException {
+        JythonConfigLoader loader = new JythonConfigLoader(importsFilename);
+        try {
+            loader.reload();
+            JythonConfigSnapshot snapshot = loader.createConfigSnapshot();
+            BinaryConfigWriter.write(snapshot.asMap(), output);
+            return snapshot;
+        } finally {
+            loader.shutdown();
+        }
+    }
+
+    /**
+     * @param live snapshot evaluated by python
+     * @param binary snapshot read from a binary file
+     * @return description of every key where the two snapshots disagree, empty
+     *         if they are consistent
+     */
+    public static List<String> verify(JythonConfigSnapshot live,
+            BinaryConfigSnapshot binary) {
+        List<String> errors = new ArrayList<>();
+        Map<String, Object> liveMap = live.asMap();
+        Map<String, Object> binaryMap = binary.asMap();
+        for (Entry<String, Object> e : liveMap.entrySet()) {
+            if (!binaryMap.containsKey(e.getKey())) {
+                errors.add("Missing key " + e.getKey());
+            } else {
+                Object expected = e.getValue();
+                Object actual = binaryMap.get(e.getKey());
+                if (expected == null ? actual != null : !expected
+                        .equals(actual)) {
+                    errors.add("Key " + e.getKey() + ": expected " + expected
+                            + " but was " + actual);
+                }
+            }
+        }
+        for (String key : binaryMap.keySet()) {
+            if (!liveMap.containsKey(key)) {
+                errors.add("Unexpected key " + key);
+            }
+        }
+        return errors;
+    }
+
+    /**
+     * @param args imports file and output file
+     * @throws IOException if the output cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("usage: ConfigSnapshotCompiler"
+                    + " <imports file> <output file>");
+            System.exit(2);
+        }
+
+        File output = new File(args[1]);
+        JythonConfigSnapshot live = compile(args[0], output);
+        List<String> errors = verify(live, BinaryConfigSnapshot.map(output));
+        for (String error : errors) {
+            System.err.println(error);
+        }
+        if (!errors.isEmpty()) {
+            output.delete();
+            System.exit(1);
+        }
+        System.out.println("Wrote " + live.asMap().size() + " keys to "
+                + output.getAbsolutePath());
+    }
+}
@@ -0,0 +1,111 @@
+package config.python;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.List;
+
+import common.config.ConfigSchema;
+
+/**
+ * Loads configuration files with {@link DslEvaluator}, which evaluates the
+ * holder DSL of <code>configbase.py</code> in plain java and is much faster
+ * than starting and running a python interpreter. As soon as a file uses
+ * anything outside that subset, all files are evaluated with a
+ * {@link JythonConfigLoader} instead, so the snapshot is the same either way.
+ * <p>
+ * <code>configbase.py</code> itself is not evaluated, its definitions are
+ * built into the evaluator.
+ *
+ * @author bgonzalez
+ */
+public final class DslConfigLoader {
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final String CONFIGBASE = "configbase.py";
+
+    private final List<File> _pyFiles;
+    private JythonConfigLoader _jython;
+    private String _fallbackReason;
+    private ConfigSchema _schema;
+
+    /**
+     * @param importsFilename imports file
+     */
+    public DslConfigLoader(String importsFilename) {
+        this(JythonConfigLoader.getFiles(importsFilename));
+    }
+
+    /**
+     * @param files list of files to interpret
+     */
+    public DslConfigLoader(List<File> files) {
+        _pyFiles = files;
+    }
+
+    /**
+     * Validate the configuration on every load from now on.
+     *
+     * @param schema schema, or <code>null</code> to stop validating
+     */
+    public synchronized void validate(ConfigSchema schema) {
+        _schema = schema;
+        if (_jython != null) {
+            _jython.validate(schema);
+        }
+    }
+
+    /**
+     * Evaluates the current content of the files.
+     *
+     * @return configuration snapshot
+     * @throws common.ConstraintException if the configuration violates the
+     *             schema passed to {@link #validate(ConfigSchema)}
+     */
+    public synchronized JythonConfigSnapshot load() {
+        try {
+            DslEvaluator evaluator = new DslEvaluator();
+            for (File file : _pyFiles) {
+                if (!CONFIGBASE.equals(file.getName())) {
+                    String source = new String(Files.readAllBytes(file
+                            .toPath()), UTF8);
+                    evaluator.evaluate(source, file.getPath());
+                }
+            }
+            _fallbackReason = null;
+            JythonConfigSnapshot snapshot = new JythonConfigSnapshot(evaluator);
+            if (_schema != null) {
+                _schema.validate(snapshot);
+            }
+            return snapshot;
+        } catch (DslEvaluator.UnsupportedConstruct e) {
+            _fallbackReason = e.getMessage();
+        } catch (IOException e) {
+            throw new RuntimeException("Cannot read configuration files", e);
+        }
+
+        if (_jython == null) {
+            _jython = new JythonConfigLoader(_pyFiles);
+            _jython.validate(_schema);
+        }
+        _jython.reload();
+        return _jython.createConfigSnapshot();
+    }
+
+    /**
+     * @return why the last {@link #load()} used jython, or <code>null</code>
+     *         if it didn't
+     */
+    public synchronized String fallbackReason() {
+        return _fallbackReason;
+    }
+
+    /**
+     * Stops the jython loader, if one was needed.
+     */
+    public synchronized void shutdown() {
+        if (_jython != null) {
+            _jython.shutdown();
+        }
+    }
+}
@@ -0,0 +1,674 @@
+package config.python;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Evaluates configuration files in plain java, without a python interpreter.
+ * Only the subset of python that <code>configbase.py</code> is meant for is
+ * understood:
+ * <ul>
+ * <li>assignments to globals and to holder attributes, including chained
+ * assignments,</li>
+ * <li><code>h('name')</code> and <code>table('path')</code>,</li>
+ * <li>attribute access on holders, which creates missing holders like
+ * <code>Holder.__getattr__</code> does,</li>
+ * <li>numbers, strings, <code>True</code>, <code>False</code>,
+ * <code>None</code>, lists, tuples and dicts, and references to globals.</li>
+ * </ul>
+ * Anything else raises an {@link UnsupportedConstruct}, and the files have to
+ * be evaluated with jython instead. So do programming errors such as undefined
+ * names, which leaves reporting them to jython.
+ *
+ * @author bgonzalez
+ */
+final class DslEvaluator {
+    private static final Set<String> KEYWORDS = new HashSet<>(Arrays.asList(
+            "and", "as", "assert", "break", "class", "continue", "def", "del",
+            "elif", "else", "except", "exec", "finally", "for", "from",
+            "global", "if", "import", "in", "is", "lambda", "not", "or",
+            "pass", "print", "raise", "return", "try", "while", "with",
+            "yield"));
+    /** Names defined by configbase.py */
+    private static final Set<String> BUILTINS = new HashSet<>(Arrays.asList(
+            "h", "table", "root", "Holder", "Table"));
+
+    private static final int EOF = 0;
+    private static final int NEWLINE = 1;
+    private static final int NAME = 2;
+    private static final int NUMBER = 3;
+    private static final int STRING = 4;
+    private static final int OP = 5;
+
+    private final Holder _root = new Holder();
+    private final Map<String, Object> _globals = new HashMap<>();
+
+    /**
+     * @return container for all holders
+     */
+    Holder root() {
+        return _root;
+    }
+
+    /**
+     * @return globals assigned so far
+     */
+    Map<String, Object> globals() {
+        return _globals;
+    }
+
+    /**
+     * @param source content of a configuration file
+     * @param filename name of the file, used in error messages
+     * @throws UnsupportedConstruct if the file isn't limited to the supported
+     *             subset
+     */
+    void evaluate(String source, String filename) {
+        Parser parser = new Parser(new Lexer(source, filename));
+        parser.file();
+    }
+
+    /**
+     * Holder created with <code>h()</code> or by attribute access.
+     */
+    static final class Holder {
+        private final Map<String, Object> _nodes = new LinkedHashMap<>();
+
+        /**
+         * @return attributes of this holder
+         */
+        Map<String, Object> nodes() {
+            return _nodes;
+        }
+
+        Object get(String attr) {
+            Object v = _nodes.get(attr);
+            if (v == null && !_nodes.containsKey(attr)) {
+                v = new Holder();
+                _nodes.put(attr, v);
+            }
+            return v;
+        }
+    }
+
+    /**
+     * Table referenced with <code>table('path')</code>.
+     */
+    static final class TableRef {
+        private final String _path;
+        private final String _referrer;
+
+        TableRef(String path, String referrer) {
+            _path = path;
+            _referrer = referrer;
+        }
+
+        /**
+         * @return path of the table file
+         */
+        String path() {
+            return _path;
+        }
+
+        /**
+         * @return name of the file the table is referenced from
+         */
+        String referrer() {
+            return _referrer;
+        }
+    }
+
+    /**
+     * Thrown for anything outside the supported subset.
+     */
+    static final class UnsupportedConstruct extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        UnsupportedConstruct(String filename, int line, String message) {
+            super(filename + ":" + line + ": " + message);
+        }
+    }
+
+    private static final class Lexer {
+        private final String _src;
+        private final String _file;
+        private int _pos;
+        private int _line = 1;
+        private int _depth;
+        private boolean _lineStart = true;
+
+        private int _type;
+        private String _text;
+        private Object _value;
+        private int _tokenLine;
+
+        Lexer(String src, String file) {
+            _src = src;
+            _file = file;
+        }
+
+        UnsupportedConstruct unsupported(String message) {
+            return new UnsupportedConstruct(_file, _tokenLine, message);
+        }
+
+        boolean isOp(char op) {
+            return _type == OP && _text.charAt(0) == op;
+        }
+
+        void next() {
+            while (true) {
+                _tokenLine = _line;
+                if (_lineStart && _depth == 0) {
+                    _lineStart = false;
+                    int p = _pos;
+                    while (p < _src.length() && (_src.charAt(p) == ' '
+                            || _src.charAt(p) == '\t')) {
+                        p++;
+                    }
+                    if (p > _pos && p < _src.length()
+                            && "\r\n#".indexOf(_src.charAt(p)) < 0) {
+                        throw unsupported("indented block");
+                    }
+                }
+                if (_pos >= _src.length()) {
+                    _type = EOF;
+                    return;
+                }
+                char c = _src.charAt(_pos);
+                if (c == ' ' || c == '\t' || c == '\r' || c == '\f') {
+                    _pos++;
+                } else if (c == '#') {
+                    while (_pos < _src.length() && _src.charAt(_pos) != '\n') {
+                        _pos++;
+                    }
+                } else if (c == '\\') {
+                    int p = _pos + 1;
+                    if (p < _src.length() && _src.charAt(p) == '\r') {
+                        p++;
+                    }
+                    if (p >= _src.length() || _src.charAt(p) != '\n') {
+                        throw unsupported("unexpected \\");
+                    }
+                    _pos = p + 1;
+                    _line++;
+                } else if (c == '\n') {
+                    _pos++;
+                    _line++;
+                    _lineStart = true;
+                    if (_depth == 0) {
+                        _type = NEWLINE;
+                        return;
+                    }
+                } else if (Character.isLetter(c) || c == '_') {
+                    name();
+                    return;
+                } else if (Character.isDigit(c)
+                        || (c == '.' && _pos + 1 < _src.length() && Character
+                                .isDigit(_src.charAt(_pos + 1)))) {
+                    number();
+                    return;
+                } else if (c == '\'' || c == '"') {
+                    string(c);
+                    return;
+                } else {
+                    op(c);
+                    return;
+                }
+            }
+        }
+
+        private void name() {
+            int start = _pos;
+            while (_pos < _src.length()
+                    && (Character.isLetterOrDigit(_src.charAt(_pos)) || _src
+                            .charAt(_pos) == '_')) {
+                _pos++;
+            }
+            if (_pos < _src.length() && "'\"".indexOf(_src.charAt(_pos)) >= 0) {
+                throw unsupported("string prefix");
+            }
+            _type = NAME;
+            _text = _src.substring(start, _pos);
+        }
+
+        private void number() {
+            int start = _pos;
+            boolean isFloat = false;
+            if (_src.startsWith("0x", _pos) || _src.startsWith("0X", _pos)) {
+                _pos += 2;
+                while (_pos < _src.length()
+                        && Character.digit(_src.charAt(_pos), 16) >= 0) {
+                    _pos++;
+                }
+            } else {
+                while (_pos < _src.length()) {
+                    char c = _src.charAt(_pos);
+                    if (c == '.' || c == 'e' || c == 'E') {
+                        isFloat = true;
+                        if ((c == 'e' || c == 'E') && _pos + 1 < _src.length()
+                                && "+-".indexOf(_src.charAt(_pos + 1)) >= 0) {
+                            _pos++;
+                        }
+                    } else if (!Character.isDigit(c)) {
+                        break;
+                    }
+                    _pos++;
+                }
+            }
+            String text = _src.substring(start, _pos);
+            boolean isLong = false;
+            if (_pos < _src.length()
+                    && (_src.charAt(_pos) == 'l' || _src.charAt(_pos) == 'L')) {
+                isLong = true;
+                _pos++;
+            }
+            if (_pos < _src.length()
+                    && (Character.isLetterOrDigit(_src.charAt(_pos)) || _src
+                            .charAt(_pos) == '_')) {
+                throw unsupported("number " + text + _src.charAt(_pos));
+            }
+
+            _type = NUMBER;
+            _text = text;
+            try {
+                if (isFloat) {
+                    if (isLong) {
+                        throw unsupported("number " + text);
+                    }
+                    _value = Double.valueOf(text);
+                } else if (text.length() > 2 && text.charAt(1) != '.'
+                        && (text.charAt(1) == 'x' || text.charAt(1) == 'X')) {
+                    _value = integer(new BigInteger(text.substring(2), 16),
+                            isLong);
+                } else if (text.length() > 1 && text.charAt(0) == '0') {
+                    // Octal in python 2
+                    throw unsupported("number " + text);
+                } else {
+                    _value = integer(new BigInteger(text), isLong);
+                }
+            } catch (NumberFormatException e) {
+                throw unsupported("number " + text);
+            }
+        }
+
+        private void string(char quote) {
+            if (_src.startsWith("" + quote + quote + quote, _pos)) {
+                throw unsupported("triple quoted string");
+            }
+            StringBuilder sb = new StringBuilder();
+            _pos++;
+            while (true) {
+                if (_pos >= _src.length() || _src.charAt(_pos) == '\n') {
+                    throw unsupported("unterminated string");
+                }
+                char c = _src.charAt(_pos++);
+                if (c == quote) {
+                    break;
+                }
+                if (c > 127) {
+                    throw unsupported("non ASCII string");
+                }
+                if (c == '\\') {
+                    if (_pos >= _src.length()) {
+                        throw unsupported("unterminated string");
+                    }
+                    char e = _src.charAt(_pos++);
+                    switch (e) {
+                    case 'n':
+                        sb.append('\n');
+                        break;
+                    case 't':
+                        sb.append('\t');
+                        break;
+                    case 'r':
+                        sb.append('\r');
+                        break;
+                    case '\\':
+                    case '\'':
+                    case '"':
+                        sb.append(e);
+                        break;
+                    default:
+                        throw unsupported("string escape \\" + e);
+                    }
+                } else {
+                    sb.append(c);
+                }
+            }
+            _type = STRING;
+            _text = sb.toString();
+            _value = _text;
+        }
+
+        private void op(char c) {
+            if ("=.,:()[]{}-+".indexOf(c) < 0) {
+                throw unsupported("operator " + c);
+            }
+            if (c != '.' && c != ',' && c != ':' && "([{)]}".indexOf(c) < 0
+                    && _pos + 1 < _src.length()
+                    && _src.charAt(_pos + 1) == '=') {
+                throw unsupported("operator " + c + "=");
+            }
+            if ("([{".indexOf(c) >= 0) {
+                _depth++;
+            } else if (")]}".indexOf(c) >= 0) {
+                _depth--;
+            }
+            _pos++;
+            _type = OP;
+            _text = String.valueOf(c);
+        }
+
+        private static Object integer(BigInteger v, boolean isLong) {
+            if (!isLong && v.bitLength() < 32) {
+                return v.intValue();
+            }
+            return v;
+        }
+    }
+
+    private abstract static class Expr {
+        abstract Object eval();
+    }
+
+    private final class Parser {
+        private final Lexer _lex;
+
+        Parser(Lexer lex) {
+            _lex = lex;
+        }
+
+        void file() {
+            _lex.next();
+            while (_lex._type != EOF) {
+                if (_lex._type == NEWLINE) {
+                    _lex.next();
+                } else {
+                    statement();
+                }
+            }
+        }
+
+        private void statement() {
+            if (_lex._type == NAME && KEYWORDS.contains(_lex._text)) {
+                throw _lex.unsupported("'" + _lex._text + "' statement");
+            }
+            List<Expr> targets = new ArrayList<>();
+            Expr value = expr();
+            while (_lex.isOp('=')) {
+                _lex.next();
+                targets.add(value);
+                value = expr();
+            }
+            if (_lex._type != NEWLINE && _lex._type != EOF) {
+                throw _lex.unsupported("unexpected " + _lex._text);
+            }
+            int line = _lex._tokenLine;
+
+            Object v = value.eval();
+            for (Expr target : targets) {
+                assign(target, v, line);
+            }
+        }
+
+        private void assign(Expr target, Object v, int line) {
+            if (target instanceof NameExpr) {
+                String name = ((NameExpr) target)._name;
+                if (BUILTINS.contains(name)) {
+                    throw _lex.unsupported("assignment to " + name);
+                }
+                _globals.put(name, v);
+            } else if (target instanceof AttrExpr) {
+                AttrExpr attr = (AttrExpr) target;
+                Object base = attr._base.eval();
+                if (!(base instanceof Holder) || attr._attr.startsWith("_")
+                        || "nodes".equals(attr._attr)) {
+                    throw _lex.unsupported("assignment to attribute "
+                            + attr._attr);
+                }
+                ((Holder) base)._nodes.put(attr._attr, v);
+            } else {
+                throw _lex.unsupported("assignment target");
+            }
+        }
+
+        private Expr expr() {
+            if (_lex.isOp('-') || _lex.isOp('+')) {
+                final boolean negate = _lex.isOp('-');
+                _lex.next();
+                final Expr operand = expr();
+                return new Expr() {
+                    @Override
+                    Object eval() {
+                        Object v = operand.eval();
+                        if (v instanceof Integer) {
+                            int i = (Integer) v;
+                            if (negate && i == Integer.MIN_VALUE) {
+                                return BigInteger.valueOf(i).negate();
+                            }
+                            return negate ? -i : i;
+                        } else if (v instanceof BigInteger) {
+                            return negate ? ((BigInteger) v).negate() : v;
+                        } else if (v instanceof Double) {
+                            return negate ? -(Double) v : v;
+                        }
+                        throw _lex.unsupported("unary operator");
+                    }
+                };
+            }
+
+            Expr e = atom();
+            while (true) {
+                if (_lex.isOp('.')) {
+                    _lex.next();
+                    if (_lex._type != NAME) {
+                        throw _lex.unsupported("attribute");
+                    }
+                    e = new AttrExpr(e, _lex._text);
+                    _lex.next();
+                } else if (_lex.isOp('(') || _lex.isOp('[')) {
+                    throw _lex.unsupported("call or subscript");
+                } else {
+                    return e;
+                }
+            }
+        }
+
+        private Expr atom() {
+            switch (_lex._type) {
+            case NUMBER:
+            case STRING: {
+                Expr e = new Literal(_lex._value);
+                _lex.next();
+                if (_lex._type == STRING) {
+                    throw _lex.unsupported("string concatenation");
+                }
+                return e;
+            }
+            case NAME: {
+                String name = _lex._text;
+                _lex.next();
+                if ("True".equals(name)) {
+                    return new Literal(Boolean.TRUE);
+                } else if ("False".equals(name)) {
+                    return new Literal(Boolean.FALSE);
+                } else if ("None".equals(name)) {
+                    return new Literal(null);
+                } else if (KEYWORDS.contains(name)) {
+                    throw _lex.unsupported("'" + name + "'");
+                } else if (_lex.isOp('(')) {
+                    return call(name);
+                }
+                return new NameExpr(name);
+            }
+            case OP:
+                if (_lex.isOp('(')) {
+                    return sequence(')', true);
+                } else if (_lex.isOp('[')) {
+                    return sequence(']', false);
+                } else if (_lex.isOp('{')) {
+                    return dict();
+                }
+                throw _lex.unsupported("unexpected " + _lex._text);
+            default:
+                throw _lex.unsupported("unexpected " + _lex._text);
+            }
+        }
+
+        private Expr call(final String function) {
+            if (!"h".equals(function) && !"table".equals(function)) {
+                throw _lex.unsupported("call to " + function);
+            }
+            _lex.next();
+            final Expr arg = expr();
+            if (_lex.isOp(',')) {
+                _lex.next();
+            }
+            expect(')');
+            return new Expr() {
+                @Override
+                Object eval() {
+                    Object name = arg.eval();
+                    if (!(name instanceof String)) {
+                        throw _lex.unsupported(function + "() of " + name);
+                    }
+                    if ("table".equals(function)) {
+                        return new TableRef((String) name, _lex._file);
+                    }
+                    return _root.get((String) name);
+                }
+            };
+        }
+
+        private Expr sequence(char close, final boolean tuple) {
+            _lex.next();
+            final List<Expr> items = new ArrayList<>();
+            boolean comma = false;
+            while (!_lex.isOp(close)) {
+                items.add(expr());
+                if (_lex.isOp(',')) {
+                    comma = true;
+                    _lex.next();
+                } else if (!_lex.isOp(close)) {
+                    throw _lex.unsupported("unexpected " + _lex._text);
+                }
+            }
+            _lex.next();
+            if (tuple && items.size() == 1 && !comma) {
+                // Parenthesized expression
+                return items.get(0);
+            }
+            return new Expr() {
+                @Override
+                Object eval() {
+                    List<Object> list = new ArrayList<>(items.size());
+                    for (Expr item : items) {
+                        list.add(value(item.eval()));
+                    }
+                    return list;
+                }
+            };
+        }
+
+        private Expr dict() {
+            _lex.next();
+            final List<Expr> keys = new ArrayList<>();
+            final List<Expr> values = new ArrayList<>();
+            while (!_lex.isOp('}')) {
+                keys.add(expr());
+                expect(':');
+                values.add(expr());
+                if (_lex.isOp(',')) {
+                    _lex.next();
+                } else if (!_lex.isOp('}')) {
+                    throw _lex.unsupported("unexpected " + _lex._text);
+                }
+            }
+            _lex.next();
+            return new Expr() {
+                @Override
+                Object eval() {
+                    Map<Object, Object> map = new HashMap<>();
+                    for (int i = 0; i < keys.size(); i++) {
+                        Object k = value(keys.get(i).eval());
+                        if (k instanceof List || k instanceof Map) {
+                            throw _lex.unsupported("unhashable key");
+                        }
+                        map.put(k, value(values.get(i).eval()));
+                    }
+                    return map;
+                }
+            };
+        }
+
+        private Object value(Object v) {
+            if (v instanceof Holder || v instanceof TableRef) {
+                throw _lex.unsupported("holder or table in a collection");
+            }
+            return v;
+        }
+
+        private void expect(char op) {
+            if (!_lex.isOp(op)) {
+                throw _lex.unsupported("expected " + op);
+            }
+            _lex.next();
+        }
+
+        private final class Literal extends Expr {
+            private final Object _value;
+
+            Literal(Object value) {
+                _value = value;
+            }
+
+            @Override
+            Object eval() {
+                return _value;
+            }
+        }
+
+        private final class NameExpr extends Expr {
+            private final String _name;
+
+            NameExpr(String name) {
+                _name = name;
+            }
+
+            @Override
+            Object eval() {
+                if (!_globals.containsKey(_name)) {
+                    throw _lex.unsupported("name " + _name);
+                }
+                return _globals.get(_name);
+            }
+        }
+
+        private final class AttrExpr extends Expr {
+            private final Expr _base;
+            private final String _attr;
+
+            AttrExpr(Expr base, String attr) {
+                _base = base;
+                _attr = attr;
+            }
+
+            @Override
+            Object eval() {
+                Object base = _base.eval();
+                if (!(base instanceof Holder) || _attr.startsWith("_")
+                        || "nodes".equals(_attr)) {
+                    throw _lex.unsupported("attribute " + _attr);
+                }
+                return ((Holder) base).get(_attr);
+            }
+        }
+    }
+}
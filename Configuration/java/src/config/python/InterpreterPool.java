@@ -0,0 +1,99 @@
+package config.python;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+
+import org.python.core.PySystemState;
+import org.python.util.PythonInterpreter;
+
+/**
+ * Bounded pool of fresh python interpreters. Every interpreter is handed out
+ * once, since its namespace is modified by whatever is executed in it, and a
+ * replacement is then constructed in the background so that the next
+ * {@link #take()} doesn't pay for the construction. Nothing is constructed
+ * before the first interpreter is taken.
+ * <p>
+ * Each interpreter has a system state of its own, so that it can be released
+ * with {@link #release(PythonInterpreter)} without affecting the others.
+ *
+ * @author bgonzalez
+ */
+final class InterpreterPool {
+    private final BlockingQueue<PythonInterpreter> _ready;
+    // Not shared with reloads, which would otherwise wait behind construction
+    private final ExecutorService _executor = Executors
+            .newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "InterpreterPool");
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+    private final Runnable _warmTask = new Runnable() {
+        @Override
+        public void run() {
+            PythonInterpreter interpreter = create();
+            if (_executor.isShutdown() || !_ready.offer(interpreter)) {
+                release(interpreter);
+            }
+        }
+    };
+
+    /**
+     * @param size number of interpreters kept ready
+     */
+    InterpreterPool(int size) {
+        _ready = new ArrayBlockingQueue<>(size);
+    }
+
+    /**
+     * @return fresh interpreter, constructed in the calling thread if no
+     *         interpreter is ready, which is always the case after
+     *         {@link #shutdown()}
+     */
+    PythonInterpreter take() {
+        PythonInterpreter interpreter = _ready.poll();
+        if (interpreter == null) {
+            interpreter = create();
+        }
+        try {
+            _executor.execute(_warmTask);
+        } catch (RejectedExecutionException e) {
+            // Shut down, interpreters are only constructed on demand
+        }
+        return interpreter;
+    }
+
+    /**
+     * Releases the resources of an interpreter taken from this pool which is
+     * no longer used. Python objects of its namespace stay usable.
+     *
+     * @param interpreter interpreter, or <code>null</code>
+     */
+    static void release(PythonInterpreter interpreter) {
+        if (interpreter != null) {
+            interpreter.cleanup();
+        }
+    }
+
+    /**
+     * Stops the background construction and releases the interpreters which
+     * are ready. Interpreters can still be taken.
+     */
+    void shutdown() {
+        _executor.shutdown();
+        for (PythonInterpreter interpreter; (interpreter = _ready
+                .poll()) != null;) {
+            release(interpreter);
+        }
+    }
+
+    private static PythonInterpreter create() {
+        return new PythonInterpreter(null, new PySystemState());
+    }
+}
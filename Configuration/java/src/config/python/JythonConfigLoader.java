@@ -2,31 +2,71 @@ package config.python;
 
 import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
+import org.python.core.PyDictionary;
 import org.python.core.PyException;
+import org.python.core.PyFunction;
 import org.python.core.PyList;
 import org.python.core.PyObject;
 import org.python.core.PyStringMap;
 import org.python.core.PyTuple;
 import org.python.util.PythonInterpreter;
 
+import common.config.ConfigAccessTracer;
+import common.config.ConfigSchema;
+
 import config.FileUpdateChecker;
+import config.binary.SharedConfigPublisher;
 
 /**
+ * Every reload evaluates the python files in a fresh interpreter, taken from
+ * a pool of interpreters constructed in the background, and only replaces the
+ * current interpreter once evaluation succeeded. Snapshots therefore never
+ * observe a partially evaluated namespace, and a failed reload leaves the
+ * previous configuration in place.
+ * <p>
+ * When only some files changed, {@link #reload(Collection)} reevaluates just
+ * those files and the files depending on them (see {@link ReloadPlan}), on top
+ * of a copy of the previous namespace, and patches the keys below the affected
+ * top level holders into the previous snapshot.
+ * 
  * @author bgonzalez
  */
 public final class JythonConfigLoader {
+    private static final int INTERPRETER_POOL_SIZE = 2;
 
     private List<File> _pyFiles;
-    private PythonInterpreter _pyEngine = new PythonInterpreter();
+    private volatile PythonInterpreter _pyEngine;
+    private PyCodeCache _codeCache;
+    private Map<File, PyFileAnalysis> _analyses;
+    private JythonConfigSnapshot _snapshot;
+    private PythonInterpreter _snapshotEngine;
+    private volatile ConfigAccessTracer _tracer;
+    private volatile ConfigSchema _schema;
+    private final Object _reloadLock = new Object();
+    private final ExecutorService _executor = Executors
+            .newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "JythonConfigLoader");
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+    private final InterpreterPool _interpreters = new InterpreterPool(
+            INTERPRETER_POOL_SIZE);
 
     /**
      * @param importsFilename imports file
@@ -35,14 +75,33 @@ public final class JythonConfigLoader {
         this(getFiles(importsFilename));
     }
 
+    /**
+     * @param importsFilename imports file
+     * @param codeCacheFolder folder where compiled python code is persisted
+     *            between runs, or <code>null</code> to only cache in memory
+     */
+    public JythonConfigLoader(String importsFilename, File codeCacheFolder) {
+        this(getFiles(importsFilename), codeCacheFolder);
+    }
+
     /**
      * @param files list of files to interpret
      */
     public JythonConfigLoader(List<File> files) {
+        this(files, null);
+    }
+
+    /**
+     * @param files list of files to interpret
+     * @param codeCacheFolder folder where compiled python code is persisted
+     *            between runs, or <code>null</code> to only cache in memory
+     */
+    public JythonConfigLoader(List<File> files, File codeCacheFolder) {
         _pyFiles = files;
+        _codeCache = new PyCodeCache(codeCacheFolder);
     }
 
-    private static List<File> getFiles(String importsFilename) {
+    static List<File> getFiles(String importsFilename) {
         File importsFile = new File(importsFilename);
         if (!importsFile.exists()) {
             throw new RuntimeException("Imports file not found: "
@@ -74,27 +133,246 @@ public final class JythonConfigLoader {
     }
 
     /**
-     * Reloads the python files and reinterprets their content
+     * Reloads the python files and reinterprets their content. Files whose
+     * content hasn't changed since they were last compiled are not recompiled.
      */
     public void reload() {
-        _pyEngine.cleanup();
-        try {
-            for (File pyFile : _pyFiles) {
-                _pyEngine.execfile(new FileInputStream(pyFile),
-                        pyFile.getName());
+        evaluate();
+    }
+
+    private PythonInterpreter evaluate() {
+        synchronized (_reloadLock) {
+            PythonInterpreter engine = _interpreters.take();
+            Map<File, PyFileAnalysis> analyses = new HashMap<>();
+            try {
+                for (File pyFile : _pyFiles) {
+                    analyses.put(pyFile, _codeCache.analysis(pyFile));
+                    exec(engine, pyFile);
+                }
+                ConfigSchema schema = _schema;
+                if (schema != null) {
+                    schema.validate(createConfigSnapshot(engine, false));
+                }
+            } catch (IOException | PyException e) {
+                // Files that changed since may not be reported again, so the
+                // next reload can't be incremental
+                _analyses = null;
+                InterpreterPool.release(engine);
+                throw new RuntimeException(e);
+            } catch (RuntimeException e) {
+                _analyses = null;
+                InterpreterPool.release(engine);
+                throw e;
             }
-        } catch (FileNotFoundException | PyException e) {
-            throw new RuntimeException(e);
+            replaceEngine(engine);
+            _analyses = analyses;
+            return engine;
         }
     }
 
+    /**
+     * Reevaluates the files that changed and the files that depend on them,
+     * keeping everything else from the previous evaluation. Falls back to
+     * reevaluating all files if the dependencies of an affected file can't be
+     * determined, if a table file changed, or if nothing has been loaded yet.
+     * 
+     * @param changed files that changed since they were last evaluated, which
+     *            may include the table files of {@link #getFileUpdateTask()}
+     * @return snapshot of the new content
+     */
+    public JythonConfigSnapshot reload(Collection<File> changed) {
+        synchronized (_reloadLock) {
+            PythonInterpreter previous = _pyEngine;
+            ReloadPlan plan = null;
+            Map<File, PyFileAnalysis> analyses = null;
+            try {
+                if (previous != null && _analyses != null
+                        && _pyFiles.containsAll(changed)) {
+                    analyses = new HashMap<>(_analyses);
+                    for (File pyFile : changed) {
+                        analyses.put(pyFile, _codeCache.analysis(pyFile));
+                    }
+                    plan = ReloadPlan.create(_pyFiles, _analyses, analyses,
+                            changed, (PyStringMap) previous.getLocals());
+                }
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+            if (plan == null) {
+                return remember(createConfigSnapshot(evaluate(), false));
+            }
+
+            JythonConfigSnapshot base = _snapshotEngine == previous ? _snapshot
+                    : createConfigSnapshot(previous, false);
+            PythonInterpreter engine = _interpreters.take();
+            PyObject root = patchNamespace(previous, engine, plan);
+            try {
+                for (File pyFile : plan.files()) {
+                    exec(engine, pyFile);
+                }
+            } catch (IOException | PyException e) {
+                _analyses = null;
+                InterpreterPool.release(engine);
+                throw new RuntimeException(e);
+            }
+            JythonConfigSnapshot snapshot = new JythonConfigSnapshot(base,
+                    root, locals(engine), plan.roots(), plan.names());
+            ConfigSchema schema = _schema;
+            if (schema != null) {
+                try {
+                    schema.validate(snapshot);
+                } catch (RuntimeException e) {
+                    _analyses = null;
+                    InterpreterPool.release(engine);
+                    throw e;
+                }
+            }
+            replaceEngine(engine);
+            _analyses = analyses;
+
+            snapshot.trace(_tracer);
+            return remember(snapshot);
+        }
+    }
+
+    /**
+     * Executes <code>pyFile</code> with <code>__file__</code> set to its name,
+     * which <code>table()</code> resolves relative paths against.
+     */
+    private void exec(PythonInterpreter engine, File pyFile)
+            throws IOException {
+        engine.set("__file__", pyFile.getPath());
+        engine.exec(_codeCache.get(pyFile));
+    }
+
+    /**
+     * Makes <code>engine</code> the current engine and releases the previous
+     * one. Snapshots of the previous engine keep working, they only hold
+     * python objects.
+     */
+    private void replaceEngine(PythonInterpreter engine) {
+        PythonInterpreter previous = _pyEngine;
+        _pyEngine = engine;
+        if (previous != engine) {
+            InterpreterPool.release(previous);
+        }
+    }
+
+    private JythonConfigSnapshot remember(JythonConfigSnapshot snapshot) {
+        _snapshot = snapshot;
+        _snapshotEngine = _pyEngine;
+        return snapshot;
+    }
+
+    /**
+     * Sets up the namespace of <code>engine</code> as a copy of the namespace
+     * of <code>previous</code>, without the globals and top level holders the
+     * files of <code>plan</code> may define.
+     * 
+     * @return new root holder
+     */
+    private static PyObject patchNamespace(PythonInterpreter previous,
+            PythonInterpreter engine, ReloadPlan plan) {
+        PyStringMap previousLocals = (PyStringMap) previous.getLocals();
+        PyStringMap locals = previousLocals.copy();
+        for (String name : plan.names()) {
+            if (locals.has_key(name)) {
+                locals.__delitem__(name);
+            }
+        }
+
+        PyObject previousRoot = previousLocals.__finditem__("root");
+        PyObject root = previousRoot.__getattr__("__class__").__call__();
+        PyObject nodes = root.__getattr__("nodes");
+        PyList items = ((PyDictionary) previousRoot.__getattr__("nodes"))
+                .items();
+        for (int i = 0; i < items.__len__(); i++) {
+            PyTuple item = (PyTuple) items.get(i);
+            if (!plan.roots().contains(item.get(0))) {
+                nodes.__setitem__(item.__getitem__(0), item.__getitem__(1));
+            }
+        }
+        locals.__setitem__("root", root);
+
+        // Functions such as h() look up globals in the namespace they were
+        // defined in, so they have to be rebound to the copy
+        PyList values = locals.items();
+        for (int i = 0; i < values.__len__(); i++) {
+            PyTuple item = (PyTuple) values.get(i);
+            PyObject v = item.__getitem__(1);
+            if (v instanceof PyFunction) {
+                PyFunction f = (PyFunction) v;
+                if (f.func_globals == previousLocals
+                        && f.func_closure == null) {
+                    locals.__setitem__(item.__getitem__(0), new PyFunction(
+                            locals, f.func_defaults, f.func_code, f.__doc__));
+                }
+            }
+        }
+        engine.setLocals(locals);
+        return root;
+    }
+
+    /**
+     * Reloads the python files in the background, without blocking the
+     * caller. The new content is only used once it has been evaluated
+     * successfully.
+     * 
+     * @param lazy if true, python values of the returned snapshot are only
+     *            converted when they are first looked up
+     * @return snapshot of the new content
+     */
+    public Future<JythonConfigSnapshot> reloadInBackground(final boolean lazy) {
+        return _executor.submit(new Callable<JythonConfigSnapshot>() {
+            @Override
+            public JythonConfigSnapshot call() {
+                return createConfigSnapshot(evaluate(), lazy);
+            }
+        });
+    }
+
+    /**
+     * Stops the background threads used for reloads and interpreter
+     * construction. Later reloads construct their interpreter in the calling
+     * thread.
+     */
+    public void shutdown() {
+        _executor.shutdown();
+        _interpreters.shutdown();
+    }
+
     /**
      * @return configuration snapshot
      */
     public JythonConfigSnapshot createConfigSnapshot() {
-        PyObject root = _pyEngine.get("root");
+        return createConfigSnapshot(false);
+    }
+
+    /**
+     * @param lazy if true, python values are only converted when they are
+     *            first looked up
+     * @return configuration snapshot
+     */
+    public JythonConfigSnapshot createConfigSnapshot(boolean lazy) {
+        PythonInterpreter engine = _pyEngine;
+        if (engine == null) {
+            throw new IllegalStateException(
+                    "Configuration has not been loaded yet, call reload()");
+        }
+        return createConfigSnapshot(engine, lazy);
+    }
+
+    private JythonConfigSnapshot createConfigSnapshot(PythonInterpreter engine,
+            boolean lazy) {
+        JythonConfigSnapshot snapshot = new JythonConfigSnapshot(
+                engine.get("root"), locals(engine), lazy);
+        snapshot.trace(_tracer);
+        return snapshot;
+    }
+
+    private static Map<String, Object> locals(PythonInterpreter engine) {
         Map<String, Object> locals = new HashMap<String, Object>();
-        PyList items = ((PyStringMap) _pyEngine.getLocals()).items();
+        PyList items = ((PyStringMap) engine.getLocals()).items();
         for (int i = 0; i < items.__len__(); i++) {
             PyTuple item = (PyTuple) items.get(i);
 
@@ -106,23 +384,76 @@ public final class JythonConfigLoader {
                 locals.put((String) k, v);
             }
         }
+        return locals;
+    }
 
-        return new JythonConfigSnapshot(root, locals);
+    /**
+     * Record lookups on all snapshots created from now on.
+     * 
+     * @param tracer tracer, or <code>null</code> to stop tracing new snapshots
+     */
+    public void trace(ConfigAccessTracer tracer) {
+        _tracer = tracer;
+    }
+
+    /**
+     * Validate the configuration on every reload from now on. A reload whose
+     * configuration violates <code>schema</code> fails with a
+     * {@link common.ConstraintException} and leaves the previous
+     * configuration in place, so it is never published.
+     * 
+     * @param schema schema, or <code>null</code> to stop validating
+     */
+    public void validate(ConfigSchema schema) {
+        _schema = schema;
     }
 
     /**
      * Task that checks if any of the configuration files have changed, and if
-     * so, reinterprets them
+     * so, reinterprets them and the files that depend on them. The table files
+     * referenced by the configuration are checked as well, and reinterpret all
+     * files when they change.
      * 
      * @return task
      */
     public Runnable getFileUpdateTask() {
         final FileUpdateChecker fileChecker = new FileUpdateChecker(_pyFiles);
+        if (_pyEngine != null) {
+            fileChecker.add(createConfigSnapshot().tables());
+        }
+        return new Runnable() {
+            @Override
+            public void run() {
+                List<File> updated = fileChecker.updatedFiles();
+                if (!updated.isEmpty()) {
+                    fileChecker.add(reload(updated).tables());
+                }
+            }
+        };
+    }
+
+    /**
+     * Task that checks if any of the configuration files have changed, and if
+     * so, reinterprets them and publishes the new snapshot to all processes
+     * reading <code>publisher</code>'s region. The current snapshot is
+     * published immediately.
+     * 
+     * @param publisher shared region to publish to
+     * @return task
+     */
+    public Runnable getPublishTask(final SharedConfigPublisher publisher) {
+        final FileUpdateChecker fileChecker = new FileUpdateChecker(_pyFiles);
+        JythonConfigSnapshot snapshot = createConfigSnapshot();
+        fileChecker.add(snapshot.tables());
+        publisher.publish(snapshot.asMap());
         return new Runnable() {
             @Override
             public void run() {
-                if (fileChecker.checkForUpdates()) {
-                    reload();
+                List<File> updated = fileChecker.updatedFiles();
+                if (!updated.isEmpty()) {
+                    JythonConfigSnapshot snapshot = reload(updated);
+                    fileChecker.add(snapshot.tables());
+                    publisher.publish(snapshot.asMap());
                 }
             }
         };
@@ -1,85 +1,211 @@
 package config.python;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 
 import org.python.core.PyClass;
 import org.python.core.PyDictionary;
 import org.python.core.PyFunction;
 import org.python.core.PyInstance;
 import org.python.core.PyList;
+import org.python.core.Py;
 import org.python.core.PyObject;
 import org.python.core.PyTuple;
 
-import common.config.ConfigSnapshot;
+import common.config.AbstractConfigSnapshot;
+import common.config.ColumnTable;
+import common.config.ColumnTableWriter;
 
 /**
  * Jython configuration snapshot
+ * <p>
+ * A lazy snapshot indexes all keys up front, but only converts a python value
+ * to java the first time it is looked up, so values a process never reads are
+ * never converted. The python objects must not be modified after the snapshot
+ * is created.
  * 
  * @author bgonzalez
  */
-public final class JythonConfigSnapshot implements ConfigSnapshot {
+public final class JythonConfigSnapshot extends AbstractConfigSnapshot {
     private Map<String, Object> _configMap = new HashMap<>();
+    private Map<String, List<String>> _rootKeys = new HashMap<>();
+    // Unpermuted key of every value below a holder, by top level holder
+    private Map<String, List<String>> _rootPaths = new HashMap<>();
+    private final Set<File> _tables = Collections
+            .synchronizedSet(new HashSet<File>());
+    private final boolean _lazy;
 
     /**
      * @param root container for all holder objects
      * @param locals local variables in the python context
      */
     public JythonConfigSnapshot(PyObject root, Map<String, Object> locals) {
+        this(root, locals, false);
+    }
+
+    /**
+     * @param root container for all holder objects
+     * @param locals local variables in the python context
+     * @param lazy if true, values are converted on first access
+     */
+    public JythonConfigSnapshot(PyObject root, Map<String, Object> locals,
+            boolean lazy) {
+        _lazy = lazy;
         inspect(root, new ArrayList<String>());
         for (Entry<String, Object> entry : locals.entrySet()) {
             if (!isHolder(entry.getValue()) && isAllowed(entry.getValue())) {
-                _configMap.put(entry.getKey(), toJava(entry.getValue()));
+                _configMap.put(entry.getKey(), convert(entry.getValue()));
             }
         }
     }
 
     /**
-     * @param name key name
-     * @param qualifiers additional qualifiers for the key
-     * @return key value
+     * Snapshot of files evaluated by {@link DslEvaluator}, with the same keys
+     * and values a snapshot of the files evaluated by jython would have.
+     * 
+     * @param evaluator evaluator the files were evaluated with
      */
-    @SuppressWarnings("unchecked")
-    private <T> T get(String name, String... qualifiers) {
-        for (int i = qualifiers.length; i >= 0; i--) {
-            String k = key(name, qualifiers, i);
-            T val = (T) _configMap.get(k);
-            if (val != null) {
-                return val;
+    JythonConfigSnapshot(DslEvaluator evaluator) {
+        _lazy = false;
+        inspect(evaluator.root(), new ArrayList<String>());
+        for (Entry<String, Object> entry : evaluator.globals().entrySet()) {
+            if (!entry.getKey().startsWith("_")
+                    && !isHolder(entry.getValue())) {
+                _configMap.put(entry.getKey(), convert(entry.getValue()));
+            }
+        }
+    }
+
+    /**
+     * Snapshot which shares everything with <code>base</code> except the keys
+     * below the top level holders <code>roots</code> and the globals
+     * <code>names</code>, which are inspected again.
+     * 
+     * @param base snapshot of the previous evaluation
+     * @param root container for all holder objects
+     * @param locals local variables in the python context
+     * @param roots names of the top level holders which may have changed
+     * @param names global names which may have changed
+     */
+    JythonConfigSnapshot(JythonConfigSnapshot base, PyObject root,
+            Map<String, Object> locals, Set<String> roots, Set<String> names) {
+        _lazy = base._lazy;
+        _tables.addAll(base.tables());
+        _configMap.putAll(base._configMap);
+        _rootKeys.putAll(base._rootKeys);
+        _rootPaths.putAll(base._rootPaths);
+        for (String r : roots) {
+            _rootPaths.remove(r);
+            List<String> keys = _rootKeys.remove(r);
+            if (keys != null) {
+                _configMap.keySet().removeAll(keys);
+            }
+        }
+        _configMap.keySet().removeAll(names);
+
+        PyObject nodes = root.__getattr__("nodes");
+        for (String r : roots) {
+            PyObject v = nodes.__finditem__(r);
+            if (v != null) {
+                List<String> path = new ArrayList<>();
+                path.add(r);
+                if (isHolder(v)) {
+                    inspect(v, path);
+                } else {
+                    save(v, path);
+                }
             }
         }
-        throw new RuntimeException("Configuration key not found: "
-                + key(name, qualifiers, qualifiers.length));
+        for (String name : names) {
+            Object v = locals.get(name);
+            if (v != null && !isHolder(v) && isAllowed(v)) {
+                _configMap.put(name, convert(v));
+            }
+        }
+    }
+
+    /**
+     * @return all fully qualified keys and their values. For a lazy snapshot
+     *         this converts every value.
+     */
+    public Map<String, Object> asMap() {
+        if (!_lazy) {
+            return Collections.unmodifiableMap(_configMap);
+        }
+        Map<String, Object> map = new HashMap<>();
+        for (Entry<String, Object> entry : _configMap.entrySet()) {
+            map.put(entry.getKey(), resolve(entry.getValue()));
+        }
+        return Collections.unmodifiableMap(map);
+    }
+
+    /**
+     * @return table files referenced by the values converted so far, which
+     *         for a lazy snapshot may not be all of them
+     */
+    public Set<File> tables() {
+        synchronized (_tables) {
+            return new HashSet<>(_tables);
+        }
+    }
+
+    @Override
+    public Set<String> keys() {
+        return Collections.unmodifiableSet(_configMap.keySet());
     }
 
     /**
-     * @param name key name
-     * @param qualifiers additional qualifiers (toString() will be called to
-     *            look them up)
-     * @return key value
+     * @return globals and the unpermuted keys of values below holders
      */
     @Override
-    public <T> T get(String name, Object... qualifiers) {
-        String[] strQualifiers = new String[qualifiers.length];
-        for (int i = 0; i < qualifiers.length; i++) {
-            strQualifiers[i] = qualifiers[i].toString();
+    protected Collection<String> indexKeys() {
+        Set<String> keys = new HashSet<>();
+        for (String key : _configMap.keySet()) {
+            // Permutations have at least two tokens
+            if (key.indexOf('.') < 0) {
+                keys.add(key);
+            }
+        }
+        for (List<String> paths : _rootPaths.values()) {
+            keys.addAll(paths);
         }
-        return get(name, strQualifiers);
+        return keys;
+    }
+
+    @Override
+    protected Object value(String key) {
+        return resolve(_configMap.get(key));
     }
 
-    private String key(String name, String[] tokens, int lastTokenIdx) {
-        assert lastTokenIdx <= tokens.length;
-        String key = "";
-        for (int i = 0; i < lastTokenIdx; i++) {
-            key += tokens[i] + ".";
+    private static Object resolve(Object v) {
+        return v instanceof LazyValue ? ((LazyValue) v).get() : v;
+    }
+
+    private Object convert(Object v) {
+        if (_lazy && v instanceof PyObject) {
+            return new LazyValue((PyObject) v);
         }
-        return key + name;
+        return toJava(v);
     }
 
     private void inspect(Object holder, List<String> trail) {
+        if (holder instanceof DslEvaluator.Holder) {
+            Map<String, Object> nodes = ((DslEvaluator.Holder) holder).nodes();
+            for (Entry<String, Object> entry : nodes.entrySet()) {
+                visit(entry.getKey(), entry.getValue(), trail);
+            }
+            return;
+        }
+
         PyObject pyHolder = (PyObject) holder;
         PyObject nodes = pyHolder.__getattr__("nodes");
         assert nodes.getType() == PyDictionary.TYPE;
@@ -90,14 +216,17 @@ public final class JythonConfigSnapshot implements ConfigSnapshot {
 
             Object k = item.get(0);
             assert k instanceof String;
-            List<String> path = new ArrayList<>(trail);
-            path.add((String) k);
-            Object v = item.get(1);
-            if (isHolder(v)) {
-                inspect(v, path);
-            } else {
-                save(v, path);
-            }
+            visit((String) k, item.get(1), trail);
+        }
+    }
+
+    private void visit(String k, Object v, List<String> trail) {
+        List<String> path = new ArrayList<>(trail);
+        path.add(k);
+        if (isHolder(v)) {
+            inspect(v, path);
+        } else {
+            save(v, path);
         }
     }
 
@@ -127,17 +256,25 @@ public final class JythonConfigSnapshot implements ConfigSnapshot {
                     map.put(toJava(item.get(0)), toJava(item.get(1)));
                 }
                 return map;
+            } else if (isInstanceOf(v, "Table")) {
+                PyObject referrer = ((PyObject) v).__findattr__("referrer");
+                return table(((PyObject) v).__getattr__("path").toString(),
+                        referrer == null || referrer == Py.None ? null
+                                : referrer.toString());
             } else {
                 throw new RuntimeException(
                         "Cannot interpret python instance of " + v);
             }
+        } else if (v instanceof DslEvaluator.TableRef) {
+            DslEvaluator.TableRef ref = (DslEvaluator.TableRef) v;
+            return table(ref.path(), ref.referrer());
         } else {
             return v;
         }
     }
 
     private void savePermutations(List<String> prefix, List<String> path,
-            Object v) {
+            Object v, List<String> keys) {
         if (path.isEmpty()) {
             String key = "";
             for (String p : prefix) {
@@ -149,6 +286,7 @@ public final class JythonConfigSnapshot implements ConfigSnapshot {
                         + key);
             }
             _configMap.put(key, v);
+            keys.add(key);
         } else {
             for (int i = 0; i < path.size(); i++) {
                 List<String> newPrefix = new ArrayList<>(prefix);
@@ -156,30 +294,79 @@ public final class JythonConfigSnapshot implements ConfigSnapshot {
 
                 List<String> newPath = new ArrayList<>(path.subList(0, i));
                 newPath.addAll(path.subList(i + 1, path.size()));
-                savePermutations(newPrefix, newPath, v);
+                savePermutations(newPrefix, newPath, v, keys);
             }
         }
     }
 
     private void save(Object v, List<String> path) {
-        savePermutations(new ArrayList<String>(), path, toJava(v));
+        List<String> keys = _rootKeys.get(path.get(0));
+        if (keys == null) {
+            keys = new ArrayList<>();
+            _rootKeys.put(path.get(0), keys);
+        }
+        savePermutations(new ArrayList<String>(), path, convert(v), keys);
+
+        List<String> paths = _rootPaths.get(path.get(0));
+        if (paths == null) {
+            paths = new ArrayList<>();
+            _rootPaths.put(path.get(0), paths);
+        }
+        StringBuilder key = new StringBuilder(path.get(0));
+        for (int i = 1; i < path.size(); i++) {
+            key.append('.').append(path.get(i));
+        }
+        paths.add(key.toString());
+    }
+
+    static boolean isHolder(Object v) {
+        return v instanceof DslEvaluator.Holder || isInstanceOf(v, "Holder");
     }
 
-    private boolean isHolder(Object v) {
+    private static boolean isInstanceOf(Object v, String className) {
         if (v instanceof PyObject) {
             PyObject o = (PyObject) v;
             if (o.getType() == PyInstance.TYPE) {
                 PyInstance instance = (PyInstance) o;
-                String className = instance.fastGetClass()
-                        .__getattr__("__name__").toString();
-                if ("Holder".equals(className)) {
-                    return true;
-                }
+                return className.equals(instance.fastGetClass()
+                        .__getattr__("__name__").toString());
             }
         }
         return false;
     }
 
+    /**
+     * Maps the table referenced with <code>table(path)</code>. A CSV file is
+     * converted to a column table file next to it first, unless that file is
+     * newer. Modification times only have a resolution of a second on some
+     * file systems, so a file converted in the same second as the CSV file was
+     * written is converted again. Relative paths are resolved against the
+     * folder of the file the table is referenced from, or against the working
+     * directory if that isn't known.
+     * 
+     * @param referrer name of the referencing file, or <code>null</code>
+     */
+    private ColumnTable table(String path, String referrer) {
+        File file = new File(path);
+        if (!file.isAbsolute() && referrer != null) {
+            file = new File(new File(referrer).getAbsoluteFile()
+                    .getParentFile(), path);
+        }
+        _tables.add(file);
+        try {
+            if (path.endsWith(".csv")) {
+                File columns = new File(file.getPath() + ".columns");
+                if (columns.lastModified() <= file.lastModified()) {
+                    ColumnTableWriter.fromCsv(file).write(columns);
+                }
+                file = columns;
+            }
+            return ColumnTable.map(file);
+        } catch (IOException e) {
+            throw new RuntimeException("Cannot map table " + path, e);
+        }
+    }
+
     private boolean isAllowed(Object v) {
         if (v instanceof PyObject) {
             PyObject o = (PyObject) v;
@@ -190,146 +377,32 @@ public final class JythonConfigSnapshot implements ConfigSnapshot {
         return true;
     }
 
-    @Override
-    public int i(String name, Object... qualifiers) {
-        return ((Number) get(name, qualifiers)).intValue();
-    }
-
-    @Override
-    public long l(String name, Object... qualifiers) {
-        return ((Number) get(name, qualifiers)).longValue();
-    }
-
-    @Override
-    public double d(String name, Object... qualifiers) {
-        return ((Number) get(name, qualifiers)).doubleValue();
-    }
-
-    @Override
-    public float f(String name, Object... qualifiers) {
-        return ((Number) get(name, qualifiers)).floatValue();
-    }
-
-    @Override
-    public short s(String name, Object qualifiers) {
-        return ((Number) get(name, qualifiers)).shortValue();
-    }
-
-    @Override
-    public boolean bool(String name, Object... qualifiers) {
-        return (boolean) get(name, qualifiers);
-    }
-
-    @Override
-    public String string(String name, Object... qualifiers) {
-        return (String) get(name, qualifiers);
-    }
-
-    @Override
-    public char c(String name, Object qualifiers) {
-        return (char) ((Number) get(name, qualifiers)).byteValue();
-    }
-
-    @Override
-    public byte b(String name, Object qualifiers) {
-        return ((Number) get(name, qualifiers)).byteValue();
-    }
-
-    @SuppressWarnings("unchecked")
-    @Override
-    public <T> List<T> list(String name, Object... qualifiers) {
-        return (List<T>) get(name, qualifiers);
-    }
-
-    @SuppressWarnings("unchecked")
-    @Override
-    public <K, V> Map<K, V> map(String name, Object... qualifiers) {
-        return (Map<K, V>) get(name, qualifiers);
-    }
-
-    @Override
-    public int[] iArr(String name, Object... qualifiers) {
-        List<Number> list = get(name, qualifiers);
-        int[] array = new int[list.size()];
-        for (int i = 0; i < list.size(); i++) {
-            array[i] = list.get(i).intValue();
-        }
-        return array;
-    }
-
-    @Override
-    public double[] dArr(String name, Object... qualifiers) {
-        List<Number> list = get(name, qualifiers);
-        double[] array = new double[list.size()];
-        for (int i = 0; i < list.size(); i++) {
-            array[i] = list.get(i).doubleValue();
-        }
-        return array;
-    }
-
-    @Override
-    public float[] fArr(String name, Object... qualifiers) {
-        List<Number> list = get(name, qualifiers);
-        float[] array = new float[list.size()];
-        for (int i = 0; i < list.size(); i++) {
-            array[i] = list.get(i).floatValue();
-        }
-        return array;
-    }
-
-    @Override
-    public long[] lArr(String name, Object... qualifiers) {
-        List<Number> list = get(name, qualifiers);
-        long[] array = new long[list.size()];
-        for (int i = 0; i < list.size(); i++) {
-            array[i] = list.get(i).longValue();
-        }
-        return array;
-    }
-
-    @Override
-    public short[] sArr(String name, Object... qualifiers) {
-        List<Number> list = get(name, qualifiers);
-        short[] array = new short[list.size()];
-        for (int i = 0; i < list.size(); i++) {
-            array[i] = list.get(i).shortValue();
-        }
-        return array;
-    }
-
-    @Override
-    public byte[] bArr(String name, Object... qualifiers) {
-        List<Number> list = get(name, qualifiers);
-        byte[] array = new byte[list.size()];
-        for (int i = 0; i < list.size(); i++) {
-            array[i] = list.get(i).byteValue();
-        }
-        return array;
-    }
+    /**
+     * Python value which is converted on first access. All permutations of a
+     * key share one instance, so a value is converted at most once.
+     */
+    private final class LazyValue {
+        private PyObject _pyValue;
+        private volatile Object _value;
 
-    @Override
-    public char[] cArr(String name, Object... qualifiers) {
-        List<Number> list = get(name, qualifiers);
-        char[] array = new char[list.size()];
-        for (int i = 0; i < list.size(); i++) {
-            array[i] = (char) list.get(i).byteValue();
+        LazyValue(PyObject pyValue) {
+            _pyValue = pyValue;
         }
-        return array;
-    }
 
-    @Override
-    public boolean[] boolArr(String name, Object... qualifiers) {
-        List<Boolean> list = get(name, qualifiers);
-        boolean[] array = new boolean[list.size()];
-        for (int i = 0; i < list.size(); i++) {
-            array[i] = list.get(i);
+        Object get() {
+            Object v = _value;
+            if (v == null) {
+                synchronized (this) {
+                    v = _value;
+                    if (v == null) {
+                        v = toJava(_pyValue);
+                        _value = v;
+                        // Let the python object be collected
+                        _pyValue = null;
+                    }
+                }
+            }
+            return v;
         }
-        return array;
-    }
-
-    @Override
-    public String[] stringArr(String name, Object... qualifiers) {
-        List<String> list = get(name, qualifiers);
-        return list.toArray(new String[0]);
     }
 }
@@ -0,0 +1,184 @@
+package config.python;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.python.core.BytecodeLoader;
+import org.python.core.PyCode;
+import org.python.core.imp;
+
+/**
+ * Cache of compiled python code and of its {@link PyFileAnalysis}. Entries are
+ * keyed by the content hash of each source file, so a file is only recompiled
+ * and reanalyzed when its content changes. If a cache folder is given the
+ * compiled bytecode is also written to disk, which lets a new process skip
+ * compilation of files that haven't changed since the last run.
+ *
+ * @author bgonzalez
+ */
+final class PyCodeCache {
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final File _cacheFolder;
+    private final Map<File, Cached<PyCode>> _codes = new HashMap<>();
+    private final Map<File, Cached<PyFileAnalysis>> _analyses =
+            new HashMap<>();
+
+    /**
+     * @param cacheFolder folder where compiled code is persisted, or
+     *            <code>null</code> to keep the cache in memory only
+     */
+    PyCodeCache(File cacheFolder) {
+        if (cacheFolder != null && !cacheFolder.isDirectory()
+                && !cacheFolder.mkdirs()) {
+            throw new RuntimeException("Cannot create code cache folder: "
+                    + cacheFolder.getAbsolutePath());
+        }
+        _cacheFolder = cacheFolder;
+    }
+
+    /**
+     * @param pyFile python source file
+     * @return compiled code for the current content of <code>pyFile</code>
+     * @throws IOException if the source file cannot be read
+     */
+    synchronized PyCode get(File pyFile) throws IOException {
+        byte[] source = read(pyFile);
+        String hash = hash(source);
+
+        Cached<PyCode> cached = _codes.get(pyFile);
+        if (cached != null && cached._hash.equals(hash)) {
+            return cached._value;
+        }
+
+        String name = moduleName(pyFile);
+        File compiledFile = compiledFile(name, hash);
+        byte[] bytecode = null;
+        if (compiledFile != null && compiledFile.isFile()) {
+            bytecode = read(compiledFile);
+        }
+        if (bytecode == null) {
+            // Compile the content that was hashed, the file may have changed
+            // since
+            bytecode = imp.compileSource(name, new ByteArrayInputStream(
+                    source), pyFile.getPath());
+            if (compiledFile != null) {
+                write(compiledFile, bytecode);
+            }
+        }
+
+        PyCode code = BytecodeLoader.makeCode(name + "$py", bytecode,
+                pyFile.getName());
+        _codes.put(pyFile, new Cached<>(hash, code));
+        return code;
+    }
+
+    /**
+     * @param pyFile python source file
+     * @return analysis of the current content of <code>pyFile</code>
+     * @throws IOException if the source file cannot be read
+     */
+    synchronized PyFileAnalysis analysis(File pyFile) throws IOException {
+        byte[] source = read(pyFile);
+        String hash = hash(source);
+
+        Cached<PyFileAnalysis> cached = _analyses.get(pyFile);
+        if (cached != null && cached._hash.equals(hash)) {
+            return cached._value;
+        }
+        PyFileAnalysis analysis = PyFileAnalysis.analyze(source,
+                pyFile.getName());
+        _analyses.put(pyFile, new Cached<>(hash, analysis));
+        return analysis;
+    }
+
+    private File compiledFile(String name, String hash) {
+        if (_cacheFolder == null) {
+            return null;
+        }
+        return new File(_cacheFolder, name + "-" + hash + "-"
+                + imp.getAPIVersion() + ".class");
+    }
+
+    private static String moduleName(File pyFile) {
+        String name = pyFile.getName();
+        int dot = name.lastIndexOf('.');
+        return dot > 0 ? name.substring(0, dot) : name;
+    }
+
+    private static String hash(byte[] content) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+        byte[] bytes = digest.digest(content);
+        char[] hex = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            hex[2 * i] = HEX[(bytes[i] >> 4) & 0xf];
+            hex[2 * i + 1] = HEX[bytes[i] & 0xf];
+        }
+        return new String(hex);
+    }
+
+    private static byte[] read(File file) throws IOException {
+        try (InputStream in = new FileInputStream(file)) {
+            byte[] content = new byte[(int) file.length()];
+            int read = 0;
+            while (read < content.length) {
+                int n = in.read(content, read, content.length - read);
+                if (n < 0) {
+                    break;
+                }
+                read += n;
+            }
+            if (read != content.length) {
+                throw new IOException("File changed while reading: "
+                        + file.getAbsolutePath());
+            }
+            return content;
+        }
+    }
+
+    private static void write(File file, byte[] content) {
+        // Write to a temporary file of its own first so that concurrent
+        // processes never see a partially written class file
+        File tmp;
+        try {
+            tmp = File.createTempFile(file.getName(), ".tmp",
+                    file.getParentFile());
+        } catch (IOException e) {
+            // The disk cache is an optimization only
+            return;
+        }
+        try (OutputStream out = new FileOutputStream(tmp)) {
+            out.write(content);
+        } catch (IOException e) {
+            tmp.delete();
+            return;
+        }
+        if (!tmp.renameTo(file)) {
+            tmp.delete();
+        }
+    }
+
+    private static final class Cached<T> {
+        private final String _hash;
+        private final T _value;
+
+        Cached(String hash, T value) {
+            _hash = hash;
+            _value = value;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package config.python;
+
+import java.io.ByteArrayInputStream;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.python.antlr.PythonTree;
+import org.python.antlr.Visitor;
+import org.python.antlr.ast.Call;
+import org.python.antlr.ast.ClassDef;
+import org.python.antlr.ast.Exec;
+import org.python.antlr.ast.FunctionDef;
+import org.python.antlr.ast.Global;
+import org.python.antlr.ast.Import;
+import org.python.antlr.ast.ImportFrom;
+import org.python.antlr.ast.Lambda;
+import org.python.antlr.ast.Name;
+import org.python.antlr.ast.Str;
+import org.python.antlr.ast.expr_contextType;
+import org.python.antlr.base.expr;
+import org.python.core.CompileMode;
+import org.python.core.CompilerFlags;
+import org.python.core.ParserFacade;
+
+/**
+ * Static analysis of a configuration file: the global names it assigns and
+ * reads, and the holders it creates with <code>h('name')</code>. A file is
+ * opaque if it uses constructs whose effects can't be determined this way,
+ * such as defining functions or classes, imports, <code>exec</code> or
+ * direct use of <code>root</code>.
+ *
+ * @author bgonzalez
+ */
+final class PyFileAnalysis {
+    private static final Set<String> DYNAMIC_NAMES = new HashSet<>();
+    static {
+        Collections.addAll(DYNAMIC_NAMES, "root", "globals", "locals",
+                "vars", "eval", "execfile", "setattr", "getattr", "delattr",
+                "__import__", "reload");
+    }
+
+    private final Set<String> _stores = new HashSet<>();
+    private final Set<String> _loads = new HashSet<>();
+    private final Set<String> _holders = new HashSet<>();
+    private boolean _opaque;
+
+    private PyFileAnalysis() {
+    }
+
+    /**
+     * @param source python source
+     * @param filename name of the source file, used in error messages
+     * @return analysis of <code>source</code>
+     */
+    static PyFileAnalysis analyze(byte[] source, String filename) {
+        PyFileAnalysis analysis = new PyFileAnalysis();
+        try {
+            PythonTree tree = ParserFacade.parse(new ByteArrayInputStream(
+                    source), CompileMode.exec, filename, new CompilerFlags());
+            analysis.new NameVisitor().visit(tree);
+        } catch (Exception e) {
+            throw new RuntimeException("Cannot analyze " + filename, e);
+        }
+        return analysis;
+    }
+
+    /**
+     * @return global names assigned by the file
+     */
+    Set<String> stores() {
+        return _stores;
+    }
+
+    /**
+     * @return global names read by the file
+     */
+    Set<String> loads() {
+        return _loads;
+    }
+
+    /**
+     * @return names of the holders the file looks up with <code>h()</code>
+     */
+    Set<String> holders() {
+        return _holders;
+    }
+
+    /**
+     * @return true if the effects of the file can't be determined statically
+     */
+    boolean opaque() {
+        return _opaque;
+    }
+
+    private final class NameVisitor extends Visitor {
+        @Override
+        public Object visitName(Name node) throws Exception {
+            String id = node.getInternalId();
+            expr_contextType ctx = node.getInternalCtx();
+            if (ctx == expr_contextType.Store || ctx == expr_contextType.Del
+                    || ctx == expr_contextType.AugStore) {
+                _stores.add(id);
+            } else {
+                _loads.add(id);
+            }
+            if (DYNAMIC_NAMES.contains(id)) {
+                _opaque = true;
+            }
+            return super.visitName(node);
+        }
+
+        @Override
+        public Object visitCall(Call node) throws Exception {
+            expr func = node.getInternalFunc();
+            if (func instanceof Name
+                    && "h".equals(((Name) func).getInternalId())) {
+                List<expr> args = node.getInternalArgs();
+                if (args.size() == 1 && args.get(0) instanceof Str) {
+                    _holders.add(((Str) args.get(0)).getInternalS()
+                            .toString());
+                } else {
+                    _opaque = true;
+                }
+            }
+            return super.visitCall(node);
+        }
+
+        @Override
+        public Object visitFunctionDef(FunctionDef node) throws Exception {
+            _opaque = true;
+            return super.visitFunctionDef(node);
+        }
+
+        @Override
+        public Object visitClassDef(ClassDef node) throws Exception {
+            _opaque = true;
+            return super.visitClassDef(node);
+        }
+
+        @Override
+        public Object visitLambda(Lambda node) throws Exception {
+            _opaque = true;
+            return super.visitLambda(node);
+        }
+
+        @Override
+        public Object visitImport(Import node) throws Exception {
+            _opaque = true;
+            return super.visitImport(node);
+        }
+
+        @Override
+        public Object visitImportFrom(ImportFrom node) throws Exception {
+            _opaque = true;
+            return super.visitImportFrom(node);
+        }
+
+        @Override
+        public Object visitExec(Exec node) throws Exception {
+            _opaque = true;
+            return super.visitExec(node);
+        }
+
+        @Override
+        public Object visitGlobal(Global node) throws Exception {
+            _opaque = true;
+            return super.visitGlobal(node);
+        }
+    }
+}
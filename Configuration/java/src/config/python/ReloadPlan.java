@@ -0,0 +1,225 @@
+package config.python;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.python.core.Py;
+import org.python.core.PyBoolean;
+import org.python.core.PyClass;
+import org.python.core.PyDictionary;
+import org.python.core.PyFloat;
+import org.python.core.PyFunction;
+import org.python.core.PyInteger;
+import org.python.core.PyList;
+import org.python.core.PyLong;
+import org.python.core.PyObject;
+import org.python.core.PyString;
+import org.python.core.PyStringMap;
+import org.python.core.PyTuple;
+
+/**
+ * Files that have to be reevaluated after some configuration files changed,
+ * and the top level holders and global names they define. Everything else in
+ * the namespace of the previous evaluation can be kept.
+ * <p>
+ * A file depends on an affected file if it
+ * <ul>
+ * <li>touches one of the same top level holders, either through
+ * <code>h('name')</code> or through a global bound to a holder below it,</li>
+ * <li>assigns a global that the affected file assigns too,</li>
+ * <li>comes later and reads a global the affected file assigns, or</li>
+ * <li>assigns a global the affected file reads, if it comes later or the
+ * value may be modified in place.</li>
+ * </ul>
+ * Dependent files are affected in turn. If any affected file is opaque (see
+ * {@link PyFileAnalysis}) everything has to be reevaluated.
+ *
+ * @author bgonzalez
+ */
+final class ReloadPlan {
+    private final List<File> _files = new ArrayList<>();
+    private final Set<String> _roots = new HashSet<>();
+    private final Set<String> _names = new HashSet<>();
+
+    private ReloadPlan() {
+    }
+
+    /**
+     * @param pyFiles all files, in import order
+     * @param previous analyses of the content that was evaluated
+     * @param current analyses of the current content
+     * @param changed files that changed since they were evaluated
+     * @param locals namespace of the previous evaluation
+     * @return plan, or <code>null</code> if every file has to be reevaluated
+     */
+    static ReloadPlan create(List<File> pyFiles,
+            Map<File, PyFileAnalysis> previous,
+            Map<File, PyFileAnalysis> current, Collection<File> changed,
+            PyStringMap locals) {
+        PyObject root = locals.__finditem__("root");
+        Map<PyObject, String> holderRoots = holderRoots(root);
+        int n = pyFiles.size();
+        List<Set<String>> roots = new ArrayList<>(n);
+        List<Set<String>> stores = new ArrayList<>(n);
+        List<Set<String>> loads = new ArrayList<>(n);
+        boolean[] opaque = new boolean[n];
+        boolean[] affected = new boolean[n];
+        for (int i = 0; i < n; i++) {
+            File pyFile = pyFiles.get(i);
+            PyFileAnalysis before = previous.get(pyFile);
+            PyFileAnalysis after = current.get(pyFile);
+            if (before == null) {
+                return null;
+            }
+            Set<String> r = new HashSet<>(before.holders());
+            Set<String> s = new HashSet<>(before.stores());
+            Set<String> l = new HashSet<>(before.loads());
+            opaque[i] = before.opaque() || after.opaque();
+            r.addAll(after.holders());
+            s.addAll(after.stores());
+            l.addAll(after.loads());
+
+            Set<String> names = new HashSet<>(s);
+            names.addAll(l);
+            for (String name : names) {
+                PyObject v = locals.__finditem__(name);
+                if (v != root && JythonConfigSnapshot.isHolder(v)) {
+                    String top = holderRoots.get(v);
+                    if (top == null) {
+                        // Holder which isn't reachable from root
+                        return null;
+                    }
+                    r.add(top);
+                }
+            }
+            roots.add(r);
+            stores.add(s);
+            loads.add(l);
+            affected[i] = changed.contains(pyFile);
+        }
+
+        boolean grown = true;
+        while (grown) {
+            grown = false;
+            for (int j = 0; j < n; j++) {
+                for (int i = 0; i < n && !affected[j]; i++) {
+                    if (affected[i]
+                            && depends(j, i, roots, stores, loads, locals)) {
+                        affected[j] = true;
+                        grown = true;
+                    }
+                }
+            }
+        }
+
+        ReloadPlan plan = new ReloadPlan();
+        for (int i = 0; i < n; i++) {
+            if (affected[i]) {
+                if (opaque[i]) {
+                    return null;
+                }
+                plan._files.add(pyFiles.get(i));
+                plan._roots.addAll(roots.get(i));
+                plan._names.addAll(stores.get(i));
+            }
+        }
+        return plan;
+    }
+
+    private static boolean depends(int j, int i, List<Set<String>> roots,
+            List<Set<String>> stores, List<Set<String>> loads,
+            PyStringMap locals) {
+        if (!Collections.disjoint(roots.get(j), roots.get(i))
+                || !Collections.disjoint(stores.get(j), stores.get(i))) {
+            return true;
+        }
+        if (j > i && !Collections.disjoint(loads.get(j), stores.get(i))) {
+            return true;
+        }
+        for (String name : stores.get(j)) {
+            if (loads.get(i).contains(name)
+                    && (j > i || !isImmutable(locals.__finditem__(name)))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param root container for all holder objects
+     * @return top level holder name of every holder reachable from
+     *         <code>root</code>
+     */
+    private static Map<PyObject, String> holderRoots(PyObject root) {
+        Map<PyObject, String> holderRoots = new IdentityHashMap<>();
+        PyList items = ((PyDictionary) root.__getattr__("nodes")).items();
+        for (int i = 0; i < items.__len__(); i++) {
+            PyTuple item = (PyTuple) items.get(i);
+            index(item.__getitem__(1), (String) item.get(0), holderRoots);
+        }
+        return holderRoots;
+    }
+
+    private static void index(PyObject holder, String root,
+            Map<PyObject, String> holderRoots) {
+        if (!JythonConfigSnapshot.isHolder(holder)
+                || holderRoots.containsKey(holder)) {
+            return;
+        }
+        holderRoots.put(holder, root);
+        PyList items = ((PyDictionary) holder.__getattr__("nodes")).items();
+        for (int i = 0; i < items.__len__(); i++) {
+            index(((PyTuple) items.get(i)).__getitem__(1), root, holderRoots);
+        }
+    }
+
+    private static boolean isImmutable(PyObject v) {
+        if (v == null) {
+            return false;
+        }
+        if (v == Py.None || v instanceof PyString || v instanceof PyInteger
+                || v instanceof PyLong || v instanceof PyFloat
+                || v instanceof PyBoolean || v instanceof PyFunction
+                || v instanceof PyClass) {
+            return true;
+        }
+        if (v instanceof PyTuple) {
+            PyTuple tuple = (PyTuple) v;
+            for (int i = 0; i < tuple.__len__(); i++) {
+                if (!isImmutable(tuple.__getitem__(i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return files to reevaluate, in import order
+     */
+    List<File> files() {
+        return _files;
+    }
+
+    /**
+     * @return top level holders the files to reevaluate may touch
+     */
+    Set<String> roots() {
+        return _roots;
+    }
+
+    /**
+     * @return global names the files to reevaluate may assign
+     */
+    Set<String> names() {
+        return _names;
+    }
+}
@@ -0,0 +1,106 @@
+package config.binary;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * @author bgonzalez
+ */
+public class TestConfigHistory {
+    private static Map<String, Object> entries(int version) {
+        Map<String, Object> entries = new HashMap<>();
+        for (int i = 0; i < 100; i++) {
+            entries.put("A" + i + ".b", i);
+        }
+        entries.put("A1.b", version);
+        entries.put("c", "c" + version);
+        if (version % 2 == 0) {
+            entries.put("even", true);
+        }
+        return entries;
+    }
+
+    /***/
+    @Test
+    public void testSnapshotAt() {
+        ConfigHistory history = new ConfigHistory();
+        for (int v = 0; v < 5; v++) {
+            history.record(100 * (v + 1), entries(v));
+        }
+        assertEquals(5, history.size());
+        assertEquals(0, history.snapshotAt(100).i("b", "A1"));
+        assertEquals(0, history.snapshotAt(199).i("b", "A1"));
+        assertEquals(1, history.snapshotAt(200).i("b", "A1"));
+        assertEquals("c4", history.snapshotAt(Long.MAX_VALUE).string("c"));
+        assertEquals(42, history.snapshotAt(300).i("b", "A42"));
+        assertFalse(history.snapshotAt(250).keys().contains("even"));
+        assertEquals(entries(2), history.snapshotAt(300).asMap());
+        assertEquals(300, history.snapshotAt(350).time());
+    }
+
+    /***/
+    @Test(expected = RuntimeException.class)
+    public void testBeforeFirstVersion() {
+        ConfigHistory history = new ConfigHistory();
+        history.record(100, entries(0));
+        history.snapshotAt(99);
+    }
+
+    /***/
+    @Test
+    public void testPersistentMap() {
+        Random rnd = new Random(1);
+        Map<String, Object> expected = new HashMap<>();
+        PersistentConfigMap map = PersistentConfigMap.EMPTY;
+        for (int i = 0; i < 20000; i++) {
+            String key = "k" + rnd.nextInt(5000);
+            if (rnd.nextInt(4) == 0) {
+                expected.remove(key);
+                map = map.remove(key);
+            } else {
+                expected.put(key, i);
+                map = map.put(key, i);
+            }
+        }
+        // "Aa" and "BB" have the same hash code
+        expected.put("Aa", 1);
+        expected.put("BB", 2);
+        map = map.put("Aa", 1).put("BB", 2);
+        assertEquals(expected.size(), map.size());
+        for (Map.Entry<String, Object> entry : expected.entrySet()) {
+            assertEquals(entry.getValue(), map.get(entry.getKey()));
+        }
+        map = map.remove("Aa");
+        assertEquals(2, map.get("BB"));
+        assertFalse(map.containsKey("Aa"));
+    }
+
+    /***/
+    @Test
+    public void testWriteRead() throws IOException {
+        ConfigHistory history = new ConfigHistory();
+        for (int v = 0; v < 5; v++) {
+            history.record(100 * (v + 1), entries(v));
+        }
+        File file = File.createTempFile("config", ".history");
+        try {
+            history.write(file);
+            ConfigHistory read = ConfigHistory.read(file);
+            assertEquals(5, read.size());
+            for (int v = 0; v < 5; v++) {
+                assertEquals(entries(v), read.snapshotAt(100 * (v + 1))
+                        .asMap());
+            }
+        } finally {
+            file.delete();
+        }
+    }
+}
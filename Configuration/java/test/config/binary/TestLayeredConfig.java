@@ -0,0 +1,75 @@
+package config.binary;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import common.config.LayeredConfigSnapshot;
+
+/**
+ * @author bgonzalez
+ */
+public class TestLayeredConfig {
+    private static BinaryConfigSnapshot snapshot(Object... entries) {
+        Map<String, Object> map = new HashMap<>();
+        for (int i = 0; i < entries.length; i += 2) {
+            map.put((String) entries[i], entries[i + 1]);
+        }
+        return new BinaryConfigSnapshot(ByteBuffer.wrap(BinaryConfigWriter
+                .toBytes(map)));
+    }
+
+    /***/
+    @Test
+    public void testOverride() {
+        BinaryConfigSnapshot base = snapshot("A.b", 1, "A.c", "c", "d", 2.0);
+        BinaryConfigSnapshot host = snapshot("A.b", 2, "e", 3);
+        LayeredConfigSnapshot cfg = LayeredConfigSnapshot.of(base, host);
+        assertEquals(2, cfg.i("b", "A"));
+        assertEquals("c", cfg.string("c", "A"));
+        assertEquals(2.0, cfg.d("d", "A"), 0.0);
+        assertEquals(3, cfg.i("e", "A"));
+        assertEquals(4, cfg.keys().size());
+    }
+
+    /***/
+    @Test
+    public void testQualifiedBaseKeyWins() {
+        LayeredConfigSnapshot cfg = LayeredConfigSnapshot.of(
+                snapshot("A.b", 1), snapshot("b", 2));
+        assertEquals(1, cfg.i("b", "A"));
+        assertEquals(2, cfg.i("b", "B"));
+    }
+
+    /***/
+    @Test
+    public void testReplaceLayer() {
+        BinaryConfigSnapshot base = snapshot("A.b", 1, "A.c", "c");
+        LayeredConfigSnapshot cfg = LayeredConfigSnapshot.of(base,
+                snapshot("A.b", 2, "A.x", 5), snapshot("A.c", "s"));
+        LayeredConfigSnapshot replaced = cfg.replace(1, snapshot("A.y", 6));
+        assertEquals(1, replaced.i("b", "A"));
+        assertEquals("s", replaced.string("c", "A"));
+        assertEquals(6, replaced.i("y", "A"));
+        assertFalse(replaced.keys().contains("A.x"));
+        assertSame(base, replaced.layer(0));
+
+        assertEquals(2, cfg.i("b", "A"));
+        assertEquals(LayeredConfigSnapshot.of(base, snapshot("A.y", 6),
+                snapshot("A.c", "s")).asMap(), replaced.asMap());
+    }
+
+    /***/
+    @Test
+    public void testNoneHidesBaseKey() {
+        LayeredConfigSnapshot cfg = LayeredConfigSnapshot.of(
+                snapshot("A.b", 1, "b", 0), snapshot("A.b", null));
+        assertEquals(0, cfg.i("b", "A"));
+    }
+}
@@ -0,0 +1,125 @@
+package config.binary;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import common.ConstraintException;
+
+/**
+ * @author bgonzalez
+ */
+public class TestSharedConfig {
+    private File _file;
+    private SharedConfigPublisher _publisher;
+    private SharedConfigReader _reader;
+
+    /***/
+    @Before
+    public void createRegion() throws IOException {
+        _file = File.createTempFile("config", ".shm");
+        _publisher = new SharedConfigPublisher(_file, 2, 4096);
+        _publisher.publish(entries(1));
+        _reader = new SharedConfigReader(_file);
+    }
+
+    /***/
+    @After
+    public void deleteRegion() throws IOException {
+        _publisher.close();
+        _file.delete();
+    }
+
+    private static Map<String, Object> entries(int version) {
+        Map<String, Object> entries = new HashMap<>();
+        entries.put("A.b", version);
+        entries.put("A.c", "c" + version);
+        entries.put("d", 2.0);
+        return entries;
+    }
+
+    /***/
+    @Test
+    public void testLookup() {
+        BinaryConfigSnapshot cfg = _reader.createConfigSnapshot();
+        assertEquals(1, _reader.version());
+        assertEquals(1, cfg.i("b", "A"));
+        assertEquals("c1", cfg.string("c", "A"));
+        assertEquals(2.0, cfg.d("d", "A"), 0.0);
+    }
+
+    /***/
+    @Test
+    public void testNewVersion() {
+        BinaryConfigSnapshot old = _reader.createConfigSnapshot();
+        assertEquals(1, old.i("b", "A"));
+
+        _publisher.publish(entries(2));
+        assertEquals(2, _reader.version());
+        assertEquals(2, _reader.createConfigSnapshot().i("b", "A"));
+        assertEquals(1, old.i("b", "A"));
+        assertEquals("c1", old.string("c", "A"));
+    }
+
+    /***/
+    @Test(expected = ConstraintException.class)
+    public void testSingleSlot() throws IOException {
+        new SharedConfigPublisher(_file, 1, 4096);
+    }
+
+    /***/
+    @Test(expected = RuntimeException.class)
+    public void testOverwrittenSnapshot() {
+        BinaryConfigSnapshot old = _reader.createConfigSnapshot();
+        _publisher.publish(entries(2));
+        _publisher.publish(entries(3));
+        old.string("c", "A");
+    }
+
+    /***/
+    @Test
+    public void testReopenKeepsVersion() throws IOException {
+        _publisher.close();
+        _publisher = new SharedConfigPublisher(_file, 2, 4096);
+        assertEquals(1, _publisher.version());
+        assertEquals(2, _publisher.publish(entries(2)));
+    }
+
+    /**
+     * A publisher which died between the two sequence updates leaves the
+     * sequence of the slot it was writing odd.
+     */
+    @Test(timeout = 10000)
+    public void testReopenAfterDeathMidWrite() throws IOException {
+        _publisher.close();
+        int seqOffset = SharedConfigRegion.slotOffset(0, 4096)
+                + SharedConfigRegion.SEQUENCE_OFFSET;
+        try (FileChannel channel = FileChannel.open(_file.toPath(),
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer region = channel.map(MapMode.READ_WRITE, 0,
+                    channel.size());
+            region.order(ByteOrder.nativeOrder());
+            region.putLong(seqOffset, 5);
+            region.force();
+        }
+
+        _publisher = new SharedConfigPublisher(_file, 2, 4096);
+        assertEquals(2, _publisher.publish(entries(2)));
+        assertEquals(2, _reader.createConfigSnapshot().i("b", "A"));
+        assertEquals(3, _publisher.publish(entries(3)));
+        assertEquals(4, _publisher.publish(entries(4)));
+        assertEquals(4, _reader.createConfigSnapshot().i("b", "A"));
+    }
+}
@@ -0,0 +1,67 @@
+package config.python;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Temporary folder for the configuration files written by a test, deleted
+ * with everything in it after the test. Loaders registered with
+ * <code>track()</code> are shut down after the test as well.
+ *
+ * @author bgonzalez
+ */
+public class ConfigFolder extends TemporaryFolder {
+    private final List<JythonConfigLoader> _loaders = new ArrayList<>();
+    private final List<DslConfigLoader> _dslLoaders = new ArrayList<>();
+
+    @Override
+    protected void after() {
+        for (JythonConfigLoader loader : _loaders) {
+            loader.shutdown();
+        }
+        for (DslConfigLoader loader : _dslLoaders) {
+            loader.shutdown();
+        }
+        super.after();
+    }
+
+    /**
+     * @return <code>loader</code>, which is shut down after the test
+     */
+    JythonConfigLoader track(JythonConfigLoader loader) {
+        _loaders.add(loader);
+        return loader;
+    }
+
+    /**
+     * @return <code>loader</code>, which is shut down after the test
+     */
+    DslConfigLoader track(DslConfigLoader loader) {
+        _dslLoaders.add(loader);
+        return loader;
+    }
+    /**
+     * @return copy of <code>configbase.py</code> in this folder
+     */
+    File configbase() throws IOException {
+        return Files.copy(new File("configbase.py").toPath(),
+                new File(getRoot(), "configbase.py").toPath()).toFile();
+    }
+
+    /**
+     * Writes <code>content</code> to the file <code>name</code>, replacing
+     * its previous content.
+     *
+     * @return file
+     */
+    File write(String name, String content) throws IOException {
+        File f = new File(getRoot(), name);
+        Files.write(f.toPath(), content.getBytes("UTF-8"));
+        return f;
+    }
+}
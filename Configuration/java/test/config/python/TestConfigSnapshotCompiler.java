@@ -0,0 +1,70 @@
+package config.python;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import config.binary.BinaryConfigSnapshot;
+
+/**
+ * @author bgonzalez
+ */
+public class TestConfigSnapshotCompiler {
+    private File _output;
+    private JythonConfigSnapshot _live;
+    private BinaryConfigSnapshot _cfg;
+
+    /***/
+    @Before
+    public void compile() throws IOException {
+        _output = File.createTempFile("config", ".bin");
+        _live = ConfigSnapshotCompiler.compile("test.imports", _output);
+        _cfg = BinaryConfigSnapshot.map(_output);
+    }
+
+    /***/
+    @After
+    public void cleanup() {
+        _output.delete();
+    }
+
+    /***/
+    @Test
+    public void testConsistent() {
+        assertTrue(ConfigSnapshotCompiler.verify(_live, _cfg).isEmpty());
+        assertEquals(_live.asMap().size(), _cfg.size());
+    }
+
+    /***/
+    @Test
+    public void testLookups() {
+        assertEquals(1, _cfg.i("b", "A"));
+        assertEquals("a", _cfg.string("c", "A"));
+        assertEquals(2.0, _cfg.d("d", "A"), 0.0);
+        assertTrue(_cfg.bool("l", "B"));
+        assertArrayEquals(new int[] { 1, 2 }, _cfg.iArr("e", "A"));
+        assertEquals(1, _cfg.i("j", "g", "i", "A", "h"));
+        assertEquals(10.0, _cfg.d("k", "B", "m"), 0.0);
+
+        List<Integer> test = _cfg.list("Test", "H", "K");
+        assertArrayEquals(new Integer[] { 5, 6, 7 }, test.toArray());
+
+        Map<Integer, List<Integer>> f = _cfg.map("f", "A");
+        assertArrayEquals(new Integer[] { 2, 3, 4 }, f.get(1).toArray());
+    }
+
+    /***/
+    @Test(expected = RuntimeException.class)
+    public void testMissingKey() {
+        _cfg.get("NotAKey", "None");
+    }
+}
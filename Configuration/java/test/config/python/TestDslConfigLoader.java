@@ -0,0 +1,101 @@
+package config.python;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+/**
+ * @author bgonzalez
+ */
+public class TestDslConfigLoader {
+    /***/
+    @Rule
+    public final ConfigFolder _folder = new ConfigFolder();
+
+    /***/
+    @Test
+    public void testSameAsJython() {
+        DslConfigLoader loader = _folder.track(
+                new DslConfigLoader("test.imports"));
+        JythonConfigSnapshot cfg = loader.load();
+        assertNull(loader.fallbackReason());
+
+        JythonConfigLoader jython = _folder.track(
+                new JythonConfigLoader("test.imports"));
+        jython.reload();
+        assertEquals(jython.createConfigSnapshot().asMap(), cfg.asMap());
+        assertEquals(1, cfg.i("j", "A", "g", "h", "i"));
+    }
+
+    /***/
+    @Test
+    public void testLiterals() throws IOException {
+        String source = "# Comment\n"
+                + "A = h('A')\n"
+                + "A.i = -3\n"
+                + "A.big = 12345678901\n"
+                + "A.long = 5L\n"
+                + "A.hex = 0xff\n"
+                + "A.f = 1.5e3\n"
+                + "A.neg = -.5\n"
+                + "A.s = \"it's\\n\"\n"
+                + "A.n = None\n"
+                + "A.t = (1, 'a', (2,), ())\n"
+                + "A.l = [1, [2, 3],\n"
+                + "       {'k': False}, ]\n"
+                + "A.d = {1: 2, 'x': [True]}\n"
+                + "A.p = (7)\n"
+                + "x = y = 'both'\n"
+                + "A.ref = x\n"
+                + "A.x.y = A.x.z = \\\n"
+                + "    4\n"
+                + "h('B').alias = A.x\n"
+                + "h(x).w = 1\n"
+                + "Sub = A.deep\n"
+                + "Sub.v = 1\n";
+        assertSame(source, true);
+    }
+
+    /***/
+    @Test
+    public void testFallback() throws IOException {
+        assertSame("A = h('A')\nA.x = 2 * 3\n", false);
+        assertSame("def f(v):\n    return v\nA = h('A')\nA.x = f(1)\n",
+                false);
+        assertSame("import math\nA = h('A')\nA.x = math.pi\n", false);
+        assertSame("A = h('A')\nA.x = [1, 2]\nA.x.append(3)\n", false);
+        assertSame("A = h('A')\nA.x = [i for i in (1, 2)]\n", false);
+        assertSame("A = h('A')\nA.x = 010\n", false);
+        assertSame("A = h('A')\nA.x = 'a' 'b'\n", false);
+    }
+
+    /**
+     * Asserts that the DSL loader and the jython loader agree on
+     * <code>source</code>, and whether the DSL loader fell back to jython.
+     */
+    private void assertSame(String source, boolean dsl) throws IOException {
+        List<File> files = new ArrayList<>();
+        files.add(new File("configbase.py"));
+        files.add(_folder.write("c.py", source));
+
+        DslConfigLoader loader = _folder.track(new DslConfigLoader(files));
+        JythonConfigLoader jython = _folder.track(
+                new JythonConfigLoader(files));
+        jython.reload();
+        assertEquals(jython.createConfigSnapshot().asMap(), loader.load()
+                .asMap());
+        if (dsl) {
+            assertNull(loader.fallbackReason());
+        } else {
+            assertNotNull(loader.fallbackReason());
+        }
+    }
+}
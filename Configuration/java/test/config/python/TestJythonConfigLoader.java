@@ -2,30 +2,64 @@ package config.python;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Future;
 
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
 
+import common.ConstraintException;
+import common.config.ColumnTable;
+import common.config.ConfigAccessTracer;
+import common.config.ConfigKeyIndex;
+import common.config.ConfigSchema;
+import common.config.ConfigAccessTracer.NameStats;
+import common.config.EnumTable;
+import common.config.LayeredConfigSnapshot;
+import common.types.Symbol;
+import common.types.SymbolTable;
+
+import config.binary.BinaryConfigSnapshot;
+import config.binary.BinaryConfigWriter;
+
 /**
  * @author bgonzalez
  */
 public class TestJythonConfigLoader {
     private static enum TestEnum {
-        A;
+        A, B;
+    }
+
+    private static enum ReversedEnum {
+        B, A;
     }
 
+    /***/
+    @Rule
+    public final ConfigFolder _folder = new ConfigFolder();
+
+    private JythonConfigLoader _configLoader;
     private JythonConfigSnapshot _cfg;
 
     /***/
     @Before
     public void initConfigSystem() {
-        JythonConfigLoader configLoader = new JythonConfigLoader("test.imports");
-        configLoader.reload();
-        _cfg = configLoader.createConfigSnapshot();
+        _configLoader = _folder.track(new JythonConfigLoader("test.imports"));
+        _configLoader.reload();
+        _cfg = _configLoader.createConfigSnapshot();
     }
 
     /***/
@@ -59,14 +93,14 @@ public class TestJythonConfigLoader {
     /***/
     @Test
     public void testListVal() {
-        List<Integer> e = _cfg.<Integer> getList("e", "A");
+        List<Integer> e = _cfg.<Integer> list("e", "A");
         assertArrayEquals(e.toArray(), new Integer[] { 1, 2 });
     }
 
     /***/
     @Test
     public void testMapVal() {
-        Map<Integer, List<Integer>> f = _cfg.<Integer, List<Integer>> getMap(
+        Map<Integer, List<Integer>> f = _cfg.<Integer, List<Integer>> map(
                 "f", "A");
         assertTrue(f.containsKey(1));
         assertArrayEquals(f.get(1).toArray(), new Integer[] { 2, 3, 4 });
@@ -118,39 +152,376 @@ public class TestJythonConfigLoader {
     public void testObjectLookup() {
         int b = _cfg.get("b", TestEnum.A);
         assertEquals(1, b);
+        b = _cfg.get("b", TestEnum.A);
+        assertEquals(1, b);
+        boolean l = _cfg.get("l", TestEnum.B);
+        assertTrue(l);
+    }
+
+    /***/
+    @Test
+    public void testEnumTable() {
+        EnumTable<TestEnum, Double> k = _cfg.table("k", TestEnum.class);
+        assertFalse(k.contains(TestEnum.A));
+        assertEquals(10.0, k.d(TestEnum.B), 0.0);
+
+        EnumTable<TestEnum, List<Integer>> test = _cfg.table("Test",
+                TestEnum.class, "H");
+        assertArrayEquals(new Integer[] { 5, 6, 7 }, test.get(TestEnum.A)
+                .toArray());
+    }
+
+    /**
+     * Enums with the same constant names but different ordinals get tables
+     * of their own for the same key.
+     */
+    @Test
+    public void testEnumQualifiers() {
+        for (int i = 0; i < 2; i++) {
+            assertEquals(10.0, _cfg.d("k", TestEnum.B), 0.0);
+            assertEquals(10.0, _cfg.d("k", ReversedEnum.B), 0.0);
+            assertEquals(1, _cfg.i("b", ReversedEnum.A));
+            assertEquals(1, _cfg.i("b", TestEnum.A));
+        }
+    }
+
+    /**
+     * Symbols of different tables can have the same id.
+     */
+    @Test
+    public void testSymbolQualifiers() {
+        Symbol a = new SymbolTable().reserve("A");
+        Symbol b = new SymbolTable().reserve("B");
+        assertEquals(a.id(), b.id());
+        for (int i = 0; i < 2; i++) {
+            assertEquals(1, _cfg.i("b", a));
+            assertEquals(10.0, _cfg.d("k", b), 0.0);
+            try {
+                _cfg.get("k", a);
+                fail("k is not configured for A");
+            } catch (RuntimeException e) {
+                // Expected
+            }
+            assertEquals(1, _cfg.i("b", a));
+        }
+    }
+
+    /***/
+    @Test(expected = RuntimeException.class)
+    public void testMissingEnumKey() {
+        _cfg.get("k", TestEnum.A);
     }
 
     /***/
     @Test
     public void testPrimitiveCalls() {
-        int b = _cfg.getInt("b", "A");
+        int b = _cfg.i("b", "A");
         assertEquals(1, b);
 
-        String c = _cfg.getString("c", "A");
+        String c = _cfg.string("c", "A");
         assertEquals("a", c);
 
-        double d = _cfg.getDouble("d", "A");
+        double d = _cfg.d("d", "A");
         assertEquals(2.0, d, 0.0);
 
-        double b1 = _cfg.getDouble("b", "A");
+        double b1 = _cfg.d("b", "A");
         assertEquals(1.0, b1, 0.0);
 
-        short b2 = _cfg.getShort("b", "A");
+        short b2 = _cfg.s("b", "A");
         assertEquals(1, b2);
 
-        float b3 = _cfg.getFloat("b", "A");
+        float b3 = _cfg.f("b", "A");
         assertEquals(1.0, b3, 0.0);
 
-        boolean l = _cfg.getBoolean("l", "B");
+        boolean l = _cfg.bool("l", "B");
         assertTrue(l);
     }
 
     @Test
     public void testArrayConversion() {
-        int[] e = _cfg.getIntArray("e", "A");
+        int[] e = _cfg.iArr("e", "A");
         assertArrayEquals(e, new int[] { 1, 2 });
 
-        double[] e1 = _cfg.getDoubleArray("e", "A");
+        double[] e1 = _cfg.dArr("e", "A");
         assertArrayEquals(e1, new double[] { 1.0, 2.0 }, 0.0);
     }
+
+    /***/
+    @Test
+    public void testLazySnapshot() {
+        JythonConfigSnapshot lazy = _configLoader.createConfigSnapshot(true);
+        List<Integer> e = lazy.list("e", "A");
+        assertArrayEquals(new Integer[] { 1, 2 }, e.toArray());
+        assertSame(lazy.list("e", "A"), lazy.list("A", "e"));
+        assertEquals(1, lazy.i("j", "g", "i", "A", "h"));
+        assertEquals(_cfg.asMap(), lazy.asMap());
+    }
+
+    /***/
+    @Test
+    public void testReloadInBackground() throws Exception {
+        Future<JythonConfigSnapshot> reloaded = _configLoader
+                .reloadInBackground(false);
+        assertEquals(_cfg.asMap(), reloaded.get().asMap());
+        assertEquals(1, _configLoader.createConfigSnapshot().i("b", "A"));
+    }
+
+    /***/
+    @Test
+    public void testTracing() {
+        ConfigAccessTracer tracer = new ConfigAccessTracer();
+        _cfg.trace(tracer);
+        _cfg.i("b", "A");
+        _cfg.i("b", TestEnum.A);
+        _cfg.d("k", "B", "m");
+        try {
+            _cfg.get("NotAKey");
+        } catch (RuntimeException e) {
+            // expected
+        }
+
+        NameStats b = tracer.hotNames().get(0);
+        assertEquals("b", b.name());
+        assertEquals(2, b.lookups());
+        assertEquals(2, b.fallbacks(0));
+        assertEquals(2, tracer.reads("A.b"));
+
+        for (NameStats stats : tracer.hotNames()) {
+            if ("k".equals(stats.name())) {
+                assertEquals(1, stats.fallbacks(1));
+            } else if ("NotAKey".equals(stats.name())) {
+                assertEquals(1, stats.misses());
+            }
+        }
+
+        List<String> unread = tracer.unread(_cfg.keys());
+        assertTrue(unread.contains("A.c"));
+        assertFalse(unread.contains("A.b"));
+        assertFalse(unread.contains("b.A"));
+        assertFalse(unread.contains("B.k"));
+    }
+
+    /***/
+    @Test
+    public void testKeyIndex() {
+        ConfigKeyIndex index = _cfg.index();
+        assertSame(index, _cfg.index());
+        assertTrue(index.root().keyCount() < _cfg.keys().size());
+
+        // Only the keys defined in holder A, not the names of permutations
+        ConfigKeyIndex.Node a = index.node("A");
+        String[] tokens = new String[a.childCount()];
+        for (int i = 0; i < a.childCount(); i++) {
+            tokens[i] = a.child(i).token();
+        }
+        assertArrayEquals(new String[] { "b", "c", "d", "e", "f", "g" },
+                tokens);
+        assertEquals(6, index.count("A"));
+        assertEquals(1, index.count("A", "g"));
+        assertEquals("A.g.h.i.j", index.node("A", "g", "h", "i", "j").key());
+        assertEquals(null, index.node("g"));
+        assertEquals(1, index.count("Test"));
+        assertEquals("A.b", index.node("A", "b").key());
+        assertFalse(index.node("A", "g").isKey());
+        assertEquals(null, index.node("A", "x"));
+        assertEquals(0, index.count("X"));
+        assertEquals(6, LayeredConfigSnapshot.of(_cfg).index().count("A"));
+    }
+
+    /***/
+    @Test
+    public void testKeyIndexRanges() {
+        ConfigKeyIndex.Node a = _cfg.index().node("A");
+        assertEquals(0, a.lowerBound(""));
+        assertEquals(1, a.lowerBound("c"));
+        assertEquals(2, a.lowerBound("cc"));
+        assertEquals(a.childCount(), a.lowerBound("x"));
+        assertEquals(3, a.keyCount("c", "f"));
+        assertEquals(2, a.keyCount("f", "x"));
+        assertEquals(a.keyCount(), a.keyCount("", "x"));
+        assertEquals(0, a.keyCount("f", "c"));
+        assertEquals(0, a.keyCount("x", "y"));
+
+        ConfigKeyIndex.Node root = _cfg.index().root();
+        assertEquals(8, root.keyCount("A", "C"));
+    }
+
+    /***/
+    @Test
+    public void testReloadAfterShutdown() {
+        _configLoader.shutdown();
+        _configLoader.reload();
+        _configLoader.reload();
+        assertEquals(1, _configLoader.createConfigSnapshot().i("b", "A"));
+        assertEquals(1, _cfg.i("b", "A"));
+    }
+
+    /***/
+    @Test
+    public void testCodeCacheFolder() throws IOException {
+        File cacheFolder = _folder.newFolder("pycache");
+        JythonConfigLoader first = _folder.track(new JythonConfigLoader(
+                "test.imports", cacheFolder));
+        first.reload();
+        assertEquals(2, cacheFolder.list().length);
+        // A recompiled file would be rewritten with a new modification time
+        for (File f : cacheFolder.listFiles()) {
+            assertTrue(f.setLastModified(1000));
+        }
+
+        JythonConfigLoader second = _folder.track(new JythonConfigLoader(
+                "test.imports", cacheFolder));
+        second.reload();
+        second.reload();
+        assertEquals(2, cacheFolder.list().length);
+        for (File f : cacheFolder.listFiles()) {
+            assertEquals(1000, f.lastModified());
+        }
+        assertEquals(1, second.createConfigSnapshot().i("b", "A"));
+    }
+
+    /***/
+    @Test
+    public void testIncrementalReload() throws IOException {
+        List<File> files = new ArrayList<>();
+        files.add(_folder.configbase());
+        files.add(_folder.write("a.py", "A = h('A')\nA.x = 1\n"
+                + "Base = 10\n"));
+        files.add(_folder.write("b.py", "B = h('B')\nB.y = Base * 2\n"));
+        files.add(_folder.write("c.py", "C = h('C')\nC.z = 'c'\n"
+                + "C.sub.w = 3\n"));
+        JythonConfigLoader loader = _folder.track(
+                new JythonConfigLoader(files));
+        loader.reload();
+
+        _folder.write("a.py", "A = h('A')\nA.x = 2\nBase = 20\n");
+        JythonConfigSnapshot cfg = loader.reload(Collections
+                .singletonList(files.get(1)));
+        assertEquals(2, cfg.i("x", "A"));
+        assertEquals(40.0, cfg.d("y", "B"), 0.0);
+        assertEquals("c", cfg.string("z", "C"));
+        assertEquals(20, cfg.i("Base"));
+
+        _folder.write("c.py", "C = h('C')\nC.v = 4\n");
+        cfg = loader.reload(Collections.singletonList(files.get(3)));
+        assertEquals(4, cfg.i("v", "C"));
+        assertFalse(cfg.keys().contains("C.z"));
+        assertFalse(cfg.keys().contains("w.sub.C"));
+        assertEquals(2, cfg.i("x", "A"));
+
+        JythonConfigLoader full = _folder.track(new JythonConfigLoader(files));
+        full.reload();
+        assertEquals(full.createConfigSnapshot().asMap(), cfg.asMap());
+        assertEquals(full.createConfigSnapshot().asMap(), loader
+                .createConfigSnapshot().asMap());
+
+        // Function definitions make a file opaque, which forces a full
+        // reload
+        _folder.write("b.py", "def f(v):\n    return v * 3\n"
+                + "B = h('B')\nB.y = f(Base)\n");
+        cfg = loader.reload(Arrays.asList(files.get(2)));
+        assertEquals(60, cfg.i("y", "B"));
+        assertEquals(4, cfg.i("v", "C"));
+    }
+
+    /***/
+    @Test
+    public void testColumnTable() throws IOException {
+        File csv = _folder.write("ticks.csv", "id:int,size:long,tick\n"
+                + "1,100,0.25\n2,200,0.5\n3,300,0.01\n");
+        List<File> files = new ArrayList<>();
+        files.add(new File("configbase.py"));
+        files.add(_folder.write("t.py", "A = h('A')\nA.ticks = table('"
+                + csv.getAbsolutePath() + "')\n"));
+        JythonConfigLoader loader = _folder.track(
+                new JythonConfigLoader(files));
+        loader.reload();
+
+        ColumnTable ticks = loader.createConfigSnapshot().columns(
+                "ticks", "A");
+        assertEquals(3, ticks.rows());
+        assertEquals(3, ticks.columnCount());
+        assertEquals(ColumnTable.LONG, ticks.type(1));
+        assertEquals(2, ticks.getInt(ticks.column("id"), 1));
+        assertEquals(300L, ticks.getLong(ticks.column("size"), 2));
+        assertEquals(0.01, ticks.getDouble(ticks.column("tick"), 2), 0.0);
+
+        ColumnTable lazy = loader.createConfigSnapshot(true).columns(
+                "ticks", "A");
+        assertEquals(ticks, lazy);
+
+        BinaryConfigSnapshot binary = new BinaryConfigSnapshot(ByteBuffer
+                .wrap(BinaryConfigWriter.toBytes(loader
+                        .createConfigSnapshot().asMap())));
+        assertEquals(0.5, binary.columns("ticks", "A").getDouble(2, 1),
+                0.0);
+    }
+
+    /***/
+    @Test
+    public void testRelativeTable() throws IOException {
+        File csv = _folder.write("ticks.csv", "id:int,tick\n1,0.25\n");
+        List<File> files = new ArrayList<>();
+        files.add(new File("configbase.py"));
+        files.add(_folder.write("t.py", "A = h('A')\n"
+                + "A.ticks = table('ticks.csv')\n"));
+        JythonConfigLoader loader = _folder.track(
+                new JythonConfigLoader(files));
+        loader.reload();
+        JythonConfigSnapshot cfg = loader.createConfigSnapshot();
+        assertEquals(1, cfg.columns("ticks", "A").rows());
+        assertEquals(Collections.singleton(csv), cfg.tables());
+        assertEquals(cfg.asMap(), _folder.track(new DslConfigLoader(files))
+                .load().asMap());
+
+        Runnable task = loader.getFileUpdateTask();
+        _folder.write("ticks.csv", "id:int,tick\n1,0.25\n2,0.5\n");
+        csv.setLastModified(csv.lastModified() + 2000);
+        task.run();
+        cfg = loader.createConfigSnapshot();
+        assertEquals(2, cfg.columns("ticks", "A").rows());
+        assertEquals(0.5, cfg.columns("ticks", "A").getDouble(1, 1), 0.0);
+    }
+
+    /***/
+    @Test
+    public void testSchema() throws IOException {
+        ConfigSchema schema = new ConfigSchema()
+                .require("b", ConfigSchema.between(0, 10), "A")
+                .require("d", ConfigSchema.gt0(), "A", "x")
+                .each("c", ConfigSchema.notEmpty())
+                .each("k", ConfigSchema.in(5.0, 10.0));
+        assertTrue(schema.violations(_cfg).isEmpty());
+
+        ConfigSchema strict = new ConfigSchema()
+                .require("b", ConfigSchema.gt(1.0), "A")
+                .require("missing", ConfigSchema.gt0())
+                .each("j", ConfigSchema.lt(0.0));
+        List<String> violations = strict.violations(_cfg);
+        assertEquals(2 + 24, violations.size());
+        assertTrue(violations.contains("missing: missing"));
+
+        List<File> files = new ArrayList<>();
+        files.add(new File("configbase.py"));
+        files.add(_folder.write("a.py", "A = h('A')\nA.x = 1\n"));
+        JythonConfigLoader loader = _folder.track(
+                new JythonConfigLoader(files));
+        loader.validate(new ConfigSchema().each("x", ConfigSchema.gt0()));
+        loader.reload();
+
+        _folder.write("a.py", "A = h('A')\nA.x = 0\n");
+        try {
+            loader.reload(Collections.singletonList(files.get(1)));
+            fail();
+        } catch (ConstraintException e) {
+            assertTrue(e.getMessage().contains("A.x"));
+        }
+        try {
+            loader.reload();
+            fail();
+        } catch (ConstraintException e) {
+            assertTrue(e.getMessage().contains("A.x: 0"));
+        }
+        assertEquals(1, loader.createConfigSnapshot().i("x", "A"));
+    }
 }